@@ -0,0 +1,171 @@
+package org.example.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Punto de entrada de benchmarks.jar. Acepta las opciones de JMH y añade por defecto el
+ * perfilador de asignaciones ({@code -prof gc}) y la salida JSON (en jmh-result.json si no
+ * se indica {@code -rff}), en la que la ruta de la JVM se reduce a su nombre para que el
+ * fichero se pueda versionar sin datos de la máquina. Con {@code -baseline fichero.json} compara después cada
+ * benchmark con la línea base y termina con código 1 si alguno es más lento que ella en más
+ * del umbral ({@code -threshold}, por defecto 0.10) y fuera de los márgenes de error.
+ */
+public class BenchmarkMain {
+
+    private static final double DEFAULT_THRESHOLD = 0.10;
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    // "jvm" : "/ruta/a/bin/java" -> "jvm" : "java"
+    private static final Pattern JVM_PATH = Pattern.compile("(\"jvm\"\\s*:\\s*\")[^\"]*[/\\\\]([^\"/\\\\]*\")");
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        Path baseline = null;
+        double threshold = DEFAULT_THRESHOLD;
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-baseline".equals(args[i]) && i + 1 < args.length) {
+                baseline = Paths.get(args[++i]);
+            } else if ("-threshold".equals(args[i]) && i + 1 < args.length) {
+                threshold = Double.parseDouble(args[++i]);
+            } else {
+                jmhArgs.add(args[i]);
+            }
+        }
+
+        CommandLineOptions commandLine;
+        try {
+            commandLine = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        } catch (CommandLineOptionException e) {
+            System.err.println("Opciones no válidas: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(jmhArgs.toArray(new String[0]));
+            return;
+        }
+
+        String resultFile = commandLine.getResult().orElse(DEFAULT_RESULT_FILE);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        builder.addProfiler(GCProfiler.class);
+        builder.resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON));
+        builder.result(resultFile);
+        Options options = builder.build();
+        new Runner(options).run();
+        if (options.getResultFormat().orElse(ResultFormatType.JSON) == ResultFormatType.JSON) {
+            stripJvmPath(Paths.get(resultFile));
+        }
+
+        if (baseline != null) {
+            int regressions = compare(baseline, Paths.get(resultFile), threshold);
+            System.exit(regressions > 0 ? 1 : 0);
+        }
+    }
+
+    private static void stripJvmPath(Path resultFile) throws IOException {
+        String json = new String(Files.readAllBytes(resultFile), StandardCharsets.UTF_8);
+        Files.write(resultFile, JVM_PATH.matcher(json).replaceAll("$1$2").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compara dos resultados JSON de JMH (menor es mejor, como en los modos de tiempo medio).
+     * @return El número de benchmarks más lentos que la línea base.
+     */
+    static int compare(Path baselineFile, Path currentFile, double threshold) throws IOException {
+        Map<String, JsonObject> baseline = readResults(baselineFile);
+        Map<String, JsonObject> current = readResults(currentFile);
+        int regressions = 0;
+        System.out.println();
+        System.out.printf("%-90s %12s %12s %8s %14s%n", "Benchmark", "Base", "Actual", "Cambio", "Asign. B/op");
+        for (Map.Entry<String, JsonObject> entry : current.entrySet()) {
+            JsonObject base = baseline.get(entry.getKey());
+            JsonObject now = entry.getValue();
+            double nowScore = score(now, "score");
+            String allocation = allocation(now);
+            if (base == null) {
+                System.out.printf("%-90s %12s %12.4f %8s %14s%n", entry.getKey(), "-", nowScore, "nuevo", allocation);
+                continue;
+            }
+            double baseScore = score(base, "score");
+            double change = nowScore / baseScore - 1.0;
+            boolean slower = change > threshold
+                    && nowScore - score(now, "scoreError") > baseScore + score(base, "scoreError");
+            if (slower) {
+                regressions++;
+            }
+            System.out.printf("%-90s %12.4f %12.4f %+7.1f%% %14s%s%n", entry.getKey(), baseScore, nowScore,
+                    change * 100, allocation, slower ? "  <-- más lento" : "");
+        }
+        System.out.println(regressions == 0 ? "Sin regresiones respecto a " + baselineFile
+                : regressions + " benchmark(s) más lentos que " + baselineFile);
+        return regressions;
+    }
+
+    private static double score(JsonObject result, String field) {
+        JsonElement value = result.getAsJsonObject("primaryMetric").get(field);
+        if (value == null || !value.isJsonPrimitive()) {
+            return 0.0;
+        }
+        double number = value.getAsDouble();
+        return Double.isNaN(number) ? 0.0 : number; // El error es "NaN" con una sola iteración
+    }
+
+    private static String allocation(JsonObject result) {
+        JsonObject secondary = result.getAsJsonObject("secondaryMetrics");
+        if (secondary == null || !secondary.has(ALLOCATION_METRIC)) {
+            return "-";
+        }
+        return String.format("%.0f", secondary.getAsJsonObject(ALLOCATION_METRIC).get("score").getAsDouble());
+    }
+
+    /**
+     * Resultados por benchmark y parámetros, p. ej. "RegressionBenchmark.regression {missingRate=0.0, rows=1000}".
+     */
+    private static Map<String, JsonObject> readResults(Path file) throws IOException {
+        Map<String, JsonObject> results = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonArray array = JsonParser.parseReader(reader).getAsJsonArray();
+            for (JsonElement element : array) {
+                JsonObject result = element.getAsJsonObject();
+                String name = result.get("benchmark").getAsString();
+                name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+                if (result.has("params")) {
+                    Map<String, String> params = new TreeMap<>();
+                    for (Map.Entry<String, JsonElement> param : result.getAsJsonObject("params").entrySet()) {
+                        params.put(param.getKey(), param.getValue().getAsString());
+                    }
+                    name += " " + params;
+                }
+                results.put(name, result);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.benchmarks;
+
+import org.example.dao.DatasetDAO;
+import org.example.model.Dataset;
+import org.example.model.Variable;
+import org.example.util.DbInitializer;
+import org.example.util.SyntheticDatasetGenerator;
+import org.example.util.SyntheticDatasetGenerator.MissingPattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Guardado y carga completos de un dataset contra un fichero SQLite temporal (la propiedad
+ * "analizador.db" se fija antes del primer uso de la conexión, así que cada fork usa el suyo).
+ * Cada guardado inserta un dataset nuevo, que se borra después fuera de la medida.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DatasetDaoBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"2", "20"})
+    public int columns;
+
+    @Param({"0.0", "0.1"})
+    public double missingRate;
+
+    private final DatasetDAO datasetDAO = new DatasetDAO();
+    private Path directory;
+    private Dataset dataset;
+    private int storedId;
+    private int saves;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("analizador-bench");
+        System.setProperty("analizador.db", directory.resolve("bench.db").toString());
+        DbInitializer.initializeDatabase();
+        dataset = new SyntheticDatasetGenerator(rows).numericColumns(columns).missing(MissingPattern.ROW, missingRate)
+                .seed(1L).generate("dao");
+        datasetDAO.saveDataset(dataset);
+        storedId = dataset.getId();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareSave() {
+        // Como un dataset nuevo: la base de datos asigna los ID
+        dataset.setId(0);
+        dataset.setName("dao-" + (++saves));
+        for (Variable variable : dataset.getVariables()) {
+            variable.setId(0);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteSaved() throws SQLException {
+        if (dataset.getId() != 0 && dataset.getId() != storedId) {
+            datasetDAO.deleteDataset(dataset.getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Dataset save() throws SQLException {
+        datasetDAO.saveDataset(dataset);
+        return dataset;
+    }
+
+    @Benchmark
+    public Dataset load() throws SQLException {
+        return datasetDAO.getDatasetById(storedId);
+    }
+}
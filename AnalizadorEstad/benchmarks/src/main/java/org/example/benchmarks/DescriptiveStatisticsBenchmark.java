@@ -0,0 +1,66 @@
+package org.example.benchmarks;
+
+import org.example.model.DatasetSnapshot;
+import org.example.model.DescriptiveStatisticsResult;
+import org.example.model.Variable;
+import org.example.service.EstadisticaService;
+import org.example.util.SyntheticDatasetGenerator;
+import org.example.util.SyntheticDatasetGenerator.MissingPattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Descriptivos y matriz de correlaciones de todas las variables según su número: mide el
+ * coste O(n·k²) de los pares, con y sin valores faltantes (que obligan a contar las filas de
+ * cada par).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DescriptiveStatisticsBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"10", "100", "500"})
+    public int columns;
+
+    @Param({"0.0", "0.1"})
+    public double missingRate;
+
+    private final EstadisticaService estadisticaService = new EstadisticaService();
+    private DatasetSnapshot snapshot;
+    private DatasetSnapshot version;
+
+    @Setup
+    public void setUp() {
+        snapshot = new SyntheticDatasetGenerator(ROWS).numericColumns(columns).missing(MissingPattern.MCAR, missingRate)
+                .seed(1L).generate("descriptivos").snapshot();
+    }
+
+    @Setup(Level.Invocation)
+    public void newVersion() {
+        // El resultado se guarda en la instantánea: cada llamada necesita una versión nueva. La
+        // columna de texto añadida no entra en el cálculo.
+        version = snapshot.withColumn(new Variable("etiqueta", "TEXT"), snapshot.getColumn(SyntheticDatasetGenerator.OUTCOME));
+    }
+
+    @Benchmark
+    public DescriptiveStatisticsResult descriptiveStatistics() {
+        return estadisticaService.computeDescriptiveStatistics(version, null);
+    }
+}
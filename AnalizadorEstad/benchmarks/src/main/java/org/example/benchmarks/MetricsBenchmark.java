@@ -0,0 +1,63 @@
+package org.example.benchmarks;
+
+import org.example.util.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de una medida (inicio y fin de un temporizador, incremento de un contador) con las
+ * métricas activadas y desactivadas, y con varios hilos midiendo a la vez.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    private Metrics.Timer timer;
+    private Metrics.Counter counter;
+
+    @Setup
+    public void setUp() {
+        Metrics.setEnabled(enabled);
+        timer = Metrics.timer("benchmark.timer");
+        counter = Metrics.counter("benchmark.counter");
+    }
+
+    @Benchmark
+    public long timer() {
+        long start = timer.start();
+        timer.stop(start);
+        return start;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long timerContended() {
+        long start = timer.start();
+        timer.stop(start);
+        return start;
+    }
+
+    @Benchmark
+    public void counter() {
+        counter.increment();
+    }
+}
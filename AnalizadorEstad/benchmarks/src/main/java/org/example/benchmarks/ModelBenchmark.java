@@ -0,0 +1,56 @@
+package org.example.benchmarks;
+
+import org.example.model.Dataset;
+import org.example.model.Variable;
+import org.example.util.SyntheticDatasetGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas del modelo que la interfaz hace en cada edición: el siguiente índice de
+ * observación y la búsqueda de una variable por nombre (la última, el peor caso).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"2", "50", "500"})
+    public int columns;
+
+    private Dataset dataset;
+    private String lastVariable;
+
+    @Setup
+    public void setUp() {
+        dataset = new SyntheticDatasetGenerator(ROWS).numericColumns(columns)
+                .seed(1L).generate("modelo");
+        lastVariable = SyntheticDatasetGenerator.predictor(columns);
+    }
+
+    @Benchmark
+    public int nextObservationIndex() {
+        return dataset.getNextObservationIndex();
+    }
+
+    @Benchmark
+    public Variable variableByName() {
+        return dataset.getVariableByName(lastVariable);
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.benchmarks;
+
+import org.example.model.DatasetSnapshot;
+import org.example.model.RegressionResult;
+import org.example.service.EstadisticaService;
+import org.example.service.MissingDataPolicy;
+import org.example.util.SyntheticDatasetGenerator;
+import org.example.util.SyntheticDatasetGenerator.MissingPattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regresión, mediación y moderación según el número de filas, sin caché de resultados.
+ * Los datos se generan una vez por combinación de parámetros; la medida es sólo el análisis
+ * sobre la instantánea.
+ *
+ * Con 10M de filas el dataset en memoria necesita un heap de unos 8 GB:
+ * {@code -p rows=10000000 -jvmArgsAppend -Xmx8g}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RegressionBenchmark {
+
+    private static final int PREDICTORS = 4;
+
+    @Param({"1000", "100000", "1000000", "2000000"})
+    public int rows;
+
+    @Param({"0.0", "0.1"})
+    public double missingRate;
+
+    private final EstadisticaService estadisticaService = new EstadisticaService();
+    private DatasetSnapshot snapshot;
+    private List<String> predictors;
+
+    @Setup
+    public void setUp() {
+        snapshot = new SyntheticDatasetGenerator(rows).numericColumns(PREDICTORS).missing(MissingPattern.ROW, missingRate)
+                .seed(1L).generate("regresion").snapshot();
+        predictors = SyntheticDatasetGenerator.predictors(PREDICTORS);
+    }
+
+    @Benchmark
+    public RegressionResult regression() {
+        return estadisticaService.performMultipleLinearRegression(
+                snapshot, null, MissingDataPolicy.LISTWISE, SyntheticDatasetGenerator.OUTCOME, predictors);
+    }
+
+    @Benchmark
+    public Map<String, Object> mediation() {
+        return estadisticaService.performMediationAnalysis(snapshot, null, MissingDataPolicy.LISTWISE,
+                SyntheticDatasetGenerator.predictor(1), SyntheticDatasetGenerator.predictor(2), SyntheticDatasetGenerator.OUTCOME);
+    }
+
+    @Benchmark
+    public Map<String, Object> moderation() {
+        return estadisticaService.performModerationAnalysis(snapshot, null, MissingDataPolicy.LISTWISE,
+                SyntheticDatasetGenerator.predictor(1), SyntheticDatasetGenerator.predictor(2), SyntheticDatasetGenerator.OUTCOME);
+    }
+}
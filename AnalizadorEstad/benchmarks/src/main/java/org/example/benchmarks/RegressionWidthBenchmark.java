@@ -0,0 +1,60 @@
+package org.example.benchmarks;
+
+import org.example.model.DatasetSnapshot;
+import org.example.model.RegressionResult;
+import org.example.service.EstadisticaService;
+import org.example.service.MissingDataPolicy;
+import org.example.util.SyntheticDatasetGenerator;
+import org.example.util.SyntheticDatasetGenerator.MissingPattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regresión según el número de predictores, con un número fijo de filas: mide el coste
+ * O(n·k²) de la acumulación y el O(k³) de la resolución.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RegressionWidthBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"2", "20", "100", "500"})
+    public int columns;
+
+    @Param({"0.0", "0.1"})
+    public double missingRate;
+
+    private final EstadisticaService estadisticaService = new EstadisticaService();
+    private DatasetSnapshot snapshot;
+    private List<String> predictors;
+
+    @Setup
+    public void setUp() {
+        snapshot = new SyntheticDatasetGenerator(ROWS).numericColumns(columns).missing(MissingPattern.ROW, missingRate)
+                .seed(1L).generate("anchura").snapshot();
+        predictors = SyntheticDatasetGenerator.predictors(columns);
+    }
+
+    @Benchmark
+    public RegressionResult regression() {
+        return estadisticaService.performMultipleLinearRegression(
+                snapshot, null, MissingDataPolicy.LISTWISE, SyntheticDatasetGenerator.OUTCOME, predictors);
+    }
+}
@@ -0,0 +1,608 @@
+package org.example.app;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.dao.AnalysisCacheDAO;
+import org.example.dao.AsyncDatasetDAO;
+import org.example.dao.CsvDatasetImporter;
+import org.example.model.AnalysisOutcome;
+import org.example.model.Dataset;
+import org.example.model.DatasetSnapshot;
+import org.example.model.Variable;
+import org.example.service.AnalysisCache;
+import org.example.service.AnalysisRunner;
+import org.example.service.AnalysisSpec;
+import org.example.service.CoMomentMatrix;
+import org.example.service.EstadisticaService;
+import org.example.util.DbInitializer;
+import org.example.util.JfrEvents;
+import org.example.util.Metrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servidor HTTP local para lanzar análisis desde otras herramientas sin pasar por la
+ * interfaz gráfica. Escucha sólo en la interfaz de loopback:
+ * <pre>
+ * GET  /status                        Carga del servidor y contadores
+ * GET  /metrics                       Métricas de la aplicación ({@link Metrics})
+ * GET  /datasets                      Datasets guardados
+ * POST /datasets?name=N&amp;delimiter=;   Sube un CSV (cuerpo) y lo guarda
+ * GET  /datasets/{id}                 Variables y filas de un dataset
+ * POST /datasets/{id}/regression      Análisis; el cuerpo es un {@link AnalysisSpec} en JSON.
+ * POST /datasets/{id}/mediation       Con /analysis el tipo se toma del cuerpo.
+ * POST /datasets/{id}/moderation
+ * POST /datasets/{id}/descriptives
+ * POST /datasets/{id}/analysis
+ * </pre>
+ * Los hilos HTTP sólo leen peticiones y escriben respuestas; el trabajo (base de datos y
+ * cálculo) se ejecuta en un pool de tamaño fijo con una cola acotada. Si la cola está llena
+ * la petición recibe 503, y si no termina dentro del tiempo límite (que incluye la espera en
+ * cola) recibe 504. Los cuerpos de más de {@value #MAX_UPLOAD_BYTES} bytes (CSV) o
+ * {@value #MAX_SPEC_BYTES} (especificaciones) reciben 413. Un cálculo ya empezado no se puede interrumpir: su hilo queda ocupado
+ * hasta que acaba, y la cola acotada limita cuántos pueden acumularse así.
+ *
+ * Las instantáneas de los datasets cargados se comparten entre peticiones en una caché LRU,
+ * así que muchas peticiones sobre el mismo dataset lo leen de la base de datos una vez. Una
+ * regresión por lista completa sin filtro ni errores robustos sobre un dataset que no está
+ * en la caché no lo carga: se resuelve con los co-momentos que calcula SQLite. La
+ * caché supone que el servidor es quien escribe en la base de datos: un dataset editado desde
+ * la interfaz gráfica mientras el servidor sigue en marcha se verá al salir de la caché.
+ */
+public class AnalysisServer {
+
+    static final int DEFAULT_PORT = 8765;
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+    private static final int MAX_CACHED_DATASETS = 16;
+    static final long MAX_UPLOAD_BYTES = 64L * 1024 * 1024;
+    static final long MAX_SPEC_BYTES = 1024 * 1024;
+    // Hilos HTTP por encima de la capacidad del pool, para responder 503 y /status sin esperar
+    private static final int SPARE_HTTP_THREADS = 4;
+
+    private static final Gson GSON = new Gson();
+
+    private final HttpServer server;
+    private final ExecutorService httpThreads;
+    private final ThreadPoolExecutor workers;
+    private final long timeoutMillis;
+    private final AsyncDatasetDAO datasetDAO = AsyncDatasetDAO.getShared();
+    private final AnalysisRunner analysisRunner;
+    private final Object uploadLock = new Object();
+
+    private final Map<Integer, DatasetSnapshot> snapshots = new LinkedHashMap<Integer, DatasetSnapshot>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, DatasetSnapshot> eldest) {
+            return size() > MAX_CACHED_DATASETS;
+        }
+    };
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workerThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Metrics.install();
+        JfrEvents.install();
+        DbInitializer.initializeDatabase();
+        AnalysisCache.getShared().setPersistentStore(new AnalysisCacheDAO());
+        AnalysisServer server;
+        try {
+            server = new AnalysisServer(port, workerThreads, DEFAULT_QUEUE_CAPACITY, DEFAULT_TIMEOUT_MILLIS,
+                    new EstadisticaService(AnalysisCache.getShared()));
+        } catch (IOException e) {
+            System.err.println("No se pudo abrir el puerto " + port + ": " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.out.println("Servidor de análisis en http://127.0.0.1:" + server.getPort() + "/ con "
+                + workerThreads + " hilo(s) de trabajo.");
+    }
+
+    /**
+     * @param port Puerto de loopback, o 0 para uno libre.
+     * @param workerThreads Análisis que se ejecutan a la vez.
+     * @param queueCapacity Peticiones que pueden esperar a un hilo de trabajo.
+     * @param timeoutMillis Tiempo límite de cada petición, incluida la espera en cola.
+     */
+    public AnalysisServer(int port, int workerThreads, int queueCapacity, long timeoutMillis,
+                          EstadisticaService estadisticaService) throws IOException {
+        this.timeoutMillis = timeoutMillis;
+        this.analysisRunner = new AnalysisRunner(estadisticaService);
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("analysis-worker"));
+        this.httpThreads = Executors.newFixedThreadPool(workerThreads + queueCapacity + SPARE_HTTP_THREADS,
+                daemonThreads("analysis-http"));
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(httpThreads);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Deja de aceptar peticiones y espera como mucho un segundo a las que están en curso.
+     */
+    public void stop() {
+        server.stop(1);
+        workers.shutdownNow();
+        httpThreads.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Error que se devuelve al cliente con su código HTTP.
+     */
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface JsonBody {
+        void write(JsonWriter out) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            route(exchange);
+        } catch (HttpError e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (JsonParseException e) {
+            sendError(exchange, 400, "JSON no válido: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error inesperado en " + exchange.getRequestURI() + ": " + e);
+            e.printStackTrace();
+            sendError(exchange, 500, "Error interno: " + e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+        if (path.length == 1 && "status".equals(path[0])) {
+            requireMethod(method, "GET");
+            sendJson(exchange, 200, this::writeStatus);
+            return;
+        }
+        if (path.length == 1 && "metrics".equals(path[0])) {
+            requireMethod(method, "GET");
+            sendJson(exchange, 200, AnalysisServer::writeMetrics);
+            return;
+        }
+        if (!"datasets".equals(path[0]) || path.length > 3) {
+            throw new HttpError(404, "Ruta desconocida: " + exchange.getRequestURI().getPath());
+        }
+        if (path.length == 1) {
+            if ("GET".equals(method)) {
+                listDatasets(exchange);
+            } else {
+                requireMethod(method, "POST");
+                uploadDataset(exchange);
+            }
+            return;
+        }
+        int datasetId;
+        try {
+            datasetId = Integer.parseInt(path[1]);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "ID de dataset no válido: " + path[1]);
+        }
+        if (path.length == 2) {
+            requireMethod(method, "GET");
+            DatasetSnapshot snapshot = execute(() -> snapshot(datasetId));
+            sendJson(exchange, 200, out -> writeDataset(out, snapshot));
+            return;
+        }
+        requireMethod(method, "POST");
+        runAnalysis(exchange, datasetId, path[2]);
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!expected.equals(method)) {
+            throw new HttpError(405, "Método no permitido: " + method);
+        }
+    }
+
+    private void listDatasets(HttpExchange exchange) throws IOException {
+        List<Dataset> datasets = execute(() -> AsyncDatasetDAO.await(datasetDAO.getAllDatasets()));
+        sendJson(exchange, 200, out -> {
+            out.beginArray();
+            for (Dataset dataset : datasets) {
+                out.beginObject();
+                out.name("id").value(dataset.getId());
+                out.name("name").value(dataset.getName());
+                out.endObject();
+            }
+            out.endArray();
+        });
+    }
+
+    private void uploadDataset(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String name = query.get("name");
+        if (name == null || name.trim().isEmpty()) {
+            throw new HttpError(400, "Falta el parámetro \"name\" con el nombre del dataset.");
+        }
+        String delimiter = query.get("delimiter");
+        CsvDatasetImporter importer = new CsvDatasetImporter(delimiter == null || delimiter.isEmpty() ? ',' : delimiter.charAt(0));
+        // La lectura del cuerpo es E/S: se hace en el hilo HTTP, no ocupa un hilo de trabajo
+        Dataset dataset;
+        try (Reader reader = new InputStreamReader(requestBody(exchange, MAX_UPLOAD_BYTES), StandardCharsets.UTF_8)) {
+            dataset = importer.read(reader, name.trim());
+        } catch (IOException e) {
+            throw new HttpError(400, "CSV no válido: " + e.getMessage());
+        }
+        execute(() -> {
+            synchronized (uploadLock) {
+                for (Dataset stored : AsyncDatasetDAO.await(datasetDAO.getAllDatasets())) {
+                    if (stored.getName().equals(dataset.getName())) {
+                        throw new HttpError(409, "Ya existe un dataset con el nombre " + dataset.getName());
+                    }
+                }
+                AsyncDatasetDAO.await(datasetDAO.saveDataset(dataset));
+            }
+            return null;
+        });
+        DatasetSnapshot snapshot = dataset.snapshot();
+        synchronized (snapshots) {
+            snapshots.put(dataset.getId(), snapshot);
+        }
+        sendJson(exchange, 201, out -> writeDataset(out, snapshot));
+    }
+
+    private void runAnalysis(HttpExchange exchange, int datasetId, String kind) throws IOException {
+        AnalysisSpec spec;
+        try (Reader reader = new BufferedReader(new InputStreamReader(requestBody(exchange, MAX_SPEC_BYTES), StandardCharsets.UTF_8))) {
+            spec = GSON.fromJson(reader, AnalysisSpec.class);
+        }
+        if (spec == null) {
+            throw new HttpError(400, "Falta la especificación del análisis en el cuerpo.");
+        }
+        switch (kind) {
+            case "regression":
+                spec.setType(AnalysisSpec.Type.REGRESSION);
+                break;
+            case "mediation":
+                spec.setType(AnalysisSpec.Type.MEDIATION);
+                break;
+            case "moderation":
+                spec.setType(AnalysisSpec.Type.MODERATION);
+                break;
+            case "descriptives":
+                spec.setType(AnalysisSpec.Type.DESCRIPTIVES);
+                break;
+            case "analysis":
+                break;
+            default:
+                throw new HttpError(404, "Análisis desconocido: " + kind);
+        }
+        spec.validate();
+        String[] datasetName = new String[1];
+        AnalysisOutcome outcome = execute(() -> {
+            DatasetSnapshot snapshot = cachedSnapshot(datasetId);
+            if (snapshot == null && AnalysisRunner.runsOnCoMoments(spec)) {
+                datasetName[0] = storedDatasetName(datasetId);
+                return runOnStoredCoMoments(datasetId, spec);
+            }
+            snapshot = snapshot != null ? snapshot : snapshot(datasetId);
+            datasetName[0] = snapshot.getName();
+            return analysisRunner.run(snapshot, spec);
+        });
+        String label = spec.getLabel() != null ? spec.getLabel() : spec.getType().name().toLowerCase();
+        sendJson(exchange, 200, out -> {
+            out.beginObject();
+            out.name("dataset").value(datasetName[0]);
+            out.name("analysis").value(label);
+            out.name("status").value("ok");
+            OutcomeJson.writeFields(out, outcome);
+            out.endObject();
+        });
+    }
+
+    /**
+     * Ejecuta el trabajo de una petición en el pool y espera su resultado.
+     * @throws HttpError 503 si la cola (o la de escrituras en la base de datos) está llena, 504 si vence el tiempo límite, 400 si el
+     *                   trabajo lanza IllegalArgumentException y 500 con otros errores.
+     */
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = workers.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new HttpError(503, "Servidor ocupado; reintente más tarde.");
+        }
+        try {
+            T result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            completed.increment();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true); // Si aún estaba en cola, ya no se ejecuta
+            timedOut.increment();
+            throw new HttpError(504, "La petición superó el tiempo límite de " + timeoutMillis + " ms.");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HttpError(503, "Servidor deteniéndose.");
+        } catch (ExecutionException e) {
+            failed.increment();
+            Throwable cause = e.getCause();
+            if (cause instanceof HttpError) {
+                throw (HttpError) cause;
+            }
+            if (cause instanceof IllegalArgumentException) {
+                throw new HttpError(400, cause.getMessage());
+            }
+            if (cause instanceof RejectedExecutionException) {
+                throw new HttpError(503, "Base de datos ocupada; reintente más tarde.");
+            }
+            if (cause instanceof SQLException) {
+                throw new HttpError(500, "Error de base de datos: " + cause.getMessage());
+            }
+            throw new HttpError(500, String.valueOf(cause));
+        }
+    }
+
+    /**
+     * Resuelve el análisis de un dataset que no está cargado sin leer sus filas: la base de
+     * datos acumula las medias y co-momentos de las variables con el agregado
+     * {@code comoments} y devuelve una sola fila. El dataset sigue sin cargarse.
+     */
+    private AnalysisOutcome runOnStoredCoMoments(int datasetId, AnalysisSpec spec) throws SQLException {
+        List<String> variables = new ArrayList<>();
+        variables.add(spec.getDependent());
+        variables.addAll(spec.getIndependents());
+        CoMomentMatrix moments = AsyncDatasetDAO.await(datasetDAO.computeCoMoments(datasetId, variables));
+        int rowCount = AsyncDatasetDAO.await(datasetDAO.countObservations(datasetId));
+        return analysisRunner.run(moments, rowCount, spec);
+    }
+
+    private String storedDatasetName(int datasetId) throws SQLException {
+        for (Dataset stored : AsyncDatasetDAO.await(datasetDAO.getAllDatasets())) {
+            if (stored.getId() == datasetId) {
+                return stored.getName();
+            }
+        }
+        throw new HttpError(404, "No existe un dataset con ID " + datasetId);
+    }
+
+    private DatasetSnapshot cachedSnapshot(int datasetId) {
+        synchronized (snapshots) {
+            return snapshots.get(datasetId);
+        }
+    }
+
+    /**
+     * Instantánea del dataset, de la caché o leída de la base de datos. Dos peticiones pueden
+     * llegar a leer el mismo dataset a la vez; ambas obtienen una instantánea equivalente.
+     */
+    private DatasetSnapshot snapshot(int datasetId) throws SQLException {
+        DatasetSnapshot cached = cachedSnapshot(datasetId);
+        if (cached != null) {
+            return cached;
+        }
+        Dataset dataset = AsyncDatasetDAO.await(datasetDAO.getDatasetById(datasetId));
+        if (dataset == null) {
+            throw new HttpError(404, "No existe un dataset con ID " + datasetId);
+        }
+        DatasetSnapshot snapshot = dataset.snapshot();
+        synchronized (snapshots) {
+            snapshots.put(datasetId, snapshot);
+        }
+        return snapshot;
+    }
+
+    private void writeDataset(JsonWriter out, DatasetSnapshot snapshot) throws IOException {
+        out.beginObject();
+        out.name("id").value(snapshot.getDatasetId());
+        out.name("name").value(snapshot.getName());
+        out.name("rows").value(snapshot.getRowCount());
+        out.name("variables").beginArray();
+        for (Variable variable : snapshot.getVariables()) {
+            out.beginObject();
+            out.name("name").value(variable.getName());
+            out.name("type").value(variable.getType());
+            out.endObject();
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private void writeStatus(JsonWriter out) throws IOException {
+        int cachedDatasets;
+        synchronized (snapshots) {
+            cachedDatasets = snapshots.size();
+        }
+        out.beginObject();
+        out.name("activeWorkers").value(workers.getActiveCount());
+        out.name("queued").value(workers.getQueue().size());
+        out.name("completed").value(completed.sum());
+        out.name("failed").value(failed.sum());
+        out.name("rejected").value(rejected.sum());
+        out.name("timedOut").value(timedOut.sum());
+        out.name("cachedDatasets").value(cachedDatasets);
+        out.endObject();
+    }
+
+    private static void writeMetrics(JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("enabled").value(Metrics.isEnabled());
+        out.name("counters").beginObject();
+        for (Metrics.Counter counter : Metrics.getCounters()) {
+            out.name(counter.getName()).value(counter.getCount());
+        }
+        out.endObject();
+        out.name("timers").beginObject();
+        for (Metrics.Timer timer : Metrics.getTimers()) {
+            out.name(timer.getName()).beginObject();
+            out.name("count").value(timer.getCount());
+            out.name("totalMillis").value(timer.getTotalMillis());
+            out.name("meanMillis").value(timer.getMeanMillis());
+            out.name("p50Millis").value(timer.getP50Millis());
+            out.name("p95Millis").value(timer.getP95Millis());
+            out.name("p99Millis").value(timer.getP99Millis());
+            out.name("maxMillis").value(timer.getMaxMillis());
+            out.endObject();
+        }
+        out.endObject();
+        out.endObject();
+    }
+
+    /**
+     * Cuerpo de la petición, con 413 si declara o llega a superar el tamaño máximo.
+     */
+    private static InputStream requestBody(HttpExchange exchange, long maxBytes) {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength.trim()) > maxBytes) {
+                    throw new HttpError(413, "El cuerpo supera el máximo de " + maxBytes + " bytes.");
+                }
+            } catch (NumberFormatException e) {
+                throw new HttpError(400, "Content-Length no válido: " + contentLength);
+            }
+        }
+        // Sin Content-Length (codificación por bloques) el límite se comprueba al leer
+        return new BoundedInputStream(exchange.getRequestBody(), maxBytes);
+    }
+
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+        private final long maxBytes;
+
+        BoundedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.remaining = maxBytes;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                consumed(n);
+            }
+            return n;
+        }
+
+        private void consumed(int bytes) {
+            remaining -= bytes;
+            if (remaining < 0) {
+                throw new HttpError(413, "El cuerpo supera el máximo de " + maxBytes + " bytes.");
+            }
+        }
+    }
+
+    /**
+     * Responde con un error, salvo que la respuesta ya haya empezado (p. ej. un fallo a mitad
+     * de escribir el cuerpo): entonces sólo se puede cerrar la conexión.
+     */
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            System.err.println("No se pudo enviar el error " + status + " (la respuesta ya había empezado): " + message);
+            return;
+        }
+        sendJson(exchange, status, out -> {
+            out.beginObject();
+            out.name("status").value("error");
+            out.name("error").value(message);
+            out.endObject();
+        });
+    }
+
+    /**
+     * Escribe la respuesta en streaming (codificación por bloques), sin construirla en memoria.
+     */
+    private void sendJson(HttpExchange exchange, int status, JsonBody body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        JsonWriter out = new JsonWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+        body.write(out);
+        out.flush();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+}
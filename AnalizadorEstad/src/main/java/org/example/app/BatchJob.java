@@ -0,0 +1,163 @@
+package org.example.app;
+
+import org.example.service.AnalysisSpec;
+import org.example.util.SyntheticDatasetGenerator;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fichero de trabajo de {@link BatchRunner}, en JSON:
+ * <pre>
+ * {
+ *   "workers": 4,
+ *   "cache": false,
+ *   "datasets": [{"id": 3}, {"name": "encuesta_2023"}, {"csv": "datos/ventas.csv", "delimiter": ";"},
+ *                {"name": "carga", "synthetic": {"rows": 1000000, "numericColumns": 4, "seed": 7}}],
+ *   "allStoredDatasets": false,
+ *   "analyses": [{"type": "REGRESSION", "dependent": "y", "independents": ["x1", "x2"]}],
+ *   "output": {"path": "resultados.csv", "format": "csv"}
+ * }
+ * </pre>
+ * Cada análisis se ejecuta sobre cada dataset. Las rutas relativas se resuelven respecto al
+ * directorio del fichero de trabajo.
+ */
+public class BatchJob {
+
+    private Integer workers;
+    private boolean cache;
+    private boolean allStoredDatasets;
+    private List<DatasetSource> datasets;
+    private List<AnalysisSpec> analyses;
+    private Output output;
+
+    /**
+     * Un dataset de la base de datos (por ID o por nombre), un fichero CSV o un dataset
+     * sintético con la configuración de {@link SyntheticDatasetGenerator}.
+     */
+    public static class DatasetSource {
+        private Integer id;
+        private String name;
+        private String csv;
+        private String delimiter;
+        private SyntheticDatasetGenerator synthetic;
+
+        public Integer getId() {
+            return id;
+        }
+
+        /**
+         * Nombre del dataset guardado; para un CSV o uno sintético, el nombre con que aparece
+         * en la salida.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public String getCsv() {
+            return csv;
+        }
+
+        public char getDelimiter() {
+            return delimiter == null || delimiter.isEmpty() ? ',' : delimiter.charAt(0);
+        }
+
+        public SyntheticDatasetGenerator getSynthetic() {
+            return synthetic;
+        }
+
+        public boolean isStored() {
+            return csv == null && synthetic == null;
+        }
+
+        @Override
+        public String toString() {
+            if (synthetic != null) {
+                return name != null ? name : "sintético";
+            }
+            return csv != null ? csv : id != null ? "#" + id : name;
+        }
+    }
+
+    public static class Output {
+        private String path;
+        private String format;
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * "csv" (por defecto) o "json".
+         */
+        public String getFormat() {
+            return format == null ? "csv" : format.toLowerCase();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException si falta la salida, no hay datasets ni análisis o algún
+     *                                  análisis está incompleto.
+     */
+    public void validate() {
+        if (getDatasets().isEmpty() && !allStoredDatasets) {
+            throw new IllegalArgumentException("El trabajo no indica ningún dataset.");
+        }
+        for (DatasetSource source : getDatasets()) {
+            if (source.id == null && source.name == null && source.csv == null && source.synthetic == null) {
+                throw new IllegalArgumentException("Cada dataset necesita \"id\", \"name\", \"csv\" o \"synthetic\".");
+            }
+            if (source.csv != null && source.synthetic != null) {
+                throw new IllegalArgumentException("Un dataset no puede tener a la vez \"csv\" y \"synthetic\".");
+            }
+            if (source.synthetic != null) {
+                source.synthetic.validate();
+            }
+        }
+        if (getAnalyses().isEmpty()) {
+            throw new IllegalArgumentException("El trabajo no indica ningún análisis.");
+        }
+        for (AnalysisSpec analysis : getAnalyses()) {
+            analysis.validate();
+        }
+        if (output == null || output.path == null) {
+            throw new IllegalArgumentException("El trabajo no indica la ruta de salida (\"output.path\").");
+        }
+        if (!"csv".equals(output.getFormat()) && !"json".equals(output.getFormat())) {
+            throw new IllegalArgumentException("Formato de salida no soportado: " + output.format);
+        }
+    }
+
+    /**
+     * Hilos de trabajo; por defecto, uno por núcleo.
+     */
+    public int getWorkers() {
+        return workers != null && workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Si se usa la caché persistente de resultados de la base de datos.
+     */
+    public boolean isCache() {
+        return cache;
+    }
+
+    /**
+     * Si se añaden todos los datasets guardados en la base de datos.
+     */
+    public boolean isAllStoredDatasets() {
+        return allStoredDatasets;
+    }
+
+    public List<DatasetSource> getDatasets() {
+        return datasets != null ? Collections.unmodifiableList(datasets) : Collections.emptyList();
+    }
+
+    public List<AnalysisSpec> getAnalyses() {
+        return analyses != null ? Collections.unmodifiableList(analyses) : Collections.emptyList();
+    }
+
+    public Output getOutput() {
+        return output;
+    }
+}
@@ -0,0 +1,382 @@
+package org.example.app;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import org.example.dao.AnalysisCacheDAO;
+import org.example.dao.CsvDatasetImporter;
+import org.example.dao.AsyncDatasetDAO;
+import org.example.model.AnalysisOutcome;
+import org.example.model.Dataset;
+import org.example.model.DatasetSnapshot;
+import org.example.service.AnalysisCache;
+import org.example.service.AnalysisRunner;
+import org.example.service.AnalysisSpec;
+import org.example.service.EstadisticaService;
+import org.example.util.DbInitializer;
+import org.example.util.JfrEvents;
+import org.example.util.Metrics;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta sin interfaz gráfica los análisis de un fichero de trabajo ({@link BatchJob}) sobre
+ * muchos datasets:
+ * <pre>
+ * java -cp ... org.example.app.BatchRunner trabajo.json
+ * </pre>
+ * Cada dataset se carga, se fija en una instantánea y se analiza en un hilo de un pool de
+ * tamaño fijo, así que sólo hay en memoria tantos datasets como hilos. Los resultados se
+ * escriben a medida que termina cada dataset. No usa JavaFX, y sólo abre la base de datos si
+ * el trabajo la necesita.
+ *
+ * Termina con código 0 si todo fue bien, 1 si falló algún dataset o análisis (el resto se
+ * ejecuta igualmente) y 2 si el trabajo no es válido o no se puede escribir la salida.
+ */
+public class BatchRunner {
+
+    private final BatchJob job;
+    private final Path baseDirectory;
+    private final AsyncDatasetDAO datasetDAO = AsyncDatasetDAO.getShared();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Uso: BatchRunner <fichero de trabajo .json>");
+            System.exit(2);
+        }
+        Path jobFile = Paths.get(args[0]).toAbsolutePath();
+        Metrics.install();
+        JfrEvents.install();
+        int failed;
+        try {
+            BatchJob job;
+            try (Reader reader = Files.newBufferedReader(jobFile, StandardCharsets.UTF_8)) {
+                job = new Gson().fromJson(reader, BatchJob.class);
+            }
+            if (job == null) {
+                throw new IllegalArgumentException("El fichero de trabajo está vacío.");
+            }
+            failed = new BatchRunner(job, jobFile.getParent()).run();
+        } catch (IOException | JsonParseException | IllegalArgumentException | UncheckedIOException e) {
+            System.err.println("Error en el trabajo " + jobFile + ": " + e.getMessage());
+            System.exit(2);
+            return;
+        } catch (RuntimeException e) {
+            System.err.println("Error inesperado en el trabajo " + jobFile + ": " + e);
+            e.printStackTrace();
+            System.exit(2);
+            return;
+        }
+        if (failed > 0) {
+            System.err.println(failed + " dataset(s) o análisis fallaron.");
+        }
+        System.exit(failed > 0 ? 1 : 0);
+    }
+
+    /**
+     * @param baseDirectory Directorio respecto al que se resuelven las rutas relativas.
+     */
+    public BatchRunner(BatchJob job, Path baseDirectory) {
+        job.validate();
+        this.job = job;
+        this.baseDirectory = baseDirectory;
+    }
+
+    /**
+     * Ejecuta el trabajo completo.
+     * @return El número de datasets que no se pudieron cargar más el de análisis que fallaron.
+     * @throws IOException si no se pueden obtener los datasets guardados o escribir la salida.
+     */
+    public int run() throws IOException {
+        boolean usesDatabase = job.isCache() || job.isAllStoredDatasets()
+                || job.getDatasets().stream().anyMatch(BatchJob.DatasetSource::isStored);
+        if (usesDatabase) {
+            DbInitializer.initializeDatabase();
+        }
+        AnalysisCache cache = null;
+        if (job.isCache()) {
+            cache = new AnalysisCache();
+            cache.setPersistentStore(new AnalysisCacheDAO());
+        }
+        AnalysisRunner analysisRunner = new AnalysisRunner(new EstadisticaService(cache));
+
+        List<BatchJob.DatasetSource> sources = new ArrayList<>(job.getDatasets());
+        List<Integer> storedIds = new ArrayList<>();
+        if (job.isAllStoredDatasets()) {
+            try {
+                for (Dataset stored : AsyncDatasetDAO.await(datasetDAO.getAllDatasets())) {
+                    storedIds.add(stored.getId());
+                }
+            } catch (SQLException e) {
+                throw new IOException("No se pudo obtener la lista de datasets: " + e.getMessage(), e);
+            }
+        }
+
+        Path outputPath = baseDirectory.resolve(job.getOutput().getPath());
+        int taskCount = sources.size() + storedIds.size();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Math.min(job.getWorkers(), taskCount)), r -> {
+            Thread thread = new Thread(r, "batch-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (ResultWriter writer = "json".equals(job.getOutput().getFormat())
+                ? new JsonResultWriter(outputPath) : new CsvResultWriter(outputPath)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (BatchJob.DatasetSource source : sources) {
+                tasks.add(workers.submit(() -> runDataset(source.toString(), () -> load(source), analysisRunner, writer)));
+            }
+            for (Integer id : storedIds) {
+                tasks.add(workers.submit(() -> runDataset("#" + id, () -> loadStored(id), analysisRunner, writer)));
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) e.getCause()).getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Trabajo interrumpido.", e);
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+            if (cache != null) {
+                cache.awaitPersistentWrites(); // Los resultados nuevos se guardan antes de terminar
+            }
+        }
+        return failures.get();
+    }
+
+    private interface DatasetLoader {
+        Dataset load() throws IOException, SQLException;
+    }
+
+    /**
+     * Carga y analiza un dataset. Cualquier error al cargarlo o en un análisis se registra
+     * como fallo y el trabajo sigue; sólo los errores de escritura de la salida lo detienen.
+     */
+    private void runDataset(String sourceName, DatasetLoader loader, AnalysisRunner analysisRunner, ResultWriter writer) {
+        long start = System.nanoTime();
+        DatasetSnapshot snapshot;
+        try {
+            snapshot = loader.load().snapshot();
+        } catch (IOException | SQLException e) {
+            reportLoadFailure(sourceName, e.toString(), writer);
+            return;
+        } catch (IllegalArgumentException e) {
+            reportLoadFailure(sourceName, e.getMessage(), writer);
+            return;
+        } catch (RuntimeException e) {
+            reportLoadFailure(sourceName, e.toString(), writer);
+            return;
+        }
+        String datasetName = snapshot.getName() != null ? snapshot.getName() : sourceName;
+        List<AnalysisSpec> analyses = job.getAnalyses();
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < analyses.size(); i++) {
+            AnalysisSpec spec = analyses.get(i);
+            String label = spec.getLabel() != null ? spec.getLabel() : spec.getType().name().toLowerCase() + "_" + (i + 1);
+            try {
+                AnalysisOutcome outcome = analysisRunner.run(snapshot, spec);
+                for (String warning : outcome.getWarnings()) {
+                    System.err.println("Aviso en " + datasetName + " / " + label + ": " + warning);
+                }
+                results.add(new Result(datasetName, label, outcome, null));
+            } catch (IllegalArgumentException e) {
+                reportAnalysisFailure(datasetName, label, e.getMessage(), results);
+            } catch (RuntimeException e) {
+                // Un error de programación o de la base de datos no debe detener el resto del trabajo
+                reportAnalysisFailure(datasetName, label, e.toString(), results);
+            }
+        }
+        // Los resultados de un dataset se escriben juntos
+        writer.write(results);
+        System.out.println("Dataset " + datasetName + ": " + analyses.size() + " análisis en "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    private void reportAnalysisFailure(String datasetName, String label, String error, List<Result> results) {
+        failures.incrementAndGet();
+        System.err.println("Falló " + label + " sobre " + datasetName + ": " + error);
+        results.add(new Result(datasetName, label, null, error));
+    }
+
+    private void reportLoadFailure(String sourceName, String error, ResultWriter writer) {
+        failures.incrementAndGet();
+        System.err.println("No se pudo cargar el dataset " + sourceName + ": " + error);
+        writer.write(Collections.singletonList(new Result(sourceName, "", null, error)));
+    }
+
+    private Dataset load(BatchJob.DatasetSource source) throws IOException, SQLException {
+        if (source.getSynthetic() != null) {
+            return source.getSynthetic().generate(source.toString());
+        }
+        if (!source.isStored()) {
+            Dataset dataset = new CsvDatasetImporter(source.getDelimiter()).read(baseDirectory.resolve(source.getCsv()));
+            if (source.getName() != null) {
+                dataset.setName(source.getName());
+            }
+            return dataset;
+        }
+        if (source.getId() != null) {
+            return loadStored(source.getId());
+        }
+        for (Dataset stored : AsyncDatasetDAO.await(datasetDAO.getAllDatasets())) {
+            if (source.getName().equals(stored.getName())) {
+                return loadStored(stored.getId());
+            }
+        }
+        throw new IllegalArgumentException("No existe un dataset guardado con el nombre " + source.getName());
+    }
+
+    private Dataset loadStored(int id) throws SQLException {
+        Dataset dataset = AsyncDatasetDAO.await(datasetDAO.getDatasetById(id));
+        if (dataset == null) {
+            throw new IllegalArgumentException("No existe un dataset guardado con ID " + id);
+        }
+        return dataset;
+    }
+
+    /**
+     * Resultado de un análisis sobre un dataset: el resultado, o el error si falló.
+     */
+    private static final class Result {
+        final String dataset;
+        final String analysis;
+        final AnalysisOutcome outcome;
+        final String error;
+
+        Result(String dataset, String analysis, AnalysisOutcome outcome, String error) {
+            this.dataset = dataset;
+            this.analysis = analysis;
+            this.outcome = outcome;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Salida compartida por los hilos de trabajo. Cada llamada escribe y vuelca los resultados
+     * de un dataset; los errores de escritura se propagan como {@link UncheckedIOException} y
+     * detienen el trabajo.
+     */
+    private interface ResultWriter extends Closeable {
+        void write(List<Result> results);
+    }
+
+    /**
+     * Una fila por estadístico: dataset, analysis, model, term, statistic, value. Cada dataset o
+     * análisis que falló ocupa una fila con el estadístico "error" y el mensaje como valor; los
+     * avisos sólo se informan por la salida de errores.
+     */
+    private static final class CsvResultWriter implements ResultWriter {
+        private final Writer out;
+
+        CsvResultWriter(Path path) throws IOException {
+            out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            out.write("dataset,analysis,model,term,statistic,value\n");
+        }
+
+        @Override
+        public synchronized void write(List<Result> results) {
+            try {
+                StringBuilder line = new StringBuilder();
+                for (Result result : results) {
+                    if (result.outcome == null) {
+                        line.setLength(0);
+                        line.append(quote(result.dataset)).append(',').append(quote(result.analysis)).append(",,,error,")
+                                .append(quote(result.error != null ? result.error : "")).append('\n');
+                        out.write(line.toString());
+                        continue;
+                    }
+                    for (AnalysisOutcome.Row row : result.outcome.getRows()) {
+                        line.setLength(0);
+                        line.append(quote(result.dataset)).append(',').append(quote(result.analysis)).append(',')
+                                .append(quote(row.getModel())).append(',').append(quote(row.getTerm())).append(',')
+                                .append(row.getStatistic()).append(',').append(row.getValue()).append('\n');
+                        out.write(line.toString());
+                    }
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+
+        private static String quote(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    /**
+     * Un array con un objeto por análisis y dataset: {dataset, analysis, status, error,
+     * warnings, results}. Se escribe en streaming.
+     */
+    private static final class JsonResultWriter implements ResultWriter {
+        private final JsonWriter out;
+
+        JsonResultWriter(Path path) throws IOException {
+            BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            out = new JsonWriter(writer);
+            out.setIndent("  ");
+            out.beginArray();
+        }
+
+        @Override
+        public synchronized void write(List<Result> results) {
+            try {
+                for (Result result : results) {
+                    out.beginObject();
+                    out.name("dataset").value(result.dataset);
+                    out.name("analysis").value(result.analysis);
+                    if (result.outcome == null) {
+                        out.name("status").value("error");
+                        out.name("error").value(result.error);
+                    } else {
+                        out.name("status").value("ok");
+                        OutcomeJson.writeFields(out, result.outcome);
+                    }
+                    out.endObject();
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.endArray();
+            out.close();
+        }
+    }
+}
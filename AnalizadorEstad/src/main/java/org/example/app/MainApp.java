@@ -1,14 +1,27 @@
 package org.example.app;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 import javafx.scene.control.Alert; // Necesario para showAlert
+import org.example.dao.AnalysisCacheDAO;
+import org.example.dao.AsyncDatasetDAO;
+import org.example.gui.MainLayoutController;
+import org.example.model.Dataset;
+import org.example.service.AnalysisCache;
+import org.example.service.AutosaveService;
 import org.example.util.DbInitializer; // Importación correcta
+import org.example.util.JfrEvents;
+import org.example.util.Metrics;
 
 import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class MainApp extends Application { // ¡IMPORTANTE! Extiende Application de JavaFX
 
@@ -20,8 +33,7 @@ public class MainApp extends Application { // ¡IMPORTANTE! Extiende Application
         this.primaryStage = primaryStage;
         this.primaryStage.setTitle("Analizador Estadístico Avanzado");
 
-        // Inicializa la base de datos al iniciar la aplicación
-        DbInitializer.initializeDatabase();
+        JfrEvents.install();
 
         try {
             // Cargar el diseño principal desde MainLayout.fxml
@@ -34,6 +46,26 @@ public class MainApp extends Application { // ¡IMPORTANTE! Extiende Application
             Scene scene = new Scene(rootLayout);
             primaryStage.setScene(scene);
             primaryStage.show();
+            StartupTimeline.mark(StartupTimeline.WINDOW);
+
+            // La base de datos y el catálogo se preparan en segundo plano con la ventana ya visible
+            MainLayoutController mainLayoutController = loader.getController();
+            CompletableFuture.supplyAsync(MainApp::initializeData)
+                    .whenComplete((catalog, error) -> Platform.runLater(() -> {
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                            showAlert(Alert.AlertType.ERROR, "Error de Inicio", "No se pudo abrir la base de datos: " + cause.getMessage());
+                            return;
+                        }
+                        mainLayoutController.databaseReady(catalog.datasets, catalog.firstDataset);
+                        StartupTimeline.mark(StartupTimeline.READY);
+                        StartupTimeline.report();
+                        if (Boolean.getBoolean("analizador.startup.training")) {
+                            // Ejecución de entrenamiento para el archivo CDS: carga todas las pestañas y termina
+                            mainLayoutController.loadAllTabs();
+                            Platform.exit();
+                        }
+                    }));
 
         } catch (IOException e) {
             System.err.println("Error al cargar el layout principal: " + e.getMessage());
@@ -42,6 +74,43 @@ public class MainApp extends Application { // ¡IMPORTANTE! Extiende Application
         }
     }
 
+    /**
+     * Trabajo de arranque fuera del hilo de JavaFX: métricas, base de datos, recuperación del
+     * diario y catálogo de datasets, con el primero ya cargado para mostrarlo.
+     */
+    private static StartupCatalog initializeData() {
+        // Métricas por JMX (y en fichero con -Danalizador.metrics.file)
+        Metrics.install();
+        // Inicializa la base de datos al iniciar la aplicación
+        DbInitializer.initializeDatabase();
+        // Los resultados de análisis repetidos se conservan también entre sesiones
+        AnalysisCache.getShared().setPersistentStore(new AnalysisCacheDAO());
+        // Aplica las ediciones que quedaron en el diario si la sesión anterior terminó sin volcarlas
+        AsyncDatasetDAO datasetDAO = AsyncDatasetDAO.getShared();
+        int recovered = AutosaveService.recoverPendingJournals(datasetDAO);
+        if (recovered > 0) {
+            System.out.println("Ediciones recuperadas del diario para " + recovered + " dataset(s).");
+        }
+        StartupTimeline.mark(StartupTimeline.DATABASE);
+
+        try {
+            StartupCatalog catalog = new StartupCatalog();
+            catalog.datasets = AsyncDatasetDAO.await(datasetDAO.getAllDatasets());
+            if (!catalog.datasets.isEmpty()) {
+                catalog.firstDataset = AsyncDatasetDAO.await(datasetDAO.getDatasetById(catalog.datasets.get(0).getId()));
+            }
+            StartupTimeline.mark(StartupTimeline.CATALOG);
+            return catalog;
+        } catch (SQLException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static class StartupCatalog {
+        private List<Dataset> datasets;
+        private Dataset firstDataset;
+    }
+
     // Método de utilidad para mostrar alertas
     private void showAlert(Alert.AlertType type, String title, String message) {
         Alert alert = new Alert(type);
@@ -0,0 +1,43 @@
+package org.example.app;
+
+import com.google.gson.stream.JsonWriter;
+import org.example.model.AnalysisOutcome;
+
+import java.io.IOException;
+
+/**
+ * Escritura en JSON de un {@link AnalysisOutcome}, común a {@link BatchRunner} y
+ * {@link AnalysisServer}.
+ */
+final class OutcomeJson {
+
+    private OutcomeJson() {
+    }
+
+    /**
+     * Escribe los campos "warnings" y "results" dentro del objeto abierto. Los valores no
+     * finitos se escriben como null.
+     */
+    static void writeFields(JsonWriter out, AnalysisOutcome outcome) throws IOException {
+        out.name("warnings").beginArray();
+        for (String warning : outcome.getWarnings()) {
+            out.value(warning);
+        }
+        out.endArray();
+        out.name("results").beginArray();
+        for (AnalysisOutcome.Row row : outcome.getRows()) {
+            out.beginObject();
+            out.name("model").value(row.getModel());
+            out.name("term").value(row.getTerm());
+            out.name("statistic").value(row.getStatistic());
+            out.name("value");
+            if (Double.isFinite(row.getValue())) {
+                out.value(row.getValue());
+            } else {
+                out.nullValue();
+            }
+            out.endObject();
+        }
+        out.endArray();
+    }
+}
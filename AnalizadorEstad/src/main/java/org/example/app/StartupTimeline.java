@@ -0,0 +1,57 @@
+package org.example.app;
+
+import org.example.util.Metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hitos del arranque de la interfaz, medidos desde el inicio de la JVM. Al terminar se
+ * imprime un resumen en la consola y cada hito queda como temporizador "startup.*" de
+ * {@link Metrics} (visible por JMX y en la pestaña de rendimiento).
+ *
+ * La JVM se consulta sólo al informar, para que la medida no añada trabajo al arranque.
+ */
+final class StartupTimeline {
+
+    static final String WINDOW = "window";
+    static final String DATABASE = "database";
+    static final String CATALOG = "catalog";
+    static final String READY = "ready";
+
+    private static final Map<String, Long> MILESTONES = new LinkedHashMap<>(); // Hito -> System.currentTimeMillis()
+
+    private StartupTimeline() {
+    }
+
+    static synchronized void mark(String milestone) {
+        MILESTONES.putIfAbsent(milestone, System.currentTimeMillis());
+    }
+
+    /**
+     * Imprime el resumen y registra los temporizadores.
+     */
+    static synchronized void report() {
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        long jvmStart = runtime.getStartTime();
+        StringBuilder line = new StringBuilder("Arranque (ms desde el inicio de la JVM):");
+        for (Map.Entry<String, Long> milestone : MILESTONES.entrySet()) {
+            long elapsed = milestone.getValue() - jvmStart;
+            Metrics.timer("startup." + milestone.getKey()).record(elapsed * 1_000_000L);
+            line.append(' ').append(milestone.getKey()).append('=').append(elapsed);
+        }
+        line.append(usesSharedArchive(runtime) ? " (con archivo CDS de la aplicación)" : "");
+        System.out.println(line);
+    }
+
+    private static boolean usesSharedArchive(RuntimeMXBean runtime) {
+        for (String argument : runtime.getInputArguments()) {
+            if (argument.startsWith("-XX:SharedArchiveFile")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.dao;
+
+import org.example.util.SQLiteConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Persistent tier of the analysis result cache, stored in the {@code analysis_cache} table.
+ *
+ * Entries are keyed by a content hash computed by the caller, so they never need explicit
+ * invalidation: when the data an analysis depends on changes, its key changes too. The table
+ * is kept to at most {@code maxEntries} rows by evicting the least recently used ones.
+ *
+ * The methods are blocking. {@link #find} only reads; the others write, so callers run them
+ * through {@link AsyncDatasetDAO}, whose writer thread is the only one that writes to the
+ * database.
+ */
+public class AnalysisCacheDAO {
+
+    private static final int DEFAULT_MAX_ENTRIES = 2000;
+
+    private final int maxEntries;
+
+    public AnalysisCacheDAO() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public AnalysisCacheDAO(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the serialized result stored under a key. Call {@link #touch} when it is used.
+     * @return The JSON text, or null if the key is not stored.
+     */
+    public String find(String cacheKey) throws SQLException {
+        String sqlSelect = "SELECT value FROM analysis_cache WHERE cache_key = ?";
+        try (Connection conn = SQLiteConnection.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sqlSelect)) {
+            pstmt.setString(1, cacheKey);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Marks a stored result as recently used, so eviction keeps it.
+     */
+    public void touch(String cacheKey) throws SQLException {
+        String sqlTouch = "UPDATE analysis_cache SET last_used = ? WHERE cache_key = ?";
+        try (Connection conn = SQLiteConnection.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sqlTouch)) {
+            pstmt.setLong(1, System.currentTimeMillis());
+            pstmt.setString(2, cacheKey);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Stores (or replaces) a serialized result and evicts the oldest entries above the limit.
+     */
+    public void store(String cacheKey, String kind, String value) throws SQLException {
+        String sqlInsert = "INSERT OR REPLACE INTO analysis_cache (cache_key, kind, value, last_used) VALUES (?, ?, ?, ?)";
+        String sqlEvict = "DELETE FROM analysis_cache WHERE cache_key IN (" +
+                "SELECT cache_key FROM analysis_cache ORDER BY last_used DESC LIMIT -1 OFFSET ?)";
+        try (Connection conn = SQLiteConnection.connect()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement insertStmt = conn.prepareStatement(sqlInsert);
+                 PreparedStatement evictStmt = conn.prepareStatement(sqlEvict)) {
+                insertStmt.setString(1, cacheKey);
+                insertStmt.setString(2, kind);
+                insertStmt.setString(3, value);
+                insertStmt.setLong(4, System.currentTimeMillis());
+                insertStmt.executeUpdate();
+                evictStmt.setInt(1, maxEntries);
+                evictStmt.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    public void clear() throws SQLException {
+        try (Connection conn = SQLiteConnection.connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM analysis_cache");
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package org.example.dao;
+
+import org.example.model.Dataset;
+import org.example.model.DatasetSnapshot;
+import org.example.model.Observation;
+import org.example.service.CoMomentMatrix;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous facade over {@link DatasetDAO}.
+ *
+ * All mutations run on a single writer thread, which matches SQLite's single-writer model
+ * and avoids lock contention between writers. Queries run on a small reader pool (the
+ * connections use WAL, so readers do not block the writer). Every method returns a
+ * {@link CompletableFuture}; callers on the FX thread should consume results with
+ * {@code Platform.runLater}.
+ *
+ * A save writes a {@link DatasetSnapshot} taken on the calling thread, so the dataset can go
+ * on being edited while the writer thread saves it. Saves of the same dataset that are still
+ * queued are coalesced into one write of the most recent snapshot. The {@link EditJournal}
+ * files of the autosave are written and folded on the same writer thread, so journal
+ * appends, folds and full saves of a dataset happen in the order they were submitted;
+ * appends to the same journal queued back to back are coalesced into one write. The number
+ * of queued writes is bounded, and submitting never blocks (most writes come from the FX
+ * thread): when the queue is full, the write is rejected right away with a
+ * {@link RejectedExecutionException}.
+ *
+ * Every component of the application (GUI, autosave, batch jobs, the analysis server and
+ * the persistent tier of the analysis cache) goes through {@link #getShared()}, so there is
+ * exactly one writer per process.
+ */
+public class AsyncDatasetDAO implements AutoCloseable {
+
+    private static final int DEFAULT_MAX_PENDING_WRITES = 64;
+
+    private static AsyncDatasetDAO shared;
+
+    private final DatasetDAO delegate;
+    private final ExecutorService writer;
+    private final ThreadPoolExecutor readers;
+    private final Semaphore writePermits;
+    private final int maxPendingWrites;
+    // Key: dataset ID, or the Dataset instance itself while it has no ID yet
+    private final Map<Object, PendingSave> pendingSaves = new HashMap<>();
+    // Held while queuing a write, so the writer runs them in the order they were queued
+    private final Object queueLock = new Object();
+    // The last write queued, while it is a batch of journal appends that has not started
+    private PendingAppends pendingAppends;
+
+    public AsyncDatasetDAO() {
+        this(new DatasetDAO(), Math.max(2, Runtime.getRuntime().availableProcessors() / 2), DEFAULT_MAX_PENDING_WRITES);
+    }
+
+    public AsyncDatasetDAO(DatasetDAO delegate, int readerThreads, int maxPendingWrites) {
+        this.delegate = delegate;
+        this.maxPendingWrites = maxPendingWrites;
+        this.writePermits = new Semaphore(maxPendingWrites);
+        this.writer = Executors.newSingleThreadExecutor(daemonThreads("dao-writer"));
+        this.readers = (ThreadPoolExecutor) Executors.newFixedThreadPool(readerThreads, daemonThreads("dao-reader"));
+    }
+
+    /**
+     * Returns the process-wide instance shared by the GUI, autosave and batch jobs.
+     */
+    public static synchronized AsyncDatasetDAO getShared() {
+        if (shared == null) {
+            shared = new AsyncDatasetDAO();
+        }
+        return shared;
+    }
+
+    // --- Queries (reader pool) ---
+
+    public CompletableFuture<Dataset> getDatasetById(int datasetId) {
+        return read(() -> delegate.getDatasetById(datasetId));
+    }
+
+    public CompletableFuture<List<Dataset>> getAllDatasets() {
+        return read(delegate::getAllDatasets);
+    }
+
+    public CompletableFuture<CoMomentMatrix> computeCoMoments(int datasetId, List<String> variableNames) {
+        return read(() -> delegate.computeCoMoments(datasetId, variableNames));
+    }
+
+    public CompletableFuture<Integer> countObservations(int datasetId) {
+        return read(() -> delegate.countObservations(datasetId));
+    }
+
+    // --- Mutations (single writer) ---
+
+    /**
+     * Queues a full save of the dataset as it is now: the snapshot is taken on the calling
+     * thread, which must be the one that edits the dataset. If a save of the same dataset is
+     * already queued and has not started, that save is reused (and will write this snapshot)
+     * instead of queuing another one.
+     */
+    public CompletableFuture<Void> saveDataset(Dataset dataset) {
+        return saveDataset(dataset, null);
+    }
+
+    /**
+     * Queues a full save of the dataset that also discards its journal once the save has
+     * committed. Journal entries appended after this call are queued behind the save and are
+     * kept.
+     * @param journal The dataset's journal, or null if it has none.
+     */
+    public CompletableFuture<Void> saveDataset(Dataset dataset, EditJournal journal) {
+        Object key = dataset.getId() != 0 ? (Object) dataset.getId() : dataset;
+        DatasetSnapshot snapshot = dataset.snapshot();
+        PendingSave pending;
+        synchronized (pendingSaves) {
+            pending = pendingSaves.get(key);
+            if (pending != null) {
+                pending.dataset = dataset;
+                pending.snapshot = snapshot;
+                if (journal != null) {
+                    pending.journal = journal;
+                }
+                return pending.future;
+            }
+            pending = new PendingSave(dataset, snapshot, journal);
+            pendingSaves.put(key, pending);
+        }
+        PendingSave save = pending;
+        write(() -> {
+            Dataset latest;
+            DatasetSnapshot latestSnapshot;
+            EditJournal saveJournal;
+            synchronized (pendingSaves) {
+                pendingSaves.remove(key, save);
+                latest = save.dataset;
+                latestSnapshot = save.snapshot;
+                saveJournal = save.journal;
+            }
+            delegate.saveDataset(latest, latestSnapshot);
+            if (saveJournal != null) {
+                try {
+                    saveJournal.discard();
+                } catch (IOException e) {
+                    // The save has committed; replaying the stale entries later is harmless
+                    System.err.println("Warning: Could not discard the journal of dataset " + saveJournal.getDatasetId() + ": " + e.getMessage());
+                }
+            }
+            return null;
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                synchronized (pendingSaves) {
+                    pendingSaves.remove(key, save); // Rejected before it ran
+                }
+                save.future.completeExceptionally(unwrap(error));
+            } else {
+                save.future.complete(null);
+            }
+        });
+        return save.future;
+    }
+
+    public CompletableFuture<Void> saveObservation(int datasetId, int observationIndex, Observation observation) {
+        return write(() -> {
+            delegate.saveObservation(datasetId, observationIndex, observation);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> applyEdits(int datasetId, List<EditJournal.Entry> entries) {
+        return write(() -> {
+            delegate.applyEdits(datasetId, entries);
+            return null;
+        });
+    }
+
+    /**
+     * Appends an edit to a journal on the writer thread, behind every write already queued. If
+     * the last write queued is an append to the same journal that has not started, the edit
+     * joins it instead of taking another place in the queue.
+     */
+    public CompletableFuture<Void> appendToJournal(EditJournal journal, EditJournal.Entry entry) {
+        synchronized (queueLock) {
+            PendingAppends tail = pendingAppends;
+            if (tail != null && tail.journal == journal) {
+                tail.entries.add(entry);
+                return tail.future;
+            }
+            PendingAppends batch = new PendingAppends(journal, entry);
+            batch.future = write(() -> {
+                List<EditJournal.Entry> entries;
+                synchronized (queueLock) {
+                    if (pendingAppends == batch) {
+                        pendingAppends = null;
+                    }
+                    entries = batch.entries;
+                }
+                try {
+                    for (EditJournal.Entry pending : entries) {
+                        journal.append(pending);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+            if (!batch.future.isCompletedExceptionally()) {
+                pendingAppends = batch;
+            }
+            return batch.future;
+        }
+    }
+
+    /**
+     * Folds a journal into the database: forces its entries to the disk, applies them in one
+     * transaction and deletes them once it has committed. If the transaction fails, the
+     * entries stay in the journal for the next fold.
+     * @return The number of entries applied.
+     */
+    public CompletableFuture<Integer> foldJournal(EditJournal journal) {
+        return write(() -> {
+            try {
+                List<EditJournal.Entry> entries = journal.beginFold();
+                if (!entries.isEmpty()) {
+                    delegate.applyEdits(journal.getDatasetId(), entries);
+                }
+                journal.commitFold();
+                return entries.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Deletes every journal entry queued before this call, e.g. after deleting the dataset.
+     */
+    public CompletableFuture<Void> discardJournal(EditJournal journal) {
+        return write(() -> {
+            try {
+                journal.discard();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteDataset(int datasetId) {
+        return write(() -> {
+            delegate.deleteDataset(datasetId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteAllDatasetsAndData() {
+        return write(() -> {
+            delegate.deleteAllDatasetsAndData();
+            return null;
+        });
+    }
+
+    // --- Analysis cache (reads on the reader pool, writes on the writer thread) ---
+
+    public CompletableFuture<String> findCachedResult(AnalysisCacheDAO cache, String cacheKey) {
+        return read(() -> cache.find(cacheKey));
+    }
+
+    public CompletableFuture<Void> touchCachedResult(AnalysisCacheDAO cache, String cacheKey) {
+        return write(() -> {
+            cache.touch(cacheKey);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> storeCachedResult(AnalysisCacheDAO cache, String cacheKey, String kind, String value) {
+        return write(() -> {
+            cache.store(cacheKey, kind, value);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> clearCachedResults(AnalysisCacheDAO cache) {
+        return write(() -> {
+            cache.clear();
+            return null;
+        });
+    }
+
+    /**
+     * Number of writes queued or running on the writer thread.
+     */
+    public int getPendingWriteCount() {
+        return maxPendingWrites - writePermits.availablePermits();
+    }
+
+    /**
+     * Number of queries waiting for a reader thread.
+     */
+    public int getQueuedReadCount() {
+        return readers.getQueue().size();
+    }
+
+    /**
+     * Number of queries running right now.
+     */
+    public int getActiveReadCount() {
+        return readers.getActiveCount();
+    }
+
+    /**
+     * Stops accepting work and waits for queued writes to finish. If the calling thread is
+     * interrupted while waiting, it stops waiting and keeps its interrupt status.
+     */
+    @Override
+    public void close() {
+        readers.shutdown();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(30, TimeUnit.SECONDS);
+            readers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for a future returned by this class, for callers that need the result right away
+     * (batch jobs, server workers, startup). Never call it on the FX thread.
+     * @throws SQLException If the DAO call failed with one.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database", e);
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    private <T> CompletableFuture<T> read(SqlTask<T> task) {
+        return CompletableFuture.supplyAsync(() -> runTask(task), readers);
+    }
+
+    <T> CompletableFuture<T> write(SqlTask<T> task) {
+        synchronized (queueLock) {
+            pendingAppends = null; // Later appends must not jump ahead of this write
+            // Never waits: the caller is usually the FX thread
+            if (!writePermits.tryAcquire()) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Write queue full: " + maxPendingWrites + " writes pending"));
+            }
+            try {
+                CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> runTask(task), writer);
+                future.whenComplete((result, error) -> writePermits.release());
+                return future;
+            } catch (RuntimeException e) {
+                writePermits.release();
+                throw e;
+            }
+        }
+    }
+
+    private static <T> T runTask(SqlTask<T> task) {
+        try {
+            return task.run();
+        } catch (SQLException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A unit of blocking DAO work.
+     */
+    @FunctionalInterface
+    interface SqlTask<T> {
+        T run() throws SQLException;
+    }
+
+    private static class PendingAppends {
+        private final EditJournal journal;
+        private final List<EditJournal.Entry> entries = new ArrayList<>();
+        private CompletableFuture<Void> future;
+
+        PendingAppends(EditJournal journal, EditJournal.Entry entry) {
+            this.journal = journal;
+            entries.add(entry);
+        }
+    }
+
+    private static class PendingSave {
+        private Dataset dataset;
+        private DatasetSnapshot snapshot;
+        private EditJournal journal;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingSave(Dataset dataset, DatasetSnapshot snapshot, EditJournal journal) {
+            this.dataset = dataset;
+            this.snapshot = snapshot;
+            this.journal = journal;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.dao;
+
+import org.example.model.Dataset;
+import org.example.model.Observation;
+import org.example.model.Variable;
+import org.example.util.JfrEvents;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a delimited text file into an in-memory {@link Dataset}.
+ *
+ * The first record holds the variable names. Fields may be quoted with double quotes (a
+ * doubled quote inside is a literal quote, and quoted fields may span lines). Empty fields
+ * and "NA" are missing values. A column whose present values all parse as numbers becomes
+ * a NUMERIC variable holding doubles; any other column becomes TEXT and keeps its strings.
+ * The dataset is not saved; pass it to {@link DatasetDAO#saveDataset} to store it.
+ */
+public class CsvDatasetImporter {
+
+    private static final String MISSING_VALUE = "NA";
+    // Records per flight recorder import event
+    private static final int EVENT_CHUNK_RECORDS = 4096;
+
+    private final char delimiter;
+
+    public CsvDatasetImporter() {
+        this(',');
+    }
+
+    public CsvDatasetImporter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Reads a UTF-8 file; the dataset is named after the file without its extension.
+     */
+    public Dataset read(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader, name);
+        }
+    }
+
+    /**
+     * @throws IOException if reading fails or the header is missing, empty or repeats a name.
+     */
+    public Dataset read(Reader reader, String datasetName) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        List<String> header = readRecord(in);
+        if (header == null) {
+            throw new IOException("The file has no header row.");
+        }
+        Set<String> seen = new HashSet<>();
+        for (int j = 0; j < header.size(); j++) {
+            String name = header.get(j).trim();
+            if (name.isEmpty() || !seen.add(name)) {
+                throw new IOException("Invalid or duplicate column name in header: '" + name + "'");
+            }
+            header.set(j, name);
+        }
+
+        // Keep the raw strings until the type of every column is known
+        int columns = header.size();
+        List<String[]> records = new ArrayList<>();
+        boolean[] numeric = new boolean[columns];
+        Arrays.fill(numeric, true);
+        List<String> record;
+        int line = 1;
+        JfrEvents.ImportChunk chunkEvent = startChunk();
+        long chunkBytes = 0;
+        while ((record = readRecord(in)) != null) {
+            line++;
+            if (chunkEvent.isEnabled()) {
+                for (String field : record) {
+                    chunkBytes += field.length() + 1; // Plus its delimiter or line break
+                }
+            }
+
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                continue; // Blank line
+            }
+            if (record.size() > columns) {
+                throw new IOException("Record " + line + " has " + record.size() + " fields, expected " + columns + ".");
+            }
+            String[] values = new String[columns];
+            for (int j = 0; j < record.size(); j++) {
+                String value = record.get(j).trim();
+                if (value.isEmpty() || MISSING_VALUE.equals(value)) {
+                    continue;
+                }
+                values[j] = value;
+                if (numeric[j] && parseNumber(value) == null) {
+                    numeric[j] = false;
+                }
+            }
+            records.add(values);
+            if (records.size() - chunkEvent.firstRow == EVENT_CHUNK_RECORDS) {
+                commitChunk(chunkEvent, datasetName, records.size(), columns, chunkBytes);
+                chunkEvent = startChunk();
+                chunkEvent.firstRow = records.size();
+                chunkBytes = 0;
+            }
+        }
+        commitChunk(chunkEvent, datasetName, records.size(), columns, chunkBytes);
+
+        Dataset dataset = new Dataset(datasetName);
+        List<Variable> variables = new ArrayList<>();
+        for (int j = 0; j < columns; j++) {
+            variables.add(new Variable(header.get(j), numeric[j] ? "NUMERIC" : "TEXT"));
+        }
+        dataset.setVariables(variables);
+        Map<Integer, Observation> observations = new HashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            String[] values = records.get(i);
+            Observation observation = new Observation();
+            for (int j = 0; j < columns; j++) {
+                if (values[j] != null) {
+                    observation.addValue(header.get(j), numeric[j] ? parseNumber(values[j]) : values[j]);
+                }
+            }
+            observations.put(i, observation);
+        }
+        dataset.setObservations(observations);
+        return dataset;
+    }
+
+    private static Double parseNumber(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static JfrEvents.ImportChunk startChunk() {
+        JfrEvents.ImportChunk event = new JfrEvents.ImportChunk();
+        event.begin();
+        return event;
+    }
+
+    // Records [event.firstRow, recordCount) were read since the event began
+    private static void commitChunk(JfrEvents.ImportChunk event, String datasetName, int recordCount, int columns, long bytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.dataset = datasetName;
+            event.rows = recordCount - event.firstRow;
+            event.columns = columns;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Reads one record, or returns null at end of input.
+     */
+    private List<String> readRecord(BufferedReader in) throws IOException {
+        int c = in.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    int next = in.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            in.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                in.mark(1);
+                if (in.read() != '\n') {
+                    in.reset();
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = in.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -1,8 +1,13 @@
 package org.example.dao;
 
 import org.example.model.Dataset;
+import org.example.model.DatasetSnapshot;
 import org.example.model.Observation;
 import org.example.model.Variable;
+import org.example.service.CoMomentMatrix;
+import org.example.service.MomentAccumulator;
+import org.example.util.JfrEvents;
+import org.example.util.Metrics;
 import org.example.util.SQLiteConnection;
 
 import java.sql.*;
@@ -13,29 +18,69 @@ import java.util.Map;
 
 public class DatasetDAO {
 
+    // Per-operation latencies plus rows, values and executed statements across all calls
+    private static final Metrics.Timer SAVE_TIMER = Metrics.timer("dao.saveDataset");
+    private static final Metrics.Timer LOAD_TIMER = Metrics.timer("dao.getDatasetById");
+    private static final Metrics.Timer LIST_TIMER = Metrics.timer("dao.getAllDatasets");
+    private static final Metrics.Timer DELETE_TIMER = Metrics.timer("dao.deleteDataset");
+    private static final Metrics.Timer SAVE_OBSERVATION_TIMER = Metrics.timer("dao.saveObservation");
+    private static final Metrics.Timer APPEND_TIMER = Metrics.timer("dao.appendObservations");
+    private static final Metrics.Timer APPLY_EDITS_TIMER = Metrics.timer("dao.applyEdits");
+    private static final Metrics.Timer AGGREGATE_TIMER = Metrics.timer("dao.aggregate");
+    private static final Metrics.Counter STATEMENTS = Metrics.counter("dao.statements");
+    private static final Metrics.Counter ROWS_READ = Metrics.counter("dao.rows.read");
+    private static final Metrics.Counter ROWS_WRITTEN = Metrics.counter("dao.rows.written");
+    private static final Metrics.Counter VALUES_READ = Metrics.counter("dao.values.read");
+    private static final Metrics.Counter VALUES_WRITTEN = Metrics.counter("dao.values.written");
+
     public void saveDataset(Dataset dataset) throws SQLException {
+        saveDataset(dataset, dataset.snapshot());
+    }
+
+    /**
+     * Saves the contents of a snapshot of the dataset. The snapshot is immutable, so it can be
+     * taken on the thread that edits the dataset and saved on another one while the editing
+     * goes on. The IDs are read from and assigned to the live dataset and its variables, so a
+     * snapshot taken before an earlier save assigned them still updates the same rows.
+     */
+    public void saveDataset(Dataset dataset, DatasetSnapshot snapshot) throws SQLException {
+        String sqlNewDataset = "INSERT OR REPLACE INTO datasets(name) VALUES(?)";
         String sqlDataset = "INSERT OR REPLACE INTO datasets(id, name) VALUES(?, ?)";
+        String sqlNewVariable = "INSERT INTO variables(dataset_id, name, type) VALUES(?, ?, ?)";
         String sqlVariable = "INSERT OR REPLACE INTO variables(id, dataset_id, name, type) VALUES(?, ?, ?, ?)";
         String sqlObservationValue = "INSERT OR REPLACE INTO observation_values(observation_id, dataset_id, variable_id, value_numeric, value_text) VALUES(?, ?, ?, ?, ?)";
 
+        long start = SAVE_TIMER.start();
+        JfrEvents.DatasetSave saveEvent = new JfrEvents.DatasetSave();
+        saveEvent.begin();
+        boolean measureBytes = saveEvent.isEnabled();
+        long bytesWritten = 0;
+        int rowsWritten = 0;
+        int valuesWritten = 0;
+        List<Variable> variables = snapshot.getVariables();
+        // Live variables by name, which receive the IDs; only this thread assigns them
+        Map<String, Variable> liveVariables = new HashMap<>();
+        synchronized (dataset) {
+            for (Variable var : dataset.getVariables()) {
+                liveVariables.put(var.getName(), var);
+            }
+        }
         try (Connection conn = SQLiteConnection.connect()) {
             conn.setAutoCommit(false); // Start transaction
 
             // 1. Save/Update Dataset
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlDataset)) {
-                if (dataset.getId() == 0) { // New dataset, generate ID
-                    try (Statement stmt = conn.createStatement()) {
-                        ResultSet rs = stmt.executeQuery("SELECT MAX(id) + 1 FROM datasets");
-                        if (rs.next() && rs.getInt(1) > 0) { // Ensure ID is positive
-                            dataset.setId(rs.getInt(1));
-                        } else {
-                            dataset.setId(1); // First dataset
-                        }
-                    }
+            if (dataset.getId() == 0) { // New dataset, let AUTOINCREMENT assign the ID
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlNewDataset, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setString(1, snapshot.getName());
+                    pstmt.executeUpdate();
+                    dataset.setId(readGeneratedKey(pstmt));
+                }
+            } else {
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlDataset)) {
+                    pstmt.setInt(1, dataset.getId());
+                    pstmt.setString(2, snapshot.getName());
+                    pstmt.executeUpdate();
                 }
-                pstmt.setInt(1, dataset.getId());
-                pstmt.setString(2, dataset.getName());
-                pstmt.executeUpdate();
             }
 
             // 2. Save/Update Variables
@@ -44,26 +89,36 @@ public class DatasetDAO {
                 pstmt.setInt(1, dataset.getId());
                 pstmt.executeUpdate();
             }
-            // Then insert current variables
-            for (Variable var : dataset.getVariables()) {
-                try (PreparedStatement pstmt = conn.prepareStatement(sqlVariable)) {
-                    if (var.getId() == 0) { // New variable, generate ID
-                        try (Statement stmt = conn.createStatement()) {
-                            ResultSet rs = stmt.executeQuery("SELECT MAX(id) + 1 FROM variables");
-                            if (rs.next() && rs.getInt(1) > 0) { // Ensure ID is positive
-                                var.setId(rs.getInt(1));
-                            } else {
-                                var.setId(1); // First variable
-                            }
+            // Then insert current variables; new ones get their ID from AUTOINCREMENT
+            int[] variableIds = new int[variables.size()];
+            JfrEvents.SqlBatch variablesBatch = new JfrEvents.SqlBatch();
+            variablesBatch.begin();
+            try (PreparedStatement newVarStmt = conn.prepareStatement(sqlNewVariable, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement varStmt = conn.prepareStatement(sqlVariable)) {
+                for (int v = 0; v < variables.size(); v++) {
+                    Variable var = variables.get(v);
+                    Variable live = liveVariables.get(var.getName()); // null if removed after the snapshot
+                    int varId = live != null ? live.getId() : var.getId();
+                    if (varId == 0) {
+                        newVarStmt.setInt(1, dataset.getId());
+                        newVarStmt.setString(2, var.getName());
+                        newVarStmt.setString(3, var.getType());
+                        newVarStmt.executeUpdate();
+                        varId = readGeneratedKey(newVarStmt);
+                        if (live != null) {
+                            live.setId(varId);
                         }
+                    } else {
+                        varStmt.setInt(1, varId);
+                        varStmt.setInt(2, dataset.getId());
+                        varStmt.setString(3, var.getName());
+                        varStmt.setString(4, var.getType());
+                        varStmt.executeUpdate();
                     }
-                    pstmt.setInt(1, var.getId());
-                    pstmt.setInt(2, dataset.getId());
-                    pstmt.setString(3, var.getName());
-                    pstmt.setString(4, var.getType());
-                    pstmt.executeUpdate();
+                    variableIds[v] = varId;
                 }
             }
+            commitBatch(variablesBatch, "save variables", dataset.getId(), variables.size(), 0);
 
 
             // 3. Save/Update Observation Values
@@ -74,53 +129,114 @@ public class DatasetDAO {
             }
 
             // Insert new observations and their values
+            // Observation IDs are the dataset-local indexes allocated by Dataset, so no lookup is needed
             String sqlInsertObservation = "INSERT OR REPLACE INTO observations(id, dataset_id) VALUES(?, ?)";
-            for (Map.Entry<Integer, Observation> obsEntry : dataset.getObservations().entrySet()) {
-                Integer obsIndex = obsEntry.getKey();
-                Observation observation = obsEntry.getValue();
-
-                // Insert observation row (if not exists)
-                try (PreparedStatement pstmt = conn.prepareStatement(sqlInsertObservation)) {
-                    pstmt.setInt(1, obsIndex); // Use the observation index as its ID
-                    pstmt.setInt(2, dataset.getId());
-                    pstmt.executeUpdate();
-                }
-
-                // Insert values for this observation
-                for (Map.Entry<String, Object> valueEntry : observation.getValues().entrySet()) {
-                    String varName = valueEntry.getKey();
-                    Object value = valueEntry.getValue();
-                    Variable variable = dataset.getVariableByName(varName); // Get variable to find its ID
-
-                    if (variable == null) {
-                        System.err.println("Warning: Variable '" + varName + "' not found in dataset, skipping value.");
+            JfrEvents.SqlBatch valuesBatch = new JfrEvents.SqlBatch();
+            valuesBatch.begin();
+            DatasetSnapshot.ColumnChunk[][] columns = new DatasetSnapshot.ColumnChunk[variables.size()][];
+            for (int v = 0; v < variables.size(); v++) {
+                columns[v] = snapshot.getColumn(variables.get(v).getName());
+            }
+            try (PreparedStatement obsStmt = conn.prepareStatement(sqlInsertObservation);
+                 PreparedStatement valueStmt = conn.prepareStatement(sqlObservationValue)) {
+                for (int chunk = 0; chunk < snapshot.getChunkCount(); chunk++) {
+                    long[] presence = snapshot.getRowPresence(chunk);
+                    if (presence == null) {
                         continue;
                     }
-
-                    try (PreparedStatement pstmt = conn.prepareStatement(sqlObservationValue)) {
-                        pstmt.setInt(1, obsIndex);
-                        pstmt.setInt(2, dataset.getId());
-                        pstmt.setInt(3, variable.getId());
-
-                        if (value instanceof Number) {
-                            pstmt.setDouble(4, ((Number) value).doubleValue());
-                            pstmt.setNull(5, Types.VARCHAR);
-                        } else if (value != null) {
-                            pstmt.setNull(4, Types.DOUBLE);
-                            pstmt.setString(5, value.toString());
-                        } else {
-                            pstmt.setNull(4, Types.DOUBLE);
-                            pstmt.setNull(5, Types.VARCHAR);
+                    for (int word = 0; word < presence.length; word++) {
+                        for (long bits = presence[word]; bits != 0; bits &= bits - 1) {
+                            int offset = (word << 6) + Long.numberOfTrailingZeros(bits);
+                            int obsIndex = chunk * DatasetSnapshot.CHUNK_SIZE + offset;
+
+                            // Insert observation row (if not exists)
+                            obsStmt.setInt(1, obsIndex); // Use the observation index as its ID
+                            obsStmt.setInt(2, dataset.getId());
+                            obsStmt.executeUpdate();
+                            rowsWritten++;
+
+                            // Insert the values of this observation, column by column
+                            int rowValues = 0;
+                            for (int v = 0; v < variables.size(); v++) {
+                                DatasetSnapshot.ColumnChunk column = columns[v][chunk];
+                                boolean numeric = column.isNumeric(offset);
+                                Object value = numeric ? null : column.getValue(offset);
+                                if (numeric) {
+                                    valueStmt.setDouble(4, column.getDouble(offset));
+                                    valueStmt.setNull(5, Types.VARCHAR);
+                                } else if (value != null) {
+                                    valueStmt.setNull(4, Types.DOUBLE);
+                                    valueStmt.setString(5, value.toString());
+                                } else if (rowValues > 0 || v < variables.size() - 1) {
+                                    continue; // No value for this variable
+                                } else {
+                                    // A row without values is loaded back only if it has one, so store a NULL
+                                    valueStmt.setNull(4, Types.DOUBLE);
+                                    valueStmt.setNull(5, Types.VARCHAR);
+                                }
+                                valueStmt.setInt(1, obsIndex);
+                                valueStmt.setInt(2, dataset.getId());
+                                valueStmt.setInt(3, variableIds[v]);
+                                valueStmt.executeUpdate();
+                                rowValues++;
+                                valuesWritten++;
+                                if (measureBytes) {
+                                    bytesWritten += numeric ? Double.BYTES : JfrEvents.sizeOf(value);
+                                }
+                            }
                         }
-                        pstmt.executeUpdate();
                     }
                 }
             }
+            commitBatch(valuesBatch, "save observations", dataset.getId(), rowsWritten + valuesWritten, rowsWritten);
             conn.commit(); // Commit transaction
+            commitSave(saveEvent, "save", dataset.getId(), rowsWritten, variables.size(), valuesWritten, bytesWritten);
         } catch (SQLException e) {
             // If anything goes wrong, rollback
             System.err.println("Error saving dataset: " + e.getMessage());
             throw e;
+        } finally {
+            // Dataset upsert and the two deletes, one insert per variable, row and value
+            STATEMENTS.add(3L + variables.size() + rowsWritten + valuesWritten);
+            ROWS_WRITTEN.add(rowsWritten);
+            VALUES_WRITTEN.add(valuesWritten);
+            SAVE_TIMER.stop(start);
+        }
+    }
+
+    // Reads the row ID assigned by SQLite to the last INSERT executed by the statement
+    private int readGeneratedKey(Statement stmt) throws SQLException {
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            if (keys.next()) {
+                return keys.getInt(1);
+            }
+        }
+        throw new SQLException("SQLite did not return a generated key.");
+    }
+
+    // Ends a flight recorder SQL batch event; the fields are only filled in when it is recorded
+    private static void commitBatch(JfrEvents.SqlBatch event, String operation, int datasetId, long statements, long rows) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.datasetId = datasetId;
+            event.statements = statements;
+            event.rows = rows;
+            event.commit();
+        }
+    }
+
+    private static void commitSave(JfrEvents.DatasetSave event, String operation, int datasetId, long rows, int columns,
+                                   long values, long bytes) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.datasetId = datasetId;
+            event.rows = rows;
+            event.columns = columns;
+            event.values = values;
+            event.bytes = bytes;
+            event.commit();
         }
     }
 
@@ -134,6 +250,10 @@ public class DatasetDAO {
                 "JOIN variables v ON ov.variable_id = v.id " +
                 "WHERE ov.dataset_id = ? ORDER BY ov.observation_id, v.id";
 
+        long start = LOAD_TIMER.start();
+        JfrEvents.DatasetLoad loadEvent = new JfrEvents.DatasetLoad();
+        loadEvent.begin();
+        boolean measureBytes = loadEvent.isEnabled();
         try (Connection conn = SQLiteConnection.connect()) {
             // Get Dataset details
             try (PreparedStatement pstmt = conn.prepareStatement(sqlDataset)) {
@@ -161,6 +281,8 @@ public class DatasetDAO {
                     pstmt.setInt(1, datasetId);
                     ResultSet rs = pstmt.executeQuery();
                     Map<Integer, Observation> observations = new HashMap<>();
+                    long valuesRead = 0;
+                    long bytesRead = 0;
                     while (rs.next()) {
                         int obsId = rs.getInt("observation_id");
                         String varName = rs.getString("var_name");
@@ -172,23 +294,177 @@ public class DatasetDAO {
                         }
 
                         observations.computeIfAbsent(obsId, k -> new Observation()).addValue(varName, value);
+                        valuesRead++;
+                        if (measureBytes) {
+                            bytesRead += JfrEvents.sizeOf(value);
+                        }
                     }
                     dataset.setObservations(observations);
+                    loadEvent.end();
+                    if (loadEvent.shouldCommit()) {
+                        loadEvent.datasetId = datasetId;
+                        loadEvent.rows = observations.size();
+                        loadEvent.columns = dataset.getVariableCount();
+                        loadEvent.values = valuesRead;
+                        loadEvent.bytes = bytesRead;
+                        loadEvent.commit();
+                    }
+                    STATEMENTS.add(3);
+                    ROWS_READ.add(observations.size());
+                    VALUES_READ.add(valuesRead);
                 }
             }
+        } finally {
+            LOAD_TIMER.stop(start);
         }
         return dataset;
     }
 
+    // SQLite allows at most 64 tables in a join; each variable is one self-join.
+    private static final int MAX_AGGREGATE_VARIABLES = 64;
+
+    /**
+     * Computes means and centered cross products (X'X and X'y around the mean) for the given
+     * variables inside SQLite with the {@code comoments} aggregate, so only one small row is
+     * transferred instead of every cell. Only observations with a numeric value for every
+     * variable are included.
+     *
+     * @param datasetId The dataset to aggregate.
+     * @param variableNames The variables; the matrix columns follow this order.
+     * @return The accumulated matrix (with count 0 if no observation qualifies).
+     */
+    public CoMomentMatrix computeCoMoments(int datasetId, List<String> variableNames) throws SQLException {
+        if (variableNames.isEmpty() || variableNames.size() > MAX_AGGREGATE_VARIABLES) {
+            throw new IllegalArgumentException("Se requieren entre 1 y " + MAX_AGGREGATE_VARIABLES + " variables para la agregación en base de datos.");
+        }
+        long start = AGGREGATE_TIMER.start();
+        try (Connection conn = SQLiteConnection.connect()) {
+            StatisticalAggregates.register(conn);
+            List<Integer> variableIds = resolveVariableIds(conn, datasetId, variableNames);
+
+            StringBuilder columns = new StringBuilder();
+            StringBuilder joins = new StringBuilder();
+            for (int i = 0; i < variableIds.size(); i++) {
+                columns.append(i == 0 ? "" : ", ").append("t").append(i).append(".value_numeric");
+                if (i > 0) {
+                    joins.append(" JOIN observation_values t").append(i)
+                            .append(" ON t").append(i).append(".dataset_id = t0.dataset_id")
+                            .append(" AND t").append(i).append(".observation_id = t0.observation_id")
+                            .append(" AND t").append(i).append(".variable_id = ?");
+                }
+            }
+            String sql = "SELECT comoments(" + columns + ") FROM observation_values t0" + joins +
+                    " WHERE t0.dataset_id = ? AND t0.variable_id = ?";
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int param = 1;
+                for (int i = 1; i < variableIds.size(); i++) {
+                    pstmt.setInt(param++, variableIds.get(i));
+                }
+                pstmt.setInt(param++, datasetId);
+                pstmt.setInt(param, variableIds.get(0));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    byte[] blob = rs.next() ? rs.getBytes(1) : null;
+                    return blob != null ? CoMomentMatrix.fromBytes(blob) : new CoMomentMatrix(variableIds.size());
+                }
+            }
+        } finally {
+            AGGREGATE_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Computes count, mean, higher moments, min and max of one variable inside SQLite with
+     * the {@code moments} aggregate.
+     */
+    public MomentAccumulator computeMoments(int datasetId, String variableName) throws SQLException {
+        String sql = "SELECT moments(value_numeric) FROM observation_values WHERE dataset_id = ? AND variable_id = ?";
+        long start = AGGREGATE_TIMER.start();
+        try (Connection conn = SQLiteConnection.connect()) {
+            StatisticalAggregates.register(conn);
+            int variableId = resolveVariableIds(conn, datasetId, List.of(variableName)).get(0);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, datasetId);
+                pstmt.setInt(2, variableId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    byte[] blob = rs.next() ? rs.getBytes(1) : null;
+                    return blob != null ? MomentAccumulator.fromBytes(blob) : new MomentAccumulator();
+                }
+            }
+        } finally {
+            AGGREGATE_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Computes the Pearson correlation between two variables inside SQLite with the
+     * {@code corr} aggregate.
+     * @return The correlation, or NaN if it is undefined for the stored data.
+     */
+    public double computeCorrelation(int datasetId, String firstVariable, String secondVariable) throws SQLException {
+        String sql = "SELECT corr(a.value_numeric, b.value_numeric) FROM observation_values a " +
+                "JOIN observation_values b ON b.dataset_id = a.dataset_id AND b.observation_id = a.observation_id AND b.variable_id = ? " +
+                "WHERE a.dataset_id = ? AND a.variable_id = ?";
+        long start = AGGREGATE_TIMER.start();
+        try (Connection conn = SQLiteConnection.connect()) {
+            StatisticalAggregates.register(conn);
+            List<Integer> ids = resolveVariableIds(conn, datasetId, List.of(firstVariable, secondVariable));
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, ids.get(1));
+                pstmt.setInt(2, datasetId);
+                pstmt.setInt(3, ids.get(0));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        double value = rs.getDouble(1);
+                        return rs.wasNull() ? Double.NaN : value;
+                    }
+                    return Double.NaN;
+                }
+            }
+        } finally {
+            AGGREGATE_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Counts the stored observations (rows) of a dataset without loading them.
+     */
+    public int countObservations(int datasetId) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM observations WHERE dataset_id = ?";
+        try (Connection conn = SQLiteConnection.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, datasetId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private List<Integer> resolveVariableIds(Connection conn, int datasetId, List<String> variableNames) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        for (String name : variableNames) {
+            Variable var = getVariableByNameAndDatasetId(conn, name, datasetId);
+            if (var == null) {
+                throw new IllegalArgumentException("Variable no encontrada en el dataset " + datasetId + ": " + name);
+            }
+            ids.add(var.getId());
+        }
+        return ids;
+    }
+
     public List<Dataset> getAllDatasets() throws SQLException {
         List<Dataset> datasets = new ArrayList<>();
         String sql = "SELECT id, name FROM datasets";
+        long start = LIST_TIMER.start();
         try (Connection conn = SQLiteConnection.connect();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
                 datasets.add(new Dataset(rs.getInt("id"), rs.getString("name")));
             }
+            STATEMENTS.increment();
+        } finally {
+            LIST_TIMER.stop(start);
         }
         return datasets;
     }
@@ -199,6 +475,9 @@ public class DatasetDAO {
         String sqlDeleteVariables = "DELETE FROM variables WHERE dataset_id = ?";
         String sqlDeleteDataset = "DELETE FROM datasets WHERE id = ?";
 
+        long start = DELETE_TIMER.start();
+        JfrEvents.SqlBatch deleteBatch = new JfrEvents.SqlBatch();
+        deleteBatch.begin();
         try (Connection conn = SQLiteConnection.connect()) {
             conn.setAutoCommit(false); // Start transaction
 
@@ -220,6 +499,10 @@ public class DatasetDAO {
                 pstmt.executeUpdate();
             }
             conn.commit();
+            commitBatch(deleteBatch, "delete dataset", datasetId, 4, 0);
+            STATEMENTS.add(4);
+        } finally {
+            DELETE_TIMER.stop(start);
         }
     }
 
@@ -228,6 +511,7 @@ public class DatasetDAO {
         String sqlValue = "INSERT OR REPLACE INTO observation_values(observation_id, dataset_id, variable_id, value_numeric, value_text) VALUES(?, ?, ?, ?, ?)";
         String sqlDeleteExistingValues = "DELETE FROM observation_values WHERE observation_id = ? AND dataset_id = ?";
 
+        long start = SAVE_OBSERVATION_TIMER.start();
         try (Connection conn = SQLiteConnection.connect()) {
             conn.setAutoCommit(false);
 
@@ -276,10 +560,228 @@ public class DatasetDAO {
                 }
             }
             conn.commit();
+            STATEMENTS.add(2L + observation.getValues().size());
+            ROWS_WRITTEN.increment();
+            VALUES_WRITTEN.add(observation.getValues().size());
         } catch (SQLException e) {
             System.err.println("Error saving observation: " + e.getMessage());
             throw e;
+        } finally {
+            SAVE_OBSERVATION_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Inserts (or replaces) a group of observations of a stored dataset in a single
+     * transaction, without touching the rest of its rows. Lets large datasets be written in
+     * parts instead of building them in memory for {@link #saveDataset}.
+     *
+     * @param datasetId The stored dataset.
+     * @param variables The dataset's variables, with the IDs assigned when it was saved.
+     * @param observations The observations to write, keyed by observation index.
+     */
+    public void appendObservations(int datasetId, List<Variable> variables, Map<Integer, Observation> observations) throws SQLException {
+        String sqlObservation = "INSERT OR REPLACE INTO observations(id, dataset_id) VALUES(?, ?)";
+        String sqlValue = "INSERT OR REPLACE INTO observation_values(observation_id, dataset_id, variable_id, value_numeric, value_text) VALUES(?, ?, ?, ?, ?)";
+
+        Map<String, Variable> variablesByName = new HashMap<>();
+        for (Variable variable : variables) {
+            variablesByName.put(variable.getName(), variable);
+        }
+        long start = APPEND_TIMER.start();
+        JfrEvents.DatasetSave saveEvent = new JfrEvents.DatasetSave();
+        saveEvent.begin();
+        boolean measureBytes = saveEvent.isEnabled();
+        long bytesWritten = 0;
+        int valuesWritten = 0;
+        try (Connection conn = SQLiteConnection.connect()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement obsStmt = conn.prepareStatement(sqlObservation);
+                 PreparedStatement valueStmt = conn.prepareStatement(sqlValue)) {
+                for (Map.Entry<Integer, Observation> obsEntry : observations.entrySet()) {
+                    int obsIndex = obsEntry.getKey();
+                    obsStmt.setInt(1, obsIndex);
+                    obsStmt.setInt(2, datasetId);
+                    obsStmt.executeUpdate();
+
+                    for (Map.Entry<String, Object> valueEntry : obsEntry.getValue().getValues().entrySet()) {
+                        Variable variable = variablesByName.get(valueEntry.getKey());
+                        Object value = valueEntry.getValue();
+                        if (variable == null || variable.getId() == 0) {
+                            System.err.println("Warning: Variable '" + valueEntry.getKey() + "' not stored for dataset " + datasetId + ". Skipping value.");
+                            continue;
+                        }
+                        valueStmt.setInt(1, obsIndex);
+                        valueStmt.setInt(2, datasetId);
+                        valueStmt.setInt(3, variable.getId());
+                        if (value instanceof Number) {
+                            valueStmt.setDouble(4, ((Number) value).doubleValue());
+                            valueStmt.setNull(5, Types.VARCHAR);
+                        } else if (value != null) {
+                            valueStmt.setNull(4, Types.DOUBLE);
+                            valueStmt.setString(5, value.toString());
+                        } else {
+                            valueStmt.setNull(4, Types.DOUBLE);
+                            valueStmt.setNull(5, Types.VARCHAR);
+                        }
+                        valueStmt.executeUpdate();
+                        valuesWritten++;
+                        if (measureBytes) {
+                            bytesWritten += JfrEvents.sizeOf(value);
+                        }
+                    }
+                }
+            }
+            conn.commit();
+            commitSave(saveEvent, "append", datasetId, observations.size(), variables.size(), valuesWritten, bytesWritten);
+            STATEMENTS.add(observations.size() + valuesWritten);
+            ROWS_WRITTEN.add(observations.size());
+            VALUES_WRITTEN.add(valuesWritten);
+        } catch (SQLException e) {
+            System.err.println("Error appending observations: " + e.getMessage());
+            throw e;
+        } finally {
+            APPEND_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Applies journaled edits to a stored dataset in a single transaction, touching only the
+     * affected rows instead of rewriting the whole dataset. Edits for a dataset that no
+     * longer exists are dropped.
+     *
+     * @param datasetId The stored dataset the edits belong to.
+     * @param entries The edits, in the order they were made.
+     */
+    public void applyEdits(int datasetId, List<EditJournal.Entry> entries) throws SQLException {
+        String sqlDatasetExists = "SELECT 1 FROM datasets WHERE id = ?";
+        String sqlObservation = "INSERT OR IGNORE INTO observations(id, dataset_id) VALUES(?, ?)";
+        String sqlValue = "INSERT OR REPLACE INTO observation_values(observation_id, dataset_id, variable_id, value_numeric, value_text) VALUES(?, ?, ?, ?, ?)";
+        String sqlDeleteRowValues = "DELETE FROM observation_values WHERE observation_id = ? AND dataset_id = ?";
+        String sqlDeleteRow = "DELETE FROM observations WHERE id = ? AND dataset_id = ?";
+        String sqlAddVariable = "INSERT OR IGNORE INTO variables(dataset_id, name, type) VALUES(?, ?, ?)";
+        String sqlDeleteVariableValues = "DELETE FROM observation_values WHERE dataset_id = ? AND variable_id = ?";
+        String sqlDeleteVariable = "DELETE FROM variables WHERE id = ?";
+        String sqlSetVariableType = "UPDATE variables SET type = ? WHERE dataset_id = ? AND name = ?";
+
+        long start = APPLY_EDITS_TIMER.start();
+        JfrEvents.SqlBatch editsBatch = new JfrEvents.SqlBatch();
+        editsBatch.begin();
+        try (Connection conn = SQLiteConnection.connect()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlDatasetExists)) {
+                pstmt.setInt(1, datasetId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        System.err.println("Warning: Dataset " + datasetId + " no longer exists, dropping " + entries.size() + " journaled edits.");
+                        return;
+                    }
+                }
+            }
+
+            Map<String, Integer> variableIds = new HashMap<>(); // Cache of name -> ID for this transaction
+            try (PreparedStatement obsStmt = conn.prepareStatement(sqlObservation);
+                 PreparedStatement valueStmt = conn.prepareStatement(sqlValue);
+                 PreparedStatement deleteRowValuesStmt = conn.prepareStatement(sqlDeleteRowValues);
+                 PreparedStatement deleteRowStmt = conn.prepareStatement(sqlDeleteRow);
+                 PreparedStatement addVarStmt = conn.prepareStatement(sqlAddVariable);
+                 PreparedStatement deleteVarValuesStmt = conn.prepareStatement(sqlDeleteVariableValues);
+                 PreparedStatement deleteVarStmt = conn.prepareStatement(sqlDeleteVariable);
+                 PreparedStatement setTypeStmt = conn.prepareStatement(sqlSetVariableType)) {
+
+                for (EditJournal.Entry entry : entries) {
+                    switch (entry.getType()) {
+                        case SET_VALUE: {
+                            Integer variableId = lookupVariableId(conn, variableIds, datasetId, entry.getVariableName());
+                            if (variableId == null) {
+                                System.err.println("Warning: Variable '" + entry.getVariableName() + "' not found for dataset " + datasetId + ". Skipping journaled value.");
+                                break;
+                            }
+                            obsStmt.setInt(1, entry.getObservationIndex());
+                            obsStmt.setInt(2, datasetId);
+                            obsStmt.executeUpdate();
+
+                            Object value = entry.getValue();
+                            valueStmt.setInt(1, entry.getObservationIndex());
+                            valueStmt.setInt(2, datasetId);
+                            valueStmt.setInt(3, variableId);
+                            if (value instanceof Number) {
+                                valueStmt.setDouble(4, ((Number) value).doubleValue());
+                                valueStmt.setNull(5, Types.VARCHAR);
+                            } else if (value != null) {
+                                valueStmt.setNull(4, Types.DOUBLE);
+                                valueStmt.setString(5, value.toString());
+                            } else {
+                                valueStmt.setNull(4, Types.DOUBLE);
+                                valueStmt.setNull(5, Types.VARCHAR);
+                            }
+                            valueStmt.executeUpdate();
+                            break;
+                        }
+                        case ADD_ROW:
+                            obsStmt.setInt(1, entry.getObservationIndex());
+                            obsStmt.setInt(2, datasetId);
+                            obsStmt.executeUpdate();
+                            break;
+                        case REMOVE_ROW:
+                            deleteRowValuesStmt.setInt(1, entry.getObservationIndex());
+                            deleteRowValuesStmt.setInt(2, datasetId);
+                            deleteRowValuesStmt.executeUpdate();
+                            deleteRowStmt.setInt(1, entry.getObservationIndex());
+                            deleteRowStmt.setInt(2, datasetId);
+                            deleteRowStmt.executeUpdate();
+                            break;
+                        case ADD_VARIABLE:
+                            addVarStmt.setInt(1, datasetId);
+                            addVarStmt.setString(2, entry.getVariableName());
+                            addVarStmt.setString(3, entry.getVariableType());
+                            addVarStmt.executeUpdate();
+                            break;
+                        case REMOVE_VARIABLE: {
+                            Integer variableId = lookupVariableId(conn, variableIds, datasetId, entry.getVariableName());
+                            if (variableId != null) {
+                                deleteVarValuesStmt.setInt(1, datasetId);
+                                deleteVarValuesStmt.setInt(2, variableId);
+                                deleteVarValuesStmt.executeUpdate();
+                                deleteVarStmt.setInt(1, variableId);
+                                deleteVarStmt.executeUpdate();
+                                variableIds.remove(entry.getVariableName());
+                            }
+                            break;
+                        }
+                        case SET_VARIABLE_TYPE:
+                            setTypeStmt.setString(1, entry.getVariableType());
+                            setTypeStmt.setInt(2, datasetId);
+                            setTypeStmt.setString(3, entry.getVariableName());
+                            setTypeStmt.executeUpdate();
+                            break;
+                        default:
+                            throw new SQLException("Unknown journal entry type: " + entry.getType());
+                    }
+                }
+            }
+            conn.commit();
+            commitBatch(editsBatch, "apply edits", datasetId, entries.size(), 0);
+            STATEMENTS.add(entries.size());
+        } catch (SQLException e) {
+            System.err.println("Error applying journaled edits: " + e.getMessage());
+            throw e;
+        } finally {
+            APPLY_EDITS_TIMER.stop(start);
+        }
+    }
+
+    private Integer lookupVariableId(Connection conn, Map<String, Integer> cache, int datasetId, String varName) throws SQLException {
+        Integer id = cache.get(varName);
+        if (id == null) {
+            Variable var = getVariableByNameAndDatasetId(conn, varName, datasetId);
+            if (var != null) {
+                id = var.getId();
+                cache.put(varName, id);
+            }
         }
+        return id;
     }
 
     // Helper method to get Variable by name and dataset ID within a transaction
@@ -0,0 +1,323 @@
+package org.example.dao;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only write-ahead journal of the edits made to one stored dataset.
+ *
+ * Every edit is appended as one JSON line and handed to the operating system right away, so
+ * it survives an application crash. The file is forced to the disk (which also covers an
+ * operating system crash or power loss) at each checkpoint: {@link #checkpoint()} and the
+ * start of every fold. Appends are not forced one by one, which would cost a disk flush per
+ * edit. Folding the journal into the database works in two steps:
+ * {@link #beginFold()} moves the active file aside and returns its entries, and
+ * {@link #commitFold()} deletes it once the database transaction has committed. If the fold
+ * fails or the process dies in between, the entries stay on disk and are folded again on
+ * the next attempt; every entry type is idempotent, so replaying them is safe.
+ *
+ * The methods do blocking file I/O; {@link AsyncDatasetDAO} runs them on its writer thread,
+ * in order with the database writes.
+ */
+public class EditJournal {
+
+    private static final Path JOURNAL_DIRECTORY = Paths.get(System.getProperty("user.home"), ".analizador_estadistico", "journal");
+    private static final String ACTIVE_SUFFIX = ".journal";
+    private static final String FOLDING_SUFFIX = ".folding";
+
+    private static final Gson GSON = new Gson();
+
+    public enum EntryType {
+        SET_VALUE, ADD_ROW, REMOVE_ROW, ADD_VARIABLE, REMOVE_VARIABLE, SET_VARIABLE_TYPE
+    }
+
+    /**
+     * One journaled edit. Unused fields are left null.
+     */
+    public static class Entry {
+        private EntryType type;
+        private Integer observationIndex;
+        private String variableName;
+        private String variableType;
+        @JsonAdapter(CellValueAdapter.class)
+        private Object value;
+
+        public Entry() {
+        }
+
+        private Entry(EntryType type, Integer observationIndex, String variableName, String variableType, Object value) {
+            this.type = type;
+            this.observationIndex = observationIndex;
+            this.variableName = variableName;
+            this.variableType = variableType;
+            this.value = value;
+        }
+
+        public static Entry setValue(int observationIndex, String variableName, Object value) {
+            return new Entry(EntryType.SET_VALUE, observationIndex, variableName, null, value);
+        }
+
+        public static Entry addRow(int observationIndex) {
+            return new Entry(EntryType.ADD_ROW, observationIndex, null, null, null);
+        }
+
+        public static Entry removeRow(int observationIndex) {
+            return new Entry(EntryType.REMOVE_ROW, observationIndex, null, null, null);
+        }
+
+        public static Entry addVariable(String variableName, String variableType) {
+            return new Entry(EntryType.ADD_VARIABLE, null, variableName, variableType, null);
+        }
+
+        public static Entry removeVariable(String variableName) {
+            return new Entry(EntryType.REMOVE_VARIABLE, null, variableName, null, null);
+        }
+
+        public static Entry setVariableType(String variableName, String variableType) {
+            return new Entry(EntryType.SET_VARIABLE_TYPE, null, variableName, variableType, null);
+        }
+
+        public EntryType getType() {
+            return type;
+        }
+
+        public Integer getObservationIndex() {
+            return observationIndex;
+        }
+
+        public String getVariableName() {
+            return variableName;
+        }
+
+        public String getVariableType() {
+            return variableType;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Writes a cell value as a JSON number, string or boolean. NaN and infinities are not JSON
+     * numbers, and a bare NaN token would be read back as the text "NaN", so they are written
+     * as {"number": "NaN"} instead.
+     */
+    static class CellValueAdapter extends TypeAdapter<Object> {
+        private static final String NUMBER_FIELD = "number";
+
+        @Override
+        public void write(JsonWriter out, Object value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else if (value instanceof Number) {
+                double number = ((Number) value).doubleValue();
+                if (Double.isFinite(number)) {
+                    out.value((Number) value);
+                } else {
+                    out.beginObject().name(NUMBER_FIELD).value(Double.toString(number)).endObject();
+                }
+            } else if (value instanceof Boolean) {
+                out.value((Boolean) value);
+            } else {
+                out.value(value.toString());
+            }
+        }
+
+        @Override
+        public Object read(JsonReader in) throws IOException {
+            switch (in.peek()) {
+                case NULL:
+                    in.nextNull();
+                    return null;
+                case NUMBER:
+                    return in.nextDouble();
+                case BOOLEAN:
+                    return in.nextBoolean();
+                case STRING:
+                    return in.nextString();
+                case BEGIN_OBJECT:
+                    Double number = null;
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        if (NUMBER_FIELD.equals(in.nextName())) {
+                            String text = in.nextString();
+                            try {
+                                number = Double.valueOf(text);
+                            } catch (NumberFormatException e) {
+                                throw new JsonParseException("Invalid journal number " + text + " at " + in.getPath(), e);
+                            }
+                        } else {
+                            in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    if (number == null) {
+                        throw new JsonParseException("Journal value without a number at " + in.getPath());
+                    }
+                    return number;
+                default:
+                    throw new JsonParseException("Unexpected journal value " + in.peek() + " at " + in.getPath());
+            }
+        }
+    }
+
+    private final int datasetId;
+    private final Path directory;
+    private final Path activeFile;
+    private final Path foldingFile;
+    private FileChannel channel;
+
+    public EditJournal(int datasetId) {
+        this(datasetId, JOURNAL_DIRECTORY);
+    }
+
+    // Journal kept in another directory, for tests
+    EditJournal(int datasetId, Path directory) {
+        this.datasetId = datasetId;
+        this.directory = directory;
+        this.activeFile = directory.resolve("dataset-" + datasetId + ACTIVE_SUFFIX);
+        this.foldingFile = directory.resolve("dataset-" + datasetId + FOLDING_SUFFIX);
+    }
+
+    public int getDatasetId() {
+        return datasetId;
+    }
+
+    /**
+     * Appends one edit and hands it to the operating system (without forcing it to the disk).
+     */
+    public synchronized void append(Entry entry) throws IOException {
+        if (channel == null) {
+            Files.createDirectories(directory);
+            channel = FileChannel.open(activeFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        ByteBuffer line = ByteBuffer.wrap((GSON.toJson(entry) + '\n').getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            channel.write(line);
+        }
+    }
+
+    /**
+     * Forces every entry appended so far to the disk.
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Moves the active entries aside for folding and returns every entry not yet folded, in
+     * order. Entries left over from a failed fold come first.
+     */
+    public synchronized List<Entry> beginFold() throws IOException {
+        checkpoint();
+        closeChannel();
+        if (Files.exists(activeFile)) {
+            if (Files.exists(foldingFile)) {
+                try (FileChannel out = FileChannel.open(foldingFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    ByteBuffer pending = ByteBuffer.wrap(Files.readAllBytes(activeFile));
+                    while (pending.hasRemaining()) {
+                        out.write(pending);
+                    }
+                    out.force(false);
+                }
+                Files.delete(activeFile);
+            } else {
+                Files.move(activeFile, foldingFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        return Files.exists(foldingFile) ? readEntries(foldingFile) : new ArrayList<>();
+    }
+
+    /**
+     * Discards the entries returned by the last {@link #beginFold()}; call it only after they
+     * have been committed to the database.
+     */
+    public synchronized void commitFold() throws IOException {
+        Files.deleteIfExists(foldingFile);
+    }
+
+    /**
+     * Deletes every pending entry, e.g. after a full save made them redundant.
+     */
+    public synchronized void discard() throws IOException {
+        closeChannel();
+        Files.deleteIfExists(activeFile);
+        Files.deleteIfExists(foldingFile);
+    }
+
+    public synchronized boolean hasPendingEntries() {
+        return Files.exists(activeFile) || Files.exists(foldingFile);
+    }
+
+    /**
+     * Finds the IDs of every dataset with journal entries left on disk, e.g. by a crash.
+     */
+    public static List<Integer> findPendingDatasetIds() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        if (!Files.isDirectory(JOURNAL_DIRECTORY)) {
+            return ids;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(JOURNAL_DIRECTORY, "dataset-*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int dot = name.lastIndexOf('.');
+                try {
+                    Integer id = Integer.valueOf(name.substring("dataset-".length(), dot));
+                    if (!ids.contains(id)) {
+                        ids.add(id);
+                    }
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    System.err.println("Warning: Ignoring unexpected journal file " + file);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private List<Entry> readEntries(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    entries.add(GSON.fromJson(line, Entry.class));
+                } catch (JsonParseException e) {
+                    // A torn last line from a crash mid-write; everything before it is valid
+                    System.err.println("Warning: Skipping corrupt journal line for dataset " + datasetId + ": " + e.getMessage());
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
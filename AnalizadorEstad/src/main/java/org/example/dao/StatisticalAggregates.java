@@ -0,0 +1,157 @@
+package org.example.dao;
+
+import org.example.service.CoMomentMatrix;
+import org.example.service.MomentAccumulator;
+import org.sqlite.Function;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Java aggregate functions registered on a SQLite connection so that sufficient statistics
+ * are computed inside the query engine and only a small blob crosses the JDBC boundary.
+ *
+ * <ul>
+ *     <li>{@code comoments(v1, ..., vk)}: means and centered cross products (X'X / X'y) as a
+ *     {@link CoMomentMatrix} blob. Rows with any NULL or non-numeric argument are skipped.</li>
+ *     <li>{@code moments(x)}: Welford moments as a {@link MomentAccumulator} blob.</li>
+ *     <li>{@code covar_samp(x, y)} and {@code corr(x, y)}: pairwise covariance and Pearson
+ *     correlation as plain REAL values.</li>
+ * </ul>
+ */
+public final class StatisticalAggregates {
+
+    private static final int SQLITE_INTEGER = 1;
+    private static final int SQLITE_FLOAT = 2;
+
+    private StatisticalAggregates() {
+    }
+
+    /**
+     * Registers every aggregate on the given connection. Functions live as long as the
+     * connection, so this must be called on each connection that runs the queries.
+     */
+    public static void register(Connection conn) throws SQLException {
+        Function.create(conn, "comoments", new CoMomentsAggregate(), -1, Function.FLAG_DETERMINISTIC);
+        Function.create(conn, "moments", new MomentsAggregate(), 1, Function.FLAG_DETERMINISTIC);
+        Function.create(conn, "covar_samp", new PairAggregate(false), 2, Function.FLAG_DETERMINISTIC);
+        Function.create(conn, "corr", new PairAggregate(true), 2, Function.FLAG_DETERMINISTIC);
+    }
+
+    private static boolean isNumericArgument(int type) {
+        return type == SQLITE_INTEGER || type == SQLITE_FLOAT;
+    }
+
+    // sqlite-jdbc clones the registered instance for every group, so the accumulator
+    // state is created lazily in xStep and cleared in clone().
+
+    private static class CoMomentsAggregate extends Function.Aggregate {
+        private CoMomentMatrix matrix;
+        private double[] row;
+
+        @Override
+        protected void xStep() throws SQLException {
+            int dimension = args();
+            if (matrix == null) {
+                matrix = new CoMomentMatrix(dimension);
+                row = new double[dimension];
+            }
+            for (int i = 0; i < dimension; i++) {
+                if (!isNumericArgument(value_type(i))) {
+                    return;
+                }
+                row[i] = value_double(i);
+            }
+            matrix.add(row);
+        }
+
+        @Override
+        protected void xFinal() throws SQLException {
+            if (matrix == null) {
+                result();
+            } else {
+                result(matrix.toBytes());
+            }
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            CoMomentsAggregate copy = (CoMomentsAggregate) super.clone();
+            copy.matrix = null;
+            copy.row = null;
+            return copy;
+        }
+    }
+
+    private static class MomentsAggregate extends Function.Aggregate {
+        private MomentAccumulator accumulator;
+
+        @Override
+        protected void xStep() throws SQLException {
+            if (accumulator == null) {
+                accumulator = new MomentAccumulator();
+            }
+            if (isNumericArgument(value_type(0))) {
+                accumulator.add(value_double(0));
+            }
+        }
+
+        @Override
+        protected void xFinal() throws SQLException {
+            if (accumulator == null) {
+                result();
+            } else {
+                result(accumulator.toBytes());
+            }
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            MomentsAggregate copy = (MomentsAggregate) super.clone();
+            copy.accumulator = null;
+            return copy;
+        }
+    }
+
+    private static class PairAggregate extends Function.Aggregate {
+        private final boolean correlation;
+        private CoMomentMatrix matrix;
+        private double[] row;
+
+        PairAggregate(boolean correlation) {
+            this.correlation = correlation;
+        }
+
+        @Override
+        protected void xStep() throws SQLException {
+            if (matrix == null) {
+                matrix = new CoMomentMatrix(2);
+                row = new double[2];
+            }
+            if (isNumericArgument(value_type(0)) && isNumericArgument(value_type(1))) {
+                row[0] = value_double(0);
+                row[1] = value_double(1);
+                matrix.add(row);
+            }
+        }
+
+        @Override
+        protected void xFinal() throws SQLException {
+            double value = matrix == null ? Double.NaN
+                    : correlation ? matrix.getCorrelation(0, 1) : matrix.getCovariance(0, 1);
+            if (Double.isNaN(value)) {
+                result();
+            } else {
+                result(value);
+            }
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            PairAggregate copy = (PairAggregate) super.clone();
+            copy.matrix = null;
+            copy.row = null;
+            return copy;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.gui;
 
+import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -7,32 +8,43 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.util.StringConverter;
-import org.example.dao.DatasetDAO;
+import org.example.dao.AsyncDatasetDAO;
 import org.example.model.Dataset;
 import org.example.model.Observation;
 import org.example.model.Variable;
+import org.example.service.AutosaveService;
+import org.example.util.Metrics;
 
-import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 public class DataManagerController {
 
-    @FXML public ComboBox<Dataset> datasetComboBox; // CAMBIADO A PUBLIC
+    // Pasos de la carga de un dataset en la interfaz (la lectura de la BD la mide el DAO)
+    private static final Metrics.Timer DATASET_LIST_TIMER = Metrics.timer("gui.datasetList");
+    private static final Metrics.Timer LOAD_DATASET_TIMER = Metrics.timer("gui.loadDataset");
+    private static final Metrics.Timer BUILD_TABLE_TIMER = Metrics.timer("gui.buildTable");
+    private static final Metrics.Timer POPULATE_TABLE_TIMER = Metrics.timer("gui.populateTable");
+
+    @FXML private ComboBox<Dataset> datasetComboBox;
     @FXML private TextField newDatasetNameField;
     @FXML private TableView<ObservableList<String>> observationsTable;
     @FXML private TableView<Variable> variablesTable;
     @FXML private TableColumn<Variable, String> varNameColumn;
     @FXML private TableColumn<Variable, String> varTypeColumn;
 
-    private DatasetDAO datasetDAO;
+    private AsyncDatasetDAO asyncDAO; // Lecturas y escrituras fuera del hilo de JavaFX
+    private AutosaveService autosaveService; // Diario de ediciones y guardado incremental en segundo plano
     private Dataset currentDataset;
+    private Dataset preloadedDataset; // Cargado en segundo plano al arrancar; evita repetir la consulta al seleccionarlo
     private MainLayoutController mainLayoutController; // Referencia al controlador principal
 
     @FXML
     public void initialize() {
-        datasetDAO = new DatasetDAO();
-        loadDatasetsIntoComboBox();
+        asyncDAO = AsyncDatasetDAO.getShared();
+        autosaveService = new AutosaveService(asyncDAO);
+        datasetComboBox.setPromptText("Cargando datasets...");
 
         // Configurar la tabla de variables
         varNameColumn.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(cellData.getValue().getName()));
@@ -51,7 +63,7 @@ public class DataManagerController {
                 return;
             }
             variable.setType(newType);
-            // Opcional: Persistir el cambio de tipo inmediatamente o al guardar el dataset
+            autosaveService.recordVariableTypeChanged(currentDataset, variable.getName(), newType);
         });
 
         // Configurar la tabla de observaciones (se construirá dinámicamente)
@@ -60,10 +72,7 @@ public class DataManagerController {
         // Cuando cambia la selección del dataset, cargar sus datos
         datasetComboBox.getSelectionModel().selectedItemProperty().addListener((obs, oldDataset, newDataset) -> {
             if (newDataset != null) {
-                loadDataset(newDataset);
-                if (mainLayoutController != null) {
-                    mainLayoutController.updateActiveDataset(newDataset); // Notificar al controlador principal
-                }
+                loadDataset(newDataset); // Notifica al controlador principal cuando el dataset está cargado
             } else {
                 // Si no hay dataset seleccionado (ej. después de borrar el último)
                 if (mainLayoutController != null) {
@@ -74,13 +83,7 @@ public class DataManagerController {
 
         // Permitir edición en la tabla de observaciones
         observationsTable.setEditable(true);
-
-        // Inicializar o cargar el primer dataset al inicio
-        if (datasetComboBox.getItems().isEmpty()) {
-            handleNewDataset(); // Crea un nuevo dataset vacío si no hay ninguno
-        } else {
-            datasetComboBox.getSelectionModel().selectFirst();
-        }
+        // Los datasets llegan con setCatalog cuando la base de datos está lista
     }
 
     // Setter para el controlador principal
@@ -89,60 +92,128 @@ public class DataManagerController {
         // Al configurar el controlador principal, notifica el dataset actual
         if (currentDataset != null) {
             mainLayoutController.updateActiveDataset(currentDataset);
-        } else if (datasetComboBox.getSelectionModel().getSelectedItem() != null) {
-            mainLayoutController.updateActiveDataset(datasetComboBox.getSelectionModel().getSelectedItem());
-        } else {
-            // Si no hay dataset, fuerza la creación de uno nuevo para que haya algo activo
-            handleNewDataset(); // Esto ya notifica al MainLayoutController
         }
     }
 
-    private void loadDatasetsIntoComboBox() {
-        try {
-            List<Dataset> datasets = datasetDAO.getAllDatasets();
-            datasetComboBox.setItems(FXCollections.observableArrayList(datasets));
-            datasetComboBox.setConverter(new StringConverter<Dataset>() {
-                @Override
-                public String toString(Dataset dataset) {
-                    return dataset != null ? dataset.getName() : "";
-                }
+    /**
+     * Muestra el catálogo leído al arrancar y selecciona el primer dataset, o crea uno vacío
+     * si no hay ninguno.
+     * @param firstDataset El primer dataset ya cargado por completo, o null.
+     */
+    public void setCatalog(List<Dataset> datasets, Dataset firstDataset) {
+        preloadedDataset = firstDataset;
+        datasetComboBox.setPromptText(null);
+        showDatasets(datasets);
 
-                @Override
-                public Dataset fromString(String string) {
-                    return null; // No necesitamos convertir de String a Dataset para ComboBox de solo lectura
-                }
-            });
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "Error de BD", "No se pudieron cargar los datasets: " + e.getMessage());
+        // Inicializar o cargar el primer dataset al inicio
+        if (datasetComboBox.getItems().isEmpty()) {
+            createEmptyDataset(); // Sin aviso: el arranque no debe esperar a un diálogo
+        } else {
+            datasetComboBox.getSelectionModel().selectFirst();
         }
+        preloadedDataset = null;
     }
 
+    public AutosaveService getAutosaveService() {
+        return autosaveService;
+    }
+
+    /**
+     * El dataset abierto, cargado por completo (o el nuevo aún sin guardar); null si no hay
+     * ninguno. Las entradas del catálogo del ComboBox sólo traen el ID y el nombre.
+     */
+    public Dataset getCurrentDataset() {
+        return currentDataset;
+    }
+
+    /**
+     * Datasets con sus datos en memoria: hoy, sólo el abierto.
+     */
+    public List<Dataset> getLoadedDatasets() {
+        return currentDataset != null ? Collections.singletonList(currentDataset) : Collections.emptyList();
+    }
+
+    /**
+     * Vuelve a leer la lista de datasets en segundo plano.
+     * @param onLoaded Se ejecuta en el hilo de JavaFX con la lista ya mostrada.
+     */
+    private void loadDatasetsIntoComboBox(Runnable onLoaded) {
+        long start = DATASET_LIST_TIMER.start();
+        asyncDAO.getAllDatasets().whenComplete((datasets, error) -> Platform.runLater(() -> {
+            DATASET_LIST_TIMER.stop(start);
+            if (error != null) {
+                showAlert(Alert.AlertType.ERROR, "Error de BD", "No se pudieron cargar los datasets: " + cause(error).getMessage());
+                return;
+            }
+            showDatasets(datasets);
+            onLoaded.run();
+        }));
+    }
+
+    private void showDatasets(List<Dataset> datasets) {
+        datasetComboBox.setItems(FXCollections.observableArrayList(datasets));
+        datasetComboBox.setConverter(new StringConverter<Dataset>() {
+            @Override
+            public String toString(Dataset dataset) {
+                return dataset != null ? dataset.getName() : "";
+            }
+
+            @Override
+            public Dataset fromString(String string) {
+                return null; // No necesitamos convertir de String a Dataset para ComboBox de solo lectura
+            }
+        });
+    }
+
+    /**
+     * Carga las variables y observaciones completas del dataset (en segundo plano salvo que ya
+     * esté precargado), lo muestra y lo notifica al controlador principal.
+     */
     private void loadDataset(Dataset dataset) {
-        try {
-            // Cargar variables y observaciones completas del dataset
-            this.currentDataset = datasetDAO.getDatasetById(dataset.getId());
-            if (this.currentDataset == null) {
+        long start = LOAD_DATASET_TIMER.start();
+        if (preloadedDataset != null && preloadedDataset.getId() == dataset.getId()) {
+            showLoadedDataset(preloadedDataset);
+            LOAD_DATASET_TIMER.stop(start);
+            return;
+        }
+        asyncDAO.getDatasetById(dataset.getId()).whenComplete((loaded, error) -> Platform.runLater(() -> {
+            LOAD_DATASET_TIMER.stop(start);
+            if (error != null) {
+                showAlert(Alert.AlertType.ERROR, "Error de BD", "Error al cargar el dataset: " + cause(error).getMessage());
+                cause(error).printStackTrace();
+                return;
+            }
+            if (loaded == null) {
                 showAlert(Alert.AlertType.ERROR, "Error de Carga", "El dataset seleccionado no pudo ser cargado.");
                 return;
             }
-            newDatasetNameField.setText(this.currentDataset.getName());
+            Dataset selected = datasetComboBox.getSelectionModel().getSelectedItem();
+            if (selected != null && selected.getId() == loaded.getId()) { // Descarta la respuesta si la selección ya cambió
+                showLoadedDataset(loaded);
+            }
+        }));
+    }
 
-            // Limpiar y configurar columnas de variables
-            variablesTable.setItems(FXCollections.observableArrayList(currentDataset.getVariables()));
+    private void showLoadedDataset(Dataset dataset) {
+        this.currentDataset = dataset;
+        newDatasetNameField.setText(this.currentDataset.getName());
 
-            // Construir columnas dinámicamente para la tabla de observaciones
-            buildObservationsTable(currentDataset);
+        // Limpiar y configurar columnas de variables
+        variablesTable.setItems(FXCollections.observableArrayList(currentDataset.getVariables()));
 
-            // Cargar datos en la tabla de observaciones
-            populateObservationsTable(currentDataset);
+        // Construir columnas dinámicamente para la tabla de observaciones
+        buildObservationsTable(currentDataset);
 
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "Error de BD", "Error al cargar el dataset: " + e.getMessage());
-            e.printStackTrace();
+        // Cargar datos en la tabla de observaciones
+        populateObservationsTable(currentDataset);
+
+        if (mainLayoutController != null) {
+            mainLayoutController.updateActiveDataset(currentDataset);
         }
     }
 
     private void buildObservationsTable(Dataset dataset) {
+        long start = BUILD_TABLE_TIMER.start();
         observationsTable.getColumns().clear();
 
         // Columna para el índice de la observación (fila)
@@ -179,6 +250,7 @@ public class DataManagerController {
 
                     if (newValue != null || newStringValue.isEmpty()) { // Permitir vacíos para limpiar
                         currentDataset.setValue(obsId, variableName, newValue);
+                        autosaveService.recordCellEdit(currentDataset, obsId, variableName, newValue);
                         // Actualizar la vista de la tabla
                         event.getRowValue().set(colIndex, newStringValue); // Mantener el string original
                     } else {
@@ -190,9 +262,11 @@ public class DataManagerController {
             observationsTable.getColumns().add(column);
             i++;
         }
+        BUILD_TABLE_TIMER.stop(start);
     }
 
     private void populateObservationsTable(Dataset dataset) {
+        long start = POPULATE_TABLE_TIMER.start();
         ObservableList<ObservableList<String>> data = FXCollections.observableArrayList();
         List<Variable> variables = dataset.getVariables();
 
@@ -213,18 +287,23 @@ public class DataManagerController {
             data.add(row);
         }
         observationsTable.setItems(data);
+        POPULATE_TABLE_TIMER.stop(start);
     }
 
     // --- Handlers de acciones de botones ---
 
     @FXML
     public void handleNewDataset() { // CAMBIADO A PUBLIC
+        createEmptyDataset();
+        showAlert(Alert.AlertType.INFORMATION, "Dataset Creado", "Nuevo dataset '" + currentDataset.getName() + "' listo para edición.");
+    }
+
+    private void createEmptyDataset() {
         currentDataset = new Dataset("Nuevo Dataset " + (datasetComboBox.getItems().size() + 1));
         newDatasetNameField.setText(currentDataset.getName());
         variablesTable.setItems(FXCollections.observableArrayList(currentDataset.getVariables()));
         buildObservationsTable(currentDataset);
         populateObservationsTable(currentDataset);
-        showAlert(Alert.AlertType.INFORMATION, "Dataset Creado", "Nuevo dataset '" + currentDataset.getName() + "' listo para edición.");
 
         // Notificar al MainLayoutController que hay un nuevo dataset activo
         if (mainLayoutController != null) {
@@ -245,29 +324,31 @@ public class DataManagerController {
         }
         currentDataset.setName(newName);
 
-        try {
-            // Guardar el dataset y sus variables
-            datasetDAO.saveDataset(currentDataset);
-
-            // Guardar las observaciones
-            // Esto es crucial: se elimina todo lo anterior y se guarda lo nuevo para evitar inconsistencias
-            datasetDAO.deleteObservationsForDataset(currentDataset.getId());
-            for (Map.Entry<Integer, Observation> entry : currentDataset.getObservations().entrySet()) {
-                datasetDAO.saveObservation(currentDataset.getId(), entry.getKey(), entry.getValue());
-            }
-
-            showAlert(Alert.AlertType.INFORMATION, "Guardar Dataset", "Dataset '" + currentDataset.getName() + "' guardado exitosamente.");
-            loadDatasetsIntoComboBox(); // Recargar la lista de datasets para reflejar cambios/nuevos
-            datasetComboBox.getSelectionModel().select(currentDataset); // Seleccionar el dataset guardado
-
-            // Notificar al MainLayoutController que el dataset activo ha cambiado/guardado
-            if (mainLayoutController != null) {
-                mainLayoutController.updateActiveDataset(currentDataset);
+        // Guardar el dataset, sus variables y todas sus observaciones en el hilo de escritura,
+        // detrás de los volcados automáticos pendientes; al confirmarse se descarta el diario.
+        // Se escribe una instantánea tomada aquí, así que se puede seguir editando entretanto
+        Dataset saved = currentDataset;
+        autosaveService.save(saved).whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                showAlert(Alert.AlertType.ERROR, "Error de BD", "Error al guardar el dataset: " + cause(error).getMessage());
+                cause(error).printStackTrace();
+                return;
             }
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "Error de BD", "Error al guardar el dataset: " + e.getMessage());
-            e.printStackTrace();
-        }
+            showAlert(Alert.AlertType.INFORMATION, "Guardar Dataset", "Dataset '" + saved.getName() + "' guardado exitosamente.");
+            // Recargar la lista de datasets para reflejar cambios/nuevos y volver a seleccionar el
+            // guardado sin leerlo otra vez (al seleccionarlo se notifica al controlador principal)
+            loadDatasetsIntoComboBox(() -> {
+                if (saved != currentDataset) {
+                    return; // Entretanto se ha abierto otro dataset
+                }
+                preloadedDataset = saved;
+                datasetComboBox.getItems().stream()
+                        .filter(dataset -> dataset.getId() == saved.getId())
+                        .findFirst()
+                        .ifPresent(dataset -> datasetComboBox.getSelectionModel().select(dataset));
+                preloadedDataset = null;
+            });
+        }));
     }
 
     @FXML
@@ -283,25 +364,22 @@ public class DataManagerController {
         Optional<ButtonType> result = confirmAlert.showAndWait();
 
         if (result.isPresent() && result.get() == ButtonType.YES) {
-            try {
-                datasetDAO.deleteDataset(selectedDataset.getId());
+            asyncDAO.deleteDataset(selectedDataset.getId()).whenComplete((ignored, error) -> Platform.runLater(() -> {
+                if (error != null) {
+                    showAlert(Alert.AlertType.ERROR, "Error de BD", "Error al eliminar el dataset: " + cause(error).getMessage());
+                    cause(error).printStackTrace();
+                    return;
+                }
+                autosaveService.discard(selectedDataset.getId());
                 showAlert(Alert.AlertType.INFORMATION, "Eliminar Dataset", "Dataset '" + selectedDataset.getName() + "' eliminado exitosamente.");
-                loadDatasetsIntoComboBox();
-                if (datasetComboBox.getItems().isEmpty()) {
-                    handleNewDataset(); // Crea un nuevo dataset vacío si no quedan
-                    if (mainLayoutController != null) { // Notifica el nuevo dataset vacío
-                        mainLayoutController.updateActiveDataset(currentDataset);
-                    }
-                } else {
-                    datasetComboBox.getSelectionModel().selectFirst();
-                    if (mainLayoutController != null) { // Notifica el nuevo dataset activo
-                        mainLayoutController.updateActiveDataset(datasetComboBox.getSelectionModel().getSelectedItem());
+                loadDatasetsIntoComboBox(() -> {
+                    if (datasetComboBox.getItems().isEmpty()) {
+                        handleNewDataset(); // Crea un nuevo dataset vacío si no quedan y lo notifica
+                    } else {
+                        datasetComboBox.getSelectionModel().selectFirst(); // Se carga y se notifica al seleccionarlo
                     }
-                }
-            } catch (SQLException e) {
-                showAlert(Alert.AlertType.ERROR, "Error de BD", "Error al eliminar el dataset: " + e.getMessage());
-                e.printStackTrace();
-            }
+                });
+            }));
         }
     }
 
@@ -309,10 +387,7 @@ public class DataManagerController {
     private void handleLoadDataset() {
         Dataset selectedDataset = datasetComboBox.getSelectionModel().getSelectedItem();
         if (selectedDataset != null) {
-            loadDataset(selectedDataset);
-            if (mainLayoutController != null) { // Notificar al controlador principal
-                mainLayoutController.updateActiveDataset(currentDataset);
-            }
+            loadDataset(selectedDataset); // Notifica al controlador principal al terminar
         } else {
             showAlert(Alert.AlertType.WARNING, "Cargar Dataset", "Por favor, selecciona un dataset para cargar.");
         }
@@ -340,6 +415,7 @@ public class DataManagerController {
             }
             Variable newVar = new Variable(varName, "NUMERIC"); // Por defecto numérica
             currentDataset.addVariable(newVar);
+            autosaveService.recordVariableAdded(currentDataset, newVar.getName(), newVar.getType());
             variablesTable.setItems(FXCollections.observableArrayList(currentDataset.getVariables()));
             buildObservationsTable(currentDataset); // Reconstruir tabla de observaciones
             populateObservationsTable(currentDataset); // Volver a poblar con la nueva columna
@@ -361,6 +437,7 @@ public class DataManagerController {
         if (result.isPresent() && result.get() == ButtonType.YES) {
             if (currentDataset != null) {
                 currentDataset.removeVariable(selectedVariable.getName());
+                autosaveService.recordVariableRemoved(currentDataset, selectedVariable.getName());
                 variablesTable.setItems(FXCollections.observableArrayList(currentDataset.getVariables()));
                 buildObservationsTable(currentDataset); // Reconstruir tabla de observaciones
                 populateObservationsTable(currentDataset); // Volver a poblar
@@ -376,6 +453,7 @@ public class DataManagerController {
         }
         Observation newObservation = new Observation();
         int newIndex = currentDataset.addObservation(newObservation); // El dataset asigna el índice
+        autosaveService.recordRowAdded(currentDataset, newIndex);
 
         // Añadir una nueva fila a la tabla visible
         ObservableList<String> newRow = FXCollections.observableArrayList();
@@ -402,6 +480,7 @@ public class DataManagerController {
         if (result.isPresent() && result.get() == ButtonType.YES) {
             int obsIndexToRemove = Integer.parseInt(selectedRow.get(0)); // Obtener el índice real de la observación
             currentDataset.removeObservation(obsIndexToRemove);
+            autosaveService.recordRowRemoved(currentDataset, obsIndexToRemove);
             populateObservationsTable(currentDataset); // Repoblar la tabla para reflejar los cambios
         }
     }
@@ -428,6 +507,10 @@ public class DataManagerController {
     }
 
     // --- Utilidades ---
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
     private void showAlert(Alert.AlertType type, String title, String message) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
@@ -1,15 +1,18 @@
 package org.example.gui;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import org.example.model.Dataset;
-import org.example.dao.DatasetDAO;
+import org.example.dao.AsyncDatasetDAO;
+import org.example.util.Metrics;
 import java.io.IOException;
-import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 import javafx.scene.control.ButtonType;
 // Importaciones de GSON (ahora sí deberían funcionar con el pom.xml corregido)
 import com.google.gson.Gson;
@@ -22,51 +25,111 @@ import javafx.stage.FileChooser;
 
 public class MainLayoutController {
 
+    private static final Metrics.Timer LOAD_PANEL_TIMER = Metrics.timer("gui.loadPanel");
+    private static final Metrics.Timer ACTIVE_DATASET_TIMER = Metrics.timer("gui.updateActiveDataset");
+
+    // Paneles de las pestañas, en el orden de MainLayout.fxml
+    private static final String[] PANELS = {
+            "/org/example/gui/DataManagerPanel.fxml",
+            "/org/example/gui/RegressionAnalysisPanel.fxml",
+            "/org/example/gui/MediationModerationPanel.fxml",
+            "/org/example/gui/PerformancePanel.fxml"
+    };
+
     @FXML private TabPane mainTabPane;
 
-    // Referencias a los controladores de las pestañas
+    // Referencias a los controladores de las pestañas (null hasta que se abre la pestaña)
     private DataManagerController dataManagerController;
     private RegressionAnalysisController regressionAnalysisController;
     private MediationModerationController mediationModerationController;
+    private PerformanceDashboardController performanceDashboardController;
 
-    private DatasetDAO datasetDAO;
+    private AsyncDatasetDAO datasetDAO;
     private Dataset currentActiveDataset; // El dataset que está activo globalmente
+    private boolean databaseReady; // La base de datos se inicializa en segundo plano al arrancar
 
     @FXML
     public void initialize() {
-        datasetDAO = new DatasetDAO();
+        datasetDAO = AsyncDatasetDAO.getShared();
 
-        // Cargar los paneles FXML en las pestañas y obtener sus controladores
-        try {
-            // Pestaña Gestión de Datos
-            FXMLLoader dataManagerLoader = new FXMLLoader(getClass().getResource("/org/example/gui/DataManagerPanel.fxml"));
-            Tab dataManagerTab = mainTabPane.getTabs().get(0); // Suponemos que es la primera pestaña
-            dataManagerTab.setContent(dataManagerLoader.load());
-            dataManagerController = dataManagerLoader.getController();
-            dataManagerController.setMainLayoutController(this); // Pasar referencia a sí mismo
-
-            // Pestaña Análisis de Regresión
-            FXMLLoader regressionLoader = new FXMLLoader(getClass().getResource("/org/example/gui/RegressionAnalysisPanel.fxml"));
-            Tab regressionTab = mainTabPane.getTabs().get(1); // Suponemos que es la segunda pestaña
-            regressionTab.setContent(regressionLoader.load());
-            regressionAnalysisController = regressionLoader.getController();
-
-            // Pestaña Mediación / Moderación
-            FXMLLoader mediationModerationLoader = new FXMLLoader(getClass().getResource("/org/example/gui/MediationModerationPanel.fxml"));
-            Tab mediationModerationTab = mainTabPane.getTabs().get(2); // Suponemos que es la tercera pestaña
-            mediationModerationTab.setContent(mediationModerationLoader.load());
-            mediationModerationController = mediationModerationLoader.getController();
+        // Cada panel FXML se carga la primera vez que se selecciona su pestaña
+        mainTabPane.getSelectionModel().selectedItemProperty().addListener((obs, oldTab, newTab) -> loadTab(newTab));
+        loadTab(mainTabPane.getSelectionModel().getSelectedItem());
+    }
 
+    /**
+     * Llamado por MainApp cuando la base de datos y el catálogo están listos.
+     * @param firstDataset El primer dataset del catálogo ya cargado, o null si no hay ninguno.
+     */
+    public void databaseReady(List<Dataset> datasets, Dataset firstDataset) {
+        databaseReady = true;
+        mainTabPane.getTabs().get(0).getContent().setDisable(false);
+        dataManagerController.setCatalog(datasets, firstDataset);
+    }
+
+    /**
+     * Carga las pestañas que aún no se han abierto (p. ej. en la ejecución de entrenamiento
+     * del archivo CDS).
+     */
+    public void loadAllTabs() {
+        for (Tab tab : mainTabPane.getTabs()) {
+            loadTab(tab);
+        }
+    }
+
+    private void loadTab(Tab tab) {
+        int index = mainTabPane.getTabs().indexOf(tab);
+        if (index < 0 || tab.getContent() != null) {
+            return;
+        }
+        long start = LOAD_PANEL_TIMER.start();
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource(PANELS[index]));
+            tab.setContent(loader.load());
+            switch (index) {
+                case 0: // Gestión de Datos: deshabilitada hasta tener el catálogo
+                    dataManagerController = loader.getController();
+                    dataManagerController.setMainLayoutController(this); // Pasar referencia a sí mismo
+                    tab.getContent().setDisable(!databaseReady);
+                    break;
+                case 1: // Análisis: las listas de variables se ponen al día sólo con la pestaña visible
+                    regressionAnalysisController = loader.getController();
+                    regressionAnalysisController.updateDataset(currentActiveDataset);
+                    tab.selectedProperty().addListener((obs, wasSelected, isSelected) ->
+                            regressionAnalysisController.setShowing(isSelected));
+                    regressionAnalysisController.setShowing(tab.isSelected());
+                    break;
+                case 2:
+                    mediationModerationController = loader.getController();
+                    mediationModerationController.updateDataset(currentActiveDataset);
+                    tab.selectedProperty().addListener((obs, wasSelected, isSelected) ->
+                            mediationModerationController.setShowing(isSelected));
+                    mediationModerationController.setShowing(tab.isSelected());
+                    break;
+                case 3: // Rendimiento: sólo se refresca mientras está seleccionada
+                    performanceDashboardController = loader.getController();
+                    performanceDashboardController.setDatasetSource(dataManagerController::getLoadedDatasets);
+                    performanceDashboardController.setAutosaveService(dataManagerController.getAutosaveService());
+                    tab.selectedProperty().addListener((obs, wasSelected, isSelected) ->
+                            performanceDashboardController.setShowing(isSelected));
+                    performanceDashboardController.setShowing(tab.isSelected());
+                    break;
+                default:
+                    break;
+            }
         } catch (IOException e) {
-            showAlert(Alert.AlertType.ERROR, "Error de Carga", "No se pudo cargar una o más paneles: " + e.getMessage());
+            showAlert(Alert.AlertType.ERROR, "Error de Carga", "No se pudo cargar el panel " + tab.getText() + ": " + e.getMessage());
             e.printStackTrace();
             System.err.println("Error al cargar FXMLs: " + e.getMessage()); // Más detalles en consola
+        } finally {
+            LOAD_PANEL_TIMER.stop(start);
         }
     }
 
     // Este método será llamado por DataManagerController para actualizar el dataset activo global
     public void updateActiveDataset(Dataset dataset) {
         this.currentActiveDataset = dataset;
+        long start = ACTIVE_DATASET_TIMER.start();
         // Notificar a otros controladores sobre el cambio de dataset activo
         if (regressionAnalysisController != null) {
             regressionAnalysisController.updateDataset(currentActiveDataset);
@@ -74,6 +137,7 @@ public class MainLayoutController {
         if (mediationModerationController != null) {
             mediationModerationController.updateDataset(currentActiveDataset);
         }
+        ACTIVE_DATASET_TIMER.stop(start);
     }
 
 
@@ -86,19 +150,25 @@ public class MainLayoutController {
         confirmAlert.setHeaderText("Crear un Nuevo Proyecto");
         confirmAlert.setContentText("¿Está seguro de que desea iniciar un nuevo proyecto? Esto eliminará todos los datasets de la base de datos.");
 
+        if (!databaseReady) {
+            showAlert(Alert.AlertType.INFORMATION, "Nuevo Proyecto", "La base de datos todavía se está inicializando. Inténtalo de nuevo en unos segundos.");
+            return;
+        }
         Optional<ButtonType> result = confirmAlert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try {
-                datasetDAO.deleteAllDatasetsAndData(); // Llama al nuevo método en DatasetDAO
+            datasetDAO.deleteAllDatasetsAndData().whenComplete((ignored, error) -> Platform.runLater(() -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    showAlert(Alert.AlertType.ERROR, "Error de BD", "Error al limpiar la base de datos para nuevo proyecto: " + cause.getMessage());
+                    return;
+                }
                 // Después de borrar, inicializar un nuevo dataset vacío en DataManager
                 if (dataManagerController != null) {
                     dataManagerController.handleNewDataset(); // Esto debería crear un dataset vacío y actualizar la vista
                 }
                 // El handleNewDataset() ya llama a updateActiveDataset(currentDataset)
                 showAlert(Alert.AlertType.INFORMATION, "Nuevo Proyecto", "Nuevo proyecto iniciado. Base de datos limpia.");
-            } catch (SQLException e) {
-                showAlert(Alert.AlertType.ERROR, "Error de BD", "Error al limpiar la base de datos para nuevo proyecto: " + e.getMessage());
-            }
+            }));
         }
     }
 
@@ -110,7 +180,7 @@ public class MainLayoutController {
     @FXML
     private void handleSaveProject() {
         // Guarda el dataset actual si hay uno activo
-        if (dataManagerController != null) {
+        if (dataManagerController != null && databaseReady) {
             dataManagerController.handleSaveDataset(); // Llama al método de guardar del DataManager
         } else {
             showAlert(Alert.AlertType.INFORMATION, "Guardar Proyecto", "No hay un dataset abierto o el gestor de datos no está listo.");
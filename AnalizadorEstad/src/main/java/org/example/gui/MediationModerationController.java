@@ -1,41 +1,65 @@
 package org.example.gui;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.control.SelectionMode; // Asegurarse de importar SelectionMode
+import javafx.scene.control.TextField;
 import org.example.model.Dataset;
-import org.example.model.Observation;
-import org.example.model.Variable;
+import org.example.model.DatasetChange;
+import org.example.model.DatasetChangeEvent;
+import org.example.model.DatasetChangeListener;
+import org.example.model.DatasetSnapshot;
+import org.example.model.RegressionResult;
+import org.example.model.RowSelection;
+import org.example.service.AnalysisCache;
 import org.example.service.EstadisticaService;
+import org.example.service.MissingDataPolicy;
+import org.example.service.RowFilter;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 public class MediationModerationController {
 
     @FXML private Label activeDatasetLabel;
+    @FXML private TextField variableSearchField;
     @FXML private ListView<String> availableVariablesListView;
     @FXML private ComboBox<String> predictorVariableComboBox; // X
     @FXML private ComboBox<String> mediatorVariableComboBox;    // M
     @FXML private ComboBox<String> moderatorVariableComboBox;   // W
     @FXML private ComboBox<String> outcomeVariableComboBox;     // Y
+    @FXML private TextField rowFilterTextField;
+    @FXML private ComboBox<MissingDataPolicy> missingDataPolicyComboBox;
     @FXML private Label resultsLabel;
 
     private Dataset currentDataset;
     private EstadisticaService estadisticaService;
+    private final VariableList variables = new VariableList();
+    private final DatasetChangeListener variableListUpdater = this::handleDatasetChanged;
+    private boolean showing; // La pestaña está seleccionada
+    private boolean variablesStale; // Las listas no reflejan las variables del dataset activo
 
     @FXML
     public void initialize() {
-        estadisticaService = new EstadisticaService();
+        estadisticaService = new EstadisticaService(AnalysisCache.getShared());
+        missingDataPolicyComboBox.setItems(FXCollections.observableArrayList(MissingDataPolicy.values()));
+        missingDataPolicyComboBox.getSelectionModel().select(MissingDataPolicy.LISTWISE);
+
+        availableVariablesListView.setItems(variables.getFiltered());
+        for (ComboBox<String> comboBox : variableComboBoxes()) {
+            comboBox.setItems(variables.getSorted());
+        }
+        variableSearchField.textProperty().addListener((obs, oldText, newText) -> variables.setFilter(newText));
 
         // Inicializar los ListView con selección múltiple
         availableVariablesListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
@@ -43,36 +67,97 @@ public class MediationModerationController {
 
     // Método para ser llamado desde MainLayoutController cuando el dataset cambia
     public void updateDataset(Dataset dataset) {
+        if (dataset == currentDataset) {
+            return;
+        }
+        // El mismo dataset recargado (p. ej. tras guardarlo) conserva las selecciones
+        boolean reloaded = dataset != null && currentDataset != null && dataset.getId() != 0
+                && dataset.getId() == currentDataset.getId();
+        if (currentDataset != null) {
+            currentDataset.removeChangeListener(variableListUpdater);
+        }
         this.currentDataset = dataset;
         if (currentDataset != null) {
             activeDatasetLabel.setText(currentDataset.getName());
-            populateVariableLists();
+            currentDataset.addChangeListener(variableListUpdater);
         } else {
             activeDatasetLabel.setText("Ninguno");
-            availableVariablesListView.getItems().clear();
-            predictorVariableComboBox.getItems().clear();
-            mediatorVariableComboBox.getItems().clear();
-            moderatorVariableComboBox.getItems().clear();
-            outcomeVariableComboBox.getItems().clear();
         }
-        clearSelectionsAndResults();
+        if (!reloaded) {
+            clearSelectionsAndResults();
+        }
+        variablesStale = true;
+        refreshVariablesIfShowing();
     }
 
-    private void populateVariableLists() {
-        if (currentDataset != null) {
-            ObservableList<String> variableNames = FXCollections.observableArrayList(
-                    currentDataset.getVariables().stream()
-                            .map(Variable::getName)
-                            .collect(Collectors.toList())
-            );
-            availableVariablesListView.setItems(variableNames);
-            predictorVariableComboBox.setItems(variableNames);
-            mediatorVariableComboBox.setItems(variableNames);
-            moderatorVariableComboBox.setItems(variableNames);
-            outcomeVariableComboBox.setItems(variableNames);
+    /**
+     * Llamado al seleccionar u ocultar la pestaña. Las listas de variables sólo se ponen al
+     * día mientras la pestaña está visible.
+     */
+    public void setShowing(boolean showing) {
+        this.showing = showing;
+        refreshVariablesIfShowing();
+    }
+
+    private void refreshVariablesIfShowing() {
+        if (!showing || !variablesStale) {
+            return;
+        }
+        variablesStale = false;
+        Map<String, String> renamed = variables.synchronize(
+                currentDataset != null ? currentDataset.getVariables() : Collections.emptyList());
+        for (ComboBox<String> comboBox : variableComboBoxes()) {
+            String selected = comboBox.getValue();
+            if (selected != null && renamed.containsKey(selected)) {
+                comboBox.getSelectionModel().select(renamed.get(selected));
+            } else if (selected != null && !variables.contains(selected)) {
+                comboBox.getSelectionModel().clearSelection();
+            }
         }
     }
 
+    private List<ComboBox<String>> variableComboBoxes() {
+        return Arrays.asList(predictorVariableComboBox, mediatorVariableComboBox, moderatorVariableComboBox, outcomeVariableComboBox);
+    }
+
+    /**
+     * Mantiene las listas de variables al día con las altas y bajas del dataset activo, sin
+     * repoblarlas. Con la pestaña oculta sólo se anota que hay que ponerlas al día. Los avisos
+     * llegan en el hilo que edita.
+     */
+    private void handleDatasetChanged(DatasetChangeEvent event) {
+        Platform.runLater(() -> {
+            if (event.getDataset() != currentDataset) {
+                return;
+            }
+            if (!showing || variablesStale) {
+                variablesStale = true;
+                return;
+            }
+            for (DatasetChange change : event.getChanges()) {
+                switch (change.getType()) {
+                    case VARIABLE_ADDED:
+                        variables.add(change.getVariableName());
+                        break;
+                    case VARIABLE_REMOVED:
+                        variables.remove(change.getVariableName());
+                        for (ComboBox<String> comboBox : variableComboBoxes()) {
+                            if (change.getVariableName().equals(comboBox.getValue())) {
+                                comboBox.getSelectionModel().clearSelection();
+                            }
+                        }
+                        break;
+                    case RESET:
+                        variablesStale = true;
+                        refreshVariablesIfShowing();
+                        break;
+                    default:
+                        break; // Las ediciones de filas no cambian las listas
+                }
+            }
+        });
+    }
+
     private void clearSelectionsAndResults() {
         predictorVariableComboBox.getSelectionModel().clearSelection();
         mediatorVariableComboBox.getSelectionModel().clearSelection();
@@ -115,56 +200,59 @@ public class MediationModerationController {
             return;
         }
 
+        RowFilter filter;
         try {
-            // Regresión 1: X -> M (a-path)
-            Map<String, Object> resultsAM = estadisticaService.performMultipleLinearRegression(currentDataset, mVar, Arrays.asList(xVar));
-            double aPath = (Double) resultsAM.get("Coefficients").get(1); // Coeficiente de X (beta1)
-
-            // Regresión 2: X, M -> Y (b-path y c'-path)
-            Map<String, Object> resultsBMCM = estadisticaService.performMultipleLinearRegression(currentDataset, yVar, Arrays.asList(xVar, mVar));
-            double bPath = (Double) resultsBMCM.get("Coefficients").get(2); // Coeficiente de M (beta2)
-            double cPrimePath = (Double) resultsBMCM.get("Coefficients").get(1); // Coeficiente de X (beta1)
-
-            // Regresión 3: X -> Y (c-path total effect)
-            Map<String, Object> resultsCY = estadisticaService.performMultipleLinearRegression(currentDataset, yVar, Arrays.asList(xVar));
-            double cPathTotal = (Double) resultsCY.get("Coefficients").get(1); // Coeficiente de X (beta1)
-
-            double indirectEffect = aPath * bPath;
-            double totalEffectCheck = cPrimePath + indirectEffect; // Debería ser similar a cPathTotal
-
-            StringBuilder sb = new StringBuilder();
-            sb.append("<h2>Resultados del Análisis de Mediación</h2>");
-            sb.append("<p><b>Predictora (X):</b> ").append(xVar).append("</p>");
-            sb.append("<p><b>Mediadora (M):</b> ").append(mVar).append("</p>");
-            sb.append("<p><b>Resultado (Y):</b> ").append(yVar).append("</p>");
-            sb.append("<hr>");
-
-            sb.append("<h3>Efectos:</h3>");
-            sb.append(String.format("<p><b>Efecto Indirecto (a * b):</b> %.4f (%.4f * %.4f)</p>", indirectEffect, aPath, bPath));
-            sb.append(String.format("<p><b>Efecto Directo (c'):</b> %.4f</p>", cPrimePath));
-            sb.append(String.format("<p><b>Efecto Total (c):</b> %.4f</p>", cPathTotal));
-            sb.append(String.format("<p><b>Suma Directo + Indirecto (c' + a*b):</b> %.4f</p>", totalEffectCheck));
-            sb.append("<hr>");
-
-            sb.append("<h3>Regresiones Individuales:</h3>");
-            sb.append("<h4>Regresión 1: M = Intercepto + a*X</h4>");
-            appendRegressionSummary(sb, resultsAM, mVar, Arrays.asList(xVar));
-            sb.append("<h4>Regresión 2: Y = Intercepto + c'*X + b*M</h4>");
-            appendRegressionSummary(sb, resultsBMCM, yVar, Arrays.asList(xVar, mVar));
-            sb.append("<h4>Regresión 3: Y = Intercepto + c*X (Efecto Total)</h4>");
-            appendRegressionSummary(sb, resultsCY, yVar, Arrays.asList(xVar));
-
-
-            resultsLabel.setText(sb.toString());
-
+            filter = compileRowFilter();
         } catch (IllegalArgumentException e) {
-            showAlert(Alert.AlertType.ERROR, "Error en Mediación", e.getMessage());
-        } catch (IndexOutOfBoundsException e) {
-            showAlert(Alert.AlertType.ERROR, "Error en Coeficientes", "Error al acceder a los coeficientes. Asegúrate de que las variables seleccionadas son válidas y hay suficientes datos numéricos. " + e.getMessage());
-        } catch (Exception e) {
-            showAlert(Alert.AlertType.ERROR, "Error Inesperado", "Ocurrió un error inesperado al realizar el análisis de mediación: " + e.getMessage());
-            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "Error en el Filtro", e.getMessage());
+            return;
         }
+
+        // Las tres regresiones se calculan en segundo plano sobre la misma versión del dataset
+        DatasetSnapshot snapshot = currentDataset.snapshot();
+        MissingDataPolicy missingDataPolicy = missingDataPolicyComboBox.getValue();
+        runAnalysis(() -> buildMediationReport(snapshot, filter, missingDataPolicy, xVar, mVar, yVar), "Error en Mediación", "mediación");
+    }
+
+    private String buildMediationReport(DatasetSnapshot snapshot, RowFilter filter, MissingDataPolicy missingDataPolicy,
+                                        String xVar, String mVar, String yVar) {
+        RowSelection selection = filter != null ? filter.evaluate(snapshot) : null;
+        Map<String, Object> mediation = estadisticaService.performMediationAnalysis(snapshot, selection, missingDataPolicy, xVar, mVar, yVar);
+        RegressionResult resultsAM = (RegressionResult) mediation.get("Regression M~X");
+        RegressionResult resultsBMCM = (RegressionResult) mediation.get("Regression Y~X+M");
+        RegressionResult resultsCY = (RegressionResult) mediation.get("Regression Y~X");
+        double aPath = (Double) mediation.get("a Path");
+        double bPath = (Double) mediation.get("b Path");
+        double cPrimePath = (Double) mediation.get("c' Path");
+        double cPathTotal = (Double) mediation.get("c Path");
+
+        double indirectEffect = (Double) mediation.get("Indirect Effect");
+        double totalEffectCheck = cPrimePath + indirectEffect; // Debería ser similar a cPathTotal
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("<h2>Resultados del Análisis de Mediación</h2>");
+        sb.append("<p><b>Predictora (X):</b> ").append(xVar).append("</p>");
+        sb.append("<p><b>Mediadora (M):</b> ").append(mVar).append("</p>");
+        sb.append("<p><b>Resultado (Y):</b> ").append(yVar).append("</p>");
+        appendFilterSummary(sb, filter);
+        sb.append("<hr>");
+
+        sb.append("<h3>Efectos:</h3>");
+        sb.append(String.format("<p><b>Efecto Indirecto (a * b):</b> %.4f (%.4f * %.4f)</p>", indirectEffect, aPath, bPath));
+        sb.append(String.format("<p><b>Efecto Directo (c'):</b> %.4f</p>", cPrimePath));
+        sb.append(String.format("<p><b>Efecto Total (c):</b> %.4f</p>", cPathTotal));
+        sb.append(String.format("<p><b>Suma Directo + Indirecto (c' + a*b):</b> %.4f</p>", totalEffectCheck));
+        sb.append("<hr>");
+
+        sb.append("<h3>Regresiones Individuales:</h3>");
+        sb.append("<h4>Regresión 1: M = Intercepto + a*X</h4>");
+        appendRegressionSummary(sb, resultsAM, mVar, Arrays.asList(xVar));
+        sb.append("<h4>Regresión 2: Y = Intercepto + c'*X + b*M</h4>");
+        appendRegressionSummary(sb, resultsBMCM, yVar, Arrays.asList(xVar, mVar));
+        sb.append("<h4>Regresión 3: Y = Intercepto + c*X (Efecto Total)</h4>");
+        appendRegressionSummary(sb, resultsCY, yVar, Arrays.asList(xVar));
+
+        return sb.toString();
     }
 
 
@@ -197,94 +285,87 @@ public class MediationModerationController {
             return;
         }
 
+        RowFilter filter;
         try {
-            // Construir la variable de interacción X*W
-            String interactionVarName = xVar + "*" + wVar;
-            Dataset tempDataset = cloneDatasetForAnalysis(currentDataset); // Clonar para no modificar el original
-            // Calcular y añadir la variable de interacción si no existe
-            // Primero, asegúrate de que la variable de interacción existe en el dataset clonado
-            if (tempDataset.getVariableByName(interactionVarName) == null) {
-                Variable interactionVar = new Variable(interactionVarName, "NUMERIC");
-                tempDataset.addVariable(interactionVar);
-            }
-
-            // Luego, calcular los valores para la variable de interacción
-            for (Map.Entry<Integer, Observation> entry : tempDataset.getObservations().entrySet()) {
-                Object xVal = entry.getValue().getValue(xVar);
-                Object wVal = entry.getValue().getValue(wVar);
-                if (xVal instanceof Number && wVal instanceof Number) {
-                    double product = ((Number) xVal).doubleValue() * ((Number) wVal).doubleValue();
-                    // Importante: setValue actualiza el valor si ya existe, o lo añade si no
-                    tempDataset.setValue(entry.getKey(), interactionVarName, product);
-                } else {
-                    tempDataset.setValue(entry.getKey(), interactionVarName, null); // Manejar nulos o no numéricos
-                }
-            }
+            filter = compileRowFilter();
+        } catch (IllegalArgumentException e) {
+            showAlert(Alert.AlertType.ERROR, "Error en el Filtro", e.getMessage());
+            return;
+        }
 
+        DatasetSnapshot snapshot = currentDataset.snapshot();
+        MissingDataPolicy missingDataPolicy = missingDataPolicyComboBox.getValue();
+        runAnalysis(() -> buildModerationReport(snapshot, filter, missingDataPolicy, xVar, wVar, yVar), "Error en Moderación", "moderación");
+    }
 
-            // Regresión: Y = Intercepto + b1*X + b2*W + b3*(X*W)
-            Map<String, Object> results = estadisticaService.performMultipleLinearRegression(
-                    tempDataset, yVar, Arrays.asList(xVar, wVar, interactionVarName));
+    private String buildModerationReport(DatasetSnapshot snapshot, RowFilter filter, MissingDataPolicy missingDataPolicy,
+                                         String xVar, String wVar, String yVar) {
+        // Regresión: Y = Intercepto + b1*X + b2*W + b3*(X*W), con la interacción calculada
+        // como columna derivada de la instantánea, sin modificar el dataset original
+        RowSelection selection = filter != null ? filter.evaluate(snapshot) : null;
+        Map<String, Object> moderation = estadisticaService.performModerationAnalysis(snapshot, selection, missingDataPolicy, xVar, wVar, yVar);
+        RegressionResult results = (RegressionResult) moderation.get("Regression");
+        String interactionVarName = (String) moderation.get("Interaction Variable");
+        Double interactionCoef = (Double) moderation.get("Interaction Coefficient");
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("<h2>Resultados del Análisis de Moderación</h2>");
+        sb.append("<p><b>Predictora (X):</b> ").append(xVar).append("</p>");
+        sb.append("<p><b>Moderadora (W):</b> ").append(wVar).append("</p>");
+        sb.append("<p><b>Resultado (Y):</b> ").append(yVar).append("</p>");
+        appendFilterSummary(sb, filter);
+        sb.append("<hr>");
+
+        sb.append("<h3>Regresión: Y = Intercepto + b1*X + b2*W + b3*(X*W)</h3>");
+        appendRegressionSummary(sb, results, yVar, Arrays.asList(xVar, wVar, interactionVarName));
+        sb.append("<hr>");
+
+        if (interactionCoef != null) {
+            int interactionIndex = results.indexOf(interactionVarName);
+            double interactionPValue = results.getPValue(interactionIndex);
+            double[] interval = results.getConfidenceInterval(interactionIndex, 0.95);
+            sb.append(String.format("<h3>Coeficiente de Interacción (%s*%s): %.4f</h3>", xVar, wVar, interactionCoef));
+            sb.append(String.format("<p>p = %.4f, IC 95%% [%.4f, %.4f]</p>", interactionPValue, interval[0], interval[1]));
+            // Contraste t del coeficiente de interacción al 5%
+            if (interactionPValue < 0.05) {
+                sb.append("<p>El efecto del predictor (X) sobre el resultado (Y) parece estar moderado por la variable moderadora (W).</p>");
+                sb.append("<p>Esto significa que la relación entre X y Y cambia en función de los niveles de W.</p>");
+            } else {
+                sb.append("<p>El efecto de interacción no es significativo al 5% (p ≥ 0.05).</p>");
+                sb.append("<p>Es probable que el efecto del predictor (X) sobre el resultado (Y) no esté moderado por la variable moderadora (W).</p>");
+            }
+        } else {
+            sb.append("<p>No se pudo calcular el coeficiente de interacción para '" + interactionVarName + "'.</p>");
+        }
 
-            List<String> coefNames = (List<String>) results.get("CoefficientNames");
-            List<Double> coefficients = (List<Double>) results.get("Coefficients");
+        return sb.toString();
+    }
 
-            // Encontrar el coeficiente de interacción
-            Double interactionCoef = null;
-            // Buscar el índice del coeficiente de la variable de interacción
-            // La posición puede variar si hay intercepto o si las variables se pasan en un orden diferente
-            // Es más seguro buscar por nombre
-            int interactionIndex = -1;
-            for(int i = 0; i < coefNames.size(); i++) {
-                if (coefNames.get(i).equals(interactionVarName)) {
-                    interactionIndex = i;
-                    break;
-                }
-            }
+    // --- Métodos de Utilidad ---
 
-            if (interactionIndex != -1) {
-                interactionCoef = coefficients.get(interactionIndex);
+    /**
+     * Ejecuta un análisis en segundo plano y muestra su informe en el hilo de la interfaz.
+     */
+    private void runAnalysis(Supplier<String> analysis, String errorTitle, String analysisName) {
+        resultsLabel.setText("Calculando...");
+        CompletableFuture.supplyAsync(analysis).whenComplete((report, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                resultsLabel.setText(report);
+                return;
             }
-
-            StringBuilder sb = new StringBuilder();
-            sb.append("<h2>Resultados del Análisis de Moderación</h2>");
-            sb.append("<p><b>Predictora (X):</b> ").append(xVar).append("</p>");
-            sb.append("<p><b>Moderadora (W):</b> ").append(wVar).append("</p>");
-            sb.append("<p><b>Resultado (Y):</b> ").append(yVar).append("</p>");
-            sb.append("<hr>");
-
-            sb.append("<h3>Regresión: Y = Intercepto + b1*X + b2*W + b3*(X*W)</h3>");
-            appendRegressionSummary(sb, results, yVar, Arrays.asList(xVar, wVar, interactionVarName));
-            sb.append("<hr>");
-
-            if (interactionCoef != null) {
-                sb.append(String.format("<h3>Coeficiente de Interacción (%s*%s): %.4f</h3>", xVar, wVar, interactionCoef));
-                // Nota: Una simple verificación de > 0.05 no es un test de significancia completo.
-                // Para eso necesitarías los errores estándar de los coeficientes y calcular p-valores o intervalos de confianza.
-                // Esto es solo una indicación básica.
-                if (Math.abs(interactionCoef) > 0.001) { // Pequeño umbral para considerar "no nulo"
-                    sb.append("<p>El efecto del predictor (X) sobre el resultado (Y) parece estar moderado por la variable moderadora (W).</p>");
-                    sb.append("<p>Esto significa que la relación entre X y Y cambia en función de los niveles de W.</p>");
-                } else {
-                    sb.append("<p>El efecto de interacción no parece ser significativo (coeficiente muy cercano a cero).</p>");
-                    sb.append("<p>Es probable que el efecto del predictor (X) sobre el resultado (Y) no esté moderado por la variable moderadora (W).</p>");
-                }
+            resultsLabel.setText("");
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof IndexOutOfBoundsException) {
+                showAlert(Alert.AlertType.ERROR, "Error en Coeficientes", "Error al acceder a los coeficientes. Asegúrate de que las variables seleccionadas son válidas y hay suficientes datos numéricos. " + cause.getMessage());
+            } else if (cause instanceof IllegalArgumentException) {
+                showAlert(Alert.AlertType.ERROR, errorTitle, cause.getMessage());
             } else {
-                sb.append("<p>No se pudo calcular el coeficiente de interacción para '" + interactionVarName + "'.</p>");
+                showAlert(Alert.AlertType.ERROR, "Error Inesperado", "Ocurrió un error inesperado al realizar el análisis de " + analysisName + ": " + cause.getMessage());
+                cause.printStackTrace();
             }
-
-            resultsLabel.setText(sb.toString());
-
-        } catch (IllegalArgumentException e) {
-            showAlert(Alert.AlertType.ERROR, "Error en Moderación", e.getMessage());
-        } catch (Exception e) {
-            showAlert(Alert.AlertType.ERROR, "Error Inesperado", "Ocurrió un error inesperado al realizar el análisis de moderación: " + e.getMessage());
-            e.printStackTrace();
-        }
+        }));
     }
 
-    // --- Métodos de Utilidad ---
-
     private void showAlert(Alert.AlertType type, String title, String message) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
@@ -293,43 +374,31 @@ public class MediationModerationController {
         alert.showAndWait();
     }
 
-    private void appendRegressionSummary(StringBuilder sb, Map<String, Object> results, String dependentVar, List<String> independentVars) {
-        sb.append("<p><b>R-cuadrado:</b> ").append(String.format("%.4f", (Double) results.get("R-Squared"))).append("</p>");
-        sb.append("<p><b>Coeficientes:</b></p><ul>");
-        List<String> coefNames = (List<String>) results.get("CoefficientNames");
-        List<Double> coefficients = (List<Double>) results.get("Coefficients");
-        for (int i = 0; i < coefNames.size(); i++) {
-            sb.append(String.format("<li>%s: %.4f</li>", coefNames.get(i), coefficients.get(i)));
-        }
-        sb.append("</ul>");
-    }
-
     /**
-     * Clona un dataset para no modificar el original al añadir variables de interacción.
-     * Realiza una copia profunda de variables y observaciones.
+     * Compila el filtro de filas escrito por el usuario.
+     * @return El filtro, o null si el campo está vacío.
      */
-    private Dataset cloneDatasetForAnalysis(Dataset originalDataset) {
-        // Clonar dataset
-        Dataset clonedDataset = new Dataset(originalDataset.getId(), originalDataset.getName() + " (Clon)");
-
-        // Clonar variables (creamos nuevas instancias de Variable)
-        for (Variable var : originalDataset.getVariables()) {
-            // Asegúrate de que Variable tiene un constructor de copia o es inmutable
-            clonedDataset.addVariable(new Variable(var.getId(), var.getName(), var.getType()));
-        }
+    private RowFilter compileRowFilter() {
+        String filterText = rowFilterTextField.getText();
+        return filterText == null || filterText.trim().isEmpty() ? null : RowFilter.compile(filterText);
+    }
 
-        // Clonar observaciones con sus valores (copia profunda de los mapas de valores)
-        Map<Integer, Observation> clonedObservations = new HashMap<>();
-        for (Map.Entry<Integer, Observation> entry : originalDataset.getObservations().entrySet()) {
-            Observation originalObs = entry.getValue();
-            Observation clonedObs = new Observation();
-            // Clonar el mapa de valores de la observación
-            clonedObs.setValues(new HashMap<>(originalObs.getValues()));
-            clonedObservations.put(entry.getKey(), clonedObs);
+    private void appendFilterSummary(StringBuilder sb, RowFilter filter) {
+        if (filter != null) {
+            sb.append("<p><b>Filtro de Filas:</b> ").append(filter.getExpression()).append("</p>");
         }
-        clonedDataset.setObservations(clonedObservations);
+    }
 
-        return clonedDataset;
+    private void appendRegressionSummary(StringBuilder sb, RegressionResult results, String dependentVar, List<String> independentVars) {
+        sb.append("<p><b>R-cuadrado:</b> ").append(String.format("%.4f", results.getRSquared())).append("</p>");
+        sb.append("<p><b>Observaciones:</b> ").append(results.getNumObservations())
+                .append(" (filas descartadas: ").append(results.getRowsDropped()).append(")</p>");
+        sb.append("<p><b>Coeficientes:</b></p><ul>");
+        for (int i = 0; i < results.getCoefficientCount(); i++) {
+            sb.append(String.format("<li>%s: %.4f (EE %.4f, p = %.4f)</li>", results.getCoefficientName(i),
+                    results.getCoefficient(i), results.getStandardError(i), results.getPValue(i)));
+        }
+        sb.append("</ul>");
     }
 
     private boolean isNumeric(String type) {
@@ -0,0 +1,237 @@
+package org.example.gui;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.fxml.FXML;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import org.example.dao.AsyncDatasetDAO;
+import org.example.model.Dataset;
+import org.example.model.DatasetSnapshot;
+import org.example.service.AnalysisCache;
+import org.example.service.AutosaveService;
+import org.example.util.Metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Pestaña de rendimiento: memoria, tamaño de los datasets cargados, tiempos de las
+ * operaciones ({@link Metrics}), aciertos de la caché de análisis y colas de trabajo en
+ * segundo plano.
+ *
+ * Mientras la pestaña está visible, un hilo propio toma una muestra cada
+ * {@link #REFRESH_PERIOD_MILLIS} ms y el hilo de JavaFX sólo copia el resultado a los
+ * controles. Si la interfaz no ha aplicado la muestra anterior, la siguiente se omite.
+ */
+public class PerformanceDashboardController {
+
+    private static final long REFRESH_PERIOD_MILLIS = 2000;
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    @FXML private ProgressBar heapProgressBar;
+    @FXML private Label heapLabel;
+    @FXML private Label gcLabel;
+    @FXML private Label cacheLabel;
+    @FXML private Label lastRefreshLabel;
+    @FXML private TableView<List<String>> datasetsTable;
+    @FXML private TableView<List<String>> queuesTable;
+    @FXML private TableView<List<String>> timingsTable;
+
+    private final ScheduledExecutorService refresher;
+    private final AtomicBoolean samplePending = new AtomicBoolean();
+    private ScheduledFuture<?> refreshTask;
+    private Supplier<List<Dataset>> datasetSource = Collections::emptyList;
+    private volatile List<Dataset> loadedDatasets = Collections.emptyList(); // Copia hecha en el hilo de JavaFX
+    private volatile AutosaveService autosaveService;
+
+    public PerformanceDashboardController() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "performance-dashboard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.refresher = executor;
+    }
+
+    @FXML
+    public void initialize() {
+        addColumns(datasetsTable, "Dataset", "Versión", "Filas", "Variables", "Observaciones (MB)", "Instantánea (MB)");
+        addColumns(queuesTable, "Cola", "En ejecución", "En espera");
+        addColumns(timingsTable, "Operación", "Llamadas", "Media (ms)", "P50 (ms)", "P95 (ms)", "P99 (ms)", "Máximo (ms)", "Total (ms)");
+        timingsTable.setPlaceholder(new Label(Metrics.isEnabled() ? "Todavía no hay operaciones medidas."
+                : "Las métricas están desactivadas (-Danalizador.metrics=false)."));
+    }
+
+    /**
+     * Origen de los datasets cargados en la interfaz. Se consulta sólo desde el hilo de JavaFX.
+     */
+    public void setDatasetSource(Supplier<List<Dataset>> datasetSource) {
+        this.datasetSource = datasetSource;
+    }
+
+    public void setAutosaveService(AutosaveService autosaveService) {
+        this.autosaveService = autosaveService;
+    }
+
+    /**
+     * Empieza o detiene el refresco periódico; se llama al mostrar u ocultar la pestaña.
+     */
+    public void setShowing(boolean showing) {
+        if (showing && refreshTask == null) {
+            loadedDatasets = new ArrayList<>(datasetSource.get());
+            refreshTask = refresher.scheduleWithFixedDelay(this::sample, 0, REFRESH_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        } else if (!showing && refreshTask != null) {
+            refreshTask.cancel(false);
+            refreshTask = null;
+        }
+    }
+
+    @FXML
+    private void handleResetMetrics() {
+        Metrics.reset();
+        refresher.execute(this::sample);
+    }
+
+    // Hilo del refresco: toma la muestra y la entrega al hilo de JavaFX
+    private void sample() {
+        if (!samplePending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Sample sample = collect();
+            Platform.runLater(() -> apply(sample));
+        } catch (RuntimeException e) {
+            samplePending.set(false);
+            System.err.println("Error al medir el rendimiento: " + e.getMessage());
+        }
+    }
+
+    private Sample collect() {
+        Sample sample = new Sample();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        sample.heapUsed = heap.getUsed();
+        sample.heapCommitted = heap.getCommitted();
+        sample.heapMax = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample.gcCount += Math.max(0, collector.getCollectionCount());
+            sample.gcMillis += Math.max(0, collector.getCollectionTime());
+        }
+        sample.liveSnapshots = DatasetSnapshot.getLiveSnapshotCount();
+
+        AnalysisCache cache = AnalysisCache.getShared();
+        sample.cacheHits = cache.getHitCount();
+        sample.cacheMisses = cache.getMissCount();
+        sample.cacheEntries = cache.getMemoryEntryCount();
+
+        for (Dataset dataset : loadedDatasets) {
+            DatasetSnapshot snapshot = dataset.getPublishedSnapshot();
+            sample.datasets.add(Arrays.asList(
+                    dataset.getName(),
+                    String.valueOf(dataset.getVersion()),
+                    String.valueOf(dataset.getObservationCount()),
+                    String.valueOf(dataset.getVariableCount()),
+                    megabytes(dataset.estimateRowStoreBytes()),
+                    snapshot != null ? megabytes(snapshot.estimateMemoryBytes()) : "-"));
+        }
+
+        AsyncDatasetDAO asyncDAO = AsyncDatasetDAO.getShared();
+        int pendingWrites = asyncDAO.getPendingWriteCount();
+        sample.queues.add(Arrays.asList("Escrituras en la base de datos",
+                String.valueOf(Math.min(1, pendingWrites)), String.valueOf(Math.max(0, pendingWrites - 1))));
+        sample.queues.add(Arrays.asList("Consultas a la base de datos",
+                String.valueOf(asyncDAO.getActiveReadCount()), String.valueOf(asyncDAO.getQueuedReadCount())));
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        sample.queues.add(Arrays.asList("Análisis y cálculos en paralelo",
+                String.valueOf(pool.getActiveThreadCount()),
+                String.valueOf(pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount())));
+        AutosaveService autosave = autosaveService;
+        if (autosave != null) {
+            sample.queues.add(Arrays.asList("Guardado automático (datasets)", "-",
+                    String.valueOf(autosave.getPendingDatasetCount())));
+        }
+
+        for (Metrics.Timer timer : Metrics.getTimers()) {
+            if (timer.getCount() == 0) {
+                continue;
+            }
+            sample.timings.add(Arrays.asList(timer.getName(), String.valueOf(timer.getCount()),
+                    millis(timer.getMeanMillis()), millis(timer.getP50Millis()), millis(timer.getP95Millis()),
+                    millis(timer.getP99Millis()), millis(timer.getMaxMillis()), millis(timer.getTotalMillis())));
+        }
+        return sample;
+    }
+
+    // Hilo de JavaFX
+    private void apply(Sample sample) {
+        heapProgressBar.setProgress((double) sample.heapUsed / sample.heapMax);
+        heapLabel.setText(String.format("%s MB usados de %s MB (reservados %s MB)",
+                megabytes(sample.heapUsed), megabytes(sample.heapMax), megabytes(sample.heapCommitted)));
+        gcLabel.setText(String.format("Recolecciones: %d (%d ms en total). Instantáneas de datasets vivas: %d",
+                sample.gcCount, sample.gcMillis, sample.liveSnapshots));
+        long lookups = sample.cacheHits + sample.cacheMisses;
+        cacheLabel.setText(String.format("Aciertos: %d, fallos: %d (tasa de aciertos %s), entradas en memoria: %d",
+                sample.cacheHits, sample.cacheMisses,
+                lookups > 0 ? String.format("%.1f %%", 100.0 * sample.cacheHits / lookups) : "-", sample.cacheEntries));
+        datasetsTable.getItems().setAll(sample.datasets);
+        queuesTable.getItems().setAll(sample.queues);
+        timingsTable.getItems().setAll(sample.timings);
+        lastRefreshLabel.setText("Actualizado a las " + LocalTime.now().format(TIME_FORMAT));
+
+        loadedDatasets = new ArrayList<>(datasetSource.get());
+        samplePending.set(false);
+    }
+
+    private static void addColumns(TableView<List<String>> table, String... titles) {
+        for (int i = 0; i < titles.length; i++) {
+            final int index = i;
+            TableColumn<List<String>, String> column = new TableColumn<>(titles[i]);
+            column.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(cellData.getValue().get(index)));
+            table.getColumns().add(column);
+        }
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f", bytes / MEGABYTE);
+    }
+
+    private static String millis(double value) {
+        return String.format("%.3f", value);
+    }
+
+    /**
+     * Valores de un refresco, ya formateados para las tablas.
+     */
+    private static class Sample {
+        private long heapUsed;
+        private long heapCommitted;
+        private long heapMax;
+        private long gcCount;
+        private long gcMillis;
+        private int liveSnapshots;
+        private long cacheHits;
+        private long cacheMisses;
+        private int cacheEntries;
+        private final List<List<String>> datasets = new ArrayList<>();
+        private final List<List<String>> queues = new ArrayList<>();
+        private final List<List<String>> timings = new ArrayList<>();
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.gui;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -8,28 +9,91 @@ import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.control.SelectionMode; // Asegurarse de importar SelectionMode
+import javafx.scene.control.TextField;
+import org.example.model.CrossValidationResult;
 import org.example.model.Dataset;
-import org.example.model.Variable;
+import org.example.model.DatasetChange;
+import org.example.model.DatasetChangeEvent;
+import org.example.model.DatasetChangeListener;
+import org.example.model.ModelSelectionResult;
+import org.example.model.DatasetSnapshot;
+import org.example.model.RegressionResult;
+import org.example.model.RobustCovarianceType;
+import org.example.model.RowSelection;
+import org.example.service.AnalysisCache;
 import org.example.service.EstadisticaService;
+import org.example.service.IncrementalRegression;
+import org.example.service.MissingDataPolicy;
+import org.example.service.RowFilter;
+import org.example.service.SelectionCriterion;
+import org.example.service.SelectionMethod;
+import org.example.util.JfrEvents.AnalysisPhase;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class RegressionAnalysisController {
 
     @FXML private Label activeDatasetLabel;
+    @FXML private TextField variableSearchField;
     @FXML private ListView<String> availableVariablesListView;
     @FXML private ComboBox<String> dependentVariableComboBox;
     @FXML private ListView<String> independentVariablesListView;
+    @FXML private TextField rowFilterTextField;
+    @FXML private ComboBox<MissingDataPolicy> missingDataPolicyComboBox;
+    @FXML private ComboBox<String> standardErrorsComboBox;
+    @FXML private ComboBox<String> selectionMethodComboBox;
+    @FXML private ComboBox<SelectionCriterion> selectionCriterionComboBox;
+    @FXML private ComboBox<String> crossValidationComboBox;
     @FXML private Label resultsLabel;
 
+    private static final String CLASSICAL_STANDARD_ERRORS = "Clásicos";
+    private static final String NO_VARIABLE_SELECTION = "Ninguna";
+    private static final String NO_CROSS_VALIDATION = "Ninguna";
+    private static final int[] CROSS_VALIDATION_FOLDS = {5, 10};
+    private static final long CROSS_VALIDATION_SEED = 1L; // Fija, para que el reparto sea reproducible
+    private static final double CONFIDENCE_LEVEL = 0.95;
+
     private Dataset currentDataset;
     private EstadisticaService estadisticaService;
+    private final VariableList variables = new VariableList();
+    private final DatasetChangeListener variableListUpdater = this::handleDatasetChanged;
+    private boolean showing; // La pestaña está seleccionada
+    private boolean variablesStale; // Las listas no reflejan las variables del dataset activo
+    private IncrementalRegression liveRegression; // Sigue las ediciones del dataset tras una regresión
+    private final AtomicBoolean liveRefreshPending = new AtomicBoolean();
 
     @FXML
     public void initialize() {
-        estadisticaService = new EstadisticaService();
+        estadisticaService = new EstadisticaService(AnalysisCache.getShared());
+        missingDataPolicyComboBox.setItems(FXCollections.observableArrayList(MissingDataPolicy.values()));
+        missingDataPolicyComboBox.getSelectionModel().select(MissingDataPolicy.LISTWISE);
+        standardErrorsComboBox.getItems().add(CLASSICAL_STANDARD_ERRORS);
+        for (RobustCovarianceType type : RobustCovarianceType.values()) {
+            standardErrorsComboBox.getItems().add(type.name());
+        }
+        standardErrorsComboBox.getSelectionModel().select(CLASSICAL_STANDARD_ERRORS);
+        selectionMethodComboBox.getItems().add(NO_VARIABLE_SELECTION);
+        for (SelectionMethod method : SelectionMethod.values()) {
+            selectionMethodComboBox.getItems().add(method.toString());
+        }
+        selectionMethodComboBox.getSelectionModel().select(NO_VARIABLE_SELECTION);
+        selectionCriterionComboBox.setItems(FXCollections.observableArrayList(SelectionCriterion.values()));
+        selectionCriterionComboBox.getSelectionModel().select(SelectionCriterion.AIC);
+        crossValidationComboBox.getItems().add(NO_CROSS_VALIDATION);
+        for (int folds : CROSS_VALIDATION_FOLDS) {
+            crossValidationComboBox.getItems().add(folds + " folds");
+        }
+        crossValidationComboBox.getSelectionModel().select(NO_CROSS_VALIDATION);
+
+        availableVariablesListView.setItems(variables.getFiltered());
+        dependentVariableComboBox.setItems(variables.getSorted());
+        variableSearchField.textProperty().addListener((obs, oldText, newText) -> variables.setFilter(newText));
 
         // Inicializar los ListView con selección múltiple
         availableVariablesListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
@@ -38,32 +102,99 @@ public class RegressionAnalysisController {
 
     // Método para ser llamado desde MainLayoutController cuando el dataset cambia
     public void updateDataset(Dataset dataset) {
+        if (dataset == currentDataset) {
+            return;
+        }
+        // El mismo dataset recargado (p. ej. tras guardarlo) conserva las selecciones
+        boolean reloaded = dataset != null && currentDataset != null && dataset.getId() != 0
+                && dataset.getId() == currentDataset.getId();
+        if (currentDataset != null) {
+            currentDataset.removeChangeListener(variableListUpdater);
+        }
         this.currentDataset = dataset;
         if (currentDataset != null) {
             activeDatasetLabel.setText(currentDataset.getName());
-            populateVariableLists();
+            currentDataset.addChangeListener(variableListUpdater);
         } else {
             activeDatasetLabel.setText("Ninguno");
-            availableVariablesListView.getItems().clear();
-            dependentVariableComboBox.getItems().clear();
-            independentVariablesListView.getItems().clear();
         }
-        clearSelectionsAndResults();
+        if (reloaded) {
+            stopLiveRegression(); // Seguía a la instancia anterior
+        } else {
+            clearSelectionsAndResults();
+        }
+        variablesStale = true;
+        refreshVariablesIfShowing();
     }
 
-    private void populateVariableLists() {
-        if (currentDataset != null) {
-            ObservableList<String> variableNames = FXCollections.observableArrayList(
-                    currentDataset.getVariables().stream()
-                            .map(Variable::getName)
-                            .collect(Collectors.toList())
-            );
-            availableVariablesListView.setItems(variableNames);
-            dependentVariableComboBox.setItems(variableNames);
+    /**
+     * Llamado al seleccionar u ocultar la pestaña. Las listas de variables sólo se ponen al
+     * día mientras la pestaña está visible.
+     */
+    public void setShowing(boolean showing) {
+        this.showing = showing;
+        refreshVariablesIfShowing();
+    }
+
+    private void refreshVariablesIfShowing() {
+        if (!showing || !variablesStale) {
+            return;
         }
+        variablesStale = false;
+        Map<String, String> renamed = variables.synchronize(
+                currentDataset != null ? currentDataset.getVariables() : Collections.emptyList());
+        String dependent = dependentVariableComboBox.getValue();
+        if (dependent != null && renamed.containsKey(dependent)) {
+            dependentVariableComboBox.getSelectionModel().select(renamed.get(dependent));
+        } else if (dependent != null && !variables.contains(dependent)) {
+            dependentVariableComboBox.getSelectionModel().clearSelection();
+        }
+        ObservableList<String> independents = independentVariablesListView.getItems();
+        if (!renamed.isEmpty()) {
+            independents.replaceAll(name -> renamed.getOrDefault(name, name));
+        }
+        independents.removeIf(name -> !variables.contains(name));
+    }
+
+    /**
+     * Mantiene las listas de variables al día con las altas y bajas del dataset activo, sin
+     * repoblarlas. Con la pestaña oculta sólo se anota que hay que ponerlas al día. Los avisos
+     * llegan en el hilo que edita.
+     */
+    private void handleDatasetChanged(DatasetChangeEvent event) {
+        Platform.runLater(() -> {
+            if (event.getDataset() != currentDataset) {
+                return;
+            }
+            if (!showing || variablesStale) {
+                variablesStale = true;
+                return;
+            }
+            for (DatasetChange change : event.getChanges()) {
+                switch (change.getType()) {
+                    case VARIABLE_ADDED:
+                        variables.add(change.getVariableName());
+                        break;
+                    case VARIABLE_REMOVED:
+                        variables.remove(change.getVariableName());
+                        independentVariablesListView.getItems().remove(change.getVariableName());
+                        if (change.getVariableName().equals(dependentVariableComboBox.getValue())) {
+                            dependentVariableComboBox.getSelectionModel().clearSelection();
+                        }
+                        break;
+                    case RESET:
+                        variablesStale = true;
+                        refreshVariablesIfShowing();
+                        break;
+                    default:
+                        break; // Las ediciones de filas no cambian las listas
+                }
+            }
+        });
     }
 
     private void clearSelectionsAndResults() {
+        stopLiveRegression();
         dependentVariableComboBox.getSelectionModel().clearSelection();
         independentVariablesListView.getItems().clear();
         resultsLabel.setText("");
@@ -146,49 +277,248 @@ public class RegressionAnalysisController {
         }
 
 
+        // Filtro de filas opcional; los errores de sintaxis se muestran antes de calcular nada
+        RowFilter filter;
         try {
-            Map<String, Object> results = estadisticaService.performMultipleLinearRegression(
-                    currentDataset, dependentVarName, independentVarNames);
+            String filterText = rowFilterTextField.getText();
+            filter = filterText == null || filterText.trim().isEmpty() ? null : RowFilter.compile(filterText);
+        } catch (IllegalArgumentException e) {
+            showAlert(Alert.AlertType.ERROR, "Error en el Filtro", e.getMessage());
+            return;
+        }
+
+        // El análisis se ejecuta en segundo plano sobre la versión actual del dataset;
+        // las ediciones posteriores no le afectan.
+        DatasetSnapshot snapshot = currentDataset.snapshot();
+        List<String> independents = new ArrayList<>(independentVarNames);
+        MissingDataPolicy missingDataPolicy = missingDataPolicyComboBox.getValue();
+        String standardErrors = standardErrorsComboBox.getValue();
+        RobustCovarianceType robustType = standardErrors == null || CLASSICAL_STANDARD_ERRORS.equals(standardErrors)
+                ? null : RobustCovarianceType.valueOf(standardErrors);
+        SelectionMethod selectionMethod = selectedSelectionMethod();
+        SelectionCriterion selectionCriterion = selectionCriterionComboBox.getValue();
+        int crossValidationFolds = selectedCrossValidationFolds();
+        stopLiveRegression();
+        resultsLabel.setText("Calculando regresión...");
+        CompletableFuture.supplyAsync(() -> {
+                    RowSelection selection = filter != null ? filter.evaluate(snapshot) : null;
+                    // Con selección de variables, las independientes elegidas son los candidatos
+                    ModelSelectionResult modelSelection = null;
+                    List<String> predictors = independents;
+                    RowSelection modelRows = selection;
+                    RegressionResult fitted;
+                    if (selectionMethod != null) {
+                        modelSelection = estadisticaService.performModelSelection(snapshot, selection, missingDataPolicy,
+                                dependentVarName, independents, selectionMethod, selectionCriterion);
+                        if (modelSelection.getSelectedVariables().isEmpty()) {
+                            throw new IllegalArgumentException("Ningún candidato mejora el criterio " + selectionCriterion + " frente al modelo sólo con intercepto.");
+                        }
+                        predictors = modelSelection.getSelectedVariables();
+                        // La selección ya ajustó el modelo elegido sobre su muestra; no se vuelve a recorrer
+                        fitted = modelSelection.getRegression();
+                        if (missingDataPolicy == MissingDataPolicy.LISTWISE) {
+                            // Esa muestra son las filas completas en todos los candidatos: los errores
+                            // robustos y la validación cruzada se calculan sobre las mismas
+                            List<String> candidateVariables = new ArrayList<>(independents);
+                            candidateVariables.add(dependentVarName);
+                            modelRows = estadisticaService.selectCompleteRows(snapshot, selection, candidateVariables);
+                        }
+                    } else {
+                        fitted = estadisticaService.performMultipleLinearRegression(snapshot, selection, missingDataPolicy, dependentVarName, predictors);
+                    }
+                    // Los errores robustos necesitan una pasada más sobre los residuos; sólo si se piden
+                    if (robustType != null) {
+                        fitted = estadisticaService.computeRobustCovariances(snapshot, modelRows, missingDataPolicy, fitted);
+                    }
+                    // La validación cruzada evalúa el modelo final, con los predictores elegidos
+                    CrossValidationResult crossValidation = crossValidationFolds > 0
+                            ? estadisticaService.performCrossValidation(snapshot, modelRows, missingDataPolicy, dependentVarName, predictors,
+                                    crossValidationFolds, CROSS_VALIDATION_SEED)
+                            : null;
+                    return new RegressionOutcome(modelSelection, fitted, crossValidation);
+                })
+                .whenComplete((outcome, error) -> Platform.runLater(() -> {
+                    if (error == null) {
+                        List<String> predictors = outcome.modelSelection != null ? outcome.modelSelection.getSelectedVariables() : independents;
+                        displayRegressionResults(snapshot.getName(), snapshot.getVersion(), filter, dependentVarName, predictors,
+                                outcome.regression, robustType, outcome.modelSelection, outcome.crossValidation, false);
+                        // Sin filtro y con eliminación por lista, las ediciones posteriores se reflejan en vivo
+                        if (filter == null && missingDataPolicy == MissingDataPolicy.LISTWISE) {
+                            startLiveRegression(dependentVarName, predictors);
+                        }
+                        return;
+                    }
+                    resultsLabel.setText("");
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof IllegalArgumentException) {
+                        showAlert(Alert.AlertType.ERROR, "Error en Regresión", cause.getMessage());
+                    } else {
+                        showAlert(Alert.AlertType.ERROR, "Error Inesperado", "Ocurrió un error inesperado al realizar la regresión: " + cause.getMessage());
+                        cause.printStackTrace();
+                    }
+                }));
+    }
 
-            displayRegressionResults(results);
+    private void startLiveRegression(String dependentVarName, List<String> predictors) {
+        IncrementalRegression live = new IncrementalRegression(currentDataset, dependentVarName, predictors,
+                this::scheduleLiveRefresh);
+        liveRegression = live;
+        // Los co-momentos se acumulan ya en segundo plano; los errores se muestran en el primer refresco
+        CompletableFuture.runAsync(() -> {
+            try {
+                live.getResult();
+            } catch (IllegalArgumentException e) {
+                // Se vuelve a intentar y se informa al refrescar
+            }
+        });
+    }
 
-        } catch (IllegalArgumentException e) {
-            showAlert(Alert.AlertType.ERROR, "Error en Regresión", e.getMessage());
-        } catch (Exception e) {
-            showAlert(Alert.AlertType.ERROR, "Error Inesperado", "Ocurrió un error inesperado al realizar la regresión: " + e.getMessage());
-            e.printStackTrace();
+    private void stopLiveRegression() {
+        if (liveRegression != null) {
+            liveRegression.close();
+            liveRegression = null;
+        }
+    }
+
+    /**
+     * Refresca los resultados tras una edición; una ráfaga de ediciones produce un solo
+     * cálculo (las que llegan durante él programan otro).
+     */
+    private void scheduleLiveRefresh() {
+        IncrementalRegression live = liveRegression;
+        if (live == null || !liveRefreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture.supplyAsync(() -> {
+                    liveRefreshPending.set(false);
+                    return live.getResult();
+                })
+                .whenComplete((results, error) -> Platform.runLater(() -> {
+                    if (live != liveRegression) {
+                        return; // Se lanzó otra regresión o cambió el dataset
+                    }
+                    if (error == null) {
+                        displayRegressionResults(currentDataset.getName(), currentDataset.getVersion(), null, live.getDependentVariableName(),
+                                live.getIndependentVariableNames(), results, null, null, null, true);
+                        return;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    resultsLabel.setText("<p>La regresión en vivo no se puede calcular con los datos actuales: " + cause.getMessage() + "</p>");
+                }));
+    }
+
+    private SelectionMethod selectedSelectionMethod() {
+        String selected = selectionMethodComboBox.getValue();
+        for (SelectionMethod method : SelectionMethod.values()) {
+            if (method.toString().equals(selected)) {
+                return method;
+            }
+        }
+        return null; // "Ninguna"
+    }
+
+    /**
+     * @return El número de folds elegido, o 0 sin validación cruzada.
+     */
+    private int selectedCrossValidationFolds() {
+        String selected = crossValidationComboBox.getValue();
+        for (int folds : CROSS_VALIDATION_FOLDS) {
+            if ((folds + " folds").equals(selected)) {
+                return folds;
+            }
+        }
+        return 0;
+    }
+
+    private static final class RegressionOutcome {
+        final ModelSelectionResult modelSelection; // null sin selección de variables
+        final RegressionResult regression;
+        final CrossValidationResult crossValidation; // null sin validación cruzada
+
+        RegressionOutcome(ModelSelectionResult modelSelection, RegressionResult regression, CrossValidationResult crossValidation) {
+            this.modelSelection = modelSelection;
+            this.regression = regression;
+            this.crossValidation = crossValidation;
         }
     }
 
-    private void displayRegressionResults(Map<String, Object> results) {
+    /**
+     * @param liveUpdate Si los resultados vienen de {@link IncrementalRegression} tras una edición
+     *                   (sin errores robustos, selección de variables ni validación cruzada).
+     */
+    private void displayRegressionResults(String datasetName, long datasetVersion, RowFilter filter, String dependentVarName, List<String> independentVarNames,
+                                          RegressionResult results, RobustCovarianceType robustType, ModelSelectionResult modelSelection,
+                                          CrossValidationResult crossValidation, boolean liveUpdate) {
+        AnalysisPhase phase = AnalysisPhase.start("regression", AnalysisPhase.FORMATTING);
         StringBuilder sb = new StringBuilder();
         sb.append("<h2>Resultados de la Regresión Lineal Múltiple</h2>");
-        sb.append("<p><b>Dataset:</b> ").append(currentDataset.getName()).append("</p>");
-        sb.append("<p><b>Variable Dependiente (Y):</b> ").append(dependentVariableComboBox.getSelectionModel().getSelectedItem()).append("</p>");
-        sb.append("<p><b>Variables Independientes (X):</b> ").append(String.join(", ", independentVariablesListView.getItems())).append("</p>");
-        sb.append("<p><b>Número de Observaciones:</b> ").append(results.get("Num Observations")).append("</p>");
-        sb.append("<p><b>Número de Variables Independientes:</b> ").append(results.get("Num Independent Variables")).append("</p>");
+        sb.append("<p><b>Dataset:</b> ").append(datasetName).append(" (versión ").append(datasetVersion).append(")</p>");
+        if (liveUpdate) {
+            sb.append("<p><i>Actualizado en vivo tras editar los datos (sólo errores estándar clásicos).</i></p>");
+        }
+        if (filter != null) {
+            sb.append("<p><b>Filtro de Filas:</b> ").append(filter.getExpression()).append("</p>");
+        }
+        sb.append("<p><b>Variable Dependiente (Y):</b> ").append(dependentVarName).append("</p>");
+        if (modelSelection != null) {
+            sb.append("<p><b>Selección de Variables:</b> ").append(modelSelection.getMethod())
+                    .append(", criterio ").append(modelSelection.getCriterion())
+                    .append(String.format(" = %.4f (%d modelos evaluados)</p>", modelSelection.getCriterionValue(), modelSelection.getModelsEvaluated()));
+            for (String step : modelSelection.getSteps()) {
+                sb.append("<p>&nbsp;&nbsp;").append(step).append("</p>");
+            }
+        }
+        sb.append("<p><b>Variables Independientes (X):</b> ").append(String.join(", ", independentVarNames)).append("</p>");
+        sb.append("<p><b>Número de Observaciones:</b> ").append(results.getNumObservations()).append("</p>");
+        if (results.getMissingDataPolicy() != null) {
+            sb.append("<p><b>Datos Faltantes:</b> ").append(MissingDataPolicy.valueOf(results.getMissingDataPolicy()))
+                    .append(" (filas descartadas: ").append(results.getRowsDropped());
+            if (results.getValuesImputed() >= 0) {
+                sb.append(", valores imputados: ").append(results.getValuesImputed());
+            }
+            sb.append(")</p>");
+        }
+        sb.append("<p><b>Número de Variables Independientes:</b> ").append(results.getNumIndependentVariables()).append("</p>");
         sb.append("<hr>");
 
         sb.append("<h3>Estadísticas del Modelo:</h3>");
-        sb.append(String.format("<p><b>R-cuadrado (R²):</b> %.4f</p>", (Double) results.get("R-Squared")));
-        sb.append(String.format("<p><b>R-cuadrado Ajustado:</b> %.4f</p>", (Double) results.get("Adjusted R-Squared")));
-        sb.append(String.format("<p><b>Error Estándar de la Regresión (Sigma):</b> %.4f</p>", (Double) results.get("Regression Standard Error (Sigma)")));
-        sb.append(String.format("<p><b>Suma de Cuadrados de la Regresión (SSR):</b> %.4f</p>", (Double) results.get("Regression Sum of Squares (SSR)")));
-        sb.append(String.format("<p><b>Suma de Cuadrados de los Residuales (SSE):</b> %.4f</p>", (Double) results.get("Residual Sum of Squares (SSE)")));
-        sb.append(String.format("<p><b>Suma Total de Cuadrados (SST):</b> %.4f</p>", (Double) results.get("Total Sum of Squares (SST)")));
+        sb.append(String.format("<p><b>R-cuadrado (R²):</b> %.4f</p>", results.getRSquared()));
+        sb.append(String.format("<p><b>R-cuadrado Ajustado:</b> %.4f</p>", results.getAdjustedRSquared()));
+        sb.append(String.format("<p><b>Error Estándar de la Regresión (Sigma):</b> %.4f</p>", results.getRegressionStandardError()));
+        sb.append(String.format("<p><b>Suma de Cuadrados de la Regresión (SSR):</b> %.4f</p>", results.getRegressionSumOfSquares()));
+        sb.append(String.format("<p><b>Suma de Cuadrados de los Residuales (SSE):</b> %.4f</p>", results.getResidualSumOfSquares()));
+        sb.append(String.format("<p><b>Suma Total de Cuadrados (SST):</b> %.4f</p>", results.getTotalSumOfSquares()));
         sb.append("<hr>");
 
-        sb.append("<h3>Coeficientes:</h3>");
-        List<String> coefNames = (List<String>) results.get("CoefficientNames");
-        List<Double> coefficients = (List<Double>) results.get("Coefficients");
+        if (crossValidation != null) {
+            sb.append(String.format("<h3>Validación Cruzada (%d folds, semilla %d):</h3>", crossValidation.getFolds(), crossValidation.getSeed()));
+            sb.append(String.format("<p><b>R² de Predicción:</b> %.4f</p>", crossValidation.getPredictedRSquared()));
+            sb.append(String.format("<p><b>RMSE fuera de muestra:</b> %.4f</p>", crossValidation.getRootMeanSquaredError()));
+            for (int f = 0; f < crossValidation.getFolds(); f++) {
+                sb.append(String.format("<p>&nbsp;&nbsp;Fold %d: n = %d, R² = %.4f, RMSE = %.4f</p>", f + 1,
+                        crossValidation.getFoldObservations(f), crossValidation.getFoldRSquared(f), crossValidation.getFoldRootMeanSquaredError(f)));
+            }
+            sb.append("<hr>");
+        }
 
-        for (int i = 0; i < coefNames.size(); i++) {
-            sb.append(String.format("<p><b>%s:</b> %.4f</p>", coefNames.get(i), coefficients.get(i)));
+        sb.append("<h3>Coeficientes:</h3>");
+        for (int i = 0; i < results.getCoefficientCount(); i++) {
+            double[] interval = results.getConfidenceInterval(i, CONFIDENCE_LEVEL);
+            sb.append(String.format("<p><b>%s:</b> %.4f (error estándar %.4f, t = %.3f, p = %.4f, IC 95%% [%.4f, %.4f])",
+                    results.getCoefficientName(i), results.getCoefficient(i), results.getStandardError(i),
+                    results.getTStatistic(i), results.getPValue(i), interval[0], interval[1]));
+            if (robustType != null) {
+                double[] robustInterval = results.getRobustConfidenceInterval(robustType, i, CONFIDENCE_LEVEL);
+                sb.append(String.format("<br>%s: error estándar %.4f, t = %.3f, p = %.4f, IC 95%% [%.4f, %.4f]",
+                        robustType, results.getRobustStandardError(robustType, i), results.getRobustTStatistic(robustType, i),
+                        results.getRobustPValue(robustType, i), robustInterval[0], robustInterval[1]));
+            }
+            sb.append("</p>");
         }
         sb.append("<hr>");
 
         resultsLabel.setText(sb.toString()); // Asegúrate de que resultsLabel sea un Label en el FXML
+        phase.finish(datasetName, results.getNumObservations(), results.getCoefficientCount());
     }
 
     private void showAlert(Alert.AlertType type, String title, String message) {
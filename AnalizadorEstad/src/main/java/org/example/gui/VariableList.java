@@ -0,0 +1,126 @@
+package org.example.gui;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
+import org.example.model.Variable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Nombres de las variables del dataset activo para los selectores de las pestañas de
+ * análisis: la lista completa ordenada por nombre y una vista filtrada por un texto de
+ * búsqueda. Las ListView y ComboBox que las muestran sólo crean celdas para las filas
+ * visibles, así que admiten decenas de miles de variables.
+ *
+ * {@link #synchronize(List)} aplica sólo las diferencias (altas, bajas y renombrados,
+ * reconocidos por el ID de la variable), de modo que las vistas no se reconstruyen y las
+ * selecciones que dependen de ellas se conservan. Sólo se usa desde el hilo de JavaFX.
+ */
+public class VariableList {
+
+    private final ObservableList<String> names = FXCollections.observableArrayList();
+    private final SortedList<String> sorted = new SortedList<>(names, String.CASE_INSENSITIVE_ORDER);
+    private final FilteredList<String> filtered = new FilteredList<>(sorted);
+    private final Set<String> present = new HashSet<>();
+    private final Map<Integer, String> namesById = new HashMap<>(); // Sólo variables guardadas (ID distinto de 0)
+
+    /**
+     * Todas las variables, ordenadas por nombre sin distinguir mayúsculas.
+     */
+    public ObservableList<String> getSorted() {
+        return sorted;
+    }
+
+    /**
+     * Las variables ordenadas que contienen el texto de búsqueda.
+     */
+    public ObservableList<String> getFiltered() {
+        return filtered;
+    }
+
+    public boolean contains(String name) {
+        return present.contains(name);
+    }
+
+    /**
+     * Filtra por un texto contenido en el nombre, sin distinguir mayúsculas; vacío o null
+     * muestra todas.
+     */
+    public void setFilter(String text) {
+        String needle = text != null ? text.trim().toLowerCase(Locale.ROOT) : "";
+        filtered.setPredicate(needle.isEmpty() ? null : name -> name.toLowerCase(Locale.ROOT).contains(needle));
+    }
+
+    /**
+     * Iguala la lista a las variables indicadas.
+     * @return Los renombrados aplicados (nombre anterior -> nuevo), para actualizar las selecciones.
+     */
+    public Map<String, String> synchronize(List<Variable> variables) {
+        Map<String, String> renamed = new LinkedHashMap<>();
+        Set<String> wanted = new LinkedHashSet<>();
+        Map<Integer, String> wantedById = new HashMap<>();
+        for (Variable variable : variables) {
+            wanted.add(variable.getName());
+            if (variable.getId() != 0) {
+                wantedById.put(variable.getId(), variable.getName());
+                String previous = namesById.get(variable.getId());
+                if (previous != null && !previous.equals(variable.getName()) && present.contains(previous)) {
+                    renamed.put(previous, variable.getName());
+                }
+            }
+        }
+
+        if (!renamed.isEmpty()) {
+            for (int i = 0; i < names.size(); i++) {
+                String newName = renamed.get(names.get(i));
+                if (newName != null) {
+                    names.set(i, newName);
+                }
+            }
+            present.removeAll(renamed.keySet());
+            present.addAll(renamed.values());
+        }
+
+        Set<String> removed = new HashSet<>(present);
+        removed.removeAll(wanted);
+        if (!removed.isEmpty()) {
+            names.removeAll(removed);
+            present.removeAll(removed);
+        }
+
+        List<String> added = new ArrayList<>();
+        for (String name : wanted) {
+            if (present.add(name)) {
+                added.add(name);
+            }
+        }
+        names.addAll(added);
+
+        namesById.clear();
+        namesById.putAll(wantedById);
+        return renamed.isEmpty() ? Collections.emptyMap() : renamed;
+    }
+
+    public void add(String name) {
+        if (present.add(name)) {
+            names.add(name);
+        }
+    }
+
+    public void remove(String name) {
+        if (present.remove(name)) {
+            names.remove(name);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado inmutable de un análisis en formato "largo": una fila por estadístico (modelo,
+ * término, estadístico, valor), fácil de escribir como CSV o JSON y de combinar entre
+ * datasets. Los avisos recogen lo que no impidió el análisis, p. ej. modelos de un cribado
+ * que no se pudieron estimar.
+ */
+public final class AnalysisOutcome {
+
+    private final List<Row> rows;
+    private final List<String> warnings;
+
+    public AnalysisOutcome(List<Row> rows, List<String> warnings) {
+        this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+        this.warnings = Collections.unmodifiableList(new ArrayList<>(warnings));
+    }
+
+    public List<Row> getRows() {
+        return rows;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * Un estadístico. El término es vacío en los estadísticos del modelo (p. ej. r_squared).
+     */
+    public static final class Row {
+        private final String model;
+        private final String term;
+        private final String statistic;
+        private final double value;
+
+        public Row(String model, String term, String statistic, double value) {
+            this.model = model;
+            this.term = term;
+            this.statistic = statistic;
+            this.value = value;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public String getStatistic() {
+            return statistic;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.model;
+
+/**
+ * Resultado inmutable de una validación cruzada de k folds de una regresión: el error de
+ * predicción fuera de muestra de cada fold y el global.
+ *
+ * El R² de predicción global es 1 - PRESS / SST, con PRESS la suma de los errores de
+ * predicción al cuadrado de todos los folds y SST la suma de cuadrados total de la muestra.
+ * El de cada fold usa la suma de cuadrados del propio fold, así que puede ser negativo.
+ */
+public final class CrossValidationResult {
+
+    private final String dependentVariableName;
+    private final int folds;
+    private final long seed;
+    private final long numObservations;
+    private final long[] foldObservations;
+    private final double[] foldSumOfSquaredErrors;
+    private final double[] foldTotalSumOfSquares;
+    private final double totalSumOfSquares;
+
+    public CrossValidationResult(String dependentVariableName, long seed, long numObservations, long[] foldObservations,
+                                 double[] foldSumOfSquaredErrors, double[] foldTotalSumOfSquares, double totalSumOfSquares) {
+        if (foldObservations.length != foldSumOfSquaredErrors.length || foldObservations.length != foldTotalSumOfSquares.length) {
+            throw new IllegalArgumentException("Los datos por fold no tienen la misma longitud.");
+        }
+        this.dependentVariableName = dependentVariableName;
+        this.folds = foldObservations.length;
+        this.seed = seed;
+        this.numObservations = numObservations;
+        this.foldObservations = foldObservations.clone();
+        this.foldSumOfSquaredErrors = foldSumOfSquaredErrors.clone();
+        this.foldTotalSumOfSquares = foldTotalSumOfSquares.clone();
+        this.totalSumOfSquares = totalSumOfSquares;
+    }
+
+    public String getDependentVariableName() {
+        return dependentVariableName;
+    }
+
+    public int getFolds() {
+        return folds;
+    }
+
+    /**
+     * Semilla del reparto de las filas en folds; con la misma semilla y los mismos datos el
+     * reparto (y el resultado) es el mismo.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getNumObservations() {
+        return numObservations;
+    }
+
+    public long getFoldObservations(int fold) {
+        return foldObservations[fold];
+    }
+
+    /**
+     * Suma de los errores de predicción al cuadrado de todos los folds (PRESS).
+     */
+    public double getPredictionSumOfSquares() {
+        double sum = 0.0;
+        for (double sse : foldSumOfSquaredErrors) {
+            sum += sse;
+        }
+        return sum;
+    }
+
+    public double getPredictedRSquared() {
+        return 1.0 - getPredictionSumOfSquares() / totalSumOfSquares;
+    }
+
+    public double getRootMeanSquaredError() {
+        return Math.sqrt(getPredictionSumOfSquares() / numObservations);
+    }
+
+    public double getFoldRSquared(int fold) {
+        return 1.0 - foldSumOfSquaredErrors[fold] / foldTotalSumOfSquares[fold];
+    }
+
+    public double getFoldRootMeanSquaredError(int fold) {
+        return Math.sqrt(foldSumOfSquaredErrors[fold] / foldObservations[fold]);
+    }
+}
@@ -1,16 +1,38 @@
 package org.example.model;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Dataset editable en memoria. Los análisis no deben leerlo directamente desde otro hilo:
+ * deben trabajar sobre una versión inmutable obtenida con {@link #snapshot()}.
+ * Las modificaciones deben hacerse con los métodos de esta clase (no sobre los mapas
+ * devueltos por los getters) para que las versiones publicadas reflejen los cambios.
+ * Esos métodos avisan a los {@link DatasetChangeListener} registrados; varias ediciones
+ * seguidas se pueden agrupar en un lote ({@link #beginBatch()}) para avisar una sola vez.
+ */
 public class Dataset {
     private int id;
     private String name;
     private List<Variable> variables;
     private Map<Integer, Observation> observations; // Clave: índice de la observación (fila)
+    private int nextObservationIndex; // Siguiente índice libre; nunca se reutilizan índices eliminados
+
+    // Control de versiones para las instantáneas (copy-on-write por bloque de columna)
+    private long version;
+    private DatasetSnapshot lastSnapshot;
+    private final Map<String, BitSet> dirtyColumnChunks = new HashMap<>(); // Variable -> bloques modificados
+    private final BitSet dirtyRowChunks = new BitSet(); // Bloques con altas o bajas de observaciones
+
+    private final List<DatasetChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private DatasetChangeBatch pendingChanges; // null si no hay cambios por entregar (o nadie escucha)
+    private int batchDepth;
 
     public Dataset() {
         this.variables = new ArrayList<>();
@@ -49,25 +71,34 @@ public class Dataset {
         return variables;
     }
 
-    public void setVariables(List<Variable> variables) {
+    public synchronized void setVariables(List<Variable> variables) {
         this.variables = variables;
+        invalidateSnapshots();
     }
 
     public Map<Integer, Observation> getObservations() {
         return observations;
     }
 
-    public void setObservations(Map<Integer, Observation> observations) {
+    public synchronized void setObservations(Map<Integer, Observation> observations) {
         this.observations = observations;
+        invalidateSnapshots();
+        this.nextObservationIndex = observations.isEmpty() ? 0 : Collections.max(observations.keySet()) + 1;
     }
 
     /**
      * Añade una variable al dataset.
      * @param variable La variable a añadir.
      */
-    public void addVariable(Variable variable) {
+    public synchronized void addVariable(Variable variable) {
         if (!this.variables.contains(variable)) { // Evitar duplicados por nombre si ya existe una lógica de equals
             this.variables.add(variable);
+            version++;
+            DatasetChangeBatch changes = changes();
+            if (changes != null) {
+                changes.variableAdded(variable.getName());
+                changesRecorded();
+            }
         }
     }
 
@@ -76,9 +107,19 @@ public class Dataset {
      * También elimina los valores asociados a esa variable de todas las observaciones.
      * @param variableName El nombre de la variable a eliminar.
      */
-    public void removeVariable(String variableName) {
+    public synchronized void removeVariable(String variableName) {
         variables.removeIf(v -> v.getName().equals(variableName));
         observations.values().forEach(obs -> obs.removeValue(variableName));
+        // Si se vuelve a añadir con el mismo nombre antes de la próxima versión, ningún bloque
+        // de la columna anterior se debe reutilizar
+        int chunkCount = (nextObservationIndex + DatasetSnapshot.CHUNK_SIZE - 1) / DatasetSnapshot.CHUNK_SIZE;
+        dirtyColumnChunks.computeIfAbsent(variableName, k -> new BitSet()).set(0, chunkCount);
+        version++;
+        DatasetChangeBatch changes = changes();
+        if (changes != null) {
+            changes.variableRemoved(variableName);
+            changesRecorded();
+        }
     }
 
     /**
@@ -87,9 +128,15 @@ public class Dataset {
      * @param observation La observación a añadir.
      * @return El índice de la observación añadida.
      */
-    public int addObservation(Observation observation) {
-        int newIndex = getNextObservationIndex();
+    public synchronized int addObservation(Observation observation) {
+        int newIndex = nextObservationIndex++;
         observations.put(newIndex, observation);
+        markRowChanged(newIndex);
+        DatasetChangeBatch changes = changes();
+        if (changes != null) {
+            changes.observationAdded(newIndex);
+            changesRecorded();
+        }
         return newIndex;
     }
 
@@ -97,8 +144,16 @@ public class Dataset {
      * Elimina una observación por su índice.
      * @param index El índice de la observación a eliminar.
      */
-    public void removeObservation(int index) {
-        observations.remove(index);
+    public synchronized void removeObservation(int index) {
+        Observation removed = observations.remove(index);
+        if (removed != null) {
+            markRowChanged(index);
+            DatasetChangeBatch changes = changes();
+            if (changes != null) {
+                changes.observationRemoved(index, removed);
+                changesRecorded();
+            }
+        }
         // Opcional: Reindexar observaciones si es necesario, pero es más complejo.
         // Por ahora, solo se elimina y el índice queda vacante.
     }
@@ -135,20 +190,70 @@ public class Dataset {
      * @param variableName El nombre de la variable (columna).
      * @param value El valor a establecer.
      */
-    public void setValue(int obsIndex, String variableName, Object value) {
-        observations.computeIfAbsent(obsIndex, k -> new Observation()).addValue(variableName, value);
+    public synchronized void setValue(int obsIndex, String variableName, Object value) {
+        Observation obs = observations.get(obsIndex);
+        boolean added = obs == null;
+        if (added) {
+            obs = new Observation();
+            observations.put(obsIndex, obs);
+            dirtyRowChunks.set(obsIndex / DatasetSnapshot.CHUNK_SIZE);
+        }
+        Object oldValue = obs.getValue(variableName);
+        obs.addValue(variableName, value);
+        if (obsIndex >= nextObservationIndex) {
+            nextObservationIndex = obsIndex + 1;
+        }
+        dirtyColumnChunks.computeIfAbsent(variableName, k -> new BitSet()).set(obsIndex / DatasetSnapshot.CHUNK_SIZE);
+        version++;
+        DatasetChangeBatch changes = changes();
+        if (changes != null) {
+            if (added) {
+                changes.observationAdded(obsIndex);
+            } else {
+                changes.valueChanged(obsIndex, variableName, oldValue);
+            }
+            changesRecorded();
+        }
+    }
+
+    /**
+     * Registra un receptor de los cambios hechos con los métodos de esta clase.
+     */
+    public void addChangeListener(DatasetChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(DatasetChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Empieza un lote de ediciones: sus cambios se combinan y se entregan en un solo evento
+     * al cerrar el lote más externo con {@link #endBatch()}, que debe llamarse siempre
+     * (en un {@code finally}) desde el mismo hilo. Los lotes se pueden anidar.
+     */
+    public synchronized void beginBatch() {
+        batchDepth++;
+    }
+
+    public synchronized void endBatch() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("No hay ningún lote de ediciones abierto.");
+        }
+        if (--batchDepth == 0) {
+            deliverChanges();
+        }
     }
 
 
     /**
      * Obtiene el siguiente índice disponible para una nueva observación.
-     * @return El índice más alto actual + 1, o 0 si no hay observaciones.
+     * El contador se mantiene en cada alta, por lo que la consulta es O(1); los índices de
+     * observaciones eliminadas no se reutilizan, ya que también son su ID en la base de datos.
+     * @return El índice más alto asignado hasta ahora + 1, o 0 si no hay observaciones.
      */
     public int getNextObservationIndex() {
-        if (observations.isEmpty()) {
-            return 0;
-        }
-        return Collections.max(observations.keySet()) + 1;
+        return nextObservationIndex;
     }
 
     /**
@@ -166,4 +271,169 @@ public class Dataset {
     public int getVariableCount() {
         return variables.size();
     }
-}
\ No newline at end of file
+
+    /**
+     * Versión actual del dataset; aumenta con cada modificación hecha con sus métodos.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Publica (o reutiliza, si no hubo cambios) una versión inmutable del dataset.
+     * Sólo se reconstruyen los bloques de columna modificados desde la versión anterior;
+     * el resto se comparte con ella. La instantánea se puede leer desde cualquier hilo
+     * mientras el dataset se sigue editando.
+     * @return La instantánea de la versión actual.
+     */
+    public synchronized DatasetSnapshot snapshot() {
+        DatasetSnapshot previous = lastSnapshot;
+        if (previous != null && previous.getVersion() == version && sameStructure(previous)) {
+            return previous;
+        }
+
+        int chunkCount = (nextObservationIndex + DatasetSnapshot.CHUNK_SIZE - 1) / DatasetSnapshot.CHUNK_SIZE;
+        int previousChunks = previous != null ? previous.getChunkCount() : 0;
+
+        long[][] rowPresence = new long[chunkCount][];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            if (chunk < previousChunks && !dirtyRowChunks.get(chunk)) {
+                rowPresence[chunk] = previous.getRowPresence(chunk);
+            } else {
+                rowPresence[chunk] = buildRowPresence(chunk);
+            }
+        }
+
+        List<Variable> variableCopies = new ArrayList<>();
+        DatasetSnapshot.ColumnChunk[][] columns = new DatasetSnapshot.ColumnChunk[variables.size()][];
+        for (int v = 0; v < variables.size(); v++) {
+            Variable var = variables.get(v);
+            variableCopies.add(new Variable(var.getId(), var.getName(), var.getType()));
+            DatasetSnapshot.ColumnChunk[] previousColumn = previous != null ? previous.getColumn(var.getName()) : null;
+            BitSet dirty = dirtyColumnChunks.get(var.getName());
+            DatasetSnapshot.ColumnChunk[] column = new DatasetSnapshot.ColumnChunk[chunkCount];
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                boolean reusable = previousColumn != null && chunk < previousColumn.length
+                        && !dirtyRowChunks.get(chunk) && (dirty == null || !dirty.get(chunk));
+                column[chunk] = reusable ? previousColumn[chunk]
+                        : DatasetSnapshot.ColumnChunk.build(observations, var.getName(), chunk, nextObservationIndex);
+            }
+            columns[v] = column;
+        }
+
+        lastSnapshot = new DatasetSnapshot(id, name, version, variableCopies, columns, rowPresence, observations.size());
+        dirtyColumnChunks.clear();
+        dirtyRowChunks.clear();
+        return lastSnapshot;
+    }
+
+    /**
+     * La última versión publicada con {@link #snapshot()}, sin publicar otra; puede ser
+     * anterior a la versión actual. Null si no se ha publicado ninguna.
+     */
+    public synchronized DatasetSnapshot getPublishedSnapshot() {
+        return lastSnapshot;
+    }
+
+    /**
+     * Memoria aproximada de las observaciones (mapas por fila con valores encapsulados),
+     * contando cada valor como un número; los textos largos ocupan más.
+     */
+    public synchronized long estimateRowStoreBytes() {
+        // Entrada del mapa de observaciones + Integer + Observation + su HashMap
+        final long rowBytes = 32 + 16 + DatasetSnapshot.OBJECT_HEADER_BYTES + 48;
+        // Entrada del HashMap de la fila + Double
+        final long valueBytes = 32 + 24;
+        long bytes = DatasetSnapshot.ARRAY_HEADER_BYTES + (long) observations.size() * 4 / 3 * DatasetSnapshot.REFERENCE_BYTES;
+        for (Observation observation : observations.values()) {
+            int values = observation.getValues().size();
+            int tableCapacity = Math.max(16, Integer.highestOneBit(values * 4 / 3) << 1);
+            bytes += rowBytes + DatasetSnapshot.ARRAY_HEADER_BYTES + (long) tableCapacity * DatasetSnapshot.REFERENCE_BYTES
+                    + values * valueBytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * Descarta la última versión publicada para que la siguiente se reconstruya por completo.
+     * Necesario sólo si se modificaron los mapas u observaciones sin pasar por esta clase.
+     */
+    public synchronized void invalidateSnapshots() {
+        lastSnapshot = null;
+        dirtyColumnChunks.clear();
+        dirtyRowChunks.clear();
+        version++;
+        DatasetChangeBatch changes = changes();
+        if (changes != null) {
+            changes.reset();
+            changesRecorded();
+        }
+    }
+
+    // Lote donde anotar un cambio, o null si nadie escucha (entonces no se anota nada)
+    private DatasetChangeBatch changes() {
+        if (changeListeners.isEmpty()) {
+            return null;
+        }
+        if (pendingChanges == null) {
+            pendingChanges = new DatasetChangeBatch();
+        }
+        return pendingChanges;
+    }
+
+    private void changesRecorded() {
+        if (batchDepth == 0) {
+            deliverChanges();
+        }
+    }
+
+    private void deliverChanges() {
+        DatasetChangeBatch changes = pendingChanges;
+        pendingChanges = null;
+        if (changes == null) {
+            return;
+        }
+        DatasetChangeEvent event = changes.toEvent(this, version, observations);
+        if (event.getChanges().isEmpty()) {
+            return; // Todo se compensó dentro del lote
+        }
+        for (DatasetChangeListener listener : changeListeners) {
+            listener.datasetChanged(event);
+        }
+    }
+
+    // Una baja o alta de fila afecta a la presencia y a todas las columnas de su bloque
+    private void markRowChanged(int obsIndex) {
+        dirtyRowChunks.set(obsIndex / DatasetSnapshot.CHUNK_SIZE);
+        version++;
+    }
+
+    private long[] buildRowPresence(int chunk) {
+        long[] bits = new long[DatasetSnapshot.WORDS_PER_CHUNK];
+        int base = chunk * DatasetSnapshot.CHUNK_SIZE;
+        boolean any = false;
+        for (int offset = 0; offset < DatasetSnapshot.CHUNK_SIZE; offset++) {
+            if (observations.containsKey(base + offset)) {
+                bits[offset >>> 6] |= 1L << offset;
+                any = true;
+            }
+        }
+        return any ? bits : null;
+    }
+
+    // Los tipos o nombres de variables se pueden cambiar directamente sobre Variable
+    private boolean sameStructure(DatasetSnapshot snapshot) {
+        List<Variable> published = snapshot.getVariables();
+        if (published.size() != variables.size() || snapshot.getDatasetId() != id || !Objects.equals(snapshot.getName(), name)) {
+            return false;
+        }
+        for (int i = 0; i < variables.size(); i++) {
+            Variable current = variables.get(i);
+            Variable copy = published.get(i);
+            if (!current.getName().equals(copy.getName()) || !String.valueOf(current.getType()).equals(String.valueOf(copy.getType()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
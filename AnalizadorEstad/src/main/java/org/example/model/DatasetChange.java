@@ -0,0 +1,117 @@
+package org.example.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Un cambio de un {@link Dataset}, dentro de un {@link DatasetChangeEvent}. Según el tipo se
+ * rellenan unos campos u otros; los que no aplican son -1 o null.
+ */
+public final class DatasetChange {
+
+    public enum Type {
+        /** Cambió una celda de una observación que ya existía: índice, variable y valores. */
+        VALUE_CHANGED,
+        /** Se añadió una observación: índice (sus valores se leen del dataset). */
+        OBSERVATION_ADDED,
+        /** Se eliminó una observación: índice y los valores que tenía. */
+        OBSERVATION_REMOVED,
+        /** Se añadió una variable: nombre. */
+        VARIABLE_ADDED,
+        /** Se eliminó una variable y sus valores en todas las observaciones: nombre. */
+        VARIABLE_REMOVED,
+        /** Cambio estructural: todo el estado derivado del dataset debe reconstruirse. */
+        RESET
+    }
+
+    private static final DatasetChange RESET = new DatasetChange(Type.RESET, -1, null, null, null, null);
+
+    private final Type type;
+    private final int obsIndex;
+    private final String variableName;
+    private final Object oldValue;
+    private final Object newValue;
+    private final Map<String, Object> removedValues;
+
+    private DatasetChange(Type type, int obsIndex, String variableName, Object oldValue, Object newValue,
+                          Map<String, Object> removedValues) {
+        this.type = type;
+        this.obsIndex = obsIndex;
+        this.variableName = variableName;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+        this.removedValues = removedValues;
+    }
+
+    static DatasetChange valueChanged(int obsIndex, String variableName, Object oldValue, Object newValue) {
+        return new DatasetChange(Type.VALUE_CHANGED, obsIndex, variableName, oldValue, newValue, null);
+    }
+
+    static DatasetChange observationAdded(int obsIndex) {
+        return new DatasetChange(Type.OBSERVATION_ADDED, obsIndex, null, null, null, null);
+    }
+
+    static DatasetChange observationRemoved(int obsIndex, Map<String, Object> values) {
+        return new DatasetChange(Type.OBSERVATION_REMOVED, obsIndex, null, null, null,
+                Collections.unmodifiableMap(new LinkedHashMap<>(values)));
+    }
+
+    static DatasetChange variableAdded(String variableName) {
+        return new DatasetChange(Type.VARIABLE_ADDED, -1, variableName, null, null, null);
+    }
+
+    static DatasetChange variableRemoved(String variableName) {
+        return new DatasetChange(Type.VARIABLE_REMOVED, -1, variableName, null, null, null);
+    }
+
+    static DatasetChange reset() {
+        return RESET;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getObsIndex() {
+        return obsIndex;
+    }
+
+    public String getVariableName() {
+        return variableName;
+    }
+
+    /**
+     * Valor de la celda antes del cambio (null si estaba vacía).
+     */
+    public Object getOldValue() {
+        return oldValue;
+    }
+
+    public Object getNewValue() {
+        return newValue;
+    }
+
+    /**
+     * Valores de la observación eliminada (no modificable), o null si no es una baja.
+     */
+    public Map<String, Object> getRemovedValues() {
+        return removedValues;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case VALUE_CHANGED:
+                return type + "[" + obsIndex + ", " + variableName + ": " + oldValue + " -> " + newValue + "]";
+            case OBSERVATION_ADDED:
+            case OBSERVATION_REMOVED:
+                return type + "[" + obsIndex + "]";
+            case VARIABLE_ADDED:
+            case VARIABLE_REMOVED:
+                return type + "[" + variableName + "]";
+            default:
+                return type.name();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cambios anotados de un {@link Dataset} que aún no se han entregado, combinados según las
+ * reglas de {@link DatasetChangeEvent}. Sólo lo usa el dataset, con su bloqueo.
+ */
+final class DatasetChangeBatch {
+
+    private boolean reset;
+    private final List<String> addedVariables = new ArrayList<>();
+    private final List<String> removedVariables = new ArrayList<>();
+    private final Map<Integer, RowChanges> rows = new LinkedHashMap<>(); // En orden del primer cambio
+
+    private static final class RowChanges {
+        final boolean existedBefore;
+        boolean exists;
+        boolean originalRemoved; // La observación anterior al lote ya se eliminó
+        final Map<String, Object> oldValues = new LinkedHashMap<>(); // Valores previos de las celdas editadas
+        Map<String, Object> removedValues;
+
+        RowChanges(boolean existedBefore) {
+            this.existedBefore = existedBefore;
+            this.exists = existedBefore;
+        }
+
+        boolean isOriginal() {
+            return existedBefore && !originalRemoved;
+        }
+    }
+
+    void valueChanged(int obsIndex, String variableName, Object oldValue) {
+        if (reset) {
+            return;
+        }
+        RowChanges row = rows.computeIfAbsent(obsIndex, k -> new RowChanges(true));
+        if (row.isOriginal() && !row.oldValues.containsKey(variableName)) {
+            row.oldValues.put(variableName, oldValue);
+        }
+    }
+
+    void observationAdded(int obsIndex) {
+        if (reset) {
+            return;
+        }
+        rows.computeIfAbsent(obsIndex, k -> new RowChanges(false)).exists = true;
+    }
+
+    void observationRemoved(int obsIndex, Observation observation) {
+        if (reset) {
+            return;
+        }
+        RowChanges row = rows.computeIfAbsent(obsIndex, k -> new RowChanges(true));
+        if (row.isOriginal()) {
+            Map<String, Object> values = new HashMap<>(observation.getValues());
+            values.putAll(row.oldValues);
+            values.values().removeIf(Objects::isNull);
+            row.removedValues = values;
+            row.originalRemoved = true;
+            row.oldValues.clear();
+        }
+        row.exists = false;
+    }
+
+    void variableAdded(String variableName) {
+        if (reset) {
+            return;
+        }
+        if (removedVariables.contains(variableName)) {
+            reset(); // Baja y nueva alta en el mismo lote: no hay un orden de entrega correcto
+            return;
+        }
+        addedVariables.add(variableName);
+    }
+
+    void variableRemoved(String variableName) {
+        if (reset) {
+            return;
+        }
+        if (!addedVariables.remove(variableName)) {
+            removedVariables.add(variableName);
+        }
+    }
+
+    void reset() {
+        reset = true;
+        addedVariables.clear();
+        removedVariables.clear();
+        rows.clear();
+    }
+
+    /**
+     * @param observations Las observaciones actuales, para los valores nuevos.
+     */
+    DatasetChangeEvent toEvent(Dataset dataset, long version, Map<Integer, Observation> observations) {
+        List<DatasetChange> changes = new ArrayList<>();
+        if (reset) {
+            changes.add(DatasetChange.reset());
+            return new DatasetChangeEvent(dataset, version, changes);
+        }
+        for (String variableName : addedVariables) {
+            changes.add(DatasetChange.variableAdded(variableName));
+        }
+        for (Map.Entry<Integer, RowChanges> entry : rows.entrySet()) {
+            int obsIndex = entry.getKey();
+            RowChanges row = entry.getValue();
+            if (row.originalRemoved) {
+                changes.add(DatasetChange.observationRemoved(obsIndex, row.removedValues));
+                if (row.exists) {
+                    changes.add(DatasetChange.observationAdded(obsIndex));
+                }
+            } else if (row.existedBefore) {
+                Observation current = observations.get(obsIndex);
+                for (Map.Entry<String, Object> cell : row.oldValues.entrySet()) {
+                    Object newValue = current != null ? current.getValue(cell.getKey()) : null;
+                    if (!Objects.equals(cell.getValue(), newValue)) {
+                        changes.add(DatasetChange.valueChanged(obsIndex, cell.getKey(), cell.getValue(), newValue));
+                    }
+                }
+            } else if (row.exists) {
+                changes.add(DatasetChange.observationAdded(obsIndex));
+            }
+        }
+        for (String variableName : removedVariables) {
+            changes.add(DatasetChange.variableRemoved(variableName));
+        }
+        return new DatasetChangeEvent(dataset, version, changes);
+    }
+}
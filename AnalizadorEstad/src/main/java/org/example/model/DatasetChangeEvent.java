@@ -0,0 +1,78 @@
+package org.example.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cambios de un {@link Dataset} entregados juntos: uno solo por cada edición fuera de un
+ * lote, o los de todo un lote ({@link Dataset#beginBatch()}) ya combinados. Al combinar:
+ * <ul>
+ *   <li>varias ediciones de la misma celda quedan en un {@code VALUE_CHANGED} con el valor
+ *       anterior al lote y el final, y desaparecen si la celda vuelve a su valor;</li>
+ *   <li>las ediciones de una observación añadida en el lote quedan dentro de su alta, y una
+ *       observación añadida y eliminada en el lote no aparece;</li>
+ *   <li>una observación existente eliminada en el lote aparece como baja con los valores que
+ *       tenía antes del lote, sin sus ediciones;</li>
+ *   <li>un {@code RESET} sustituye a todos los demás cambios.</li>
+ * </ul>
+ * Las altas de variables van primero y las bajas al final. Los cambios describen el paso del
+ * estado anterior al lote al estado actual, que los receptores pueden leer del dataset.
+ */
+public final class DatasetChangeEvent {
+
+    private final Dataset dataset;
+    private final long version;
+    private final List<DatasetChange> changes;
+
+    DatasetChangeEvent(Dataset dataset, long version, List<DatasetChange> changes) {
+        this.dataset = dataset;
+        this.version = version;
+        this.changes = Collections.unmodifiableList(changes);
+    }
+
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Versión del dataset ({@link Dataset#getVersion()}) tras los cambios.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<DatasetChange> getChanges() {
+        return changes;
+    }
+
+    public boolean isReset() {
+        return changes.size() == 1 && changes.get(0).getType() == DatasetChange.Type.RESET;
+    }
+
+    /**
+     * Indica si algún cambio puede afectar a un cálculo que lee esas variables: un reset,
+     * un alta o baja de observación, o un cambio de celda, alta o baja de una de ellas.
+     */
+    public boolean affects(Collection<String> variableNames) {
+        for (DatasetChange change : changes) {
+            switch (change.getType()) {
+                case VALUE_CHANGED:
+                case VARIABLE_ADDED:
+                case VARIABLE_REMOVED:
+                    if (variableNames.contains(change.getVariableName())) {
+                        return true;
+                    }
+                    break;
+                default:
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "DatasetChangeEvent[" + dataset.getName() + ", versión " + version + ", " + changes + "]";
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.model;
+
+/**
+ * Recibe los cambios hechos sobre un {@link Dataset} con sus métodos. Se llama de forma
+ * síncrona desde el hilo que edita, al terminar cada edición o cada lote, y con el dataset
+ * bloqueado: debe ser rápido (proporcional al evento) y no esperar a otros hilos que también
+ * lo bloqueen. Durante la llamada el dataset ya refleja los cambios.
+ */
+public interface DatasetChangeListener {
+
+    void datasetChanged(DatasetChangeEvent event);
+}
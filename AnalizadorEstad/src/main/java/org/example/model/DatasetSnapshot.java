@@ -0,0 +1,366 @@
+package org.example.model;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Versión inmutable de un {@link Dataset}, almacenada por columnas.
+ *
+ * Las filas se agrupan en bloques ("chunks") de {@link #CHUNK_SIZE} índices de observación
+ * consecutivos: el bloque c contiene los índices [c * CHUNK_SIZE, (c + 1) * CHUNK_SIZE).
+ * Cada columna es un arreglo de {@link ColumnChunk}, y un mapa de bits por bloque indica qué
+ * índices existen. Al publicar una versión nueva, el Dataset reutiliza los bloques que no
+ * han cambiado (copy-on-write por bloque de columna), de modo que una edición cuesta un
+ * bloque y no una copia completa.
+ *
+ * Un análisis fija la versión sobre la que empieza simplemente conservando la referencia;
+ * las versiones antiguas y los bloques que sólo ellas usan los recupera el recolector de
+ * basura cuando ningún análisis las referencia.
+ */
+public final class DatasetSnapshot {
+
+    public static final int CHUNK_SIZE = 4096;
+    static final int WORDS_PER_CHUNK = CHUNK_SIZE / Long.SIZE;
+
+    // Tamaños aproximados de una JVM de 64 bits con referencias comprimidas
+    static final int OBJECT_HEADER_BYTES = 16;
+    static final int ARRAY_HEADER_BYTES = 16;
+    static final int REFERENCE_BYTES = 4;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final AtomicInteger LIVE_SNAPSHOTS = new AtomicInteger();
+
+    private final int datasetId;
+    private final String name;
+    private final long version;
+    private final List<Variable> variables;
+    private final Map<String, Integer> columnIndexes;
+    private final ColumnChunk[][] columns; // [variable][chunk]
+    private final long[][] rowPresence;   // [chunk][word]; null si el bloque no tiene filas
+    private final int rowCount;
+    private final Map<String, Object> derivedResults = new ConcurrentHashMap<>();
+
+    DatasetSnapshot(int datasetId, String name, long version, List<Variable> variables,
+                    ColumnChunk[][] columns, long[][] rowPresence, int rowCount) {
+        this.datasetId = datasetId;
+        this.name = name;
+        this.version = version;
+        this.variables = Collections.unmodifiableList(variables);
+        this.columnIndexes = new HashMap<>();
+        for (int i = 0; i < variables.size(); i++) {
+            columnIndexes.put(variables.get(i).getName(), i);
+        }
+        this.columns = columns;
+        this.rowPresence = rowPresence;
+        this.rowCount = rowCount;
+        LIVE_SNAPSHOTS.incrementAndGet();
+        CLEANER.register(this, LIVE_SNAPSHOTS::decrementAndGet);
+    }
+
+    /**
+     * Número de versiones publicadas que siguen vivas (referenciadas por el dataset o por
+     * algún análisis en curso) en todo el proceso.
+     */
+    public static int getLiveSnapshotCount() {
+        return LIVE_SNAPSHOTS.get();
+    }
+
+    public int getDatasetId() {
+        return datasetId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Versión del dataset en el momento de publicar esta instantánea.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Copias de las variables; modificarlas no afecta a la instantánea ni al dataset.
+     */
+    public List<Variable> getVariables() {
+        return variables;
+    }
+
+    public Variable getVariableByName(String variableName) {
+        Integer index = columnIndexes.get(variableName);
+        return index != null ? variables.get(index) : null;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getChunkCount() {
+        return rowPresence.length;
+    }
+
+    /**
+     * Mapa de bits de las observaciones existentes en un bloque (bit i = índice
+     * {@code chunk * CHUNK_SIZE + i}). Devuelve null si el bloque está vacío.
+     * El arreglo es compartido: no debe modificarse.
+     */
+    public long[] getRowPresence(int chunk) {
+        return rowPresence[chunk];
+    }
+
+    /**
+     * Bloques de la columna de una variable, o null si la variable no existe.
+     */
+    public ColumnChunk[] getColumn(String variableName) {
+        Integer index = columnIndexes.get(variableName);
+        return index != null ? columns[index] : null;
+    }
+
+    /**
+     * Obtiene el valor de una celda.
+     * @return El valor si existe, null de lo contrario.
+     */
+    public Object getValue(int obsIndex, String variableName) {
+        ColumnChunk[] column = getColumn(variableName);
+        int chunk = obsIndex / CHUNK_SIZE;
+        if (column == null || obsIndex < 0 || chunk >= column.length || !isPresent(obsIndex)) {
+            return null;
+        }
+        return column[chunk].getValue(obsIndex % CHUNK_SIZE);
+    }
+
+    public boolean isPresent(int obsIndex) {
+        int chunk = obsIndex / CHUNK_SIZE;
+        if (obsIndex < 0 || chunk >= rowPresence.length || rowPresence[chunk] == null) {
+            return false;
+        }
+        int offset = obsIndex % CHUNK_SIZE;
+        return (rowPresence[chunk][offset >>> 6] & (1L << offset)) != 0;
+    }
+
+    /**
+     * Devuelve un resultado derivado de esta versión (p. ej. la selección de un filtro),
+     * calculándolo sólo la primera vez que se pide con esa clave. Como la instantánea es
+     * inmutable, el resultado sigue siendo válido mientras viva y se libera con ella.
+     * Dos hilos pueden llegar a calcular la misma clave a la vez; se conserva el primero.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(String key, Supplier<T> computation) {
+        Object cached = derivedResults.get(key);
+        if (cached == null) {
+            Object computed = computation.get();
+            cached = derivedResults.putIfAbsent(key, computed);
+            if (cached == null) {
+                cached = computed;
+            }
+        }
+        return (T) cached;
+    }
+
+    /**
+     * Memoria aproximada de los bloques de esta versión y de sus mapas de filas. Los bloques
+     * compartidos con otras versiones se cuentan en cada una de ellas.
+     */
+    public long estimateMemoryBytes() {
+        return computeIfAbsent("memoria", () -> {
+            long bytes = ARRAY_HEADER_BYTES + (long) rowPresence.length * REFERENCE_BYTES;
+            for (long[] presence : rowPresence) {
+                if (presence != null) {
+                    bytes += ARRAY_HEADER_BYTES + (long) presence.length * Long.BYTES;
+                }
+            }
+            for (ColumnChunk[] column : columns) {
+                bytes += ARRAY_HEADER_BYTES + (long) column.length * REFERENCE_BYTES;
+                for (ColumnChunk chunk : column) {
+                    bytes += chunk.estimateMemoryBytes();
+                }
+            }
+            return bytes;
+        });
+    }
+
+    /**
+     * Crea una instantánea derivada con una columna adicional (p. ej. un término de
+     * interacción calculado para un análisis). El resto de columnas se comparte; el dataset
+     * de origen no se modifica.
+     */
+    public DatasetSnapshot withColumn(Variable variable, ColumnChunk[] chunks) {
+        if (chunks.length != rowPresence.length) {
+            throw new IllegalArgumentException("La columna derivada debe tener " + rowPresence.length + " bloques.");
+        }
+        List<Variable> derivedVariables = new ArrayList<>(variables);
+        ColumnChunk[][] derivedColumns;
+        Integer existing = columnIndexes.get(variable.getName());
+        Variable copy = new Variable(variable.getId(), variable.getName(), variable.getType());
+        if (existing != null) {
+            derivedVariables.set(existing, copy);
+            derivedColumns = columns.clone();
+            derivedColumns[existing] = chunks;
+        } else {
+            derivedVariables.add(copy);
+            derivedColumns = new ColumnChunk[columns.length + 1][];
+            System.arraycopy(columns, 0, derivedColumns, 0, columns.length);
+            derivedColumns[columns.length] = chunks;
+        }
+        return new DatasetSnapshot(datasetId, name, version, derivedVariables, derivedColumns, rowPresence, rowCount);
+    }
+
+    /**
+     * Un bloque inmutable de una columna. Los valores numéricos se guardan como primitivos
+     * con un mapa de bits de validez; los no numéricos (texto, booleanos) sólo se guardan
+     * si el bloque contiene alguno. Los arreglos de valores sólo llegan hasta la última
+     * palabra del mapa con filas, así que el bloque final de un dataset pequeño, o uno sin
+     * números, no reserva los {@link #CHUNK_SIZE} valores.
+     */
+    public static final class ColumnChunk {
+        private static final double[] NO_NUMBERS = new double[0];
+
+        private final double[] numbers;
+        private final long[] numericMask;
+        private final Object[] otherValues; // null si el bloque sólo tiene números o vacíos
+        private long contentHash;           // calculado la primera vez que se pide
+        private volatile boolean contentHashed;
+
+        public ColumnChunk(double[] numbers, long[] numericMask, Object[] otherValues) {
+            this.numbers = numbers;
+            this.numericMask = numericMask;
+            this.otherValues = otherValues;
+        }
+
+        /**
+         * Crea un bloque numérico a partir de valores y su mapa de validez.
+         */
+        public static ColumnChunk numeric(double[] numbers, long[] numericMask) {
+            return new ColumnChunk(numbers, numericMask, null);
+        }
+
+        /**
+         * @param rowLimit Índice de observación a partir del cual no hay filas (el siguiente
+         *                 que asignará el dataset).
+         */
+        static ColumnChunk build(Map<Integer, Observation> observations, String variableName, int chunk, int rowLimit) {
+            int base = chunk * CHUNK_SIZE;
+            int limit = Math.min(CHUNK_SIZE, rowLimit - base);
+            int capacity = (limit + Long.SIZE - 1) & -Long.SIZE; // Palabras completas, para los bucles por palabra
+            double[] numbers = NO_NUMBERS;
+            long[] mask = new long[WORDS_PER_CHUNK];
+            Object[] others = null;
+            for (int offset = 0; offset < limit; offset++) {
+                Observation obs = observations.get(base + offset);
+                if (obs == null) {
+                    continue;
+                }
+                Object value = obs.getValue(variableName);
+                if (value instanceof Number) {
+                    if (numbers == NO_NUMBERS) {
+                        numbers = new double[capacity];
+                    }
+                    numbers[offset] = ((Number) value).doubleValue();
+                    mask[offset >>> 6] |= 1L << offset;
+                } else if (value != null) {
+                    if (others == null) {
+                        others = new Object[capacity];
+                    }
+                    others[offset] = value;
+                }
+            }
+            return new ColumnChunk(numbers, mask, others);
+        }
+
+        public boolean isNumeric(int offset) {
+            return (numericMask[offset >>> 6] & (1L << offset)) != 0;
+        }
+
+        public double getDouble(int offset) {
+            return numbers[offset];
+        }
+
+        public Object getValue(int offset) {
+            if (isNumeric(offset)) {
+                return numbers[offset];
+            }
+            return otherValues != null && offset < otherValues.length ? otherValues[offset] : null;
+        }
+
+        /**
+         * Huella de 64 bits del contenido del bloque: dos bloques con los mismos valores en
+         * las mismas posiciones tienen la misma huella. Como el bloque es inmutable y las
+         * versiones nuevas reutilizan los bloques sin cambios, sólo se recorre una vez por
+         * bloque modificado.
+         */
+        public long contentHash() {
+            if (!contentHashed) {
+                long hash = 0x6A09E667F3BCC909L;
+                for (int word = 0; word < numericMask.length; word++) {
+                    long bits = numericMask[word];
+                    hash = mix(hash, bits);
+                    while (bits != 0) {
+                        int offset = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        hash = mix(hash, Double.doubleToLongBits(numbers[offset]));
+                        bits &= bits - 1;
+                    }
+                }
+                if (otherValues != null) {
+                    for (int offset = 0; offset < otherValues.length; offset++) {
+                        if (otherValues[offset] != null) {
+                            hash = mix(hash, ((long) offset << 32) ^ otherValues[offset].hashCode());
+                        }
+                    }
+                }
+                contentHash = hash;
+                contentHashed = true; // Dos hilos pueden calcularla a la vez; el resultado es el mismo
+            }
+            return contentHash;
+        }
+
+        /**
+         * Memoria aproximada del bloque, con los textos que guarda.
+         */
+        public long estimateMemoryBytes() {
+            long bytes = OBJECT_HEADER_BYTES + 3L * REFERENCE_BYTES + Long.BYTES
+                    + ARRAY_HEADER_BYTES + (long) numbers.length * Double.BYTES
+                    + ARRAY_HEADER_BYTES + (long) numericMask.length * Long.BYTES;
+            if (otherValues != null) {
+                bytes += ARRAY_HEADER_BYTES + (long) otherValues.length * REFERENCE_BYTES;
+                for (Object value : otherValues) {
+                    if (value instanceof String) {
+                        bytes += OBJECT_HEADER_BYTES + ARRAY_HEADER_BYTES + ((String) value).length();
+                    } else if (value != null) {
+                        bytes += OBJECT_HEADER_BYTES;
+                    }
+                }
+            }
+            return bytes;
+        }
+
+        private static long mix(long hash, long value) {
+            hash ^= value * 0x9E3779B97F4A7C15L;
+            return Long.rotateLeft(hash, 31) * 0xBF58476D1CE4E5B9L;
+        }
+
+        /**
+         * Valores numéricos del bloque (sin significado donde el bit de validez es 0). Puede
+         * ser más corto que {@link #CHUNK_SIZE}, pero cubre todas las palabras del mapa de
+         * validez con algún bit. El arreglo es compartido: no debe modificarse.
+         */
+        public double[] getNumbers() {
+            return numbers;
+        }
+
+        /**
+         * Mapa de bits de las celdas con valor numérico. El arreglo es compartido: no debe
+         * modificarse.
+         */
+        public long[] getNumericMask() {
+            return numericMask;
+        }
+    }
+}
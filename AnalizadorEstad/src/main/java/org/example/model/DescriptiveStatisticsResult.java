@@ -0,0 +1,154 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado inmutable de los estadísticos descriptivos de varias variables numéricas: por
+ * variable, el número de valores, los faltantes, la media, la varianza, la asimetría, la
+ * curtosis, el mínimo y el máximo, y para cada par las matrices de covarianzas y de
+ * correlaciones de Pearson.
+ *
+ * Cada variable usa todas sus celdas con valor dentro de las filas seleccionadas, y cada par
+ * las filas en que ambas tienen valor (eliminación por pares), así que las matrices no tienen
+ * por qué ser semidefinidas positivas cuando hay valores faltantes. Las matrices se guardan
+ * completas (variables x variables, por filas).
+ */
+public final class DescriptiveStatisticsResult {
+
+    private final List<String> variableNames;
+    private final long selectedRows;
+    private final long[] counts;
+    private final double[] means;
+    private final double[] variances;
+    private final double[] skewness;
+    private final double[] kurtosis;
+    private final double[] minimums;
+    private final double[] maximums;
+    private final long[] pairCounts;
+    private final double[] covariances;
+    private final double[] correlations;
+
+    public DescriptiveStatisticsResult(List<String> variableNames, long selectedRows, long[] counts, double[] means,
+                                       double[] variances, double[] skewness, double[] kurtosis,
+                                       double[] minimums, double[] maximums,
+                                       long[] pairCounts, double[] covariances, double[] correlations) {
+        int k = variableNames.size();
+        if (counts.length != k || means.length != k || variances.length != k || skewness.length != k
+                || kurtosis.length != k || minimums.length != k || maximums.length != k) {
+            throw new IllegalArgumentException("Los estadísticos por variable no tienen " + k + " elementos.");
+        }
+        if (pairCounts.length != k * k || covariances.length != k * k || correlations.length != k * k) {
+            throw new IllegalArgumentException("Las matrices deben ser de " + k + " x " + k + ".");
+        }
+        this.variableNames = Collections.unmodifiableList(new ArrayList<>(variableNames));
+        this.selectedRows = selectedRows;
+        this.counts = counts.clone();
+        this.means = means.clone();
+        this.variances = variances.clone();
+        this.skewness = skewness.clone();
+        this.kurtosis = kurtosis.clone();
+        this.minimums = minimums.clone();
+        this.maximums = maximums.clone();
+        this.pairCounts = pairCounts.clone();
+        this.covariances = covariances.clone();
+        this.correlations = correlations.clone();
+    }
+
+    public int getVariableCount() {
+        return variableNames.size();
+    }
+
+    public List<String> getVariableNames() {
+        return variableNames;
+    }
+
+    public String getVariableName(int i) {
+        return variableNames.get(i);
+    }
+
+    /**
+     * @return La posición de la variable, o -1 si no está en el resultado.
+     */
+    public int indexOf(String variableName) {
+        return variableNames.indexOf(variableName);
+    }
+
+    /**
+     * Filas que entraron en el cálculo (la selección o todas las del dataset).
+     */
+    public long getSelectedRows() {
+        return selectedRows;
+    }
+
+    /**
+     * Número de filas seleccionadas con valor numérico en la variable.
+     */
+    public long getCount(int i) {
+        return counts[i];
+    }
+
+    public long getMissing(int i) {
+        return selectedRows - counts[i];
+    }
+
+    public double getMean(int i) {
+        return means[i];
+    }
+
+    /**
+     * Varianza muestral (denominador n - 1).
+     */
+    public double getVariance(int i) {
+        return variances[i];
+    }
+
+    public double getStandardDeviation(int i) {
+        return Math.sqrt(variances[i]);
+    }
+
+    /**
+     * Asimetría muestral ajustada (la misma definición que usa Apache Commons Math).
+     */
+    public double getSkewness(int i) {
+        return skewness[i];
+    }
+
+    /**
+     * Exceso de curtosis muestral ajustado (la misma definición que usa Apache Commons Math).
+     */
+    public double getKurtosis(int i) {
+        return kurtosis[i];
+    }
+
+    public double getMin(int i) {
+        return minimums[i];
+    }
+
+    public double getMax(int i) {
+        return maximums[i];
+    }
+
+    /**
+     * Número de filas con valor en ambas variables; en la diagonal, el de la variable.
+     */
+    public long getPairCount(int i, int j) {
+        return pairCounts[i * variableNames.size() + j];
+    }
+
+    /**
+     * Covarianza muestral sobre las filas del par (NaN con menos de dos filas).
+     */
+    public double getCovariance(int i, int j) {
+        return covariances[i * variableNames.size() + j];
+    }
+
+    /**
+     * Correlación de Pearson sobre las filas del par (NaN con menos de dos filas o si alguna
+     * de las dos variables es constante en ellas).
+     */
+    public double getCorrelation(int i, int j) {
+        return correlations[i * variableNames.size() + j];
+    }
+}
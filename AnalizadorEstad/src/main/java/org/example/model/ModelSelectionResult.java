@@ -0,0 +1,76 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado inmutable de una selección de variables: los predictores elegidos, el valor del
+ * criterio, los pasos seguidos y la regresión del modelo final.
+ */
+public final class ModelSelectionResult {
+
+    private final String method;
+    private final String criterion;
+    private final List<String> selectedVariables;
+    private final double criterionValue;
+    private final List<String> steps;
+    private final long modelsEvaluated;
+    private final RegressionResult regression;
+
+    /**
+     * @param regression Regresión con los predictores elegidos, o null si no se eligió ninguno.
+     */
+    public ModelSelectionResult(String method, String criterion, List<String> selectedVariables, double criterionValue,
+                                List<String> steps, long modelsEvaluated, RegressionResult regression) {
+        this.method = method;
+        this.criterion = criterion;
+        this.selectedVariables = Collections.unmodifiableList(new ArrayList<>(selectedVariables));
+        this.criterionValue = criterionValue;
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        this.modelsEvaluated = modelsEvaluated;
+        this.regression = regression;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getCriterion() {
+        return criterion;
+    }
+
+    public List<String> getSelectedVariables() {
+        return selectedVariables;
+    }
+
+    public double getCriterionValue() {
+        return criterionValue;
+    }
+
+    /**
+     * Descripción de cada paso (p. ej. "+ edad" o "- peso"), en orden.
+     */
+    public List<String> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Número de modelos candidatos cuyo criterio se calculó.
+     */
+    public long getModelsEvaluated() {
+        return modelsEvaluated;
+    }
+
+    public RegressionResult getRegression() {
+        return regression;
+    }
+
+    /**
+     * Copia del resultado con otra regresión del mismo modelo (p. ej. con el tratamiento de
+     * los valores faltantes anotado).
+     */
+    public ModelSelectionResult withRegression(RegressionResult regression) {
+        return new ModelSelectionResult(method, criterion, selectedVariables, criterionValue, steps, modelsEvaluated, regression);
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Especificación de un modelo de regresión lineal con intercepto: una variable dependiente y
+ * sus variables independientes. Inmutable.
+ */
+public final class ModelSpec {
+
+    private final String dependentVariableName;
+    private final List<String> independentVariableNames;
+
+    public ModelSpec(String dependentVariableName, List<String> independentVariableNames) {
+        if (dependentVariableName == null || independentVariableNames == null || independentVariableNames.isEmpty()) {
+            throw new IllegalArgumentException("Un modelo necesita una variable dependiente y al menos una independiente.");
+        }
+        this.dependentVariableName = dependentVariableName;
+        this.independentVariableNames = Collections.unmodifiableList(new ArrayList<>(independentVariableNames));
+    }
+
+    public String getDependentVariableName() {
+        return dependentVariableName;
+    }
+
+    public List<String> getIndependentVariableNames() {
+        return independentVariableNames;
+    }
+
+    @Override
+    public String toString() {
+        return dependentVariableName + " ~ " + String.join(" + ", independentVariableNames);
+    }
+}
@@ -0,0 +1,426 @@
+package org.example.model;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado inmutable de una regresión lineal múltiple con intercepto.
+ *
+ * Los coeficientes y sus estadísticos se guardan en arreglos primitivos, en el orden
+ * intercepto, X1, ..., Xk. La matriz de covarianzas de los coeficientes, sus errores
+ * estándar, estadísticos t, p-valores e intervalos de confianza se derivan de (X'X)^-1, que
+ * ya se obtiene al resolver el modelo. Los p-valores e intervalos se calculan al pedirlos: la
+ * selección de modelos y los lotes crean muchos resultados cuyos p-valores nadie lee.
+ * Opcionalmente lleva además las covarianzas robustas HC0–HC3. {@link #toMap()} ofrece la
+ * vista de mapa con las claves de siempre para el código que aún la usa.
+ */
+public final class RegressionResult {
+
+    private final String dependentVariableName;
+    private final String[] coefficientNames;
+    private final double[] coefficients;
+    private final double[] unscaledCovariance;    // (X'X)^-1, p x p, por filas
+    private final double[] coefficientCovariance; // sigma² (X'X)^-1
+    private final double[] standardErrors;
+    private final double[] tStatistics;
+    private final double residualSumOfSquares;
+    private final double regressionSumOfSquares;
+    private final double totalSumOfSquares;
+    private final long numObservations;
+    // Se crea al pedir el primer p-valor o intervalo; null si no quedan grados de libertad
+    private transient volatile TDistribution tDistribution;
+
+    // Covarianzas robustas [tipo][p x p], o null si no se calcularon
+    private final double[][] robustCovariances;
+
+    // Tratamiento de datos faltantes; null / 0 / -1 cuando no se aplicó
+    private final String missingDataPolicy;
+    private final int rowsDropped;
+    private final int valuesImputed;
+
+    /**
+     * @param coefficientNames Nombres de los coeficientes, empezando por el intercepto.
+     * @param coefficients Coeficientes estimados, en el mismo orden.
+     * @param unscaledCovariance (X'X)^-1 con la columna del intercepto (p x p, por filas); la
+     *                           covarianza de los coeficientes es sigma² por esta matriz.
+     * @param residualSumOfSquares SSE.
+     * @param regressionSumOfSquares SSR.
+     * @param totalSumOfSquares SST.
+     * @param numObservations Observaciones usadas en el ajuste.
+     */
+    public RegressionResult(String dependentVariableName, String[] coefficientNames, double[] coefficients,
+                            double[] unscaledCovariance, double residualSumOfSquares, double regressionSumOfSquares,
+                            double totalSumOfSquares, long numObservations) {
+        int p = coefficients.length;
+        if (coefficientNames.length != p || unscaledCovariance.length != p * p) {
+            throw new IllegalArgumentException("Las dimensiones de los coeficientes y su matriz de covarianzas no coinciden.");
+        }
+        this.dependentVariableName = dependentVariableName;
+        this.coefficientNames = coefficientNames.clone();
+        this.coefficients = coefficients.clone();
+        this.unscaledCovariance = unscaledCovariance.clone();
+        double residualVariance = residualSumOfSquares / (numObservations - p);
+        this.coefficientCovariance = new double[p * p];
+        for (int i = 0; i < coefficientCovariance.length; i++) {
+            coefficientCovariance[i] = residualVariance * unscaledCovariance[i];
+        }
+        this.residualSumOfSquares = residualSumOfSquares;
+        this.regressionSumOfSquares = regressionSumOfSquares;
+        this.totalSumOfSquares = totalSumOfSquares;
+        this.numObservations = numObservations;
+        this.missingDataPolicy = null;
+        this.rowsDropped = 0;
+        this.valuesImputed = -1;
+        this.robustCovariances = null;
+
+        this.standardErrors = new double[p];
+        this.tStatistics = new double[p];
+        for (int i = 0; i < p; i++) {
+            standardErrors[i] = Math.sqrt(coefficientCovariance[i * p + i]);
+            tStatistics[i] = coefficients[i] / standardErrors[i];
+        }
+    }
+
+    private RegressionResult(RegressionResult base, String missingDataPolicy, int rowsDropped, int valuesImputed,
+                             double[][] robustCovariances) {
+        this.dependentVariableName = base.dependentVariableName;
+        this.coefficientNames = base.coefficientNames;
+        this.coefficients = base.coefficients;
+        this.unscaledCovariance = base.unscaledCovariance;
+        this.coefficientCovariance = base.coefficientCovariance;
+        this.standardErrors = base.standardErrors;
+        this.tStatistics = base.tStatistics;
+        this.residualSumOfSquares = base.residualSumOfSquares;
+        this.regressionSumOfSquares = base.regressionSumOfSquares;
+        this.totalSumOfSquares = base.totalSumOfSquares;
+        this.numObservations = base.numObservations;
+        this.tDistribution = base.tDistribution;
+        this.missingDataPolicy = missingDataPolicy;
+        this.rowsDropped = rowsDropped;
+        this.valuesImputed = valuesImputed;
+        this.robustCovariances = robustCovariances;
+    }
+
+    /**
+     * Copia del resultado que anota cómo se trataron los datos faltantes. Comparte los
+     * arreglos con el original.
+     * @param valuesImputed Valores imputados, o -1 si la política no imputa.
+     */
+    public RegressionResult withMissingDataHandling(String missingDataPolicy, int rowsDropped, int valuesImputed) {
+        return new RegressionResult(this, missingDataPolicy, rowsDropped, valuesImputed, robustCovariances);
+    }
+
+    /**
+     * Copia del resultado con las covarianzas robustas de cada {@link RobustCovarianceType}.
+     * @param robustCovariances Una matriz p x p (por filas) por tipo, en el orden del enum.
+     */
+    public RegressionResult withRobustCovariances(double[][] robustCovariances) {
+        int p = coefficients.length;
+        if (robustCovariances.length != RobustCovarianceType.values().length) {
+            throw new IllegalArgumentException("Se esperaba una matriz de covarianzas por tipo HC0–HC3.");
+        }
+        double[][] copies = new double[robustCovariances.length][];
+        for (int type = 0; type < copies.length; type++) {
+            if (robustCovariances[type].length != p * p) {
+                throw new IllegalArgumentException("Las dimensiones de la matriz de covarianzas robusta no coinciden.");
+            }
+            copies[type] = robustCovariances[type].clone();
+        }
+        return new RegressionResult(this, missingDataPolicy, rowsDropped, valuesImputed, copies);
+    }
+
+    public String getDependentVariableName() {
+        return dependentVariableName;
+    }
+
+    /**
+     * Número de coeficientes, incluido el intercepto.
+     */
+    public int getCoefficientCount() {
+        return coefficients.length;
+    }
+
+    public String getCoefficientName(int index) {
+        return coefficientNames[index];
+    }
+
+    public List<String> getCoefficientNames() {
+        return Collections.unmodifiableList(Arrays.asList(coefficientNames));
+    }
+
+    /**
+     * Posición de un coeficiente por nombre (0 es el intercepto), o -1 si no existe.
+     */
+    public int indexOf(String coefficientName) {
+        for (int i = 0; i < coefficientNames.length; i++) {
+            if (coefficientNames[i].equals(coefficientName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public double getCoefficient(int index) {
+        return coefficients[index];
+    }
+
+    /**
+     * Coeficiente de una variable independiente por nombre.
+     * @throws IllegalArgumentException si la variable no forma parte del modelo.
+     */
+    public double getCoefficient(String coefficientName) {
+        int index = indexOf(coefficientName);
+        if (index < 0) {
+            throw new IllegalArgumentException("La variable '" + coefficientName + "' no forma parte del modelo.");
+        }
+        return coefficients[index];
+    }
+
+    public double getIntercept() {
+        return coefficients[0];
+    }
+
+    public double getStandardError(int index) {
+        return standardErrors[index];
+    }
+
+    public double getTStatistic(int index) {
+        return tStatistics[index];
+    }
+
+    public double getPValue(int index) {
+        return twoSidedPValue(tStatistics[index]);
+    }
+
+    /**
+     * Covarianza estimada entre los coeficientes i y j.
+     */
+    public double getCoefficientCovariance(int i, int j) {
+        return coefficientCovariance[i * coefficients.length + j];
+    }
+
+    /**
+     * Elemento (i, j) de (X'X)^-1, la covarianza de los coeficientes sin multiplicar por sigma².
+     */
+    public double getUnscaledCovariance(int i, int j) {
+        return unscaledCovariance[i * coefficients.length + j];
+    }
+
+    /**
+     * Intervalo de confianza de un coeficiente, basado en la distribución t con n - p grados
+     * de libertad.
+     * @param level Nivel de confianza, p. ej. 0.95.
+     * @return {límite inferior, límite superior}.
+     */
+    public double[] getConfidenceInterval(int index, double level) {
+        return confidenceInterval(coefficients[index], standardErrors[index], level);
+    }
+
+    public boolean hasRobustCovariances() {
+        return robustCovariances != null;
+    }
+
+    /**
+     * Covarianza robusta entre los coeficientes i y j.
+     * @throws IllegalStateException si no se calcularon las covarianzas robustas.
+     */
+    public double getRobustCovariance(RobustCovarianceType type, int i, int j) {
+        return robustCovariance(type)[i * coefficients.length + j];
+    }
+
+    public double getRobustStandardError(RobustCovarianceType type, int index) {
+        return Math.sqrt(robustCovariance(type)[index * coefficients.length + index]);
+    }
+
+    public double getRobustTStatistic(RobustCovarianceType type, int index) {
+        return coefficients[index] / getRobustStandardError(type, index);
+    }
+
+    public double getRobustPValue(RobustCovarianceType type, int index) {
+        return twoSidedPValue(getRobustTStatistic(type, index));
+    }
+
+    /**
+     * Intervalo de confianza de un coeficiente con el error estándar robusto indicado.
+     * @return {límite inferior, límite superior}.
+     */
+    public double[] getRobustConfidenceInterval(RobustCovarianceType type, int index, double level) {
+        return confidenceInterval(coefficients[index], getRobustStandardError(type, index), level);
+    }
+
+    private double[] robustCovariance(RobustCovarianceType type) {
+        if (robustCovariances == null) {
+            throw new IllegalStateException("No se calcularon los errores estándar robustos para este resultado.");
+        }
+        return robustCovariances[type.ordinal()];
+    }
+
+    private static TDistribution createTDistribution(long degreesOfFreedom) {
+        // Sin generador aleatorio: sólo se usan la CDF y su inversa, y así no se crea uno por resultado
+        return degreesOfFreedom > 0 ? new TDistribution(null, degreesOfFreedom) : null;
+    }
+
+    private TDistribution tDistribution() {
+        TDistribution distribution = tDistribution;
+        if (distribution == null && numObservations > coefficients.length) {
+            distribution = createTDistribution(numObservations - coefficients.length);
+            tDistribution = distribution;
+        }
+        return distribution;
+    }
+
+    private double twoSidedPValue(double tStatistic) {
+        TDistribution tDistribution = tDistribution();
+        return tDistribution != null && !Double.isNaN(tStatistic)
+                ? 2.0 * tDistribution.cumulativeProbability(-Math.abs(tStatistic))
+                : Double.NaN;
+    }
+
+    private double[] confidenceInterval(double estimate, double standardError, double level) {
+        if (level <= 0.0 || level >= 1.0) {
+            throw new IllegalArgumentException("El nivel de confianza debe estar entre 0 y 1: " + level);
+        }
+        TDistribution tDistribution = tDistribution();
+        if (tDistribution == null) {
+            return new double[]{Double.NaN, Double.NaN};
+        }
+        double margin = tDistribution.inverseCumulativeProbability(0.5 + level / 2.0) * standardError;
+        return new double[]{estimate - margin, estimate + margin};
+    }
+
+    /**
+     * Copias de los arreglos; los getters por índice no reservan memoria.
+     */
+    public double[] getCoefficients() {
+        return coefficients.clone();
+    }
+
+    public double[] getStandardErrors() {
+        return standardErrors.clone();
+    }
+
+    public double[] getTStatistics() {
+        return tStatistics.clone();
+    }
+
+    public double[] getPValues() {
+        double[] pValues = new double[tStatistics.length];
+        for (int i = 0; i < pValues.length; i++) {
+            pValues[i] = twoSidedPValue(tStatistics[i]);
+        }
+        return pValues;
+    }
+
+    public double getRSquared() {
+        return 1.0 - residualSumOfSquares / totalSumOfSquares;
+    }
+
+    public double getAdjustedRSquared() {
+        return 1.0 - (residualSumOfSquares * (numObservations - 1)) / (totalSumOfSquares * getResidualDegreesOfFreedom());
+    }
+
+    /**
+     * Error estándar de la regresión (sigma).
+     */
+    public double getRegressionStandardError() {
+        return Math.sqrt(residualSumOfSquares / getResidualDegreesOfFreedom());
+    }
+
+    public double getResidualSumOfSquares() {
+        return residualSumOfSquares;
+    }
+
+    public double getRegressionSumOfSquares() {
+        return regressionSumOfSquares;
+    }
+
+    public double getTotalSumOfSquares() {
+        return totalSumOfSquares;
+    }
+
+    public long getNumObservations() {
+        return numObservations;
+    }
+
+    public int getNumIndependentVariables() {
+        return coefficients.length - 1;
+    }
+
+    /**
+     * Grados de libertad de los residuos: n - k - 1.
+     */
+    public long getResidualDegreesOfFreedom() {
+        return numObservations - coefficients.length;
+    }
+
+    /**
+     * Nombre de la política de datos faltantes aplicada, o null si no se indicó.
+     */
+    public String getMissingDataPolicy() {
+        return missingDataPolicy;
+    }
+
+    public int getRowsDropped() {
+        return rowsDropped;
+    }
+
+    /**
+     * Valores imputados, o -1 si la política no imputa.
+     */
+    public int getValuesImputed() {
+        return valuesImputed;
+    }
+
+    /**
+     * Vista de compatibilidad con las claves del antiguo mapa de resultados.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> results = new HashMap<>();
+        results.put("CoefficientNames", new ArrayList<>(Arrays.asList(coefficientNames)));
+        results.put("Coefficients", boxed(coefficients));
+        results.put("Standard Errors", boxed(standardErrors));
+        results.put("T Statistics", boxed(tStatistics));
+        results.put("P Values", boxed(getPValues()));
+
+        results.put("R-Squared", getRSquared());
+        results.put("Adjusted R-Squared", getAdjustedRSquared());
+        results.put("Regression Standard Error (Sigma)", getRegressionStandardError());
+        results.put("Residual Sum of Squares (SSE)", residualSumOfSquares);
+        results.put("Regression Sum of Squares (SSR)", regressionSumOfSquares);
+        results.put("Total Sum of Squares (SST)", totalSumOfSquares);
+        results.put("Num Observations", (int) numObservations);
+        results.put("Num Independent Variables", getNumIndependentVariables());
+
+        if (missingDataPolicy != null) {
+            results.put("Missing Data Policy", missingDataPolicy);
+            results.put("Rows Dropped", rowsDropped);
+        }
+        if (valuesImputed >= 0) {
+            results.put("Values Imputed", valuesImputed);
+        }
+        if (robustCovariances != null) {
+            for (RobustCovarianceType type : RobustCovarianceType.values()) {
+                double[] robustErrors = new double[coefficients.length];
+                for (int i = 0; i < robustErrors.length; i++) {
+                    robustErrors[i] = getRobustStandardError(type, i);
+                }
+                results.put("Robust Standard Errors (" + type + ")", boxed(robustErrors));
+            }
+        }
+        return results;
+    }
+
+    private static List<Double> boxed(double[] values) {
+        List<Double> list = new ArrayList<>(values.length);
+        for (double value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
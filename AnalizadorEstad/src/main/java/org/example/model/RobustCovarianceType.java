@@ -0,0 +1,17 @@
+package org.example.model;
+
+/**
+ * Estimadores "sandwich" de la matriz de covarianzas de los coeficientes, robustos a
+ * heterocedasticidad: (X'X)^-1 (sum w_i e_i² x_i x_i') (X'X)^-1, donde e_i es el residuo y
+ * h_i la influencia (leverage) de la fila i.
+ */
+public enum RobustCovarianceType {
+    /** White: w_i = 1. */
+    HC0,
+    /** HC0 corregido por grados de libertad: n / (n - p). */
+    HC1,
+    /** w_i = 1 / (1 - h_i). */
+    HC2,
+    /** w_i = 1 / (1 - h_i)²; el más conservador en muestras pequeñas. */
+    HC3
+}
@@ -0,0 +1,87 @@
+package org.example.model;
+
+/**
+ * Subconjunto de filas de una {@link DatasetSnapshot}, representado como un mapa de bits por
+ * bloque alineado con los bloques de la instantánea (bit i del bloque c = índice de
+ * observación {@code c * CHUNK_SIZE + i}).
+ *
+ * Los análisis que reciben una selección recorren sólo las filas marcadas, sin copiar
+ * observaciones. Una selección es inmutable y sólo tiene sentido junto a la instantánea
+ * (o una derivada de ella) sobre la que se calculó.
+ */
+public final class RowSelection {
+
+    private final long[][] chunks; // [chunk][word]; null si el bloque no tiene filas seleccionadas
+    private final int selectedCount;
+
+    public RowSelection(long[][] chunks) {
+        this.chunks = chunks;
+        int count = 0;
+        for (long[] words : chunks) {
+            if (words != null) {
+                for (long word : words) {
+                    count += Long.bitCount(word);
+                }
+            }
+        }
+        this.selectedCount = count;
+    }
+
+    /**
+     * Selección con todas las filas existentes de la instantánea.
+     */
+    public static RowSelection all(DatasetSnapshot snapshot) {
+        long[][] chunks = new long[snapshot.getChunkCount()][];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            chunks[chunk] = snapshot.getRowPresence(chunk);
+        }
+        return new RowSelection(chunks);
+    }
+
+    public int getChunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * Mapa de bits de las filas seleccionadas de un bloque, o null si no hay ninguna.
+     * El arreglo es compartido: no debe modificarse.
+     */
+    public long[] getChunk(int chunk) {
+        return chunk < chunks.length ? chunks[chunk] : null;
+    }
+
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+
+    public boolean isSelected(int obsIndex) {
+        int chunk = obsIndex / DatasetSnapshot.CHUNK_SIZE;
+        if (obsIndex < 0 || chunk >= chunks.length || chunks[chunk] == null) {
+            return false;
+        }
+        int offset = obsIndex % DatasetSnapshot.CHUNK_SIZE;
+        return (chunks[chunk][offset >>> 6] & (1L << offset)) != 0;
+    }
+
+    /**
+     * Intersección de dos selecciones sobre la misma instantánea.
+     */
+    public RowSelection and(RowSelection other) {
+        long[][] result = new long[Math.min(chunks.length, other.chunks.length)][];
+        for (int chunk = 0; chunk < result.length; chunk++) {
+            long[] a = chunks[chunk];
+            long[] b = other.chunks[chunk];
+            if (a == null || b == null) {
+                continue;
+            }
+            long[] words = new long[a.length];
+            boolean any = false;
+            for (int word = 0; word < words.length; word++) {
+                words[word] = a[word] & b[word];
+                any |= words[word] != 0;
+            }
+            result[chunk] = any ? words : null;
+        }
+        return new RowSelection(result);
+    }
+}
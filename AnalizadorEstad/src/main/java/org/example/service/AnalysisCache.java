@@ -0,0 +1,413 @@
+package org.example.service;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.example.dao.AnalysisCacheDAO;
+import org.example.dao.AsyncDatasetDAO;
+import org.example.model.CrossValidationResult;
+import org.example.model.DatasetSnapshot;
+import org.example.model.RegressionResult;
+import org.example.model.RowSelection;
+import org.example.model.Variable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caché de resultados de análisis indexada por contenido.
+ *
+ * La clave de un análisis es una huella SHA-256 de su tipo, sus opciones, las filas que
+ * entran (la selección efectiva) y el contenido de cada columna de la que depende, a partir
+ * de las huellas por bloque de {@link DatasetSnapshot.ColumnChunk#contentHash()}. Así una
+ * edición en una columna usada cambia la clave y el resultado anterior deja de encontrarse
+ * sin invalidarlo explícitamente, mientras que editar otras columnas (o deshacer un cambio)
+ * sigue encontrando el resultado. Calcular la clave no recorre los datos salvo los bloques
+ * modificados desde la última vez. La clave incluye además {@link #FORMAT_VERSION}.
+ *
+ * Tiene un nivel en memoria (LRU) y, opcionalmente, uno persistente en SQLite
+ * ({@link AnalysisCacheDAO}). El nivel persistente pasa por el {@link AsyncDatasetDAO}
+ * compartido: lee en su grupo de lectura y escribe en su único hilo de escritura, detrás de
+ * los guardados de datasets. Las escrituras no esperan y una lectura espera como mucho
+ * {@value #PERSISTENT_LOOKUP_TIMEOUT_MILLIS} ms antes de calcular el resultado. Sus errores
+ * sólo se registran: la caché nunca hace fallar un análisis. Las excepciones del cálculo no
+ * se guardan.
+ */
+public class AnalysisCache {
+
+    /**
+     * Versión de los algoritmos y del formato de los resultados. Se incrementa al cambiar
+     * cualquiera de ellos, para que las entradas persistentes anteriores dejen de encontrarse.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int DEFAULT_MEMORY_ENTRIES = 256;
+    private static final long PERSISTENT_LOOKUP_TIMEOUT_MILLIS = 50;
+
+    private static AnalysisCache shared;
+
+    private static final Gson GSON = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+
+    private final Map<String, Object> memory;
+    private volatile AnalysisCacheDAO persistentStore;
+    // Se completa cuando han terminado todas las escrituras encoladas hasta ahora
+    private CompletableFuture<Void> pendingPersistentWrites = CompletableFuture.completedFuture(null);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public AnalysisCache() {
+        this(DEFAULT_MEMORY_ENTRIES);
+    }
+
+    public AnalysisCache(int memoryEntries) {
+        this.memory = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+    }
+
+    /**
+     * Devuelve la instancia compartida por todas las pestañas de análisis.
+     */
+    public static synchronized AnalysisCache getShared() {
+        if (shared == null) {
+            shared = new AnalysisCache();
+        }
+        return shared;
+    }
+
+    /**
+     * Activa (o, con null, desactiva) el nivel persistente.
+     */
+    public void setPersistentStore(AnalysisCacheDAO persistentStore) {
+        this.persistentStore = persistentStore;
+    }
+
+    /**
+     * Devuelve el resultado guardado con esa clave o lo calcula y lo guarda en ambos niveles.
+     * Dos hilos pueden llegar a calcular la misma clave a la vez; ambos obtienen un resultado
+     * equivalente.
+     *
+     * @param key Clave de {@link KeyBuilder#build()}.
+     * @param computation Cálculo del resultado: un {@link RegressionResult}, un
+     *                    {@link CrossValidationResult}, un número, un texto o un mapa con
+     *                    valores de esos tipos.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCompute(String key, Supplier<T> computation) {
+        Object cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached == null && persistentStore != null) {
+            cached = lookupPersistent(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return (T) cached;
+        }
+        misses.increment();
+        Object computed = freeze(computation.get());
+        synchronized (memory) {
+            memory.put(key, computed);
+        }
+        AnalysisCacheDAO store = persistentStore;
+        if (store != null) {
+            storePersistent(store, key, computed);
+        }
+        return (T) computed;
+    }
+
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        AnalysisCacheDAO store = persistentStore;
+        if (store != null) {
+            persistentWrite(AsyncDatasetDAO.getShared().clearCachedResults(store), "Error al vaciar la caché de análisis: ");
+        }
+    }
+
+    /**
+     * Espera a que terminen las escrituras pendientes en el nivel persistente, p. ej. antes de
+     * que un proceso por lotes termine.
+     */
+    public void awaitPersistentWrites() {
+        CompletableFuture<Void> pending;
+        synchronized (this) {
+            pending = pendingPersistentWrites;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Ya se registró al fallar
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int getMemoryEntryCount() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    /**
+     * Empieza la clave de un análisis del tipo indicado (p. ej. "regresion").
+     */
+    public static KeyBuilder key(String kind) {
+        return new KeyBuilder(kind);
+    }
+
+    /**
+     * Lee del nivel persistente en el grupo de lectura. Si la lectura tarda demasiado (p. ej.
+     * la base de datos está ocupada), se deja seguir en segundo plano, y lo que encuentre queda
+     * en memoria para la próxima vez.
+     */
+    private Object lookupPersistent(String key) {
+        AnalysisCacheDAO store = persistentStore;
+        if (store == null) {
+            return null;
+        }
+        CompletableFuture<Object> lookup = AsyncDatasetDAO.getShared().findCachedResult(store, key)
+                .thenApply(json -> loadPersistent(store, key, json));
+        try {
+            return lookup.get(PERSISTENT_LOOKUP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            System.err.println("Error al leer la caché de análisis: " + cause(e.getCause()).getMessage());
+            return null;
+        }
+    }
+
+    // Se ejecuta en el grupo de lectura; lo encontrado se marca como usado en el de escritura
+    private Object loadPersistent(AnalysisCacheDAO store, String key, String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            Object value = freeze(decode(JsonParser.parseString(json)));
+            synchronized (memory) {
+                memory.put(key, value);
+            }
+            persistentWrite(AsyncDatasetDAO.getShared().touchCachedResult(store, key), "Error al actualizar la caché de análisis: ");
+            return value;
+        } catch (JsonParseException | IllegalStateException e) {
+            System.err.println("Error al leer la caché de análisis: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void storePersistent(AnalysisCacheDAO store, String key, Object value) {
+        String json;
+        try {
+            json = encode(value).toString();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error al guardar en la caché de análisis: " + e.getMessage());
+            return;
+        }
+        persistentWrite(AsyncDatasetDAO.getShared().storeCachedResult(store, key, key.substring(0, key.indexOf(':')), json),
+                "Error al guardar en la caché de análisis: ");
+    }
+
+    // Registra el error de una escritura (también si se rechazó por la cola llena) y la suma
+    // a las pendientes
+    private void persistentWrite(CompletableFuture<Void> write, String errorMessage) {
+        CompletableFuture<Void> logged = write.whenComplete((result, error) -> {
+            if (error != null) {
+                System.err.println(errorMessage + cause(error).getMessage());
+            }
+        });
+        synchronized (this) {
+            pendingPersistentWrites = CompletableFuture.allOf(pendingPersistentWrites, logged);
+        }
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // Los mapas de resultados se comparten entre llamadas: se guardan como no modificables
+    private static Object freeze(Object value) {
+        return value instanceof Map ? Collections.unmodifiableMap((Map<?, ?>) value) : value;
+    }
+
+    // --- Serialización del nivel persistente: {"type": ..., "value": ...} ---
+
+    private static JsonElement encode(Object value) {
+        JsonObject json = new JsonObject();
+        if (value instanceof RegressionResult) {
+            json.addProperty("type", "regression");
+            json.add("value", GSON.toJsonTree(value));
+        } else if (value instanceof CrossValidationResult) {
+            json.addProperty("type", "crossvalidation");
+            json.add("value", GSON.toJsonTree(value));
+        } else if (value instanceof Number) {
+            json.addProperty("type", "number");
+            json.add("value", GSON.toJsonTree(((Number) value).doubleValue()));
+        } else if (value instanceof String) {
+            json.addProperty("type", "string");
+            json.addProperty("value", (String) value);
+        } else if (value instanceof Map) {
+            JsonObject entries = new JsonObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                entries.add(String.valueOf(entry.getKey()), encode(entry.getValue()));
+            }
+            json.addProperty("type", "map");
+            json.add("value", entries);
+        } else {
+            throw new IllegalArgumentException("Tipo de resultado no admitido por la caché: " + value);
+        }
+        return json;
+    }
+
+    private static Object decode(JsonElement element) {
+        JsonObject json = element.getAsJsonObject();
+        JsonElement value = json.get("value");
+        switch (json.get("type").getAsString()) {
+            case "regression":
+                return GSON.fromJson(value, RegressionResult.class);
+            case "crossvalidation":
+                return GSON.fromJson(value, CrossValidationResult.class);
+            case "number":
+                return GSON.fromJson(value, Double.class);
+            case "string":
+                return value.getAsString();
+            case "map":
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (Map.Entry<String, JsonElement> entry : value.getAsJsonObject().entrySet()) {
+                    map.put(entry.getKey(), decode(entry.getValue()));
+                }
+                return map;
+            default:
+                throw new JsonParseException("Tipo de resultado desconocido en la caché: " + json.get("type"));
+        }
+    }
+
+    /**
+     * Construye la clave de un análisis. Todo lo que influye en el resultado debe añadirse:
+     * las columnas que lee, las filas que entran y cada opción.
+     */
+    public static final class KeyBuilder {
+        private final String kind;
+        private final MessageDigest digest;
+        private final byte[] buffer = new byte[Long.BYTES];
+
+        private KeyBuilder(String kind) {
+            this.kind = kind;
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 no disponible", e); // Toda JVM debe incluirlo
+            }
+            number(FORMAT_VERSION);
+            text(kind);
+        }
+
+        public KeyBuilder option(String name, Object value) {
+            text(name);
+            text(String.valueOf(value));
+            return this;
+        }
+
+        public KeyBuilder columns(DatasetSnapshot snapshot, List<String> variableNames) {
+            for (String variableName : variableNames) {
+                column(snapshot, variableName);
+            }
+            return this;
+        }
+
+        /**
+         * Añade el tipo y el contenido de una columna. Si no existe sólo se anota su nombre;
+         * el análisis fallará y la excepción no se guarda.
+         */
+        public KeyBuilder column(DatasetSnapshot snapshot, String variableName) {
+            text(variableName);
+            Variable variable = snapshot.getVariableByName(variableName);
+            DatasetSnapshot.ColumnChunk[] chunks = snapshot.getColumn(variableName);
+            if (variable == null || chunks == null) {
+                number(-1);
+                return this;
+            }
+            text(variable.getType());
+            number(chunks.length);
+            for (DatasetSnapshot.ColumnChunk chunk : chunks) {
+                number(chunk.contentHash());
+            }
+            return this;
+        }
+
+        /**
+         * Añade las filas que entran en el análisis: la selección o, si es null, todas las
+         * filas existentes de la instantánea.
+         */
+        public KeyBuilder rows(DatasetSnapshot snapshot, RowSelection selection) {
+            int chunkCount = snapshot.getChunkCount();
+            number(chunkCount);
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                long[] words = selection != null ? selection.getChunk(chunk) : snapshot.getRowPresence(chunk);
+                if (words == null) {
+                    number(0);
+                    continue;
+                }
+                for (long word : words) {
+                    number(word);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @return La clave, con el tipo de análisis como prefijo ("tipo:huella").
+         */
+        public String build() {
+            StringBuilder sb = new StringBuilder(kind).append(':');
+            for (byte b : digest.digest()) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        }
+
+        private void text(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            number(bytes.length);
+            digest.update(bytes);
+        }
+
+        private void number(long value) {
+            for (int i = 0; i < Long.BYTES; i++) {
+                buffer[i] = (byte) (value >>> (56 - 8 * i));
+            }
+            digest.update(buffer);
+        }
+    }
+}
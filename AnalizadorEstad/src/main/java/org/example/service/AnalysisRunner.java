@@ -0,0 +1,271 @@
+package org.example.service;
+
+import org.example.model.AnalysisOutcome;
+import org.example.model.CrossValidationResult;
+import org.example.model.DatasetSnapshot;
+import org.example.model.DescriptiveStatisticsResult;
+import org.example.model.ModelSelectionResult;
+import org.example.model.ModelSpec;
+import org.example.model.RegressionResult;
+import org.example.model.RobustCovarianceType;
+import org.example.model.RowSelection;
+import org.example.util.JfrEvents.AnalysisPhase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ejecuta un {@link AnalysisSpec} sobre una instantánea con {@link EstadisticaService} y
+ * devuelve el resultado en formato largo ({@link AnalysisOutcome}), sin depender de la
+ * interfaz gráfica. Los nombres de los estadísticos son fijos (p. ej. "coefficient",
+ * "p_value", "r_squared") para que la salida se pueda procesar con otras herramientas.
+ * Es seguro usarlo desde varios hilos a la vez.
+ */
+public class AnalysisRunner {
+
+    private static final double CONFIDENCE_LEVEL = 0.95;
+
+    private final EstadisticaService estadisticaService;
+
+    public AnalysisRunner(EstadisticaService estadisticaService) {
+        this.estadisticaService = estadisticaService;
+    }
+
+    /**
+     * @throws IllegalArgumentException si la especificación es incompleta, el filtro no es
+     *                                  válido o el análisis no se puede estimar.
+     */
+    public AnalysisOutcome run(DatasetSnapshot snapshot, AnalysisSpec spec) {
+        spec.validate();
+        RowSelection selection = spec.getFilter() == null || spec.getFilter().trim().isEmpty()
+                ? null : RowFilter.compile(spec.getFilter()).evaluate(snapshot);
+        MissingDataPolicy policy = spec.getMissingData();
+        List<AnalysisOutcome.Row> rows = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        switch (spec.getType()) {
+            case REGRESSION:
+                runRegression(snapshot, selection, policy, spec, rows);
+                break;
+            case SCREENING:
+                runScreening(snapshot, selection, policy, spec, rows, warnings);
+                break;
+            case SELECTION:
+                runSelection(snapshot, selection, policy, spec, rows, warnings);
+                break;
+            case CROSS_VALIDATION:
+                runCrossValidation(snapshot, selection, policy, spec, rows);
+                break;
+            case MEDIATION:
+                runMediation(snapshot, selection, policy, spec, rows);
+                break;
+            case MODERATION:
+                runModeration(snapshot, selection, policy, spec, rows);
+                break;
+            case DESCRIPTIVES:
+                runDescriptives(snapshot, selection, rows);
+                break;
+            default:
+                throw new IllegalArgumentException("Tipo de análisis no soportado: " + spec.getType());
+        }
+        return new AnalysisOutcome(rows, warnings);
+    }
+
+    /**
+     * Indica si el análisis se puede resolver sólo con las medias y co-momentos de sus
+     * variables por lista completa, p. ej. acumulados en la base de datos con
+     * {@code DatasetDAO.computeCoMoments} sin cargar el dataset: una regresión sin filtro ni
+     * errores robustos.
+     */
+    public static boolean runsOnCoMoments(AnalysisSpec spec) {
+        return spec.getType() == AnalysisSpec.Type.REGRESSION
+                && spec.getMissingData() == MissingDataPolicy.LISTWISE
+                && (spec.getFilter() == null || spec.getFilter().trim().isEmpty())
+                && spec.getRobust() == null;
+    }
+
+    /**
+     * Ejecuta un análisis que cumple {@link #runsOnCoMoments(AnalysisSpec)} a partir de los
+     * co-momentos de la variable dependiente y las independientes, en ese orden. Da el mismo
+     * resultado que {@link #run(DatasetSnapshot, AnalysisSpec)} sobre el dataset completo.
+     * @param rowCount Número de filas del dataset, para contar las descartadas.
+     */
+    public AnalysisOutcome run(CoMomentMatrix moments, long rowCount, AnalysisSpec spec) {
+        spec.validate();
+        if (!runsOnCoMoments(spec)) {
+            throw new IllegalArgumentException("El análisis necesita las filas del dataset, no sólo sus co-momentos.");
+        }
+        RegressionResult result = estadisticaService.performMultipleLinearRegression(
+                        moments, spec.getDependent(), spec.getIndependents())
+                .withMissingDataHandling(MissingDataPolicy.LISTWISE.name(), (int) (rowCount - moments.getCount()), -1);
+        List<AnalysisOutcome.Row> rows = new ArrayList<>();
+        addRegression(modelName(result), result, null, rows);
+        return new AnalysisOutcome(rows, new ArrayList<>());
+    }
+
+    private void runRegression(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy policy,
+                               AnalysisSpec spec, List<AnalysisOutcome.Row> rows) {
+        RegressionResult result = estadisticaService.performMultipleLinearRegression(
+                snapshot, selection, policy, spec.getDependent(), spec.getIndependents());
+        RobustCovarianceType robust = spec.getRobust();
+        if (robust != null) {
+            result = estadisticaService.computeRobustCovariances(snapshot, selection, policy, result);
+        }
+        addRegression(modelName(result), result, robust, rows);
+    }
+
+    private void runScreening(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy policy,
+                              AnalysisSpec spec, List<AnalysisOutcome.Row> rows, List<String> warnings) {
+        List<ModelSpec> models = new ArrayList<>();
+        for (String candidate : spec.getCandidates()) {
+            models.add(new ModelSpec(spec.getDependent(), Collections.singletonList(candidate)));
+        }
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        List<RegressionResult> results = estadisticaService.performRegressionBatch(snapshot, selection, policy, models,
+                new RegressionBatchListener() {
+                    @Override
+                    public void modelCompleted(int index, ModelSpec model, RegressionResult result) {
+                    }
+
+                    @Override
+                    public void modelFailed(int index, ModelSpec model, IllegalArgumentException error) {
+                        errors.add(model + ": " + error.getMessage());
+                    }
+                });
+        for (int i = 0; i < models.size(); i++) {
+            if (results.get(i) != null) {
+                addRegression(models.get(i).toString(), results.get(i), null, rows);
+            }
+        }
+        warnings.addAll(errors);
+    }
+
+    private void runSelection(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy policy,
+                              AnalysisSpec spec, List<AnalysisOutcome.Row> rows, List<String> warnings) {
+        ModelSelectionResult selected = estadisticaService.performModelSelection(snapshot, selection, policy,
+                spec.getDependent(), spec.getCandidates(), spec.getMethod(), spec.getCriterion());
+        rows.add(new AnalysisOutcome.Row("selection", "", "criterion_value", selected.getCriterionValue()));
+        rows.add(new AnalysisOutcome.Row("selection", "", "models_evaluated", selected.getModelsEvaluated()));
+        if (selected.getRegression() == null) {
+            warnings.add("Ningún candidato mejora el criterio " + selected.getCriterion() + " del modelo sólo con intercepto.");
+            return;
+        }
+        addRegression(modelName(selected.getRegression()), selected.getRegression(), null, rows);
+    }
+
+    private void runCrossValidation(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy policy,
+                                    AnalysisSpec spec, List<AnalysisOutcome.Row> rows) {
+        CrossValidationResult result = estadisticaService.performCrossValidation(snapshot, selection, policy,
+                spec.getDependent(), spec.getIndependents(), spec.getFolds(), spec.getSeed());
+        String model = spec.getDependent() + " ~ " + String.join(" + ", spec.getIndependents());
+        rows.add(new AnalysisOutcome.Row(model, "", "n", result.getNumObservations()));
+        rows.add(new AnalysisOutcome.Row(model, "", "folds", result.getFolds()));
+        rows.add(new AnalysisOutcome.Row(model, "", "press", result.getPredictionSumOfSquares()));
+        rows.add(new AnalysisOutcome.Row(model, "", "predicted_r_squared", result.getPredictedRSquared()));
+        rows.add(new AnalysisOutcome.Row(model, "", "rmse", result.getRootMeanSquaredError()));
+        for (int fold = 0; fold < result.getFolds(); fold++) {
+            String term = "fold_" + (fold + 1);
+            rows.add(new AnalysisOutcome.Row(model, term, "n", result.getFoldObservations(fold)));
+            rows.add(new AnalysisOutcome.Row(model, term, "r_squared", result.getFoldRSquared(fold)));
+            rows.add(new AnalysisOutcome.Row(model, term, "rmse", result.getFoldRootMeanSquaredError(fold)));
+        }
+    }
+
+    private void runMediation(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy policy,
+                              AnalysisSpec spec, List<AnalysisOutcome.Row> rows) {
+        Map<String, Object> results = estadisticaService.performMediationAnalysis(snapshot, selection, policy,
+                spec.getPredictor(), spec.getMediator(), spec.getOutcome());
+        rows.add(new AnalysisOutcome.Row("mediation", "", "a_path", (Double) results.get("a Path")));
+        rows.add(new AnalysisOutcome.Row("mediation", "", "b_path", (Double) results.get("b Path")));
+        rows.add(new AnalysisOutcome.Row("mediation", "", "c_path", (Double) results.get("c Path")));
+        rows.add(new AnalysisOutcome.Row("mediation", "", "c_prime_path", (Double) results.get("c' Path")));
+        rows.add(new AnalysisOutcome.Row("mediation", "", "indirect_effect", (Double) results.get("Indirect Effect")));
+        for (String key : new String[]{"Regression M~X", "Regression Y~X+M", "Regression Y~X"}) {
+            RegressionResult regression = (RegressionResult) results.get(key);
+            addRegression(modelName(regression), regression, null, rows);
+        }
+    }
+
+    private void runModeration(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy policy,
+                               AnalysisSpec spec, List<AnalysisOutcome.Row> rows) {
+        Map<String, Object> results = estadisticaService.performModerationAnalysis(snapshot, selection, policy,
+                spec.getPredictor(), spec.getModerator(), spec.getOutcome());
+        rows.add(new AnalysisOutcome.Row("moderation", (String) results.get("Interaction Variable"),
+                "interaction_coefficient", (Double) results.get("Interaction Coefficient")));
+        RegressionResult regression = (RegressionResult) results.get("Regression");
+        addRegression(modelName(regression), regression, null, rows);
+    }
+
+    /**
+     * Una fila por estadístico de cada variable (modelo "descriptives") y, para cada par del
+     * triángulo superior, su correlación, covarianza y número de filas (modelo "correlation",
+     * con el término "x,y").
+     */
+    private void runDescriptives(DatasetSnapshot snapshot, RowSelection selection, List<AnalysisOutcome.Row> rows) {
+        DescriptiveStatisticsResult result = estadisticaService.computeDescriptiveStatistics(snapshot, selection);
+        AnalysisPhase phase = AnalysisPhase.start("descriptives", AnalysisPhase.FORMATTING);
+        int k = result.getVariableCount();
+        for (int i = 0; i < k; i++) {
+            String term = result.getVariableName(i);
+            rows.add(new AnalysisOutcome.Row("descriptives", term, "n", result.getCount(i)));
+            rows.add(new AnalysisOutcome.Row("descriptives", term, "missing", result.getMissing(i)));
+            rows.add(new AnalysisOutcome.Row("descriptives", term, "mean", result.getMean(i)));
+            rows.add(new AnalysisOutcome.Row("descriptives", term, "std_dev", result.getStandardDeviation(i)));
+            rows.add(new AnalysisOutcome.Row("descriptives", term, "variance", result.getVariance(i)));
+            rows.add(new AnalysisOutcome.Row("descriptives", term, "skewness", result.getSkewness(i)));
+            rows.add(new AnalysisOutcome.Row("descriptives", term, "kurtosis", result.getKurtosis(i)));
+            rows.add(new AnalysisOutcome.Row("descriptives", term, "min", result.getMin(i)));
+            rows.add(new AnalysisOutcome.Row("descriptives", term, "max", result.getMax(i)));
+        }
+        for (int i = 0; i < k; i++) {
+            for (int j = i + 1; j < k; j++) {
+                String term = result.getVariableName(i) + "," + result.getVariableName(j);
+                rows.add(new AnalysisOutcome.Row("correlation", term, "r", result.getCorrelation(i, j)));
+                rows.add(new AnalysisOutcome.Row("correlation", term, "covariance", result.getCovariance(i, j)));
+                rows.add(new AnalysisOutcome.Row("correlation", term, "n", result.getPairCount(i, j)));
+            }
+        }
+        phase.finish(snapshot.getName(), result.getSelectedRows(), k);
+    }
+
+    /**
+     * Estadísticos de cada coeficiente y del modelo. Con errores robustos, los de los
+     * coeficientes se añaden con el prefijo del tipo (p. ej. "hc3_std_error").
+     */
+    private void addRegression(String model, RegressionResult result, RobustCovarianceType robust,
+                               List<AnalysisOutcome.Row> rows) {
+        AnalysisPhase phase = AnalysisPhase.start(model, AnalysisPhase.FORMATTING);
+        for (int i = 0; i < result.getCoefficientCount(); i++) {
+            String term = result.getCoefficientName(i);
+            double[] interval = result.getConfidenceInterval(i, CONFIDENCE_LEVEL);
+            rows.add(new AnalysisOutcome.Row(model, term, "coefficient", result.getCoefficient(i)));
+            rows.add(new AnalysisOutcome.Row(model, term, "std_error", result.getStandardError(i)));
+            rows.add(new AnalysisOutcome.Row(model, term, "t", result.getTStatistic(i)));
+            rows.add(new AnalysisOutcome.Row(model, term, "p_value", result.getPValue(i)));
+            rows.add(new AnalysisOutcome.Row(model, term, "ci_lower", interval[0]));
+            rows.add(new AnalysisOutcome.Row(model, term, "ci_upper", interval[1]));
+            if (robust != null) {
+                String prefix = robust.name().toLowerCase() + "_";
+                double[] robustInterval = result.getRobustConfidenceInterval(robust, i, CONFIDENCE_LEVEL);
+                rows.add(new AnalysisOutcome.Row(model, term, prefix + "std_error", result.getRobustStandardError(robust, i)));
+                rows.add(new AnalysisOutcome.Row(model, term, prefix + "t", result.getRobustTStatistic(robust, i)));
+                rows.add(new AnalysisOutcome.Row(model, term, prefix + "p_value", result.getRobustPValue(robust, i)));
+                rows.add(new AnalysisOutcome.Row(model, term, prefix + "ci_lower", robustInterval[0]));
+                rows.add(new AnalysisOutcome.Row(model, term, prefix + "ci_upper", robustInterval[1]));
+            }
+        }
+        rows.add(new AnalysisOutcome.Row(model, "", "r_squared", result.getRSquared()));
+        rows.add(new AnalysisOutcome.Row(model, "", "adj_r_squared", result.getAdjustedRSquared()));
+        rows.add(new AnalysisOutcome.Row(model, "", "sigma", result.getRegressionStandardError()));
+        rows.add(new AnalysisOutcome.Row(model, "", "n", result.getNumObservations()));
+        rows.add(new AnalysisOutcome.Row(model, "", "rows_dropped", result.getRowsDropped()));
+        rows.add(new AnalysisOutcome.Row(model, "", "values_imputed", result.getValuesImputed()));
+        phase.finish(null, result.getNumObservations(), result.getCoefficientCount());
+    }
+
+    private String modelName(RegressionResult result) {
+        List<String> names = result.getCoefficientNames();
+        return result.getDependentVariableName() + " ~ " + String.join(" + ", names.subList(1, names.size()));
+    }
+}
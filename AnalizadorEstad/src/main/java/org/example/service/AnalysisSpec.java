@@ -0,0 +1,254 @@
+package org.example.service;
+
+import org.example.model.RobustCovarianceType;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Descripción de un análisis para ejecutarlo sin interfaz gráfica ({@link AnalysisRunner}),
+ * p. ej. leída de un fichero de trabajos en JSON:
+ * <pre>
+ * {"type": "REGRESSION", "dependent": "y", "independents": ["x1", "x2"],
+ *  "missingData": "LISTWISE", "filter": "edad &gt; 30", "robust": "HC3"}
+ * </pre>
+ * Qué campos se usan depende del tipo; los demás se ignoran.
+ */
+public class AnalysisSpec {
+
+    public enum Type {
+        /** Regresión de {@code dependent} sobre {@code independents}. */
+        REGRESSION,
+        /** Una regresión simple de {@code dependent} sobre cada uno de los {@code candidates}. */
+        SCREENING,
+        /** Selección de variables entre los {@code candidates} ({@code method}, {@code criterion}). */
+        SELECTION,
+        /** Validación cruzada de la regresión ({@code folds}, {@code seed}). */
+        CROSS_VALIDATION,
+        /** Mediación {@code predictor} -> {@code mediator} -> {@code outcome}. */
+        MEDIATION,
+        /** Moderación de {@code predictor} por {@code moderator} sobre {@code outcome}. */
+        MODERATION,
+        /**
+         * Estadísticos descriptivos de todas las variables numéricas y sus covarianzas y
+         * correlaciones (siempre por pares; {@code missingData} no se usa).
+         */
+        DESCRIPTIVES
+    }
+
+    private static final int DEFAULT_FOLDS = 10;
+    private static final long DEFAULT_SEED = 1L;
+
+    private Type type;
+    private String label;
+    private String dependent;
+    private List<String> independents;
+    private List<String> candidates;
+    private String predictor;
+    private String mediator;
+    private String moderator;
+    private String outcome;
+    private MissingDataPolicy missingData;
+    private String filter;
+    private RobustCovarianceType robust;
+    private SelectionMethod method;
+    private SelectionCriterion criterion;
+    private Integer folds;
+    private Long seed;
+
+    public AnalysisSpec() {
+    }
+
+    public AnalysisSpec(Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Comprueba que estén los campos que necesita el tipo de análisis.
+     * @throws IllegalArgumentException si falta alguno.
+     */
+    public void validate() {
+        if (type == null) {
+            throw new IllegalArgumentException("El análisis no indica su tipo (\"type\").");
+        }
+        switch (type) {
+            case REGRESSION:
+            case CROSS_VALIDATION:
+                require(dependent, "dependent");
+                requireList(independents, "independents");
+                break;
+            case SCREENING:
+            case SELECTION:
+                require(dependent, "dependent");
+                requireList(candidates, "candidates");
+                break;
+            case MEDIATION:
+                require(predictor, "predictor");
+                require(mediator, "mediator");
+                require(outcome, "outcome");
+                break;
+            case MODERATION:
+                require(predictor, "predictor");
+                require(moderator, "moderator");
+                require(outcome, "outcome");
+                break;
+            default:
+                break;
+        }
+        if (folds != null && folds < 2) {
+            throw new IllegalArgumentException("La validación cruzada necesita al menos 2 folds: " + folds);
+        }
+    }
+
+    private void require(String value, String field) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("El análisis " + type + " necesita el campo \"" + field + "\".");
+        }
+    }
+
+    private void requireList(List<String> value, String field) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("El análisis " + type + " necesita al menos una variable en \"" + field + "\".");
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Nombre con que se identifica el análisis en la salida, o null si no se indicó.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public String getDependent() {
+        return dependent;
+    }
+
+    public void setDependent(String dependent) {
+        this.dependent = dependent;
+    }
+
+    public List<String> getIndependents() {
+        return independents != null ? Collections.unmodifiableList(independents) : Collections.emptyList();
+    }
+
+    public void setIndependents(List<String> independents) {
+        this.independents = independents;
+    }
+
+    public List<String> getCandidates() {
+        return candidates != null ? Collections.unmodifiableList(candidates) : Collections.emptyList();
+    }
+
+    public void setCandidates(List<String> candidates) {
+        this.candidates = candidates;
+    }
+
+    public String getPredictor() {
+        return predictor;
+    }
+
+    public void setPredictor(String predictor) {
+        this.predictor = predictor;
+    }
+
+    public String getMediator() {
+        return mediator;
+    }
+
+    public void setMediator(String mediator) {
+        this.mediator = mediator;
+    }
+
+    public String getModerator() {
+        return moderator;
+    }
+
+    public void setModerator(String moderator) {
+        this.moderator = moderator;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+    /**
+     * @return La política indicada o, por defecto, eliminación por lista.
+     */
+    public MissingDataPolicy getMissingData() {
+        return missingData != null ? missingData : MissingDataPolicy.LISTWISE;
+    }
+
+    public void setMissingData(MissingDataPolicy missingData) {
+        this.missingData = missingData;
+    }
+
+    /**
+     * Expresión de {@link RowFilter}, o null para usar todas las filas.
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Errores estándar robustos que se añaden a la regresión, o null para sólo los clásicos.
+     */
+    public RobustCovarianceType getRobust() {
+        return robust;
+    }
+
+    public void setRobust(RobustCovarianceType robust) {
+        this.robust = robust;
+    }
+
+    public SelectionMethod getMethod() {
+        return method != null ? method : SelectionMethod.STEPWISE;
+    }
+
+    public void setMethod(SelectionMethod method) {
+        this.method = method;
+    }
+
+    public SelectionCriterion getCriterion() {
+        return criterion != null ? criterion : SelectionCriterion.AIC;
+    }
+
+    public void setCriterion(SelectionCriterion criterion) {
+        this.criterion = criterion;
+    }
+
+    public int getFolds() {
+        return folds != null ? folds : DEFAULT_FOLDS;
+    }
+
+    public void setFolds(int folds) {
+        this.folds = folds;
+    }
+
+    public long getSeed() {
+        return seed != null ? seed : DEFAULT_SEED;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.service;
+
+import org.example.dao.AsyncDatasetDAO;
+import org.example.dao.EditJournal;
+import org.example.model.Dataset;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guardado automático en segundo plano de las ediciones hechas sobre datasets ya guardados.
+ *
+ * Cada edición se anota en el {@link EditJournal} del dataset desde el hilo de escritura del
+ * {@link AsyncDatasetDAO}, así que el hilo de la interfaz no hace E/S y las anotaciones, los
+ * volcados y los guardados completos se aplican en el orden en que se pidieron. El diario se
+ * vuelca en la base de datos mediante escrituras incrementales, con "debounce": una ráfaga de
+ * ediciones se agrupa en una sola transacción que se lanza tras {@code debounceMillis} sin
+ * ediciones, o como mucho {@code maxDelayMillis} después de la primera edición pendiente. Al
+ * empezar cada volcado el diario se fuerza a disco.
+ *
+ * Los datasets que aún no se han guardado (ID 0) no se anotan: no existen en la base de datos
+ * hasta el primer guardado completo.
+ */
+public class AutosaveService {
+
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 2000;
+    private static final long DEFAULT_MAX_DELAY_MILLIS = 10000;
+
+    private final AsyncDatasetDAO asyncDAO;
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Map<Integer, EditJournal> journals = new HashMap<>();
+    private final Map<Integer, ScheduledFuture<?>> scheduledFolds = new HashMap<>();
+    private final Map<Integer, Long> firstPendingEdit = new HashMap<>();
+
+    public AutosaveService(AsyncDatasetDAO asyncDAO) {
+        this(asyncDAO, DEFAULT_DEBOUNCE_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public AutosaveService(AsyncDatasetDAO asyncDAO, long debounceMillis, long maxDelayMillis) {
+        this.asyncDAO = asyncDAO;
+        this.debounceMillis = debounceMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // --- Registro de ediciones (llamado desde el hilo de la interfaz) ---
+
+    public void recordCellEdit(Dataset dataset, int obsIndex, String variableName, Object value) {
+        record(dataset, EditJournal.Entry.setValue(obsIndex, variableName, value));
+    }
+
+    public void recordRowAdded(Dataset dataset, int obsIndex) {
+        record(dataset, EditJournal.Entry.addRow(obsIndex));
+    }
+
+    public void recordRowRemoved(Dataset dataset, int obsIndex) {
+        record(dataset, EditJournal.Entry.removeRow(obsIndex));
+    }
+
+    public void recordVariableAdded(Dataset dataset, String variableName, String variableType) {
+        record(dataset, EditJournal.Entry.addVariable(variableName, variableType));
+    }
+
+    public void recordVariableRemoved(Dataset dataset, String variableName) {
+        record(dataset, EditJournal.Entry.removeVariable(variableName));
+    }
+
+    public void recordVariableTypeChanged(Dataset dataset, String variableName, String variableType) {
+        record(dataset, EditJournal.Entry.setVariableType(variableName, variableType));
+    }
+
+    /**
+     * Guardado completo del dataset en el hilo de escritura, detrás de los volcados ya
+     * pedidos. Se guarda una instantánea tomada en el hilo que llama, que debe ser el que
+     * edita el dataset. Al confirmarse descarta las ediciones anotadas hasta ese momento, que ya
+     * incluye; las anotadas después se conservan.
+     * @return Un future que se completa cuando el guardado se ha confirmado.
+     */
+    public CompletableFuture<Void> save(Dataset dataset) {
+        if (dataset.getId() == 0) {
+            return asyncDAO.saveDataset(dataset); // Aún no tiene diario
+        }
+        cancelScheduledFold(dataset.getId());
+        return asyncDAO.saveDataset(dataset, journalFor(dataset.getId()));
+    }
+
+    /**
+     * Descarta las ediciones pendientes de un dataset, p. ej. tras eliminarlo. Se hace en el
+     * hilo de escritura, detrás de las escrituras ya pedidas.
+     */
+    public void discard(int datasetId) {
+        cancelScheduledFold(datasetId);
+        asyncDAO.discardJournal(journalFor(datasetId)).whenComplete((result, error) -> {
+            if (error != null) {
+                System.err.println("Error al descartar el diario del dataset " + datasetId + ": " + cause(error).getMessage());
+            }
+        });
+    }
+
+    /**
+     * Vuelca de inmediato las ediciones pendientes de un dataset.
+     * @return Un future que se completa cuando la transacción se ha confirmado.
+     */
+    public CompletableFuture<Void> flush(int datasetId) {
+        cancelScheduledFold(datasetId);
+        return fold(journalFor(datasetId));
+    }
+
+    /**
+     * Número de datasets con ediciones esperando a volcarse.
+     */
+    public synchronized int getPendingDatasetCount() {
+        return scheduledFolds.size();
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Recuperación tras un cierre inesperado: aplica a la base de datos los diarios que
+     * quedaron en disco y los elimina. Debe llamarse al arrancar, después de inicializar la
+     * base de datos y antes de cargar los datasets.
+     * @return El número de datasets recuperados.
+     */
+    public static int recoverPendingJournals(AsyncDatasetDAO dao) {
+        int recovered = 0;
+        try {
+            for (Integer datasetId : EditJournal.findPendingDatasetIds()) {
+                if (AsyncDatasetDAO.await(dao.foldJournal(new EditJournal(datasetId))) > 0) {
+                    recovered++;
+                }
+            }
+        } catch (IOException | UncheckedIOException | SQLException e) {
+            System.err.println("Error al recuperar el diario de ediciones: " + e.getMessage());
+        }
+        return recovered;
+    }
+
+    private void record(Dataset dataset, EditJournal.Entry entry) {
+        if (dataset == null || dataset.getId() == 0) {
+            return; // Aún no existe en la base de datos; se guardará completo
+        }
+        int datasetId = dataset.getId();
+        asyncDAO.appendToJournal(journalFor(datasetId), entry).whenComplete((result, error) -> {
+            if (error != null) {
+                System.err.println("Error al anotar la edición en el diario: " + cause(error).getMessage());
+            }
+        });
+        scheduleFold(datasetId);
+    }
+
+    private synchronized void cancelScheduledFold(int datasetId) {
+        ScheduledFuture<?> scheduled = scheduledFolds.remove(datasetId);
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        firstPendingEdit.remove(datasetId);
+    }
+
+    private synchronized void scheduleFold(int datasetId) {
+        long now = System.currentTimeMillis();
+        long first = firstPendingEdit.computeIfAbsent(datasetId, k -> now);
+        long delay = Math.min(debounceMillis, Math.max(0, first + maxDelayMillis - now));
+
+        ScheduledFuture<?> previous = scheduledFolds.remove(datasetId);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        scheduledFolds.put(datasetId, scheduler.schedule(() -> {
+            synchronized (this) {
+                scheduledFolds.remove(datasetId);
+                firstPendingEdit.remove(datasetId);
+            }
+            fold(journalFor(datasetId)).join();
+        }, delay, TimeUnit.MILLISECONDS));
+    }
+
+    private CompletableFuture<Void> fold(EditJournal journal) {
+        return asyncDAO.foldJournal(journal).handle((applied, error) -> {
+            if (error != null) {
+                // El diario se conserva y se volverá a intentar con la próxima edición o al arrancar
+                System.err.println("Error en el guardado automático del dataset " + journal.getDatasetId() + ": " + cause(error).getMessage());
+            }
+            return null;
+        });
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private synchronized EditJournal journalFor(int datasetId) {
+        return journals.computeIfAbsent(datasetId, EditJournal::new);
+    }
+}
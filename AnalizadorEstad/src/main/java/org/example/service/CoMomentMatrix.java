@@ -0,0 +1,321 @@
+package org.example.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Acumulador de medias y co-momentos centrados (matriz de sumas de productos cruzados
+ * alrededor de la media) para un conjunto fijo de variables.
+ *
+ * Usa la actualización de Welford fila a fila y las fórmulas de Chan para combinar o
+ * restar acumuladores parciales, de modo que los bloques calculados en paralelo, en la
+ * base de datos o por fold se pueden mezclar sin volver a leer los datos.
+ * A partir de esta matriz se obtienen X'X y X'y centrados, suficientes para una regresión
+ * con intercepto. No es seguro para hilos: cada hilo acumula en su propia instancia.
+ */
+public class CoMomentMatrix {
+
+    private final int dimension;
+    private long count;
+    private final double[] means;
+    private final double[] comoments; // Matriz simétrica dimension x dimension, por filas
+    private final double[] delta;     // Diferencias con la media; se reutiliza en cada actualización
+
+    public CoMomentMatrix(int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("La dimensión debe ser positiva: " + dimension);
+        }
+        this.dimension = dimension;
+        this.means = new double[dimension];
+        this.comoments = new double[dimension * dimension];
+        this.delta = new double[dimension];
+    }
+
+    /**
+     * Añade una fila completa (un valor por variable) al acumulador.
+     * @param row Los valores de la fila, en el orden de las variables del acumulador.
+     */
+    public void add(double[] row) {
+        count++;
+        double ratio = (double) (count - 1) / count;
+        for (int i = 0; i < dimension; i++) {
+            delta[i] = row[i] - means[i];
+            means[i] += delta[i] / count;
+        }
+        for (int i = 0; i < dimension; i++) {
+            double di = delta[i] * ratio;
+            int base = i * dimension;
+            for (int j = i; j < dimension; j++) {
+                comoments[base + j] += di * delta[j];
+            }
+        }
+        mirrorUpperTriangle();
+    }
+
+    /**
+     * Quita una fila previamente añadida (actualización de rango uno inversa).
+     * @param row Los valores de la fila a quitar.
+     */
+    public void remove(double[] row) {
+        if (count == 0) {
+            throw new IllegalStateException("No hay filas que quitar del acumulador.");
+        }
+        if (count == 1) {
+            clear();
+            return;
+        }
+        double n = count;
+        count--;
+        double factor = n / count;
+        for (int i = 0; i < dimension; i++) {
+            delta[i] = row[i] - means[i];
+            means[i] -= delta[i] / count;
+        }
+        for (int i = 0; i < dimension; i++) {
+            double di = delta[i] * factor;
+            int base = i * dimension;
+            for (int j = i; j < dimension; j++) {
+                comoments[base + j] -= di * delta[j];
+            }
+        }
+        mirrorUpperTriangle();
+    }
+
+    /**
+     * Combina otro acumulador de la misma dimensión con este (fórmula de Chan).
+     * @param other El acumulador parcial a incorporar.
+     */
+    public void merge(CoMomentMatrix other) {
+        checkDimension(other);
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            System.arraycopy(other.means, 0, means, 0, dimension);
+            System.arraycopy(other.comoments, 0, comoments, 0, comoments.length);
+            return;
+        }
+        double na = count;
+        double nb = other.count;
+        double n = na + nb;
+        for (int i = 0; i < dimension; i++) {
+            delta[i] = other.means[i] - means[i];
+            means[i] += delta[i] * nb / n;
+        }
+        double weight = na * nb / n;
+        for (int i = 0; i < dimension; i++) {
+            int base = i * dimension;
+            for (int j = 0; j < dimension; j++) {
+                comoments[base + j] += other.comoments[base + j] + delta[i] * delta[j] * weight;
+            }
+        }
+        count += other.count;
+    }
+
+    /**
+     * Resta de este acumulador las filas resumidas en otro acumulador que es un subconjunto
+     * de las filas de este (p. ej. "total menos fold").
+     * @param subset El acumulador del subconjunto a quitar.
+     */
+    public void subtract(CoMomentMatrix subset) {
+        checkDimension(subset);
+        if (subset.count == 0) {
+            return;
+        }
+        if (subset.count > count) {
+            throw new IllegalArgumentException("El subconjunto tiene más filas (" + subset.count + ") que el acumulador (" + count + ").");
+        }
+        if (subset.count == count) {
+            clear();
+            return;
+        }
+        double nt = count;
+        double nb = subset.count;
+        double na = nt - nb;
+        for (int i = 0; i < dimension; i++) {
+            double remainingMean = (nt * means[i] - nb * subset.means[i]) / na;
+            delta[i] = subset.means[i] - remainingMean;
+            means[i] = remainingMean;
+        }
+        double weight = na * nb / nt;
+        for (int i = 0; i < dimension; i++) {
+            int base = i * dimension;
+            for (int j = 0; j < dimension; j++) {
+                comoments[base + j] -= subset.comoments[base + j] + delta[i] * delta[j] * weight;
+            }
+        }
+        count -= subset.count;
+    }
+
+    public void clear() {
+        count = 0;
+        Arrays.fill(means, 0.0);
+        Arrays.fill(comoments, 0.0);
+    }
+
+    public CoMomentMatrix copy() {
+        CoMomentMatrix copy = new CoMomentMatrix(dimension);
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * Crea un acumulador a partir de estadísticos ya calculados por otra vía (p. ej.
+     * covarianzas por pares), para reutilizar sobre ellos el cálculo de la regresión.
+     * @param comoments Matriz simétrica completa, por filas.
+     */
+    static CoMomentMatrix fromMoments(long count, double[] means, double[] comoments) {
+        CoMomentMatrix matrix = new CoMomentMatrix(means.length);
+        matrix.count = count;
+        System.arraycopy(means, 0, matrix.means, 0, means.length);
+        System.arraycopy(comoments, 0, matrix.comoments, 0, comoments.length);
+        return matrix;
+    }
+
+    /**
+     * Acumulador de un bloque de filas completas dadas por columnas, en dos pasadas (medias y
+     * luego productos centrados) en lugar de la actualización fila a fila. Sólo se calculan
+     * los pares (i, j) marcados en {@code pairs} (dimension x dimension, por filas); los
+     * demás co-momentos quedan sin significado y no deben leerse, ni tras combinar bloques.
+     *
+     * @param values Una columna por variable; se usan sus {@code rowCount} primeras posiciones.
+     */
+    static CoMomentMatrix fromColumns(double[][] values, int rowCount, boolean[] pairs) {
+        int dimension = values.length;
+        CoMomentMatrix matrix = new CoMomentMatrix(dimension);
+        if (rowCount == 0) {
+            return matrix;
+        }
+        matrix.count = rowCount;
+        for (int i = 0; i < dimension; i++) {
+            double sum = 0.0;
+            double[] column = values[i];
+            for (int row = 0; row < rowCount; row++) {
+                sum += column[row];
+            }
+            double mean = sum / rowCount;
+            matrix.means[i] = mean;
+            for (int row = 0; row < rowCount; row++) {
+                column[row] -= mean; // El llamador no vuelve a usar los valores
+            }
+        }
+        for (int i = 0; i < dimension; i++) {
+            double[] first = values[i];
+            for (int j = i; j < dimension; j++) {
+                if (!pairs[i * dimension + j]) {
+                    continue;
+                }
+                double[] second = values[j];
+                double sum = 0.0;
+                for (int row = 0; row < rowCount; row++) {
+                    sum += first[row] * second[row];
+                }
+                matrix.comoments[i * dimension + j] = sum;
+                matrix.comoments[j * dimension + i] = sum;
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Submatriz de las variables indicadas, en ese orden (p. ej. las de un modelo dentro de
+     * un acumulador común a varios modelos).
+     */
+    public CoMomentMatrix select(int... columns) {
+        int size = columns.length;
+        double[] selectedMeans = new double[size];
+        double[] selectedComoments = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            selectedMeans[i] = means[columns[i]];
+            for (int j = 0; j < size; j++) {
+                selectedComoments[i * size + j] = comoments[columns[i] * dimension + columns[j]];
+            }
+        }
+        return fromMoments(count, selectedMeans, selectedComoments);
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean(int i) {
+        return means[i];
+    }
+
+    /**
+     * Obtiene la suma de productos cruzados centrados entre las variables i y j.
+     */
+    public double getCoMoment(int i, int j) {
+        return comoments[i * dimension + j];
+    }
+
+    /**
+     * Obtiene la covarianza muestral (denominador n - 1) entre las variables i y j.
+     */
+    public double getCovariance(int i, int j) {
+        return count > 1 ? comoments[i * dimension + j] / (count - 1) : Double.NaN;
+    }
+
+    /**
+     * Obtiene el coeficiente de correlación de Pearson entre las variables i y j.
+     */
+    public double getCorrelation(int i, int j) {
+        double denominator = Math.sqrt(comoments[i * dimension + i] * comoments[j * dimension + j]);
+        return denominator > 0 ? comoments[i * dimension + j] / denominator : Double.NaN;
+    }
+
+    /**
+     * Serializa el acumulador a un arreglo de bytes compacto: dimensión, n, medias y el
+     * triángulo superior de co-momentos. Es el formato que devuelven los agregados SQLite.
+     */
+    public byte[] toBytes() {
+        int triangle = dimension * (dimension + 1) / 2;
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Long.BYTES + Double.BYTES * (dimension + triangle));
+        buffer.putInt(dimension);
+        buffer.putLong(count);
+        for (double mean : means) {
+            buffer.putDouble(mean);
+        }
+        for (int i = 0; i < dimension; i++) {
+            for (int j = i; j < dimension; j++) {
+                buffer.putDouble(comoments[i * dimension + j]);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static CoMomentMatrix fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CoMomentMatrix matrix = new CoMomentMatrix(buffer.getInt());
+        matrix.count = buffer.getLong();
+        for (int i = 0; i < matrix.dimension; i++) {
+            matrix.means[i] = buffer.getDouble();
+        }
+        for (int i = 0; i < matrix.dimension; i++) {
+            for (int j = i; j < matrix.dimension; j++) {
+                matrix.comoments[i * matrix.dimension + j] = buffer.getDouble();
+            }
+        }
+        matrix.mirrorUpperTriangle();
+        return matrix;
+    }
+
+    private void mirrorUpperTriangle() {
+        for (int i = 1; i < dimension; i++) {
+            for (int j = 0; j < i; j++) {
+                comoments[i * dimension + j] = comoments[j * dimension + i];
+            }
+        }
+    }
+
+    private void checkDimension(CoMomentMatrix other) {
+        if (other.dimension != dimension) {
+            throw new IllegalArgumentException("Dimensiones incompatibles: " + dimension + " y " + other.dimension);
+        }
+    }
+}
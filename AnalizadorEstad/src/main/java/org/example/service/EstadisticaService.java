@@ -1,31 +1,152 @@
 package org.example.service;
 
-import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.CholeskyDecomposition;
+import org.apache.commons.math3.linear.DecompositionSolver;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.example.model.CrossValidationResult;
 import org.example.model.Dataset;
-import org.example.model.Observation;
+import org.example.model.DatasetSnapshot;
+import org.example.model.DescriptiveStatisticsResult;
+import org.example.model.ModelSelectionResult;
+import org.example.model.ModelSpec;
+import org.example.model.RegressionResult;
+import org.example.model.RowSelection;
 import org.example.model.Variable;
+import org.example.util.JfrEvents.AnalysisPhase;
+import org.example.util.Metrics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.stream.Collectors;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 public class EstadisticaService {
 
+    // A partir de este número de filas la acumulación se reparte entre núcleos por bloques
+    static final int PARALLEL_ROW_THRESHOLD = 50_000;
+
+    // Variables por bloque de la matriz de correlaciones: las columnas densas de dos bloques
+    // de variables para un bloque de filas (2 x 32 x 4096 valores) caben en la caché L2
+    static final int CORRELATION_TILE_SIZE = 32;
+
+    // Tiempo de cada análisis calculado (los aciertos de caché no cuentan), de las pasadas de
+    // acumulación sobre las filas y de la resolución a partir de los co-momentos
+    private static final Metrics.Timer REGRESSION_TIMER = Metrics.timer("estadistica.regression");
+    private static final Metrics.Timer BATCH_TIMER = Metrics.timer("estadistica.regressionBatch");
+    private static final Metrics.Timer SELECTION_TIMER = Metrics.timer("estadistica.modelSelection");
+    private static final Metrics.Timer CROSS_VALIDATION_TIMER = Metrics.timer("estadistica.crossValidation");
+    private static final Metrics.Timer MEDIATION_TIMER = Metrics.timer("estadistica.mediation");
+    private static final Metrics.Timer MODERATION_TIMER = Metrics.timer("estadistica.moderation");
+    private static final Metrics.Timer DESCRIPTIVES_TIMER = Metrics.timer("estadistica.descriptives");
+    private static final Metrics.Timer ACCUMULATE_TIMER = Metrics.timer("estadistica.accumulate");
+    private static final Metrics.Timer SOLVE_TIMER = Metrics.timer("estadistica.solve");
+    private static final Metrics.Counter ROWS_SCANNED = Metrics.counter("estadistica.rows.scanned");
+
+    private final AnalysisCache resultCache; // null: sin caché
+
+    public EstadisticaService() {
+        this(null);
+    }
+
     /**
-     * Realiza un análisis de regresión lineal múltiple.
+     * @param resultCache Caché de resultados para los análisis sobre instantáneas, o null
+     *                    para calcular siempre.
+     */
+    public EstadisticaService(AnalysisCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Realiza un análisis de regresión lineal múltiple sobre la versión actual del dataset.
      *
      * @param dataset El dataset que contiene los datos.
      * @param dependentVariableName El nombre de la variable dependiente.
      * @param independentVariableNames Una lista de nombres de variables independientes.
-     * @return Un mapa con los resultados de la regresión (coeficientes, R-cuadrado, etc.).
+     * @return Los resultados de la regresión (coeficientes, errores estándar, R-cuadrado, etc.).
      */
-    public Map<String, Object> performMultipleLinearRegression(
+    public RegressionResult performMultipleLinearRegression(
             Dataset dataset, String dependentVariableName, List<String> independentVariableNames) {
+        return performMultipleLinearRegression(dataset.snapshot(), dependentVariableName, independentVariableNames);
+    }
+
+    /**
+     * Realiza un análisis de regresión lineal múltiple sobre una versión fija del dataset.
+     * Es seguro llamarlo desde cualquier hilo mientras el dataset se sigue editando.
+     *
+     * @param snapshot La versión del dataset sobre la que se calcula.
+     * @param dependentVariableName El nombre de la variable dependiente.
+     * @param independentVariableNames Una lista de nombres de variables independientes.
+     * @return Los resultados de la regresión (coeficientes, errores estándar, R-cuadrado, etc.).
+     */
+    public RegressionResult performMultipleLinearRegression(
+            DatasetSnapshot snapshot, String dependentVariableName, List<String> independentVariableNames) {
+        return performMultipleLinearRegression(snapshot, null, dependentVariableName, independentVariableNames);
+    }
+
+    /**
+     * Realiza un análisis de regresión lineal múltiple sobre un subconjunto de filas de una
+     * versión fija del dataset, descartando las filas con valores faltantes
+     * ({@link MissingDataPolicy#LISTWISE}).
+     *
+     * @param snapshot La versión del dataset sobre la que se calcula.
+     * @param selection Las filas a incluir (p. ej. de {@link RowFilter#evaluate}), o null para todas.
+     * @param dependentVariableName El nombre de la variable dependiente.
+     * @param independentVariableNames Una lista de nombres de variables independientes.
+     * @return Los resultados de la regresión (coeficientes, errores estándar, R-cuadrado, etc.).
+     */
+    public RegressionResult performMultipleLinearRegression(
+            DatasetSnapshot snapshot, RowSelection selection, String dependentVariableName, List<String> independentVariableNames) {
+        return performMultipleLinearRegression(snapshot, selection, MissingDataPolicy.LISTWISE, dependentVariableName, independentVariableNames);
+    }
+
+    /**
+     * Realiza un análisis de regresión lineal múltiple sobre un subconjunto de filas de una
+     * versión fija del dataset. Las filas excluidas se saltan durante la acumulación y los
+     * valores faltantes se tratan según la política indicada.
+     *
+     * @param snapshot La versión del dataset sobre la que se calcula.
+     * @param selection Las filas a incluir (p. ej. de {@link RowFilter#evaluate}), o null para todas.
+     * @param missingDataPolicy Cómo tratar las celdas vacías o no numéricas.
+     * @param dependentVariableName El nombre de la variable dependiente.
+     * @param independentVariableNames Una lista de nombres de variables independientes.
+     * @return Los resultados de la regresión, con la política aplicada, las filas
+     *         seleccionadas que no entran en el modelo y, con imputación, los valores imputados.
+     */
+    public RegressionResult performMultipleLinearRegression(
+            DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy missingDataPolicy,
+            String dependentVariableName, List<String> independentVariableNames) {
+        if (resultCache == null) {
+            return timed(REGRESSION_TIMER,
+                    () -> fitRegression(snapshot, selection, missingDataPolicy, dependentVariableName, independentVariableNames));
+        }
+        String key = AnalysisCache.key("regresion")
+                .option("politica", missingDataPolicy)
+                .column(snapshot, dependentVariableName)
+                .columns(snapshot, independentVariableNames)
+                .rows(snapshot, selection)
+                .build();
+        return resultCache.getOrCompute(key, () -> timed(REGRESSION_TIMER,
+                () -> fitRegression(snapshot, selection, missingDataPolicy, dependentVariableName, independentVariableNames)));
+    }
+
+    private RegressionResult fitRegression(
+            DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy missingDataPolicy,
+            String dependentVariableName, List<String> independentVariableNames) {
+        AnalysisPhase validation = AnalysisPhase.start("regression", AnalysisPhase.VALIDATION);
 
         // Validar que las variables existan y sean numéricas
-        Variable dependentVar = dataset.getVariableByName(dependentVariableName);
+        Variable dependentVar = snapshot.getVariableByName(dependentVariableName);
         if (dependentVar == null) {
             throw new IllegalArgumentException("Variable dependiente no encontrada: " + dependentVariableName);
         }
@@ -33,25 +154,17 @@ public class EstadisticaService {
             throw new IllegalArgumentException("La variable dependiente debe ser numérica: " + dependentVariableName);
         }
 
-        List<Variable> independentVars = independentVariableNames.stream()
-                .map(dataset::getVariableByName)
-                .peek(v -> {
-                    if (v == null) {
-                        throw new IllegalArgumentException("Variable independiente no encontrada: " + v.getName());
-                    }
-                    if (!isNumeric(v.getType())) {
-                        throw new IllegalArgumentException("La variable independiente '" + v.getName() + "' debe ser numérica.");
-                    }
-                })
-                .collect(Collectors.toList());
-
-        // Preparar los datos para Apache Commons Math
-        List<Observation> validObservations = dataset.getObservations().entrySet().stream()
-                .sorted(Map.Entry.comparingByKey()) // Ordenar por índice de observación para consistencia
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toList());
+        for (String indepVarName : independentVariableNames) {
+            Variable v = snapshot.getVariableByName(indepVarName);
+            if (v == null) {
+                throw new IllegalArgumentException("Variable independiente no encontrada: " + indepVarName);
+            }
+            if (!isNumeric(v.getType())) {
+                throw new IllegalArgumentException("La variable independiente '" + v.getName() + "' debe ser numérica.");
+            }
+        }
 
-        int numObservations = validObservations.size();
+        int numObservations = selection != null ? selection.getSelectedCount() : snapshot.getRowCount();
         if (numObservations <= independentVariableNames.size()) { // Se necesitan al menos N+1 observaciones para N variables + intercepto
             throw new IllegalArgumentException("No hay suficientes observaciones (" + numObservations + ") para la regresión con " + independentVariableNames.size() + " variables independientes. Se necesitan al menos " + (independentVariableNames.size() + 1) + " observaciones.");
         }
@@ -59,84 +172,1307 @@ public class EstadisticaService {
             throw new IllegalArgumentException("Se requiere al menos una variable independiente para la regresión.");
         }
 
-        double[] y = new double[numObservations];
-        double[][] x = new double[numObservations][independentVariableNames.size()];
+        // Recorrido por columnas: Y en la columna 0 y las X a continuación, sin copiar filas
+        List<String> columnNames = new ArrayList<>();
+        columnNames.add(dependentVariableName);
+        columnNames.addAll(independentVariableNames);
+        DatasetSnapshot.ColumnChunk[][] columns = new DatasetSnapshot.ColumnChunk[columnNames.size()][];
+        for (int j = 0; j < columns.length; j++) {
+            columns[j] = snapshot.getColumn(columnNames.get(j));
+        }
+
+        validation.finish(snapshot.getName(), numObservations, columns.length);
+
+        CoMomentMatrix moments;
+        int valuesImputed = 0;
+        long accumulateStart = ACCUMULATE_TIMER.start();
+        AnalysisPhase accumulation = AnalysisPhase.start("regression", AnalysisPhase.ACCUMULATION);
+        switch (missingDataPolicy) {
+            case PAIRWISE:
+                moments = accumulatePairwiseMoments(snapshot, selection, columns, null).toCoMomentMatrix();
+                break;
+            case MEAN_IMPUTATION:
+                double[] columnMeans = availableCaseMeans(snapshot, selection, columns);
+                valuesImputed = countImputedValues(snapshot, selection, columns);
+                moments = accumulateMoments(snapshot, selection, columns, columnMeans);
+                break;
+            default:
+                moments = accumulateMoments(snapshot, selection, columns, null);
+                break;
+        }
+        ACCUMULATE_TIMER.stop(accumulateStart);
+        accumulation.finish(snapshot.getName(), numObservations, columns.length);
+        ROWS_SCANNED.add(numObservations);
+
+        return performMultipleLinearRegression(moments, dependentVariableName, independentVariableNames)
+                .withMissingDataHandling(missingDataPolicy.name(), (int) (numObservations - moments.getCount()),
+                        missingDataPolicy == MissingDataPolicy.MEAN_IMPUTATION ? valuesImputed : -1);
+    }
+
+    /**
+     * Filas seleccionadas de un bloque, o todas las existentes si no hay selección.
+     */
+    private static long[] rowsOf(DatasetSnapshot snapshot, RowSelection selection, int chunk) {
+        return selection != null ? selection.getChunk(chunk) : snapshot.getRowPresence(chunk);
+    }
+
+    private static IntStream chunkStream(DatasetSnapshot snapshot) {
+        IntStream chunks = IntStream.range(0, snapshot.getChunkCount());
+        return snapshot.getRowCount() >= PARALLEL_ROW_THRESHOLD ? chunks.parallel() : chunks;
+    }
+
+    /**
+     * Acumula medias y co-momentos de las columnas indicadas (Y en la columna 0) recorriendo
+     * la instantánea bloque a bloque (en paralelo para datasets grandes).
+     *
+     * @param imputedMeans Null para descartar las filas con algún valor faltante; si no, las
+     *                     medias con que se sustituyen los valores faltantes de las X (las
+     *                     filas sin Y se descartan igualmente).
+     */
+    private CoMomentMatrix accumulateMoments(DatasetSnapshot snapshot, RowSelection selection,
+                                             DatasetSnapshot.ColumnChunk[][] columns, double[] imputedMeans) {
+        return chunkStream(snapshot)
+                .mapToObj(chunk -> accumulateChunk(rowsOf(snapshot, selection, chunk), columns, chunk, imputedMeans))
+                .reduce((a, b) -> {
+                    a.merge(b); // Cada bloque produce su propio acumulador, así que se puede reutilizar
+                    return a;
+                })
+                .orElseGet(() -> new CoMomentMatrix(columns.length));
+    }
+
+    private CoMomentMatrix accumulateChunk(long[] rows, DatasetSnapshot.ColumnChunk[][] columns,
+                                           int chunk, double[] imputedMeans) {
+        CoMomentMatrix moments = new CoMomentMatrix(columns.length);
+        forEachModelRow(rows, columns, chunk, imputedMeans, moments::add);
+        return moments;
+    }
+
+    /**
+     * Recorre las filas de un bloque que entran en el modelo (las mismas para el ajuste y
+     * para cualquier pasada posterior sobre los residuos) y entrega sus valores, con Y en la
+     * posición 0. El arreglo se reutiliza entre filas.
+     */
+    private void forEachModelRow(long[] rows, DatasetSnapshot.ColumnChunk[][] columns, int chunk,
+                                 double[] imputedMeans, Consumer<double[]> action) {
+        if (rows == null) {
+            return;
+        }
+        double[] row = new double[columns.length];
+        for (int word = 0; word < rows.length; word++) {
+            // Filas válidas de esta palabra: un AND de los mapas de validez de cada columna
+            long bits = rows[word] & columns[0][chunk].getNumericMask()[word];
+            if (imputedMeans == null) {
+                for (int j = 1; j < columns.length && bits != 0; j++) {
+                    bits &= columns[j][chunk].getNumericMask()[word];
+                }
+            }
+            while (bits != 0) {
+                int offset = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                for (int j = 0; j < columns.length; j++) {
+                    DatasetSnapshot.ColumnChunk column = columns[j][chunk];
+                    row[j] = imputedMeans == null || column.isNumeric(offset) ? column.getDouble(offset) : imputedMeans[j];
+                }
+                action.accept(row);
+            }
+        }
+    }
+
+    /**
+     * Añade a un resultado las covarianzas robustas a heterocedasticidad HC0, HC1, HC2 y HC3,
+     * con una única pasada adicional sobre las mismas filas del ajuste: para cada fila se
+     * calculan el residuo y la influencia h = x'(X'X)^-1 x, y se acumulan las tres matrices
+     * "carne" del sándwich (HC1 es HC0 reescalada). (X'X)^-1 es la del propio resultado.
+     *
+     * @param fitted Resultado de {@link #performMultipleLinearRegression(DatasetSnapshot, RowSelection,
+     *               MissingDataPolicy, String, List)} con los mismos argumentos.
+     * @throws IllegalArgumentException con eliminación por pares, donde no hay un conjunto
+     *                                  único de filas ni residuos.
+     */
+    public RegressionResult computeRobustCovariances(DatasetSnapshot snapshot, RowSelection selection,
+                                                     MissingDataPolicy missingDataPolicy, RegressionResult fitted) {
+        if (resultCache == null) {
+            return addRobustCovariances(snapshot, selection, missingDataPolicy, fitted);
+        }
+        String key = AnalysisCache.key("regresion-robusta")
+                .option("politica", missingDataPolicy)
+                .column(snapshot, fitted.getDependentVariableName())
+                .columns(snapshot, fitted.getCoefficientNames().subList(1, fitted.getCoefficientCount()))
+                .rows(snapshot, selection)
+                .build();
+        return resultCache.getOrCompute(key, () -> addRobustCovariances(snapshot, selection, missingDataPolicy, fitted));
+    }
+
+    private RegressionResult addRobustCovariances(DatasetSnapshot snapshot, RowSelection selection,
+                                                  MissingDataPolicy missingDataPolicy, RegressionResult fitted) {
+        if (missingDataPolicy == MissingDataPolicy.PAIRWISE) {
+            throw new IllegalArgumentException("Los errores estándar robustos no están disponibles con eliminación por pares.");
+        }
+        int p = fitted.getCoefficientCount();
+        DatasetSnapshot.ColumnChunk[][] columns = new DatasetSnapshot.ColumnChunk[p][];
+        columns[0] = snapshot.getColumn(fitted.getDependentVariableName());
+        for (int j = 1; j < p; j++) {
+            columns[j] = snapshot.getColumn(fitted.getCoefficientName(j));
+        }
+        for (int j = 0; j < p; j++) {
+            if (columns[j] == null) {
+                throw new IllegalArgumentException("La instantánea no contiene las variables del modelo.");
+            }
+        }
+        double[] imputedMeans = missingDataPolicy == MissingDataPolicy.MEAN_IMPUTATION
+                ? availableCaseMeans(snapshot, selection, columns) : null;
+        double[] coefficients = fitted.getCoefficients();
+        double[] inverse = new double[p * p];
+        for (int i = 0; i < p; i++) {
+            for (int j = 0; j < p; j++) {
+                inverse[i * p + j] = fitted.getUnscaledCovariance(i, j);
+            }
+        }
+
+        // meats[0] = sum e² x x' (HC0), [1] = sum e²/(1-h) x x' (HC2), [2] = sum e²/(1-h)² x x' (HC3)
+        double[][] meats = chunkStream(snapshot)
+                .mapToObj(chunk -> {
+                    double[][] partial = new double[3][p * p];
+                    double[] x = new double[p];
+                    double[] inverseTimesX = new double[p];
+                    forEachModelRow(rowsOf(snapshot, selection, chunk), columns, chunk, imputedMeans, row -> {
+                        x[0] = 1.0;
+                        double residual = row[0] - coefficients[0];
+                        for (int j = 1; j < p; j++) {
+                            x[j] = row[j];
+                            residual -= coefficients[j] * row[j];
+                        }
+                        double leverage = 0.0;
+                        for (int i = 0; i < p; i++) {
+                            double sum = 0.0;
+                            for (int j = 0; j < p; j++) {
+                                sum += inverse[i * p + j] * x[j];
+                            }
+                            inverseTimesX[i] = sum;
+                            leverage += x[i] * sum;
+                        }
+                        double squared = residual * residual;
+                        double oneMinusLeverage = 1.0 - leverage;
+                        double[] weights = {squared, squared / oneMinusLeverage, squared / (oneMinusLeverage * oneMinusLeverage)};
+                        for (int i = 0; i < p; i++) {
+                            for (int j = i; j < p; j++) {
+                                double product = x[i] * x[j];
+                                for (int m = 0; m < 3; m++) {
+                                    partial[m][i * p + j] += weights[m] * product;
+                                }
+                            }
+                        }
+                    });
+                    return partial;
+                })
+                .reduce((a, b) -> {
+                    for (int m = 0; m < a.length; m++) {
+                        for (int i = 0; i < a[m].length; i++) {
+                            a[m][i] += b[m][i];
+                        }
+                    }
+                    return a;
+                })
+                .orElseGet(() -> new double[3][p * p]);
+
+        double[] hc0 = sandwich(inverse, meats[0], p);
+        double[] hc1 = hc0.clone();
+        double scale = (double) fitted.getNumObservations() / fitted.getResidualDegreesOfFreedom();
+        for (int i = 0; i < hc1.length; i++) {
+            hc1[i] *= scale;
+        }
+        return fitted.withRobustCovariances(new double[][]{hc0, hc1, sandwich(inverse, meats[1], p), sandwich(inverse, meats[2], p)});
+    }
+
+    /**
+     * A M A para A = (X'X)^-1 y la "carne" M (sólo el triángulo superior está relleno).
+     */
+    private static double[] sandwich(double[] inverse, double[] upperMeat, int p) {
+        double[] meat = upperMeat.clone();
+        for (int i = 0; i < p; i++) {
+            for (int j = 0; j < i; j++) {
+                meat[i * p + j] = meat[j * p + i];
+            }
+        }
+        double[] left = new double[p * p];
+        for (int i = 0; i < p; i++) {
+            for (int m = 0; m < p; m++) {
+                double a = inverse[i * p + m];
+                for (int j = 0; j < p; j++) {
+                    left[i * p + j] += a * meat[m * p + j];
+                }
+            }
+        }
+        double[] result = new double[p * p];
+        for (int i = 0; i < p; i++) {
+            for (int m = 0; m < p; m++) {
+                double a = left[i * p + m];
+                for (int j = 0; j < p; j++) {
+                    result[i * p + j] += a * inverse[m * p + j];
+                }
+            }
+        }
+        return result;
+    }
 
-        for (int currentRow = 0; currentRow < numObservations; currentRow++) {
-            Observation obs = validObservations.get(currentRow);
+    /**
+     * @param pairs Pares de columnas a acumular, o null para todos.
+     */
+    private PairwiseCoMoments accumulatePairwiseMoments(DatasetSnapshot snapshot, RowSelection selection,
+                                                        DatasetSnapshot.ColumnChunk[][] columns, boolean[] pairs) {
+        return chunkStream(snapshot)
+                .mapToObj(chunk -> {
+                    PairwiseCoMoments moments = new PairwiseCoMoments(columns.length, pairs);
+                    long[] rows = rowsOf(snapshot, selection, chunk);
+                    if (rows == null) {
+                        return moments;
+                    }
+                    double[] row = new double[columns.length];
+                    boolean[] valid = new boolean[columns.length];
+                    for (int word = 0; word < rows.length; word++) {
+                        long bits = rows[word];
+                        while (bits != 0) {
+                            int offset = (word << 6) + Long.numberOfTrailingZeros(bits);
+                            bits &= bits - 1;
+                            for (int j = 0; j < columns.length; j++) {
+                                valid[j] = columns[j][chunk].isNumeric(offset);
+                                row[j] = columns[j][chunk].getDouble(offset);
+                            }
+                            moments.add(row, valid);
+                        }
+                    }
+                    return moments;
+                })
+                .reduce((a, b) -> {
+                    a.merge(b);
+                    return a;
+                })
+                .orElseGet(() -> new PairwiseCoMoments(columns.length, pairs));
+    }
 
-            Object depValue = obs.getValue(dependentVariableName);
-            if (depValue instanceof Number) {
-                y[currentRow] = ((Number) depValue).doubleValue();
-            } else {
-                throw new IllegalArgumentException("Valor no numérico o nulo en variable dependiente '" + dependentVariableName + "' en la observación " + (currentRow + 1) + ".");
+    /**
+     * Media de cada columna sobre sus celdas válidas dentro de la selección.
+     */
+    private double[] availableCaseMeans(DatasetSnapshot snapshot, RowSelection selection, DatasetSnapshot.ColumnChunk[][] columns) {
+        double[] sums = new double[columns.length];
+        long[] counts = new long[columns.length];
+        for (int chunk = 0; chunk < snapshot.getChunkCount(); chunk++) {
+            long[] rows = rowsOf(snapshot, selection, chunk);
+            if (rows == null) {
+                continue;
             }
+            for (int j = 0; j < columns.length; j++) {
+                double[] numbers = columns[j][chunk].getNumbers();
+                long[] mask = columns[j][chunk].getNumericMask();
+                for (int word = 0; word < rows.length; word++) {
+                    long bits = rows[word] & mask[word];
+                    counts[j] += Long.bitCount(bits);
+                    while (bits != 0) {
+                        sums[j] += numbers[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                        bits &= bits - 1;
+                    }
+                }
+            }
+        }
+        double[] means = new double[columns.length];
+        for (int j = 0; j < columns.length; j++) {
+            means[j] = counts[j] > 0 ? sums[j] / counts[j] : Double.NaN;
+        }
+        return means;
+    }
+
+    /**
+     * Número de celdas de las X que se imputan: las faltantes en filas que sí tienen Y.
+     */
+    private int countImputedValues(DatasetSnapshot snapshot, RowSelection selection, DatasetSnapshot.ColumnChunk[][] columns) {
+        int imputed = 0;
+        for (int chunk = 0; chunk < snapshot.getChunkCount(); chunk++) {
+            long[] rows = rowsOf(snapshot, selection, chunk);
+            if (rows == null) {
+                continue;
+            }
+            for (int word = 0; word < rows.length; word++) {
+                long withOutcome = rows[word] & columns[0][chunk].getNumericMask()[word];
+                for (int j = 1; j < columns.length; j++) {
+                    imputed += Long.bitCount(withOutcome & ~columns[j][chunk].getNumericMask()[word]);
+                }
+            }
+        }
+        return imputed;
+    }
+
+    /**
+     * Restringe la selección a las filas con valor numérico en todas las variables indicadas.
+     */
+    private RowSelection completeRows(DatasetSnapshot snapshot, RowSelection selection, List<String> variableNames) {
+        long[][] chunks = new long[snapshot.getChunkCount()][];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            long[] rows = rowsOf(snapshot, selection, chunk);
+            if (rows == null) {
+                continue;
+            }
+            long[] complete = rows.clone();
+            for (String variableName : variableNames) {
+                long[] mask = snapshot.getColumn(variableName)[chunk].getNumericMask();
+                for (int word = 0; word < complete.length; word++) {
+                    complete[word] &= mask[word];
+                }
+            }
+            chunks[chunk] = complete;
+        }
+        return new RowSelection(chunks);
+    }
 
-            for (int i = 0; i < independentVariableNames.size(); i++) {
-                String indepVarName = independentVariableNames.get(i);
-                Object indepValue = obs.getValue(indepVarName);
-                if (indepValue instanceof Number) {
-                    x[currentRow][i] = ((Number) indepValue).doubleValue();
+    /**
+     * Estima un lote de modelos (p. ej. una variable dependiente frente a cada una de muchas
+     * candidatas, o varias dependientes frente a las mismas X) recorriendo los datos una vez
+     * por muestra distinta: los modelos que usan las mismas filas comparten una matriz de
+     * productos cruzados de la unión de sus variables, sólo con los pares que usa alguno, y
+     * cada modelo se resuelve a partir de su submatriz. Sin valores faltantes todo el lote
+     * comparte una sola pasada. Los modelos se resuelven en paralelo y cada resultado se
+     * entrega en cuanto está listo.
+     *
+     * Cada resultado es el mismo (salvo redondeo) que el de estimar el modelo solo con
+     * {@link #performMultipleLinearRegression(DatasetSnapshot, RowSelection, MissingDataPolicy,
+     * String, List)}.
+     *
+     * @param selection Las filas a incluir, o null para todas.
+     * @param missingDataPolicy Con eliminación por lista cada modelo usa las filas completas
+     *                          en sus propias variables. Con imputación, las filas con valor en
+     *                          su dependiente, imputando sus independientes. Con eliminación
+     *                          por pares, los pares de sus variables.
+     * @param models Los modelos a estimar.
+     * @param listener Recibe cada resultado o error a medida que se produce, o null.
+     * @return Los resultados en el orden de los modelos; null en los que no se pudieron estimar.
+     */
+    public List<RegressionResult> performRegressionBatch(DatasetSnapshot snapshot, RowSelection selection,
+                                                         MissingDataPolicy missingDataPolicy, List<ModelSpec> models,
+                                                         RegressionBatchListener listener) {
+        if (models.isEmpty()) {
+            throw new IllegalArgumentException("El lote no contiene ningún modelo.");
+        }
+        long start = BATCH_TIMER.start();
+        try {
+            return regressionBatch(snapshot, selection, missingDataPolicy, models, listener);
+        } finally {
+            BATCH_TIMER.stop(start);
+        }
+    }
+
+    private List<RegressionResult> regressionBatch(DatasetSnapshot snapshot, RowSelection selection,
+                                                   MissingDataPolicy missingDataPolicy, List<ModelSpec> models,
+                                                   RegressionBatchListener listener) {
+        // Unión de variables: primero las dependientes, después las independientes
+        List<String> variableNames = new ArrayList<>();
+        Map<String, Integer> positions = new HashMap<>();
+        for (ModelSpec model : models) {
+            addBatchVariable(snapshot, model.getDependentVariableName(), variableNames, positions);
+        }
+        for (ModelSpec model : models) {
+            for (String variableName : model.getIndependentVariableNames()) {
+                addBatchVariable(snapshot, variableName, variableNames, positions);
+            }
+        }
+
+        int dimension = variableNames.size();
+        int[][] modelColumns = new int[models.size()][];
+        for (int m = 0; m < modelColumns.length; m++) {
+            ModelSpec model = models.get(m);
+            int[] indexes = new int[model.getIndependentVariableNames().size() + 1];
+            indexes[0] = positions.get(model.getDependentVariableName());
+            for (int j = 1; j < indexes.length; j++) {
+                indexes[j] = positions.get(model.getIndependentVariableNames().get(j - 1));
+            }
+            modelColumns[m] = indexes;
+        }
+        DatasetSnapshot.ColumnChunk[][] columns = new DatasetSnapshot.ColumnChunk[dimension][];
+        for (int j = 0; j < dimension; j++) {
+            columns[j] = snapshot.getColumn(variableNames.get(j));
+        }
+
+        int selectedCount = selection != null ? selection.getSelectedCount() : snapshot.getRowCount();
+        PairwiseCoMoments pairwiseMoments = null;
+        SampleGroup[] modelGroups = new SampleGroup[models.size()];
+        long accumulateStart = ACCUMULATE_TIMER.start();
+        AnalysisPhase accumulation = AnalysisPhase.start("regressionBatch", AnalysisPhase.ACCUMULATION);
+        if (missingDataPolicy == MissingDataPolicy.PAIRWISE) {
+            boolean[] pairs = new boolean[dimension * dimension];
+            for (int[] indexes : modelColumns) {
+                for (int a : indexes) {
+                    for (int b : indexes) {
+                        pairs[Math.min(a, b) * dimension + Math.max(a, b)] = true;
+                    }
+                }
+            }
+            pairwiseMoments = accumulatePairwiseMoments(snapshot, selection, columns, pairs);
+        } else {
+            accumulateSampleGroups(snapshot, selection, missingDataPolicy, variableNames, columns, modelColumns, modelGroups);
+        }
+        ACCUMULATE_TIMER.stop(accumulateStart);
+        accumulation.finish(snapshot.getName(), selectedCount, dimension);
+        ROWS_SCANNED.add(selectedCount);
+
+        PairwiseCoMoments commonPairwiseMoments = pairwiseMoments;
+        RegressionResult[] results = new RegressionResult[models.size()];
+        IntStream.range(0, models.size()).parallel().forEach(m -> {
+            ModelSpec model = models.get(m);
+            int[] indexes = modelColumns[m];
+            try {
+                CoMomentMatrix modelMoments;
+                int valuesImputed = -1;
+                if (commonPairwiseMoments != null) {
+                    modelMoments = commonPairwiseMoments.toCoMomentMatrix(indexes);
                 } else {
-                    throw new IllegalArgumentException("Valor no numérico o nulo en variable independiente '" + indepVarName + "' en la observación " + (currentRow + 1) + ".");
+                    SampleGroup group = modelGroups[m];
+                    int[] local = group.localIndexes(indexes);
+                    modelMoments = group.moments.select(local);
+                    if (group.missingCounts != null) {
+                        valuesImputed = 0;
+                        for (int j = 1; j < local.length; j++) {
+                            valuesImputed += (int) group.missingCounts[local[j]];
+                        }
+                    }
+                }
+                results[m] = performMultipleLinearRegression(modelMoments, model.getDependentVariableName(), model.getIndependentVariableNames())
+                        .withMissingDataHandling(missingDataPolicy.name(), (int) (selectedCount - modelMoments.getCount()), valuesImputed);
+            } catch (IllegalArgumentException e) {
+                if (listener != null) {
+                    listener.modelFailed(m, model, e);
+                }
+                return;
+            }
+            if (listener != null) {
+                listener.modelCompleted(m, model, results[m]);
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Agrupa los modelos del lote por las filas que usan y acumula los co-momentos de cada
+     * grupo. Las filas de un modelo sólo dependen de cuáles de sus variables tienen faltantes
+     * en la selección (con eliminación por lista, todas las suyas; con imputación, sólo la
+     * dependiente), así que los modelos con el mismo conjunto de esas variables comparten grupo.
+     *
+     * @param modelGroups Recibe el grupo de cada modelo.
+     */
+    private void accumulateSampleGroups(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy missingDataPolicy,
+                                        List<String> variableNames, DatasetSnapshot.ColumnChunk[][] columns,
+                                        int[][] modelColumns, SampleGroup[] modelGroups) {
+        boolean imputation = missingDataPolicy == MissingDataPolicy.MEAN_IMPUTATION;
+        long[] missingInSelection = countMissingValues(snapshot, selection != null ? selection : RowSelection.all(snapshot), columns);
+        double[] columnMeans = imputation ? availableCaseMeans(snapshot, selection, columns) : null;
+
+        Map<List<Integer>, SampleGroup> groups = new LinkedHashMap<>();
+        for (int m = 0; m < modelColumns.length; m++) {
+            int[] indexes = modelColumns[m];
+            TreeSet<Integer> restricting = new TreeSet<>();
+            for (int j = 0; j < (imputation ? 1 : indexes.length); j++) {
+                if (missingInSelection[indexes[j]] > 0) {
+                    restricting.add(indexes[j]);
+                }
+            }
+            SampleGroup group = groups.computeIfAbsent(new ArrayList<>(restricting), key -> new SampleGroup(key, columns.length));
+            group.addModel(indexes);
+            modelGroups[m] = group;
+        }
+
+        for (SampleGroup group : groups.values()) {
+            List<String> restrictingNames = new ArrayList<>();
+            for (int column : group.restricting) {
+                restrictingNames.add(variableNames.get(column));
+            }
+            RowSelection rows = completeRows(snapshot, selection, restrictingNames);
+            int size = group.columns.size();
+            DatasetSnapshot.ColumnChunk[][] groupColumns = new DatasetSnapshot.ColumnChunk[size][];
+            double[] groupMeans = imputation ? new double[size] : null;
+            for (int j = 0; j < size; j++) {
+                groupColumns[j] = columns[group.columns.get(j)];
+                if (imputation) {
+                    groupMeans[j] = columnMeans[group.columns.get(j)];
+                }
+            }
+            boolean[] pairs = new boolean[size * size];
+            for (int[] local : group.modelLocalIndexes) {
+                for (int a : local) {
+                    for (int b : local) {
+                        pairs[Math.min(a, b) * size + Math.max(a, b)] = true;
+                    }
+                }
+            }
+            group.moments = accumulateBlockMoments(snapshot, rows, groupColumns, pairs, groupMeans);
+            group.missingCounts = imputation ? countMissingValues(snapshot, rows, groupColumns) : null;
+        }
+    }
+
+    /**
+     * Modelos de un lote que usan las mismas filas y sus co-momentos comunes.
+     */
+    private static final class SampleGroup {
+        private final List<Integer> restricting; // Variables (del lote) con faltantes que limitan las filas
+        private final List<Integer> columns = new ArrayList<>(); // Variables del grupo, como índices del lote
+        private final int[] localByColumn;
+        private final List<int[]> modelLocalIndexes = new ArrayList<>();
+        private CoMomentMatrix moments;
+        private long[] missingCounts; // Con imputación, las celdas imputadas de cada variable del grupo
+
+        SampleGroup(List<Integer> restricting, int batchDimension) {
+            this.restricting = restricting;
+            this.localByColumn = new int[batchDimension];
+            Arrays.fill(localByColumn, -1);
+        }
+
+        void addModel(int[] indexes) {
+            for (int column : indexes) {
+                if (localByColumn[column] < 0) {
+                    localByColumn[column] = columns.size();
+                    columns.add(column);
                 }
             }
+            modelLocalIndexes.add(localIndexes(indexes));
         }
 
-        OLSMultipleLinearRegression regression = new OLSMultipleLinearRegression();
-        // Por defecto, OLSMultipleLinearRegression calcula un intercepto.
-        // Si no quieres intercepto, descomenta la línea de abajo.
-        // regression.setNoIntercept(true);
+        int[] localIndexes(int[] indexes) {
+            int[] local = new int[indexes.length];
+            for (int j = 0; j < indexes.length; j++) {
+                local[j] = localByColumn[indexes[j]];
+            }
+            return local;
+        }
+    }
 
+    /**
+     * Acumula en una sola pasada los co-momentos de las variables indicadas (la primera como
+     * dependiente, a efectos de la imputación), p. ej. para la selección de variables.
+     *
+     * @param missingDataPolicy Como en {@link #performMultipleLinearRegression(DatasetSnapshot,
+     *                          RowSelection, MissingDataPolicy, String, List)}, con todas las
+     *                          variables a la vez.
+     */
+    public CoMomentMatrix computeCoMoments(DatasetSnapshot snapshot, RowSelection selection,
+                                           MissingDataPolicy missingDataPolicy, List<String> variableNames) {
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> positions = new HashMap<>();
+        for (String variableName : variableNames) {
+            addBatchVariable(snapshot, variableName, names, positions);
+        }
+        DatasetSnapshot.ColumnChunk[][] columns = new DatasetSnapshot.ColumnChunk[names.size()][];
+        for (int j = 0; j < columns.length; j++) {
+            columns[j] = snapshot.getColumn(names.get(j));
+        }
+        boolean[] pairs = new boolean[columns.length * columns.length];
+        Arrays.fill(pairs, true);
+        int selectedCount = selection != null ? selection.getSelectedCount() : snapshot.getRowCount();
+        long start = ACCUMULATE_TIMER.start();
+        AnalysisPhase accumulation = AnalysisPhase.start("coMoments", AnalysisPhase.ACCUMULATION);
+        ROWS_SCANNED.add(selectedCount);
         try {
-            regression.newSampleData(y, x); // Carga los datos (Y dependiente, X independientes)
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Error al cargar datos para regresión: " + e.getMessage());
+            switch (missingDataPolicy) {
+                case PAIRWISE:
+                    return accumulatePairwiseMoments(snapshot, selection, columns, null).toCoMomentMatrix();
+                case MEAN_IMPUTATION:
+                    double[] columnMeans = availableCaseMeans(snapshot, selection, columns);
+                    return accumulateBlockMoments(snapshot, completeRows(snapshot, selection, names.subList(0, 1)), columns, pairs, columnMeans);
+                default:
+                    return accumulateBlockMoments(snapshot, completeRows(snapshot, selection, names), columns, pairs, null);
+            }
+        } finally {
+            ACCUMULATE_TIMER.stop(start);
+            accumulation.finish(snapshot.getName(), selectedCount, columns.length);
         }
+    }
 
-        double[] beta = regression.estimateRegressionParameters(); // Coeficientes (incluye intercepto si aplica)
-        double rSquared = regression.calculateRSquared(); // R-cuadrado
-        double adjustedRSquared = regression.calculateAdjustedRSquared(); // R-cuadrado ajustado
-        double sigma = regression.estimateRegressionStandardError(); // Error estándar de los residuales
-        double sumOfSqResiduals = regression.estimateResidualSumOfSquares(); // Suma de cuadrados de los residuales (SSE)
-        double sumOfRegressionSquares = regression.estimateRegressionSumOfSquares(); // Suma de cuadrados de la regresión (SSR)
-        double totalSumOfSquares = regression.estimateTotalSumSquares(); // Suma total de cuadrados
+    /**
+     * Estadísticos descriptivos de todas las variables numéricas (número de valores,
+     * faltantes, media, varianza, asimetría, curtosis, mínimo y máximo) y sus matrices de
+     * covarianzas y correlaciones de Pearson, con eliminación por pares.
+     *
+     * Los datos se recorren una vez por bloque de la matriz: las variables se agrupan de
+     * {@value #CORRELATION_TILE_SIZE} en {@value #CORRELATION_TILE_SIZE} y cada par de grupos
+     * acumula sus co-momentos bloque a bloque de filas, combinándolos con Chan
+     * ({@link PairwiseMomentTile}). Los pares de grupos se calculan en paralelo, y los bloques
+     * de filas también en datasets grandes. Los momentos de cada variable se acumulan con
+     * Welford en la misma pasada de los grupos de la diagonal.
+     *
+     * El resultado se guarda en la instantánea ({@link DatasetSnapshot#computeIfAbsent}), así
+     * que se calcula una sola vez por versión del dataset y selección de filas.
+     *
+     * @param selection Las filas a incluir, o null para todas.
+     * @throws IllegalArgumentException si el dataset no tiene variables numéricas.
+     */
+    public DescriptiveStatisticsResult computeDescriptiveStatistics(DatasetSnapshot snapshot, RowSelection selection) {
+        String key = AnalysisCache.key("descriptivos").rows(snapshot, selection).build();
+        return snapshot.computeIfAbsent(key, () -> timed(DESCRIPTIVES_TIMER, () -> describe(snapshot, selection)));
+    }
 
-        // Crear un mapa de resultados
-        Map<String, Object> results = new HashMap<>();
+    private DescriptiveStatisticsResult describe(DatasetSnapshot snapshot, RowSelection selection) {
+        List<String> names = new ArrayList<>();
+        for (Variable variable : snapshot.getVariables()) {
+            if (isNumeric(variable.getType()) && snapshot.getColumn(variable.getName()) != null) {
+                names.add(variable.getName());
+            }
+        }
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("El dataset no tiene variables numéricas.");
+        }
+        int k = names.size();
+        DatasetSnapshot.ColumnChunk[][] columns = new DatasetSnapshot.ColumnChunk[k][];
+        for (int j = 0; j < k; j++) {
+            columns[j] = snapshot.getColumn(names.get(j));
+        }
+
+        // Pares de grupos de variables (a <= b) del triángulo superior
+        int groups = (k + CORRELATION_TILE_SIZE - 1) / CORRELATION_TILE_SIZE;
+        List<int[]> tilePairs = new ArrayList<>();
+        for (int a = 0; a < groups; a++) {
+            for (int b = a; b < groups; b++) {
+                tilePairs.add(new int[]{a * CORRELATION_TILE_SIZE, Math.min(k, (a + 1) * CORRELATION_TILE_SIZE),
+                        b * CORRELATION_TILE_SIZE, Math.min(k, (b + 1) * CORRELATION_TILE_SIZE)});
+            }
+        }
+
+        int selectedCount = selection != null ? selection.getSelectedCount() : snapshot.getRowCount();
+        long accumulateStart = ACCUMULATE_TIMER.start();
+        AnalysisPhase accumulation = AnalysisPhase.start("descriptives", AnalysisPhase.ACCUMULATION);
+        PairwiseMomentTile[] tiles = new PairwiseMomentTile[tilePairs.size()];
+        IntStream.range(0, tiles.length).parallel().forEach(t -> {
+            int[] bounds = tilePairs.get(t);
+            tiles[t] = chunkStream(snapshot)
+                    .mapToObj(chunk -> PairwiseMomentTile.fromChunk(rowsOf(snapshot, selection, chunk), columns, chunk,
+                            bounds[0], bounds[1], bounds[2], bounds[3]))
+                    .reduce((first, second) -> {
+                        first.merge(second);
+                        return first;
+                    })
+                    .orElseGet(() -> new PairwiseMomentTile(bounds[0], bounds[1], bounds[2], bounds[3]));
+        });
+        ACCUMULATE_TIMER.stop(accumulateStart);
+        accumulation.finish(snapshot.getName(), selectedCount, k);
+        ROWS_SCANNED.add(selectedCount);
+
+        long[] counts = new long[k];
+        double[] means = new double[k];
+        double[] variances = new double[k];
+        double[] skewness = new double[k];
+        double[] kurtosis = new double[k];
+        double[] minimums = new double[k];
+        double[] maximums = new double[k];
+        long[] pairCounts = new long[k * k];
+        double[] covariances = new double[k * k];
+        double[] correlations = new double[k * k];
+        for (int t = 0; t < tiles.length; t++) {
+            PairwiseMomentTile tile = tiles[t];
+            int[] bounds = tilePairs.get(t);
+            for (int i = bounds[0]; i < bounds[1]; i++) {
+                int a = i - bounds[0];
+                if (tile.isDiagonal()) {
+                    MomentAccumulator moments = tile.getMoments(a);
+                    counts[i] = moments.getCount();
+                    means[i] = moments.getMean();
+                    variances[i] = moments.getVariance();
+                    skewness[i] = moments.getSkewness();
+                    kurtosis[i] = moments.getKurtosis();
+                    minimums[i] = moments.getMin();
+                    maximums[i] = moments.getMax();
+                    pairCounts[i * k + i] = counts[i];
+                    covariances[i * k + i] = variances[i];
+                    correlations[i * k + i] = variances[i] > 0 ? 1.0 : Double.NaN;
+                }
+                for (int j = Math.max(bounds[2], i + 1); j < bounds[3]; j++) {
+                    int b = j - bounds[2];
+                    pairCounts[i * k + j] = tile.getCount(a, b);
+                    pairCounts[j * k + i] = pairCounts[i * k + j];
+                    covariances[i * k + j] = tile.getCovariance(a, b);
+                    covariances[j * k + i] = covariances[i * k + j];
+                    correlations[i * k + j] = tile.getCorrelation(a, b);
+                    correlations[j * k + i] = correlations[i * k + j];
+                }
+            }
+        }
+        return new DescriptiveStatisticsResult(names, selectedCount, counts, means, variances, skewness, kurtosis,
+                minimums, maximums, pairCounts, covariances, correlations);
+    }
+
+    /**
+     * Selección de variables: elige entre los candidatos los predictores de la variable
+     * dependiente según el criterio indicado. Los datos se recorren una sola vez; la búsqueda
+     * trabaja después sobre la matriz de productos cruzados ({@link ModelSelector}).
+     *
+     * @param candidateVariableNames Los predictores candidatos.
+     * @return El modelo elegido, con su regresión (null si no conviene ningún predictor).
+     */
+    public ModelSelectionResult performModelSelection(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy missingDataPolicy,
+                                                      String dependentVariableName, List<String> candidateVariableNames,
+                                                      SelectionMethod method, SelectionCriterion criterion) {
+        List<String> variableNames = new ArrayList<>();
+        variableNames.add(dependentVariableName);
+        for (String candidate : candidateVariableNames) {
+            if (!variableNames.contains(candidate)) {
+                variableNames.add(candidate);
+            }
+        }
+        if (variableNames.size() < 2) {
+            throw new IllegalArgumentException("Se requiere al menos una variable candidata distinta de la dependiente.");
+        }
+        long start = SELECTION_TIMER.start();
+        try {
+            CoMomentMatrix moments = computeCoMoments(snapshot, selection, missingDataPolicy, variableNames);
+            ModelSelectionResult result = new ModelSelector(moments, variableNames, criterion).select(method);
+            if (result.getRegression() == null) {
+                return result;
+            }
+            // La regresión del modelo elegido usa la muestra de la selección (con eliminación por
+            // lista, las filas completas en todos los candidatos)
+            int valuesImputed = -1;
+            if (missingDataPolicy == MissingDataPolicy.MEAN_IMPUTATION) {
+                List<String> modelNames = new ArrayList<>();
+                modelNames.add(dependentVariableName);
+                modelNames.addAll(result.getSelectedVariables());
+                DatasetSnapshot.ColumnChunk[][] columns = new DatasetSnapshot.ColumnChunk[modelNames.size()][];
+                for (int j = 0; j < columns.length; j++) {
+                    columns[j] = snapshot.getColumn(modelNames.get(j));
+                }
+                valuesImputed = countImputedValues(snapshot, selection, columns);
+            }
+            int selectedCount = selection != null ? selection.getSelectedCount() : snapshot.getRowCount();
+            return result.withRegression(result.getRegression().withMissingDataHandling(missingDataPolicy.name(),
+                    (int) (selectedCount - moments.getCount()), valuesImputed));
+        } finally {
+            SELECTION_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Filas de la selección con valor numérico en todas las variables indicadas: la muestra
+     * de una selección de variables con eliminación por lista, con la que deben calcularse
+     * también los errores robustos y la validación cruzada del modelo elegido.
+     * @param selection Las filas de partida, o null para todas.
+     */
+    public RowSelection selectCompleteRows(DatasetSnapshot snapshot, RowSelection selection, List<String> variableNames) {
+        for (String variableName : variableNames) {
+            if (snapshot.getColumn(variableName) == null) {
+                throw new IllegalArgumentException("Variable no encontrada: " + variableName);
+            }
+        }
+        return completeRows(snapshot, selection, variableNames);
+    }
+
+    /**
+     * Validación cruzada de k folds de una regresión. Las filas que entran en el modelo se
+     * reparten al azar (con la semilla indicada) en folds de tamaño casi igual y se acumulan
+     * en una sola pasada los co-momentos de cada fold. El entrenamiento de cada fold es
+     * "total menos fold" ({@link CoMomentMatrix#subtract}) y su error de predicción se obtiene
+     * en forma cerrada de los co-momentos del fold, así que la validación cuesta una pasada
+     * sobre los datos más k resoluciones pequeñas, que se hacen en paralelo.
+     *
+     * @param missingDataPolicy Eliminación por lista o imputación (con las medias de toda la
+     *                          selección).
+     * @param folds Número de folds, al menos 2.
+     * @param seed Semilla del reparto de filas en folds.
+     * @throws IllegalArgumentException con eliminación por pares, donde no hay un conjunto
+     *                                  único de filas, o si algún entrenamiento es singular.
+     */
+    public CrossValidationResult performCrossValidation(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy missingDataPolicy,
+                                                        String dependentVariableName, List<String> independentVariableNames,
+                                                        int folds, long seed) {
+        if (resultCache == null) {
+            return timed(CROSS_VALIDATION_TIMER,
+                    () -> crossValidate(snapshot, selection, missingDataPolicy, dependentVariableName, independentVariableNames, folds, seed));
+        }
+        String key = AnalysisCache.key("validacion-cruzada")
+                .option("politica", missingDataPolicy)
+                .option("folds", folds)
+                .option("semilla", seed)
+                .column(snapshot, dependentVariableName)
+                .columns(snapshot, independentVariableNames)
+                .rows(snapshot, selection)
+                .build();
+        return resultCache.getOrCompute(key, () -> timed(CROSS_VALIDATION_TIMER,
+                () -> crossValidate(snapshot, selection, missingDataPolicy, dependentVariableName, independentVariableNames, folds, seed)));
+    }
+
+    private CrossValidationResult crossValidate(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy missingDataPolicy,
+                                                String dependentVariableName, List<String> independentVariableNames,
+                                                int folds, long seed) {
+        if (missingDataPolicy == MissingDataPolicy.PAIRWISE) {
+            throw new IllegalArgumentException("La validación cruzada no está disponible con eliminación por pares.");
+        }
+        if (folds < 2) {
+            throw new IllegalArgumentException("La validación cruzada necesita al menos 2 folds: " + folds);
+        }
+        List<String> variableNames = new ArrayList<>();
+        Map<String, Integer> positions = new HashMap<>();
+        addBatchVariable(snapshot, dependentVariableName, variableNames, positions);
+        for (String variableName : independentVariableNames) {
+            addBatchVariable(snapshot, variableName, variableNames, positions);
+        }
+        if (variableNames.size() != independentVariableNames.size() + 1) {
+            throw new IllegalArgumentException("Las variables del modelo no pueden repetirse.");
+        }
+        DatasetSnapshot.ColumnChunk[][] columns = new DatasetSnapshot.ColumnChunk[variableNames.size()][];
+        for (int j = 0; j < columns.length; j++) {
+            columns[j] = snapshot.getColumn(variableNames.get(j));
+        }
+
+        double[] imputedMeans = null;
+        RowSelection rows;
+        if (missingDataPolicy == MissingDataPolicy.MEAN_IMPUTATION) {
+            imputedMeans = availableCaseMeans(snapshot, selection, columns);
+            rows = completeRows(snapshot, selection, variableNames.subList(0, 1));
+        } else {
+            rows = completeRows(snapshot, selection, variableNames);
+        }
+        int numObservations = rows.getSelectedCount();
+        if (numObservations < folds) {
+            throw new IllegalArgumentException("No hay suficientes observaciones (" + numObservations + ") para " + folds + " folds.");
+        }
+
+        long accumulateStart = ACCUMULATE_TIMER.start();
+        AnalysisPhase accumulation = AnalysisPhase.start("crossValidation", AnalysisPhase.ACCUMULATION);
+        CoMomentMatrix[] foldMoments = accumulateFoldMoments(snapshot, rows, columns, imputedMeans, assignFolds(numObservations, folds, seed), folds);
+        ACCUMULATE_TIMER.stop(accumulateStart);
+        accumulation.finish(snapshot.getName(), numObservations, columns.length);
+        ROWS_SCANNED.add(numObservations);
+        CoMomentMatrix total = new CoMomentMatrix(columns.length);
+        for (CoMomentMatrix fold : foldMoments) {
+            total.merge(fold);
+        }
+
+        int k = independentVariableNames.size();
+        long[] foldObservations = new long[folds];
+        double[] foldErrors = new double[folds];
+        double[] foldTotals = new double[folds];
+        IntStream.range(0, folds).parallel().forEach(f -> {
+            CoMomentMatrix test = foldMoments[f];
+            CoMomentMatrix training = total.copy();
+            training.subtract(test);
+            RegressionResult fitted;
+            try {
+                fitted = performMultipleLinearRegression(training, dependentVariableName, independentVariableNames);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Fold " + (f + 1) + ": " + e.getMessage(), e);
+            }
+            // Suma de (y - b0 - b'x)² sobre el fold a partir de sus medias y co-momentos centrados
+            double offset = test.getMean(0) - fitted.getCoefficient(0);
+            double errors = test.getCoMoment(0, 0);
+            for (int i = 1; i <= k; i++) {
+                double bi = fitted.getCoefficient(i);
+                offset -= bi * test.getMean(i);
+                errors -= 2.0 * bi * test.getCoMoment(0, i);
+                for (int j = 1; j <= k; j++) {
+                    errors += bi * fitted.getCoefficient(j) * test.getCoMoment(i, j);
+                }
+            }
+            foldObservations[f] = test.getCount();
+            foldErrors[f] = Math.max(0.0, errors + test.getCount() * offset * offset);
+            foldTotals[f] = test.getCoMoment(0, 0);
+        });
+        return new CrossValidationResult(dependentVariableName, seed, numObservations, foldObservations, foldErrors, foldTotals,
+                total.getCoMoment(0, 0));
+    }
+
+    /**
+     * Fold de cada fila que entra, en orden de índice: una permutación aleatoria de
+     * 0, 1, ..., folds - 1, 0, 1, ... para que los folds difieran a lo sumo en una fila.
+     */
+    private static int[] assignFolds(int rowCount, int folds, long seed) {
+        int[] assignment = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            assignment[i] = i % folds;
+        }
+        Random random = new Random(seed);
+        for (int i = rowCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = assignment[i];
+            assignment[i] = assignment[j];
+            assignment[j] = swap;
+        }
+        return assignment;
+    }
+
+    /**
+     * Como {@link #accumulateBlockMoments}, pero con un acumulador por fold. Cada bloque sabe
+     * qué posición ocupa su primera fila entre todas las que entran, así que los bloques se
+     * siguen recorriendo en paralelo.
+     */
+    private CoMomentMatrix[] accumulateFoldMoments(DatasetSnapshot snapshot, RowSelection rows, DatasetSnapshot.ColumnChunk[][] columns,
+                                                   double[] imputedMeans, int[] foldOfRow, int folds) {
+        int chunkCount = snapshot.getChunkCount();
+        int[] firstRow = new int[chunkCount + 1];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            long[] words = rows.getChunk(chunk);
+            int count = 0;
+            if (words != null) {
+                for (long word : words) {
+                    count += Long.bitCount(word);
+                }
+            }
+            firstRow[chunk + 1] = firstRow[chunk] + count;
+        }
+        boolean[] pairs = new boolean[columns.length * columns.length];
+        Arrays.fill(pairs, true);
+        return chunkStream(snapshot)
+                .mapToObj(chunk -> {
+                    int[] foldCounts = new int[folds];
+                    for (int i = firstRow[chunk]; i < firstRow[chunk + 1]; i++) {
+                        foldCounts[foldOfRow[i]]++;
+                    }
+                    double[][][] values = new double[folds][columns.length][];
+                    for (int f = 0; f < folds; f++) {
+                        for (int j = 0; j < columns.length; j++) {
+                            values[f][j] = new double[foldCounts[f]];
+                        }
+                    }
+                    long[] words = rows.getChunk(chunk);
+                    int[] filled = new int[folds];
+                    int position = firstRow[chunk];
+                    for (int word = 0; words != null && word < words.length; word++) {
+                        long bits = words[word];
+                        while (bits != 0) {
+                            int offset = (word << 6) + Long.numberOfTrailingZeros(bits);
+                            bits &= bits - 1;
+                            int f = foldOfRow[position++];
+                            int row = filled[f]++;
+                            for (int j = 0; j < columns.length; j++) {
+                                DatasetSnapshot.ColumnChunk column = columns[j][chunk];
+                                values[f][j][row] = imputedMeans == null || column.isNumeric(offset) ? column.getDouble(offset) : imputedMeans[j];
+                            }
+                        }
+                    }
+                    CoMomentMatrix[] moments = new CoMomentMatrix[folds];
+                    for (int f = 0; f < folds; f++) {
+                        moments[f] = CoMomentMatrix.fromColumns(values[f], foldCounts[f], pairs);
+                    }
+                    return moments;
+                })
+                .reduce((a, b) -> {
+                    for (int f = 0; f < folds; f++) {
+                        a[f].merge(b[f]);
+                    }
+                    return a;
+                })
+                .orElseGet(() -> {
+                    CoMomentMatrix[] empty = new CoMomentMatrix[folds];
+                    for (int f = 0; f < folds; f++) {
+                        empty[f] = new CoMomentMatrix(columns.length);
+                    }
+                    return empty;
+                });
+    }
 
-        List<String> coefNames = new ArrayList<>();
-        List<Double> coefficients = new ArrayList<>();
+    private void addBatchVariable(DatasetSnapshot snapshot, String variableName, List<String> variableNames, Map<String, Integer> positions) {
+        if (positions.containsKey(variableName)) {
+            return;
+        }
+        Variable variable = snapshot.getVariableByName(variableName);
+        if (variable == null) {
+            throw new IllegalArgumentException("Variable no encontrada: " + variableName);
+        }
+        if (!isNumeric(variable.getType())) {
+            throw new IllegalArgumentException("La variable '" + variableName + "' debe ser numérica.");
+        }
+        positions.put(variableName, variableNames.size());
+        variableNames.add(variableName);
+    }
 
-        if (!regression.isNoIntercept()) { // Si el modelo incluye intercepto
-            coefNames.add("Intercepto");
-            coefficients.add(beta[0]);
-            for (int i = 0; i < independentVariableNames.size(); i++) {
-                coefNames.add(independentVariableNames.get(i));
-                coefficients.add(beta[i + 1]); // Los coeficientes de las variables independientes están después del intercepto
+    /**
+     * Acumula los co-momentos de las filas seleccionadas bloque a bloque: cada bloque copia
+     * sus filas por columnas y calcula sus productos cruzados en dos pasadas, y los bloques
+     * se combinan con Chan.
+     *
+     * @param rows Las filas que entran; deben tener valor en todas las columnas salvo las
+     *             que se imputan.
+     * @param pairs Los pares de columnas que hay que calcular.
+     * @param imputedMeans Null si las filas están completas; si no, el valor con que se
+     *                     sustituye cada celda faltante.
+     */
+    private CoMomentMatrix accumulateBlockMoments(DatasetSnapshot snapshot, RowSelection rows,
+                                                  DatasetSnapshot.ColumnChunk[][] columns, boolean[] pairs, double[] imputedMeans) {
+        return chunkStream(snapshot)
+                .mapToObj(chunk -> {
+                    long[] words = rows.getChunk(chunk);
+                    int rowCount = 0;
+                    if (words != null) {
+                        for (long word : words) {
+                            rowCount += Long.bitCount(word);
+                        }
+                    }
+                    double[][] values = new double[columns.length][rowCount];
+                    for (int j = 0; j < columns.length && rowCount > 0; j++) {
+                        DatasetSnapshot.ColumnChunk column = columns[j][chunk];
+                        double[] numbers = column.getNumbers();
+                        int row = 0;
+                        for (int word = 0; word < words.length; word++) {
+                            long bits = words[word];
+                            while (bits != 0) {
+                                int offset = (word << 6) + Long.numberOfTrailingZeros(bits);
+                                bits &= bits - 1;
+                                values[j][row++] = imputedMeans == null || column.isNumeric(offset) ? numbers[offset] : imputedMeans[j];
+                            }
+                        }
+                    }
+                    return CoMomentMatrix.fromColumns(values, rowCount, pairs);
+                })
+                .reduce((a, b) -> {
+                    a.merge(b);
+                    return a;
+                })
+                .orElseGet(() -> new CoMomentMatrix(columns.length));
+    }
+
+    /**
+     * Número de celdas sin valor numérico de cada columna dentro de las filas indicadas.
+     */
+    private long[] countMissingValues(DatasetSnapshot snapshot, RowSelection rows, DatasetSnapshot.ColumnChunk[][] columns) {
+        long[] missing = new long[columns.length];
+        for (int chunk = 0; chunk < snapshot.getChunkCount(); chunk++) {
+            long[] words = rows.getChunk(chunk);
+            if (words == null) {
+                continue;
             }
-        } else { // Si el modelo no incluye intercepto
-            for (int i = 0; i < independentVariableNames.size(); i++) {
-                coefNames.add(independentVariableNames.get(i));
-                coefficients.add(beta[i]);
+            for (int j = 0; j < columns.length; j++) {
+                long[] mask = columns[j][chunk].getNumericMask();
+                for (int word = 0; word < words.length; word++) {
+                    missing[j] += Long.bitCount(words[word] & ~mask[word]);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Realiza una regresión lineal múltiple (con intercepto) a partir de estadísticos
+     * suficientes ya acumulados, por ejemplo los de un lote de modelos o los que mantiene
+     * {@link IncrementalRegression}, sin recorrer las observaciones.
+     *
+     * @param moments Medias y co-momentos centrados; la columna 0 es la variable dependiente
+     *                y las columnas 1..k son las independientes, en el orden de la lista.
+     * @param dependentVariableName El nombre de la variable dependiente.
+     * @param independentVariableNames Los nombres de las variables independientes.
+     * @return Los mismos resultados que {@link #performMultipleLinearRegression(Dataset, String, List)}.
+     */
+    public RegressionResult performMultipleLinearRegression(
+            CoMomentMatrix moments, String dependentVariableName, List<String> independentVariableNames) {
+        AnalysisPhase solve = AnalysisPhase.start("regression", AnalysisPhase.SOLVE);
+        RegressionResult result = timed(SOLVE_TIMER, () -> solveRegression(moments, dependentVariableName, independentVariableNames));
+        solve.finish(null, moments.getCount(), independentVariableNames.size() + 1);
+        return result;
+    }
+
+    private RegressionResult solveRegression(
+            CoMomentMatrix moments, String dependentVariableName, List<String> independentVariableNames) {
+        int k = independentVariableNames.size();
+        if (k == 0) {
+            throw new IllegalArgumentException("Se requiere al menos una variable independiente para la regresión.");
+        }
+        if (moments.getDimension() != k + 1) {
+            throw new IllegalArgumentException("La matriz de momentos tiene " + moments.getDimension() + " columnas, se esperaban " + (k + 1) + ".");
+        }
+        long numObservations = moments.getCount();
+        if (numObservations <= k + 1) {
+            throw new IllegalArgumentException("No hay suficientes observaciones (" + numObservations + ") para la regresión con " + k + " variables independientes. Se necesitan al menos " + (k + 2) + " observaciones.");
+        }
+
+        RealMatrix sxx = new Array2DRowRealMatrix(k, k);
+        RealVector sxy = new ArrayRealVector(k);
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < k; j++) {
+                sxx.setEntry(i, j, moments.getCoMoment(i + 1, j + 1));
             }
+            sxy.setEntry(i, moments.getCoMoment(i + 1, 0));
         }
 
-        results.put("CoefficientNames", coefNames);
-        results.put("Coefficients", coefficients);
+        RealMatrix sxxInverse;
+        double[] slopes;
+        try {
+            DecompositionSolver solver = new CholeskyDecomposition(sxx).getSolver();
+            slopes = solver.solve(sxy).toArray();
+            sxxInverse = solver.getInverse();
+        } catch (MathIllegalArgumentException e) {
+            throw new IllegalArgumentException("La matriz X'X es singular (variables independientes colineales o constantes): " + e.getMessage());
+        }
 
-        results.put("R-Squared", rSquared);
-        results.put("Adjusted R-Squared", adjustedRSquared);
-        results.put("Regression Standard Error (Sigma)", sigma);
-        results.put("Residual Sum of Squares (SSE)", sumOfSqResiduals);
-        results.put("Regression Sum of Squares (SSR)", sumOfRegressionSquares);
-        results.put("Total Sum of Squares (SST)", totalSumOfSquares);
-        results.put("Num Observations", numObservations);
-        results.put("Num Independent Variables", independentVariableNames.size());
+        double intercept = moments.getMean(0);
+        double sumOfRegressionSquares = 0.0;
+        for (int i = 0; i < k; i++) {
+            intercept -= slopes[i] * moments.getMean(i + 1);
+            sumOfRegressionSquares += slopes[i] * sxy.getEntry(i);
+        }
+        double totalSumOfSquares = moments.getCoMoment(0, 0);
+        double sumOfSqResiduals = Math.max(0.0, totalSumOfSquares - sumOfRegressionSquares);
 
+        // (X'X)^-1 con intercepto a partir de la inversa centrada que ya da la factorización:
+        // pendientes: Sxx^-1; intercepto: 1/n + x̄' Sxx^-1 x̄; cruzadas: -Sxx^-1 x̄
+        int p = k + 1;
+        double[] unscaledCovariance = new double[p * p];
+        double[] inverseTimesMeans = new double[k];
+        double interceptTerm = 1.0 / numObservations;
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < k; j++) {
+                double inverse = sxxInverse.getEntry(i, j);
+                unscaledCovariance[(i + 1) * p + (j + 1)] = inverse;
+                inverseTimesMeans[i] += inverse * moments.getMean(j + 1);
+            }
+            interceptTerm += moments.getMean(i + 1) * inverseTimesMeans[i];
+        }
+        unscaledCovariance[0] = interceptTerm;
+        for (int i = 0; i < k; i++) {
+            unscaledCovariance[i + 1] = -inverseTimesMeans[i];
+            unscaledCovariance[(i + 1) * p] = -inverseTimesMeans[i];
+        }
+
+        String[] coefNames = new String[p];
+        double[] coefficients = new double[p];
+        coefNames[0] = "Intercepto";
+        coefficients[0] = intercept;
+        for (int i = 0; i < k; i++) {
+            coefNames[i + 1] = independentVariableNames.get(i);
+            coefficients[i + 1] = slopes[i];
+        }
+
+        return new RegressionResult(dependentVariableName, coefNames, coefficients, unscaledCovariance,
+                sumOfSqResiduals, sumOfRegressionSquares, totalSumOfSquares, numObservations);
+    }
+
+    /**
+     * Crea una versión derivada de la instantánea con el término de interacción X*W como
+     * columna adicional, sin clonar observaciones ni modificar el dataset original.
+     * La celda queda vacía cuando X o W no son numéricas.
+     *
+     * @return La instantánea derivada; la nueva variable se llama "X*W".
+     */
+    public DatasetSnapshot withInteractionTerm(DatasetSnapshot snapshot, String xVariableName, String wVariableName) {
+        DatasetSnapshot.ColumnChunk[] x = snapshot.getColumn(xVariableName);
+        DatasetSnapshot.ColumnChunk[] w = snapshot.getColumn(wVariableName);
+        if (x == null || w == null) {
+            throw new IllegalArgumentException("Variable no encontrada para la interacción: " + (x == null ? xVariableName : wVariableName));
+        }
+        DatasetSnapshot.ColumnChunk[] product = new DatasetSnapshot.ColumnChunk[snapshot.getChunkCount()];
+        for (int chunk = 0; chunk < product.length; chunk++) {
+            double[] xs = x[chunk].getNumbers();
+            double[] ws = w[chunk].getNumbers();
+            long[] xMask = x[chunk].getNumericMask();
+            long[] wMask = w[chunk].getNumericMask();
+            double[] values = new double[Math.min(xs.length, ws.length)]; // Fuera de ambos no hay producto válido
+            long[] mask = new long[xMask.length];
+            for (int word = 0; word < mask.length; word++) {
+                mask[word] = xMask[word] & wMask[word];
+            }
+            for (int i = 0; i < values.length; i++) {
+                values[i] = xs[i] * ws[i];
+            }
+            product[chunk] = DatasetSnapshot.ColumnChunk.numeric(values, mask);
+        }
+        return snapshot.withColumn(new Variable(xVariableName + "*" + wVariableName, "NUMERIC"), product);
+    }
+
+    /**
+     * Análisis de mediación simple (X -> M -> Y) mediante tres regresiones sobre las mismas
+     * filas: M ~ X (camino a), Y ~ X + M (caminos c' y b) e Y ~ X (efecto total c).
+     *
+     * @param selection Las filas a incluir, o null para todas.
+     * @param missingDataPolicy Con eliminación por lista, las tres regresiones usan las
+     *                          mismas filas: las que tienen X, M e Y.
+     * @return Un mapa con los caminos ("a Path", "b Path", "c Path", "c' Path"), el
+     *         "Indirect Effect" (a*b) y el {@link RegressionResult} de cada regresión
+     *         ("Regression M~X", "Regression Y~X+M", "Regression Y~X").
+     */
+    public Map<String, Object> performMediationAnalysis(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy missingDataPolicy,
+                                                        String xVariableName, String mVariableName, String yVariableName) {
+        if (resultCache == null) {
+            return timed(MEDIATION_TIMER,
+                    () -> mediate(snapshot, selection, missingDataPolicy, xVariableName, mVariableName, yVariableName));
+        }
+        String key = AnalysisCache.key("mediacion")
+                .option("politica", missingDataPolicy)
+                .columns(snapshot, Arrays.asList(xVariableName, mVariableName, yVariableName))
+                .rows(snapshot, selection)
+                .build();
+        return resultCache.getOrCompute(key, () -> timed(MEDIATION_TIMER,
+                () -> mediate(snapshot, selection, missingDataPolicy, xVariableName, mVariableName, yVariableName)));
+    }
+
+    private Map<String, Object> mediate(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy missingDataPolicy,
+                                        String xVariableName, String mVariableName, String yVariableName) {
+        if (missingDataPolicy == MissingDataPolicy.LISTWISE) {
+            for (String variableName : Arrays.asList(xVariableName, mVariableName, yVariableName)) {
+                if (snapshot.getColumn(variableName) == null) {
+                    throw new IllegalArgumentException("Variable no encontrada: " + variableName);
+                }
+            }
+            selection = completeRows(snapshot, selection, Arrays.asList(xVariableName, mVariableName, yVariableName));
+        }
+        RegressionResult resultsAM = performMultipleLinearRegression(snapshot, selection, missingDataPolicy, mVariableName, Arrays.asList(xVariableName));
+        RegressionResult resultsBMCM = performMultipleLinearRegression(snapshot, selection, missingDataPolicy, yVariableName, Arrays.asList(xVariableName, mVariableName));
+        RegressionResult resultsCY = performMultipleLinearRegression(snapshot, selection, missingDataPolicy, yVariableName, Arrays.asList(xVariableName));
+
+        double aPath = resultsAM.getCoefficient(1); // Coeficiente de X
+        double bPath = resultsBMCM.getCoefficient(2); // Coeficiente de M
+        double cPrimePath = resultsBMCM.getCoefficient(1); // Coeficiente de X con M
+        double cPath = resultsCY.getCoefficient(1); // Coeficiente de X sin M
+
+        Map<String, Object> results = new HashMap<>();
+        results.put("a Path", aPath);
+        results.put("b Path", bPath);
+        results.put("c Path", cPath);
+        results.put("c' Path", cPrimePath);
+        results.put("Indirect Effect", aPath * bPath);
+        results.put("Regression M~X", resultsAM);
+        results.put("Regression Y~X+M", resultsBMCM);
+        results.put("Regression Y~X", resultsCY);
+        return results;
+    }
+
+    /**
+     * Análisis de moderación: Y = b0 + b1*X + b2*W + b3*(X*W). El término de interacción se
+     * añade como columna derivada de la instantánea, sin copiar observaciones.
+     *
+     * @param selection Las filas a incluir, o null para todas.
+     * @param missingDataPolicy Cómo tratar los valores faltantes; la interacción falta
+     *                          cuando falta X o W.
+     * @return Un mapa con el nombre ("Interaction Variable") y el coeficiente
+     *         ("Interaction Coefficient") de la interacción y el {@link RegressionResult} de la
+     *         regresión ("Regression").
+     */
+    public Map<String, Object> performModerationAnalysis(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy missingDataPolicy,
+                                                         String xVariableName, String wVariableName, String yVariableName) {
+        if (resultCache == null) {
+            return timed(MODERATION_TIMER,
+                    () -> moderate(snapshot, selection, missingDataPolicy, xVariableName, wVariableName, yVariableName));
+        }
+        // La interacción se deriva de X y W, así que no forma parte de la clave
+        String key = AnalysisCache.key("moderacion")
+                .option("politica", missingDataPolicy)
+                .columns(snapshot, Arrays.asList(xVariableName, wVariableName, yVariableName))
+                .rows(snapshot, selection)
+                .build();
+        return resultCache.getOrCompute(key, () -> timed(MODERATION_TIMER,
+                () -> moderate(snapshot, selection, missingDataPolicy, xVariableName, wVariableName, yVariableName)));
+    }
+
+    private Map<String, Object> moderate(DatasetSnapshot snapshot, RowSelection selection, MissingDataPolicy missingDataPolicy,
+                                         String xVariableName, String wVariableName, String yVariableName) {
+        DatasetSnapshot withInteraction = withInteractionTerm(snapshot, xVariableName, wVariableName);
+        String interactionVariableName = xVariableName + "*" + wVariableName;
+        RegressionResult regression = performMultipleLinearRegression(
+                withInteraction, selection, missingDataPolicy, yVariableName, Arrays.asList(xVariableName, wVariableName, interactionVariableName));
+
+        Map<String, Object> results = new HashMap<>();
+        results.put("Interaction Variable", interactionVariableName);
+        results.put("Interaction Coefficient", regression.getCoefficient(interactionVariableName));
+        results.put("Regression", regression);
         return results;
     }
 
+    private static <T> T timed(Metrics.Timer timer, Supplier<T> analysis) {
+        long start = timer.start();
+        try {
+            return analysis.get();
+        } finally {
+            timer.stop(start);
+        }
+    }
+
     /**
      * Verifica si un tipo de variable es numérico.
      * @param type El tipo de la variable (e.g., "NUMERIC", "TEXT", "QUALITATIVE", "QUANTITATIVE").
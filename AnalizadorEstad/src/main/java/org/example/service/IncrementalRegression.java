@@ -0,0 +1,260 @@
+package org.example.service;
+
+import org.example.model.Dataset;
+import org.example.model.DatasetChange;
+import org.example.model.DatasetChangeEvent;
+import org.example.model.DatasetChangeListener;
+import org.example.model.DatasetSnapshot;
+import org.example.model.Observation;
+import org.example.model.RegressionResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regresión que se mantiene al día mientras se edita el dataset, sin volver a recorrerlo.
+ *
+ * Guarda los co-momentos de las filas completas del modelo (eliminación por lista, sin
+ * filtro) y se suscribe a los cambios del {@link Dataset}: cada fila con celdas editadas se
+ * quita con sus valores anteriores y se añade con los nuevos, y cada alta o baja de
+ * observación añade o quita su fila, siempre con actualizaciones de rango uno
+ * ({@link CoMomentMatrix#add} y {@link CoMomentMatrix#remove}) de coste O(k²). Un lote de
+ * ediciones llega ya combinado, así que cada fila se actualiza una vez. Sólo
+ * {@link #getResult()} resuelve el sistema de la regresión.
+ *
+ * Los cambios estructurales del dataset, y cada {@link #REBUILD_INTERVAL} filas quitadas
+ * para no acumular error de redondeo, obligan a reconstruir los co-momentos desde una
+ * instantánea en la siguiente llamada a {@link #getResult()}.
+ */
+public class IncrementalRegression implements DatasetChangeListener {
+
+    static final int REBUILD_INTERVAL = 100_000;
+
+    private final Dataset dataset;
+    private final String dependentVariableName;
+    private final List<String> independentVariableNames;
+    private final List<String> variableNames; // Y primero
+    private final Runnable onUpdate;
+    private final EstadisticaService estadisticaService = new EstadisticaService();
+    private final Object rebuildLock = new Object();
+
+    // Protegidos por this
+    private CoMomentMatrix moments;
+    private boolean stale = true;
+    private List<double[][]> pending; // Cambios llegados durante una reconstrucción: {quitada, añadida}
+    private int removalsSinceRebuild;
+
+    /**
+     * Crea la regresión y se suscribe a los cambios del dataset. Los co-momentos iniciales se
+     * calculan en la primera llamada a {@link #getResult()}, que conviene hacer en segundo plano.
+     *
+     * @param onUpdate Se ejecuta tras cada evento que afecta al modelo, en el hilo que edita
+     *                 y con el dataset bloqueado (p. ej. para programar un refresco), o null.
+     */
+    public IncrementalRegression(Dataset dataset, String dependentVariableName, List<String> independentVariableNames,
+                                 Runnable onUpdate) {
+        if (independentVariableNames.isEmpty()) {
+            throw new IllegalArgumentException("Se requiere al menos una variable independiente para la regresión.");
+        }
+        this.dataset = dataset;
+        this.dependentVariableName = dependentVariableName;
+        this.independentVariableNames = Collections.unmodifiableList(new ArrayList<>(independentVariableNames));
+        List<String> names = new ArrayList<>();
+        names.add(dependentVariableName);
+        names.addAll(independentVariableNames);
+        this.variableNames = Collections.unmodifiableList(names);
+        this.onUpdate = onUpdate;
+        dataset.addChangeListener(this);
+    }
+
+    /**
+     * Deja de seguir los cambios del dataset.
+     */
+    public void close() {
+        dataset.removeChangeListener(this);
+    }
+
+    public String getDependentVariableName() {
+        return dependentVariableName;
+    }
+
+    public List<String> getIndependentVariableNames() {
+        return independentVariableNames;
+    }
+
+    /**
+     * Resuelve la regresión con los co-momentos actuales, reconstruyéndolos antes si hace falta.
+     * @throws IllegalArgumentException si faltan variables, no son numéricas, hay pocas filas
+     *                                  completas o X'X es singular.
+     */
+    public RegressionResult getResult() {
+        CoMomentMatrix current = null;
+        synchronized (this) {
+            if (!stale && pending == null) {
+                current = moments.copy();
+            }
+        }
+        if (current == null) {
+            current = rebuild();
+        }
+        return estadisticaService.performMultipleLinearRegression(current, dependentVariableName, independentVariableNames);
+    }
+
+    /**
+     * Número de filas completas que entran ahora en el modelo, o -1 si hay que reconstruir.
+     */
+    public synchronized long getObservationCount() {
+        return stale || pending != null ? -1 : moments.getCount();
+    }
+
+    // Las reconstrucciones se serializan; el orden de bloqueo es rebuildLock, dataset, this,
+    // compatible con el de los avisos (dataset, this).
+    private CoMomentMatrix rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                if (!stale && pending == null) {
+                    return moments.copy(); // Otro hilo acaba de reconstruir
+                }
+            }
+            DatasetSnapshot snapshot;
+            synchronized (dataset) {
+                snapshot = dataset.snapshot();
+                synchronized (this) {
+                    // La instantánea ya incluye todo lo anterior; a partir de aquí se anota
+                    stale = false;
+                    pending = new ArrayList<>();
+                }
+            }
+            CoMomentMatrix rebuilt;
+            try {
+                rebuilt = estadisticaService.computeCoMoments(snapshot, null, MissingDataPolicy.LISTWISE, variableNames);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    stale = true;
+                    pending = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                List<double[][]> changes = pending;
+                pending = null;
+                moments = rebuilt;
+                removalsSinceRebuild = 0;
+                if (!stale) {
+                    for (double[][] change : changes) {
+                        apply(change[0], change[1]);
+                    }
+                }
+                return moments.copy();
+            }
+        }
+    }
+
+    @Override
+    public void datasetChanged(DatasetChangeEvent event) {
+        if (!event.affects(variableNames)) {
+            return;
+        }
+        List<double[][]> updates = new ArrayList<>(); // {quitada, añadida}
+        Map<Integer, Map<String, Object>> editedRows = new LinkedHashMap<>(); // Fila -> valores anteriores
+        Map<Integer, Observation> observations = event.getDataset().getObservations();
+        for (DatasetChange change : event.getChanges()) {
+            switch (change.getType()) {
+                case VALUE_CHANGED:
+                    if (variableNames.contains(change.getVariableName())) {
+                        editedRows.computeIfAbsent(change.getObsIndex(), k -> new HashMap<>())
+                                .put(change.getVariableName(), change.getOldValue());
+                    }
+                    break;
+                case OBSERVATION_ADDED:
+                    Observation added = observations.get(change.getObsIndex());
+                    if (added != null) {
+                        updates.add(new double[][]{null, modelRow(added.getValues(), null)});
+                    }
+                    break;
+                case OBSERVATION_REMOVED:
+                    updates.add(new double[][]{modelRow(change.getRemovedValues(), null), null});
+                    break;
+                case VARIABLE_ADDED:
+                case VARIABLE_REMOVED:
+                    if (variableNames.contains(change.getVariableName())) {
+                        markStale();
+                        return;
+                    }
+                    break;
+                default:
+                    markStale(); // Reset
+                    return;
+            }
+        }
+        for (Map.Entry<Integer, Map<String, Object>> row : editedRows.entrySet()) {
+            Map<String, Object> values = observations.get(row.getKey()).getValues();
+            updates.add(new double[][]{modelRow(values, row.getValue()), modelRow(values, null)});
+        }
+        boolean changed = false;
+        synchronized (this) {
+            if (stale) {
+                return; // La próxima reconstrucción ya lo incluirá
+            }
+            for (double[][] update : updates) {
+                if (update[0] == null && update[1] == null) {
+                    continue;
+                }
+                changed = true;
+                if (pending != null) {
+                    pending.add(update);
+                } else if (!stale) {
+                    apply(update[0], update[1]);
+                }
+            }
+        }
+        if (changed && onUpdate != null) {
+            onUpdate.run();
+        }
+    }
+
+    private void markStale() {
+        synchronized (this) {
+            stale = true;
+        }
+        if (onUpdate != null) {
+            onUpdate.run();
+        }
+    }
+
+    // Llamado con this bloqueado
+    private void apply(double[] removed, double[] added) {
+        if (removed != null) {
+            moments.remove(removed);
+            if (++removalsSinceRebuild >= REBUILD_INTERVAL) {
+                stale = true;
+                return;
+            }
+        }
+        if (added != null) {
+            moments.add(added);
+        }
+    }
+
+    /**
+     * Valores de la fila en las variables del modelo (Y primero), o null si le falta alguno.
+     * @param previousValues Valores que sustituyen a los de la fila (para reconstruirla como
+     *                       era antes de editarla), o null.
+     */
+    private double[] modelRow(Map<String, Object> values, Map<String, Object> previousValues) {
+        double[] row = new double[variableNames.size()];
+        for (int j = 0; j < row.length; j++) {
+            String name = variableNames.get(j);
+            Object value = previousValues != null && previousValues.containsKey(name) ? previousValues.get(name) : values.get(name);
+            if (!(value instanceof Number)) {
+                return null;
+            }
+            row[j] = ((Number) value).doubleValue();
+        }
+        return row;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.service;
+
+/**
+ * Tratamiento de las celdas vacías o no numéricas en las variables de un análisis.
+ * La validez de cada celda se comprueba con los mapas de bits de la instantánea, así que
+ * excluir una fila cuesta una operación de bits y no una excepción ni una copia.
+ */
+public enum MissingDataPolicy {
+
+    /**
+     * Eliminación por lista: se descartan las filas con algún valor faltante en cualquiera de
+     * las variables del modelo.
+     */
+    LISTWISE("Eliminación por lista"),
+
+    /**
+     * Eliminación por pares: cada covarianza se calcula con las filas en las que ambas
+     * variables tienen valor. El número de observaciones del modelo es el menor de los pares.
+     */
+    PAIRWISE("Eliminación por pares"),
+
+    /**
+     * Imputación por la media: los valores faltantes de las variables independientes se
+     * sustituyen por la media de su columna; las filas sin variable dependiente se descartan.
+     */
+    MEAN_IMPUTATION("Imputación por la media");
+
+    private final String displayName;
+
+    MissingDataPolicy(String displayName) {
+        this.displayName = displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,336 @@
+package org.example.service;
+
+import org.example.model.ModelSelectionResult;
+import org.example.model.RegressionResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Selección de variables (hacia adelante, hacia atrás, paso a paso y mejor subconjunto)
+ * sobre una única matriz de productos cruzados ya acumulada, sin volver a leer los datos.
+ *
+ * Trabaja con el operador "sweep" sobre la matriz centrada [Y, X1..Xk]: barrer una columna
+ * la añade al modelo y barrerla en sentido inverso la quita, ambas en O(k²), y tras barrer
+ * un conjunto de predictores el elemento (Y, Y) es la SSE de ese modelo. Además, la SSE de
+ * añadir o quitar un predictor al modelo actual se lee en O(1) de la matriz barrida, así que
+ * evaluar todos los candidatos de un paso cuesta O(k) y sólo el movimiento elegido se aplica.
+ *
+ * El mejor subconjunto se busca por ramificación y acotación: cada nodo fija qué candidatos
+ * entran o no y mantiene barridos los incluidos más los aún sin decidir; con ellos se obtiene
+ * la menor SSE posible de la rama y, con el menor número de parámetros, una cota inferior del
+ * criterio. Las ramas superiores se exploran en paralelo y comparten el mejor modelo hallado.
+ */
+public class ModelSelector {
+
+    // Un candidato cuya varianza residual (dadas las X del modelo) cae por debajo de esta
+    // fracción de su varianza total se considera colineal y no se añade
+    private static final double COLLINEARITY_TOLERANCE = 1e-10;
+    private static final int MAX_BEST_SUBSET_CANDIDATES = 40;
+
+    private final CoMomentMatrix moments;
+    private final List<String> variableNames;
+    private final SelectionCriterion criterion;
+    private final int dimension;
+    private final long numObservations;
+    private final double totalSumOfSquares;
+    private final LongAdder modelsEvaluated = new LongAdder();
+
+    /**
+     * @param moments Co-momentos de [Y, X1..Xk] (la variable dependiente en la columna 0).
+     * @param variableNames Nombres de las columnas de {@code moments}, en el mismo orden.
+     * @param criterion Criterio con que se comparan los modelos.
+     */
+    public ModelSelector(CoMomentMatrix moments, List<String> variableNames, SelectionCriterion criterion) {
+        if (moments.getDimension() != variableNames.size() || variableNames.size() < 2) {
+            throw new IllegalArgumentException("Se necesitan la variable dependiente y al menos un candidato, uno por columna de la matriz.");
+        }
+        if (moments.getCount() < 3) {
+            throw new IllegalArgumentException("No hay suficientes observaciones (" + moments.getCount() + ") para seleccionar variables.");
+        }
+        this.moments = moments;
+        this.variableNames = new ArrayList<>(variableNames);
+        this.criterion = criterion;
+        this.dimension = variableNames.size();
+        this.numObservations = moments.getCount();
+        this.totalSumOfSquares = moments.getCoMoment(0, 0);
+    }
+
+    /**
+     * Ejecuta la búsqueda y ajusta la regresión del modelo elegido.
+     */
+    public ModelSelectionResult select(SelectionMethod method) {
+        modelsEvaluated.reset();
+        List<String> steps = new ArrayList<>();
+        SweepState chosen;
+        switch (method) {
+            case FORWARD:
+                chosen = stepwise(SweepState.empty(this), true, false, steps);
+                break;
+            case BACKWARD:
+                chosen = stepwise(SweepState.full(this), false, true, steps);
+                break;
+            case STEPWISE:
+                chosen = stepwise(SweepState.empty(this), true, true, steps);
+                break;
+            default:
+                chosen = bestSubset(steps);
+                break;
+        }
+
+        List<String> selected = new ArrayList<>();
+        int[] columns = new int[chosen.size + 1];
+        for (int j = 1, next = 1; j < dimension; j++) {
+            if (chosen.included[j]) {
+                selected.add(variableNames.get(j));
+                columns[next++] = j;
+            }
+        }
+        RegressionResult regression = selected.isEmpty() ? null
+                : new EstadisticaService().performMultipleLinearRegression(moments.select(columns), variableNames.get(0), selected);
+        double score = criterion.score(chosen.residualSumOfSquares(), totalSumOfSquares, numObservations, chosen.size + 1);
+        return new ModelSelectionResult(method.toString(), criterion.toString(), selected, criterion.reportedValue(score),
+                steps, modelsEvaluated.sum(), regression);
+    }
+
+    /**
+     * Búsqueda voraz: en cada paso aplica el movimiento (añadir o quitar un predictor) que más
+     * mejora el criterio, hasta que ninguno lo mejora.
+     */
+    private SweepState stepwise(SweepState state, boolean allowAdd, boolean allowRemove, List<String> steps) {
+        double current = score(state.residualSumOfSquares(), state.size);
+        // Cada paso mejora estrictamente el criterio, así que no hay ciclos; el límite es una salvaguarda
+        for (int iteration = 0; iteration < 4 * dimension; iteration++) {
+            int bestMove = -1;
+            double bestScore = current;
+            for (int j = 1; j < dimension; j++) {
+                boolean included = state.included[j];
+                if (included ? !allowRemove : !allowAdd || !state.canAdd(j)) {
+                    continue;
+                }
+                double candidate = score(state.residualSumOfSquaresAfterToggle(j), state.size + (included ? -1 : 1));
+                if (candidate < bestScore - 1e-12 * Math.abs(bestScore)) {
+                    bestScore = candidate;
+                    bestMove = j;
+                }
+            }
+            if (bestMove < 0) {
+                break;
+            }
+            steps.add((state.included[bestMove] ? "- " : "+ ") + variableNames.get(bestMove)
+                    + String.format(" (%s = %.4f)", criterion, criterion.reportedValue(bestScore)));
+            state.toggle(bestMove);
+            current = bestScore;
+        }
+        return state;
+    }
+
+    private SweepState bestSubset(List<String> steps) {
+        int candidates = dimension - 1;
+        if (candidates > MAX_BEST_SUBSET_CANDIDATES) {
+            throw new IllegalArgumentException("La búsqueda del mejor subconjunto admite hasta " + MAX_BEST_SUBSET_CANDIDATES
+                    + " candidatos (hay " + candidates + "); usa la selección paso a paso.");
+        }
+        SweepState full = SweepState.full(this);
+        AtomicReference<Incumbent> best = new AtomicReference<>(new Incumbent(Double.POSITIVE_INFINITY, null));
+        // Suficientes ramas independientes para ocupar todos los núcleos
+        int splitDepth = Math.min(candidates, 32 - Integer.numberOfLeadingZeros(4 * ForkJoinPool.getCommonPoolParallelism()));
+        ForkJoinPool.commonPool().invoke(new BranchTask(full, 1, best, splitDepth));
+        Incumbent incumbent = best.get();
+        if (incumbent.included == null) {
+            throw new IllegalArgumentException("No hay suficientes observaciones para comparar los subconjuntos de candidatos.");
+        }
+        SweepState chosen = SweepState.empty(this);
+        for (int j = 1; j < dimension; j++) {
+            if (incumbent.included[j]) {
+                chosen.toggle(j);
+            }
+        }
+        steps.add(String.format("Mejor subconjunto entre %d candidatos (%s = %.4f)", candidates, criterion, criterion.reportedValue(incumbent.score)));
+        return chosen;
+    }
+
+    private double score(double residualSumOfSquares, int predictors) {
+        modelsEvaluated.increment();
+        return criterion.score(residualSumOfSquares, totalSumOfSquares, numObservations, predictors + 1);
+    }
+
+    private static final class Incumbent {
+        final double score;
+        final boolean[] included;
+
+        Incumbent(double score, boolean[] included) {
+            this.score = score;
+            this.included = included;
+        }
+    }
+
+    /**
+     * Nodo de la búsqueda del mejor subconjunto. Los candidatos 1..next-1 ya están decididos
+     * (incluidos o no) y los demás siguen barridos en el estado. Hasta {@code splitDepth} las
+     * dos ramas se exploran como tareas paralelas, cada una con su propia copia del estado,
+     * salvo que la cota de la rama ya no pueda mejorar el mejor modelo hallado.
+     */
+    private final class BranchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SweepState state;
+        private final int next;
+        private final AtomicReference<Incumbent> best;
+        private final int splitDepth;
+        private final int includedCount; // predictores decididos como incluidos
+
+        BranchTask(SweepState state, int next, AtomicReference<Incumbent> best, int splitDepth) {
+            this(state, next, best, splitDepth, 0);
+        }
+
+        private BranchTask(SweepState state, int next, AtomicReference<Incumbent> best, int splitDepth, int includedCount) {
+            this.state = state;
+            this.next = next;
+            this.best = best;
+            this.splitDepth = splitDepth;
+            this.includedCount = includedCount;
+        }
+
+        @Override
+        protected void compute() {
+            if (next - 1 < splitDepth && next < dimension) {
+                // Se poda antes de copiar el estado y crear las dos tareas
+                if (score(state.residualSumOfSquares(), includedCount) >= best.get().score) {
+                    return;
+                }
+                SweepState excluded = state.copy();
+                excluded.toggle(next);
+                invokeAll(new BranchTask(state, next + 1, best, splitDepth, includedCount + 1),
+                        new BranchTask(excluded, next + 1, best, splitDepth, includedCount));
+            } else {
+                search(next, includedCount);
+            }
+        }
+
+        private void search(int position, int included) {
+            // Con todos los no decididos dentro, la SSE es la mínima de la rama, y con sólo los
+            // incluidos, el número de parámetros también: cota inferior del criterio
+            double bound = score(state.residualSumOfSquares(), included);
+            Incumbent incumbent = best.get();
+            if (bound >= incumbent.score) {
+                return;
+            }
+            if (position == dimension) {
+                Incumbent candidate = new Incumbent(bound, state.included.clone());
+                while (candidate.score < incumbent.score && !best.compareAndSet(incumbent, candidate)) {
+                    incumbent = best.get();
+                }
+                return;
+            }
+            search(position + 1, included + 1);
+            state.toggle(position);
+            search(position + 1, included);
+            state.toggle(position);
+        }
+    }
+
+    /**
+     * Matriz de co-momentos barrida sobre los predictores incluidos.
+     */
+    private static final class SweepState {
+        private final int dimension;
+        private final double[] matrix;
+        private final double[] originalDiagonal;
+        private final boolean[] included;
+        private int size;
+
+        private SweepState(int dimension, double[] matrix, double[] originalDiagonal, boolean[] included, int size) {
+            this.dimension = dimension;
+            this.matrix = matrix;
+            this.originalDiagonal = originalDiagonal;
+            this.included = included;
+            this.size = size;
+        }
+
+        static SweepState empty(ModelSelector selector) {
+            int d = selector.dimension;
+            double[] matrix = new double[d * d];
+            double[] diagonal = new double[d];
+            for (int i = 0; i < d; i++) {
+                for (int j = 0; j < d; j++) {
+                    matrix[i * d + j] = selector.moments.getCoMoment(i, j);
+                }
+                diagonal[i] = matrix[i * d + i];
+            }
+            return new SweepState(d, matrix, diagonal, new boolean[d], 0);
+        }
+
+        /**
+         * Estado con todos los candidatos incluidos.
+         * @throws IllegalArgumentException si los candidatos son colineales o constantes.
+         */
+        static SweepState full(ModelSelector selector) {
+            SweepState state = empty(selector);
+            for (int j = 1; j < state.dimension; j++) {
+                if (!state.canAdd(j)) {
+                    throw new IllegalArgumentException("La variable '" + selector.variableNames.get(j)
+                            + "' es constante o colineal con las demás candidatas; quítala para usar este método.");
+                }
+                state.toggle(j);
+            }
+            return state;
+        }
+
+        SweepState copy() {
+            return new SweepState(dimension, matrix.clone(), originalDiagonal, included.clone(), size);
+        }
+
+        double residualSumOfSquares() {
+            return Math.max(0.0, matrix[0]);
+        }
+
+        boolean canAdd(int j) {
+            return matrix[j * dimension + j] > COLLINEARITY_TOLERANCE * originalDiagonal[j];
+        }
+
+        /**
+         * SSE del modelo tras añadir (o quitar, si ya está) el predictor j, sin modificar el estado.
+         */
+        double residualSumOfSquaresAfterToggle(int j) {
+            double crossProduct = matrix[j];
+            return Math.max(0.0, matrix[0] - crossProduct * crossProduct / matrix[j * dimension + j]);
+        }
+
+        /**
+         * Barre la columna j (la añade al modelo) o la barre en sentido inverso (la quita).
+         */
+        void toggle(int k) {
+            int d = dimension;
+            double pivot = matrix[k * d + k];
+            double sign = included[k] ? -1.0 : 1.0;
+            for (int i = 0; i < d; i++) {
+                if (i == k) {
+                    continue;
+                }
+                double factor = matrix[i * d + k] / pivot;
+                if (factor == 0.0) {
+                    continue;
+                }
+                for (int j = 0; j < d; j++) {
+                    if (j != k) {
+                        matrix[i * d + j] -= factor * matrix[k * d + j];
+                    }
+                }
+            }
+            for (int i = 0; i < d; i++) {
+                if (i != k) {
+                    matrix[i * d + k] = sign * matrix[i * d + k] / pivot;
+                    matrix[k * d + i] = matrix[i * d + k];
+                }
+            }
+            matrix[k * d + k] = -1.0 / pivot;
+            included[k] = !included[k];
+            size += included[k] ? 1 : -1;
+        }
+    }
+}
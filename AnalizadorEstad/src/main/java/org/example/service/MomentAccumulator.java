@@ -0,0 +1,153 @@
+package org.example.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Acumulador univariante de momentos (media, M2, M3, M4, mínimo y máximo) con el algoritmo
+ * de Welford y sus extensiones de orden superior. Dos acumuladores parciales se pueden
+ * combinar con {@link #merge(MomentAccumulator)} sin volver a leer los datos.
+ */
+public class MomentAccumulator {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double m3;
+    private double m4;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        long n1 = count;
+        count++;
+        double n = count;
+        double delta = value - mean;
+        double deltaN = delta / n;
+        double deltaN2 = deltaN * deltaN;
+        double term1 = delta * deltaN * n1;
+        mean += deltaN;
+        m4 += term1 * deltaN2 * (n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+        m3 += term1 * deltaN * (n - 2) - 3 * deltaN * m2;
+        m2 += term1;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public void merge(MomentAccumulator other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            m3 = other.m3;
+            m4 = other.m4;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        double na = count;
+        double nb = other.count;
+        double n = na + nb;
+        double delta = other.mean - mean;
+        double delta2 = delta * delta;
+        double delta3 = delta2 * delta;
+        double delta4 = delta2 * delta2;
+
+        double newM4 = m4 + other.m4
+                + delta4 * na * nb * (na * na - na * nb + nb * nb) / (n * n * n)
+                + 6.0 * delta2 * (na * na * other.m2 + nb * nb * m2) / (n * n)
+                + 4.0 * delta * (na * other.m3 - nb * m3) / n;
+        double newM3 = m3 + other.m3
+                + delta3 * na * nb * (na - nb) / (n * n)
+                + 3.0 * delta * (na * other.m2 - nb * m2) / n;
+        double newM2 = m2 + other.m2 + delta2 * na * nb / n;
+
+        mean += delta * nb / n;
+        m2 = newM2;
+        m3 = newM3;
+        m4 = newM4;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * Varianza muestral (denominador n - 1).
+     */
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : Double.NaN;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Asimetría muestral ajustada (la misma definición que usa Apache Commons Math).
+     */
+    public double getSkewness() {
+        if (count < 3 || m2 == 0) {
+            return Double.NaN;
+        }
+        double n = count;
+        double variance = m2 / (n - 1);
+        return (n / ((n - 1) * (n - 2))) * (m3 / (variance * Math.sqrt(variance)));
+    }
+
+    /**
+     * Exceso de curtosis muestral ajustado (la misma definición que usa Apache Commons Math).
+     */
+    public double getKurtosis() {
+        if (count < 4 || m2 == 0) {
+            return Double.NaN;
+        }
+        double n = count;
+        double variance = m2 / (n - 1);
+        double term = (n * (n + 1)) / ((n - 1) * (n - 2) * (n - 3));
+        return term * (m4 / (variance * variance)) - (3.0 * (n - 1) * (n - 1)) / ((n - 2) * (n - 3));
+    }
+
+    public double getMin() {
+        return count > 0 ? min : Double.NaN;
+    }
+
+    public double getMax() {
+        return count > 0 ? max : Double.NaN;
+    }
+
+    /**
+     * Serializa el acumulador: n, media, M2, M3, M4, mínimo y máximo.
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + 6 * Double.BYTES);
+        buffer.putLong(count).putDouble(mean).putDouble(m2).putDouble(m3).putDouble(m4).putDouble(min).putDouble(max);
+        return buffer.array();
+    }
+
+    public static MomentAccumulator fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        MomentAccumulator accumulator = new MomentAccumulator();
+        accumulator.count = buffer.getLong();
+        accumulator.mean = buffer.getDouble();
+        accumulator.m2 = buffer.getDouble();
+        accumulator.m3 = buffer.getDouble();
+        accumulator.m4 = buffer.getDouble();
+        accumulator.min = buffer.getDouble();
+        accumulator.max = buffer.getDouble();
+        return accumulator;
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.service;
+
+import java.util.Arrays;
+
+/**
+ * Co-momentos centrados por pares de variables, para la eliminación por pares: cada par
+ * (i, j) acumula sus propias medias y su propio número de filas, contando sólo las filas en
+ * que ambas variables tienen valor. Se actualiza con Welford y se combina con Chan, igual que
+ * {@link CoMomentMatrix}.
+ */
+final class PairwiseCoMoments {
+
+    private final int dimension;
+    // Triángulo superior (j >= i) guardado en arreglos dimension x dimension, por filas
+    private final long[] counts;
+    private final double[] meansFirst;  // media de i sobre las filas del par
+    private final double[] meansSecond; // media de j sobre las filas del par
+    private final double[] comoments;
+    private final int[] pairIndexes; // pares (i * dimension + j, j >= i) que se acumulan
+
+    PairwiseCoMoments(int dimension) {
+        this(dimension, null);
+    }
+
+    /**
+     * @param pairs Pares a acumular (dimension x dimension, por filas; se mira el triángulo
+     *              superior), o null para todos. Los demás quedan con cero filas.
+     */
+    PairwiseCoMoments(int dimension, boolean[] pairs) {
+        this.dimension = dimension;
+        int pairCount = 0;
+        int[] indexes = new int[dimension * (dimension + 1) / 2];
+        for (int i = 0; i < dimension; i++) {
+            for (int j = i; j < dimension; j++) {
+                if (pairs == null || pairs[i * dimension + j]) {
+                    indexes[pairCount++] = i * dimension + j;
+                }
+            }
+        }
+        this.pairIndexes = Arrays.copyOf(indexes, pairCount);
+        this.counts = new long[dimension * dimension];
+        this.meansFirst = new double[dimension * dimension];
+        this.meansSecond = new double[dimension * dimension];
+        this.comoments = new double[dimension * dimension];
+    }
+
+    /**
+     * Añade una fila; sólo cuentan los pares cuyas dos variables son válidas.
+     */
+    void add(double[] row, boolean[] valid) {
+        for (int index : pairIndexes) {
+            int i = index / dimension;
+            int j = index % dimension;
+            if (valid[i] && valid[j]) {
+                long n = ++counts[index];
+                double deltaFirst = row[i] - meansFirst[index];
+                meansFirst[index] += deltaFirst / n;
+                double deltaSecond = row[j] - meansSecond[index];
+                meansSecond[index] += deltaSecond / n;
+                comoments[index] += deltaFirst * (row[j] - meansSecond[index]);
+            }
+        }
+    }
+
+    void merge(PairwiseCoMoments other) {
+        for (int index = 0; index < counts.length; index++) {
+            long otherCount = other.counts[index];
+            if (otherCount == 0) {
+                continue;
+            }
+            long thisCount = counts[index];
+            long total = thisCount + otherCount;
+            double deltaFirst = other.meansFirst[index] - meansFirst[index];
+            double deltaSecond = other.meansSecond[index] - meansSecond[index];
+            comoments[index] += other.comoments[index] + deltaFirst * deltaSecond * thisCount * otherCount / total;
+            meansFirst[index] += deltaFirst * otherCount / total;
+            meansSecond[index] += deltaSecond * otherCount / total;
+            counts[index] = total;
+        }
+    }
+
+    /**
+     * Número de filas con valor en ambas variables del par.
+     */
+    long getCount(int i, int j) {
+        return counts[Math.min(i, j) * dimension + Math.max(i, j)];
+    }
+
+    /**
+     * Convierte las covarianzas por pares en un {@link CoMomentMatrix} equivalente, con el
+     * menor número de filas de los pares como tamaño de muestra y la media de cada variable
+     * sobre todas sus filas válidas.
+     * @throws IllegalArgumentException si algún par tiene menos de dos filas completas.
+     */
+    CoMomentMatrix toCoMomentMatrix() {
+        int[] all = new int[dimension];
+        for (int i = 0; i < dimension; i++) {
+            all[i] = i;
+        }
+        return toCoMomentMatrix(all);
+    }
+
+    /**
+     * Como {@link #toCoMomentMatrix()}, pero sólo para las variables indicadas y en ese
+     * orden; el tamaño de muestra es el menor de los pares entre ellas.
+     */
+    CoMomentMatrix toCoMomentMatrix(int[] columns) {
+        int size = columns.length;
+        long effectiveCount = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            for (int j = i; j < size; j++) {
+                effectiveCount = Math.min(effectiveCount, getCount(columns[i], columns[j]));
+            }
+        }
+        if (effectiveCount < 2) {
+            throw new IllegalArgumentException("No hay suficientes filas con ambos valores para estimar todas las covarianzas por pares.");
+        }
+        double[] means = new double[size];
+        double[] scaled = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            means[i] = meansFirst[columns[i] * dimension + columns[i]];
+            for (int j = i; j < size; j++) {
+                int index = Math.min(columns[i], columns[j]) * dimension + Math.max(columns[i], columns[j]);
+                double covariance = comoments[index] / (counts[index] - 1);
+                scaled[i * size + j] = covariance * (effectiveCount - 1);
+                scaled[j * size + i] = scaled[i * size + j];
+            }
+        }
+        return CoMomentMatrix.fromMoments(effectiveCount, means, scaled);
+    }
+}
@@ -0,0 +1,342 @@
+package org.example.service;
+
+import org.example.model.DatasetSnapshot;
+
+/**
+ * Un bloque de la matriz de correlaciones por pares: las variables [firstStart, firstEnd)
+ * frente a [secondStart, secondEnd). Cada par guarda su número de filas (las que tienen valor
+ * en ambas variables), las medias y sumas de cuadrados centradas de las dos variables sobre
+ * esas filas y su co-momento, lo que basta para la covarianza y la correlación de Pearson
+ * exactas del par. Los bloques de la diagonal guardan además un {@link MomentAccumulator} por
+ * variable con todas sus celdas válidas, y sólo los pares con j &gt; i.
+ *
+ * Cada bloque de filas de la instantánea produce su propio acumulador
+ * ({@link #fromChunk}) y los acumuladores se combinan con Chan, igual que
+ * {@link PairwiseCoMoments}.
+ */
+final class PairwiseMomentTile {
+
+    private static final int PAIRS_PER_PASS = 4;
+
+    private final int firstSize;
+    private final int secondSize;
+    private final boolean diagonal;
+    // Un elemento por par, first x second, por filas
+    private final long[] counts;
+    private final double[] meansFirst;
+    private final double[] meansSecond;
+    private final double[] squaresFirst;  // suma de cuadrados centrada de la primera variable del par
+    private final double[] squaresSecond;
+    private final double[] comoments;
+    private final MomentAccumulator[] moments; // Sólo en los bloques de la diagonal
+
+    PairwiseMomentTile(int firstStart, int firstEnd, int secondStart, int secondEnd) {
+        this.firstSize = firstEnd - firstStart;
+        this.secondSize = secondEnd - secondStart;
+        this.diagonal = firstStart == secondStart;
+        int size = firstSize * secondSize;
+        this.counts = new long[size];
+        this.meansFirst = new double[size];
+        this.meansSecond = new double[size];
+        this.squaresFirst = new double[size];
+        this.squaresSecond = new double[size];
+        this.comoments = new double[size];
+        if (diagonal) {
+            moments = new MomentAccumulator[firstSize];
+            for (int i = 0; i < firstSize; i++) {
+                moments[i] = new MomentAccumulator();
+            }
+        } else {
+            moments = null;
+        }
+    }
+
+    /**
+     * Acumulador de las filas seleccionadas de un bloque de la instantánea. Cada variable se
+     * centra en la media de sus valores del bloque, y las sumas de cada par salen de productos
+     * escalares sobre arreglos densos (con cero en las celdas que no entran), que la JVM puede
+     * vectorizar; después se pasan a momentos centrados en la media del par.
+     *
+     * @param rows Las filas seleccionadas del bloque, o null si no hay ninguna.
+     * @param columns Los bloques de cada variable, indexados por variable y por bloque.
+     */
+    static PairwiseMomentTile fromChunk(long[] rows, DatasetSnapshot.ColumnChunk[][] columns, int chunk,
+                                        int firstStart, int firstEnd, int secondStart, int secondEnd) {
+        PairwiseMomentTile tile = new PairwiseMomentTile(firstStart, firstEnd, secondStart, secondEnd);
+        if (rows == null) {
+            return tile;
+        }
+        double[] rowIndicator = new double[rows.length << 6];
+        for (int word = 0; word < rows.length; word++) {
+            long bits = rows[word];
+            while (bits != 0) {
+                rowIndicator[(word << 6) + Long.numberOfTrailingZeros(bits)] = 1.0;
+                bits &= bits - 1;
+            }
+        }
+        ChunkBlock first = new ChunkBlock(rows, rowIndicator, columns, chunk, firstStart, firstEnd, tile.moments);
+        ChunkBlock second = tile.diagonal ? first
+                : new ChunkBlock(rows, rowIndicator, columns, chunk, secondStart, secondEnd, null);
+        int length = rowIndicator.length;
+
+        for (int a = 0; a < tile.firstSize; a++) {
+            if (first.counts[a] == 0) {
+                continue;
+            }
+            double[] x = first.centered[a];
+            double[] xPresent = first.present[a];
+            int b = tile.diagonal ? a + 1 : 0;
+            while (b < tile.secondSize) {
+                if (first.complete[a] && second.isComplete(b, PAIRS_PER_PASS)) {
+                    // Sin faltantes sólo hace falta el producto cruzado; se calculan cuatro pares
+                    // por pasada sobre x, con sumas independientes que no esperan unas a otras
+                    double[] y0 = second.centered[b];
+                    double[] y1 = second.centered[b + 1];
+                    double[] y2 = second.centered[b + 2];
+                    double[] y3 = second.centered[b + 3];
+                    double p0 = 0.0;
+                    double p1 = 0.0;
+                    double p2 = 0.0;
+                    double p3 = 0.0;
+                    for (int r = 0; r < length; r++) {
+                        double xr = x[r];
+                        p0 += xr * y0[r];
+                        p1 += xr * y1[r];
+                        p2 += xr * y2[r];
+                        p3 += xr * y3[r];
+                    }
+                    tile.storeComplete(first, a, second, b, p0);
+                    tile.storeComplete(first, a, second, b + 1, p1);
+                    tile.storeComplete(first, a, second, b + 2, p2);
+                    tile.storeComplete(first, a, second, b + 3, p3);
+                    b += PAIRS_PER_PASS;
+                    continue;
+                }
+                if (second.counts[b] == 0) {
+                    b++;
+                    continue;
+                }
+                double[] y = second.centered[b];
+                if (first.complete[a] && second.complete[b]) {
+                    double product = 0.0;
+                    for (int r = 0; r < length; r++) {
+                        product += x[r] * y[r];
+                    }
+                    tile.storeComplete(first, a, second, b, product);
+                    b++;
+                    continue;
+                }
+                long n = 0;
+                for (int word = 0; word < rows.length; word++) {
+                    n += Long.bitCount(first.masks[a][word] & second.masks[b][word]);
+                }
+                if (n > 0) {
+                    // Las celdas que faltan valen cero en los arreglos centrados, así que basta
+                    // con ponderar cada variable por la presencia de la otra
+                    double[] yPresent = second.present[b];
+                    double product = 0.0;
+                    double sumX = 0.0;
+                    double sumY = 0.0;
+                    double squaresX = 0.0;
+                    double squaresY = 0.0;
+                    for (int r = 0; r < length; r++) {
+                        double xr = x[r];
+                        double yr = y[r];
+                        double xw = xr * yPresent[r];
+                        double yw = yr * xPresent[r];
+                        product += xr * yr;
+                        sumX += xw;
+                        squaresX += xw * xr;
+                        sumY += yw;
+                        squaresY += yw * yr;
+                    }
+                    tile.store(a * tile.secondSize + b, n, first.shifts[a], second.shifts[b],
+                            product, sumX, sumY, squaresX, squaresY);
+                }
+                b++;
+            }
+        }
+        return tile;
+    }
+
+    // Un par sin faltantes: sus filas son las del bloque y las sumas de cada variable, las suyas
+    private void storeComplete(ChunkBlock first, int a, ChunkBlock second, int b, double product) {
+        store(a * secondSize + b, first.counts[a], first.shifts[a], second.shifts[b], product,
+                first.sums[a], second.sums[b], first.squares[a], second.squares[b]);
+    }
+
+    /**
+     * Pasa las sumas de un par, centradas en las medias de bloque de cada variable, a
+     * momentos centrados en las medias del par.
+     */
+    private void store(int index, long n, double shiftX, double shiftY, double product,
+                       double sumX, double sumY, double squaresX, double squaresY) {
+        counts[index] = n;
+        meansFirst[index] = shiftX + sumX / n;
+        meansSecond[index] = shiftY + sumY / n;
+        squaresFirst[index] = squaresX - sumX * sumX / n;
+        squaresSecond[index] = squaresY - sumY * sumY / n;
+        comoments[index] = product - sumX * sumY / n;
+    }
+
+    void merge(PairwiseMomentTile other) {
+        for (int index = 0; index < counts.length; index++) {
+            long otherCount = other.counts[index];
+            if (otherCount == 0) {
+                continue;
+            }
+            long thisCount = counts[index];
+            long total = thisCount + otherCount;
+            double weight = (double) thisCount * otherCount / total;
+            double deltaFirst = other.meansFirst[index] - meansFirst[index];
+            double deltaSecond = other.meansSecond[index] - meansSecond[index];
+            squaresFirst[index] += other.squaresFirst[index] + deltaFirst * deltaFirst * weight;
+            squaresSecond[index] += other.squaresSecond[index] + deltaSecond * deltaSecond * weight;
+            comoments[index] += other.comoments[index] + deltaFirst * deltaSecond * weight;
+            meansFirst[index] += deltaFirst * otherCount / total;
+            meansSecond[index] += deltaSecond * otherCount / total;
+            counts[index] = total;
+        }
+        if (moments != null) {
+            for (int i = 0; i < moments.length; i++) {
+                moments[i].merge(other.moments[i]);
+            }
+        }
+    }
+
+    boolean isDiagonal() {
+        return diagonal;
+    }
+
+    /**
+     * Momentos univariantes de la variable firstStart + i (sólo en los bloques de la diagonal).
+     */
+    MomentAccumulator getMoments(int i) {
+        return moments[i];
+    }
+
+    /**
+     * @param a Posición dentro de las primeras variables.
+     * @param b Posición dentro de las segundas (en la diagonal, b &gt; a).
+     */
+    long getCount(int a, int b) {
+        return counts[a * secondSize + b];
+    }
+
+    /**
+     * Covarianza muestral del par, o NaN con menos de dos filas.
+     */
+    double getCovariance(int a, int b) {
+        int index = a * secondSize + b;
+        return counts[index] > 1 ? comoments[index] / (counts[index] - 1) : Double.NaN;
+    }
+
+    /**
+     * Correlación de Pearson del par, o NaN si no hay dos filas o una variable es constante.
+     */
+    double getCorrelation(int a, int b) {
+        int index = a * secondSize + b;
+        double squares = squaresFirst[index] * squaresSecond[index];
+        if (counts[index] < 2 || !(squares > 0)) {
+            return Double.NaN;
+        }
+        return Math.max(-1.0, Math.min(1.0, comoments[index] / Math.sqrt(squares)));
+    }
+
+    /**
+     * Las variables de un lado del bloque en un bloque de filas, en arreglos densos de una
+     * posición por fila: el valor centrado en la media del bloque (cero si la celda no
+     * entra) y la presencia (1 o 0).
+     */
+    private static final class ChunkBlock {
+        private final double[][] centered;
+        private final double[][] present; // Las variables sin faltantes comparten el de las filas seleccionadas
+        private final long[][] masks;
+        private final boolean[] complete;
+        private final long[] counts;
+        private final double[] shifts;
+        private final double[] sums;    // de los valores centrados: cero salvo redondeo
+        private final double[] squares;
+
+        ChunkBlock(long[] rows, double[] rowIndicator, DatasetSnapshot.ColumnChunk[][] columns, int chunk,
+                   int start, int end, MomentAccumulator[] moments) {
+            int size = end - start;
+            centered = new double[size][];
+            present = new double[size][];
+            masks = new long[size][];
+            complete = new boolean[size];
+            counts = new long[size];
+            shifts = new double[size];
+            sums = new double[size];
+            squares = new double[size];
+            for (int v = 0; v < size; v++) {
+                DatasetSnapshot.ColumnChunk column = columns[start + v][chunk];
+                double[] numbers = column.getNumbers();
+                long[] numericMask = column.getNumericMask();
+                long[] mask = new long[rows.length];
+                boolean full = true;
+                long count = 0;
+                double sum = 0.0;
+                for (int word = 0; word < rows.length; word++) {
+                    mask[word] = rows[word] & numericMask[word];
+                    full &= mask[word] == rows[word];
+                    count += Long.bitCount(mask[word]);
+                    long bits = mask[word];
+                    while (bits != 0) {
+                        double value = numbers[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                        sum += value;
+                        if (moments != null) {
+                            moments[v].add(value);
+                        }
+                        bits &= bits - 1;
+                    }
+                }
+                masks[v] = mask;
+                complete[v] = full;
+                counts[v] = count;
+                if (count == 0) {
+                    continue;
+                }
+                double shift = sum / count;
+                double[] values = new double[rowIndicator.length];
+                double[] presence = full ? rowIndicator : new double[rowIndicator.length];
+                double centeredSum = 0.0;
+                double centeredSquares = 0.0;
+                for (int word = 0; word < rows.length; word++) {
+                    long bits = mask[word];
+                    while (bits != 0) {
+                        int offset = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        double value = numbers[offset] - shift;
+                        values[offset] = value;
+                        if (!full) {
+                            presence[offset] = 1.0;
+                        }
+                        centeredSum += value;
+                        centeredSquares += value * value;
+                    }
+                }
+                centered[v] = values;
+                present[v] = presence;
+                shifts[v] = shift;
+                sums[v] = centeredSum;
+                squares[v] = centeredSquares;
+            }
+        }
+
+        /**
+         * Si las variables [start, start + size) existen y tienen valor en todas las filas.
+         */
+        boolean isComplete(int start, int size) {
+            if (start + size > complete.length) {
+                return false;
+            }
+            for (int v = start; v < start + size; v++) {
+                if (!complete[v] || counts[v] == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.service;
+
+import org.example.model.ModelSpec;
+import org.example.model.RegressionResult;
+
+/**
+ * Recibe los resultados de {@link EstadisticaService#performRegressionBatch} a medida que se
+ * resuelve cada modelo. Se llama desde hilos del pool común y en cualquier orden; una
+ * interfaz gráfica debe pasar los resultados a su hilo con {@code Platform.runLater}.
+ */
+public interface RegressionBatchListener {
+
+    /**
+     * @param modelIndex Posición del modelo en la lista del lote.
+     */
+    void modelCompleted(int modelIndex, ModelSpec model, RegressionResult result);
+
+    /**
+     * El modelo no se pudo estimar (p. ej. variables colineales o pocas observaciones); el
+     * resto del lote continúa.
+     */
+    void modelFailed(int modelIndex, ModelSpec model, IllegalArgumentException error);
+}
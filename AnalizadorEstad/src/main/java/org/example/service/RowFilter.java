@@ -0,0 +1,537 @@
+package org.example.service;
+
+import org.example.model.DatasetSnapshot;
+import org.example.model.RowSelection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Filtro de filas compilado a partir de una expresión sencilla sobre las variables, por
+ * ejemplo {@code edad > 30 and grupo = 'A'}.
+ *
+ * Gramática:
+ * <pre>
+ *   expresión   := término ( ("or" | "||") término )*
+ *   término     := factor ( ("and" | "&&") factor )*
+ *   factor      := ("not" | "!") factor | "(" expresión ")" | comparación
+ *   comparación := variable operador literal | variable "is" ["not"] "null"
+ *   operador    := = | == | != | &lt;&gt; | &lt; | &lt;= | &gt; | &gt;=
+ *   literal     := número | 'texto' | "texto" | true | false
+ * </pre>
+ * Los nombres de variable con espacios u operadores se escriben entre `acentos graves` o
+ * [corchetes]. Las palabras clave no distinguen mayúsculas.
+ *
+ * La evaluación recorre cada columna de la instantánea bloque a bloque y produce directamente
+ * el mapa de bits de la {@link RowSelection}; las comparaciones numéricas son bucles sobre
+ * arreglos primitivos. Una celda vacía o de otro tipo nunca cumple una comparación, ni
+ * tampoco su negación con "!=" (como NULL en SQL); sí cumple "not (...)".
+ */
+public final class RowFilter {
+
+    private final String expression;
+    private final Node root;
+
+    private RowFilter(String expression, Node root) {
+        this.expression = expression;
+        this.root = root;
+    }
+
+    /**
+     * Compila una expresión de filtro.
+     * @throws IllegalArgumentException si la expresión no es válida.
+     */
+    public static RowFilter compile(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("La expresión de filtro está vacía.");
+        }
+        Parser parser = new Parser(expression);
+        Node root = parser.parseExpression();
+        parser.expectEnd();
+        return new RowFilter(expression.trim(), root);
+    }
+
+    /**
+     * Expresión original, tal como se escribió.
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * Nombres de las variables que usa el filtro.
+     */
+    public List<String> getVariableNames() {
+        List<String> names = new ArrayList<>();
+        root.collectVariables(names);
+        return names;
+    }
+
+    /**
+     * Evalúa el filtro sobre una instantánea. El resultado se guarda en la propia instantánea,
+     * así que volver a aplicar el mismo filtro a la misma versión no recorre los datos.
+     * @throws IllegalArgumentException si el filtro usa una variable que no existe.
+     */
+    public RowSelection evaluate(DatasetSnapshot snapshot) {
+        return snapshot.computeIfAbsent("filtro:" + root, () -> scan(snapshot));
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+
+    private RowSelection scan(DatasetSnapshot snapshot) {
+        for (String variableName : getVariableNames()) {
+            if (snapshot.getColumn(variableName) == null) {
+                throw new IllegalArgumentException("Variable no encontrada en el filtro: " + variableName);
+            }
+        }
+        IntStream chunks = IntStream.range(0, snapshot.getChunkCount());
+        if (snapshot.getRowCount() >= EstadisticaService.PARALLEL_ROW_THRESHOLD) {
+            chunks = chunks.parallel();
+        }
+        long[][] selected = new long[snapshot.getChunkCount()][];
+        chunks.forEach(chunk -> {
+            long[] present = snapshot.getRowPresence(chunk);
+            if (present != null) {
+                long[] bits = root.evaluate(snapshot, chunk, present);
+                selected[chunk] = isEmpty(bits) ? null : bits;
+            }
+        });
+        return new RowSelection(selected);
+    }
+
+    private static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --- Árbol de la expresión ---
+
+    private enum Operator {
+        EQ("="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        boolean test(int comparison) {
+            switch (this) {
+                case EQ: return comparison == 0;
+                case NE: return comparison != 0;
+                case LT: return comparison < 0;
+                case LE: return comparison <= 0;
+                case GT: return comparison > 0;
+                default: return comparison >= 0;
+            }
+        }
+    }
+
+    private interface Node {
+        /**
+         * Mapa de bits de las filas del bloque que cumplen el nodo; siempre es un subconjunto
+         * de {@code present}.
+         */
+        long[] evaluate(DatasetSnapshot snapshot, int chunk, long[] present);
+
+        void collectVariables(List<String> names);
+    }
+
+    private static final class Comparison implements Node {
+        private final String variableName;
+        private final Operator operator;
+        private final Object literal; // Double, String o Boolean
+
+        Comparison(String variableName, Operator operator, Object literal) {
+            this.variableName = variableName;
+            this.operator = operator;
+            this.literal = literal;
+        }
+
+        @Override
+        public long[] evaluate(DatasetSnapshot snapshot, int chunk, long[] present) {
+            DatasetSnapshot.ColumnChunk column = snapshot.getColumn(variableName)[chunk];
+            long[] result = new long[present.length];
+            if (literal instanceof Double) {
+                compareNumbers(column.getNumbers(), column.getNumericMask(), present, (Double) literal, result);
+            } else {
+                compareValues(column, present, result);
+            }
+            return result;
+        }
+
+        private void compareNumbers(double[] numbers, long[] mask, long[] present, double value, long[] result) {
+            for (int word = 0; word < result.length; word++) {
+                long candidates = mask[word] & present[word];
+                if (candidates == 0) {
+                    continue;
+                }
+                int base = word << 6;
+                long bits = 0;
+                // Un bucle por operador para que el cuerpo no tenga saltos dependientes del dato
+                switch (operator) {
+                    case EQ:
+                        for (int i = 0; i < 64; i++) bits |= (numbers[base + i] == value ? 1L : 0L) << i;
+                        break;
+                    case NE:
+                        for (int i = 0; i < 64; i++) bits |= (numbers[base + i] != value ? 1L : 0L) << i;
+                        break;
+                    case LT:
+                        for (int i = 0; i < 64; i++) bits |= (numbers[base + i] < value ? 1L : 0L) << i;
+                        break;
+                    case LE:
+                        for (int i = 0; i < 64; i++) bits |= (numbers[base + i] <= value ? 1L : 0L) << i;
+                        break;
+                    case GT:
+                        for (int i = 0; i < 64; i++) bits |= (numbers[base + i] > value ? 1L : 0L) << i;
+                        break;
+                    default:
+                        for (int i = 0; i < 64; i++) bits |= (numbers[base + i] >= value ? 1L : 0L) << i;
+                        break;
+                }
+                result[word] = bits & candidates;
+            }
+        }
+
+        private void compareValues(DatasetSnapshot.ColumnChunk column, long[] present, long[] result) {
+            for (int word = 0; word < result.length; word++) {
+                long candidates = present[word] & ~column.getNumericMask()[word];
+                while (candidates != 0) {
+                    int bit = Long.numberOfTrailingZeros(candidates);
+                    candidates &= candidates - 1;
+                    Object value = column.getValue((word << 6) + bit);
+                    if (value == null) {
+                        continue;
+                    }
+                    boolean matches;
+                    if (literal instanceof Boolean) {
+                        matches = value instanceof Boolean
+                                ? operator.test(Boolean.compare((Boolean) value, (Boolean) literal))
+                                : operator.test(String.valueOf(value).compareToIgnoreCase(literal.toString()));
+                    } else {
+                        matches = operator.test(String.valueOf(value).compareTo((String) literal));
+                    }
+                    if (matches) {
+                        result[word] |= 1L << bit;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void collectVariables(List<String> names) {
+            if (!names.contains(variableName)) {
+                names.add(variableName);
+            }
+        }
+
+        @Override
+        public String toString() {
+            String value = literal instanceof String ? "'" + ((String) literal).replace("'", "''") + "'" : String.valueOf(literal);
+            return "[" + variableName + "] " + operator.symbol + " " + value;
+        }
+    }
+
+    private static final class NullCheck implements Node {
+        private final String variableName;
+        private final boolean negated;
+
+        NullCheck(String variableName, boolean negated) {
+            this.variableName = variableName;
+            this.negated = negated;
+        }
+
+        @Override
+        public long[] evaluate(DatasetSnapshot snapshot, int chunk, long[] present) {
+            DatasetSnapshot.ColumnChunk column = snapshot.getColumn(variableName)[chunk];
+            long[] result = new long[present.length];
+            for (int word = 0; word < result.length; word++) {
+                long hasValue = column.getNumericMask()[word];
+                long others = present[word] & ~hasValue;
+                while (others != 0) {
+                    int bit = Long.numberOfTrailingZeros(others);
+                    others &= others - 1;
+                    if (column.getValue((word << 6) + bit) != null) {
+                        hasValue |= 1L << bit;
+                    }
+                }
+                result[word] = present[word] & (negated ? hasValue : ~hasValue);
+            }
+            return result;
+        }
+
+        @Override
+        public void collectVariables(List<String> names) {
+            if (!names.contains(variableName)) {
+                names.add(variableName);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "[" + variableName + "] is " + (negated ? "not null" : "null");
+        }
+    }
+
+    private static final class Logical implements Node {
+        private final boolean conjunction;
+        private final List<Node> operands;
+
+        Logical(boolean conjunction, List<Node> operands) {
+            this.conjunction = conjunction;
+            this.operands = operands;
+        }
+
+        @Override
+        public long[] evaluate(DatasetSnapshot snapshot, int chunk, long[] present) {
+            long[] result = operands.get(0).evaluate(snapshot, chunk, present);
+            for (int i = 1; i < operands.size(); i++) {
+                if (conjunction && isEmpty(result)) {
+                    break; // Ninguna fila puede cumplir ya el "and"
+                }
+                long[] next = operands.get(i).evaluate(snapshot, chunk, present);
+                for (int word = 0; word < result.length; word++) {
+                    result[word] = conjunction ? result[word] & next[word] : result[word] | next[word];
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void collectVariables(List<String> names) {
+            for (Node operand : operands) {
+                operand.collectVariables(names);
+            }
+        }
+
+        @Override
+        public String toString() {
+            List<String> parts = new ArrayList<>();
+            for (Node operand : operands) {
+                parts.add("(" + operand + ")");
+            }
+            return String.join(conjunction ? " and " : " or ", parts);
+        }
+    }
+
+    private static final class Negation implements Node {
+        private final Node operand;
+
+        Negation(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public long[] evaluate(DatasetSnapshot snapshot, int chunk, long[] present) {
+            long[] result = operand.evaluate(snapshot, chunk, present);
+            for (int word = 0; word < result.length; word++) {
+                result[word] = present[word] & ~result[word];
+            }
+            return result;
+        }
+
+        @Override
+        public void collectVariables(List<String> names) {
+            operand.collectVariables(names);
+        }
+
+        @Override
+        public String toString() {
+            return "not (" + operand + ")";
+        }
+    }
+
+    // --- Análisis sintáctico (descenso recursivo) ---
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Node parseExpression() {
+            List<Node> operands = new ArrayList<>();
+            operands.add(parseTerm());
+            while (acceptKeyword("or") || accept("||")) {
+                operands.add(parseTerm());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Logical(false, operands);
+        }
+
+        private Node parseTerm() {
+            List<Node> operands = new ArrayList<>();
+            operands.add(parseFactor());
+            while (acceptKeyword("and") || accept("&&")) {
+                operands.add(parseFactor());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Logical(true, operands);
+        }
+
+        private Node parseFactor() {
+            if (acceptKeyword("not") || (!lookingAt("!=") && accept("!"))) {
+                return new Negation(parseFactor());
+            }
+            if (accept("(")) {
+                Node inner = parseExpression();
+                expect(")");
+                return inner;
+            }
+            return parseComparison();
+        }
+
+        private Node parseComparison() {
+            String variableName = parseIdentifier();
+            if (acceptKeyword("is")) {
+                boolean negated = acceptKeyword("not");
+                if (!acceptKeyword("null")) {
+                    throw error("Se esperaba 'null'");
+                }
+                return new NullCheck(variableName, negated);
+            }
+            Operator operator = parseOperator();
+            return new Comparison(variableName, operator, parseLiteral());
+        }
+
+        private String parseIdentifier() {
+            skipWhitespace();
+            if (accept("`")) {
+                return readUntil('`');
+            }
+            if (accept("[")) {
+                return readUntil(']');
+            }
+            int start = position;
+            while (position < text.length()
+                    && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_' || text.charAt(position) == '.')) {
+                position++;
+            }
+            if (start == position) {
+                throw error("Se esperaba un nombre de variable");
+            }
+            return text.substring(start, position);
+        }
+
+        private Operator parseOperator() {
+            if (accept("==") || accept("=")) return Operator.EQ;
+            if (accept("!=") || accept("<>")) return Operator.NE;
+            if (accept("<=")) return Operator.LE;
+            if (accept(">=")) return Operator.GE;
+            if (accept("<")) return Operator.LT;
+            if (accept(">")) return Operator.GT;
+            throw error("Se esperaba un operador de comparación");
+        }
+
+        private Object parseLiteral() {
+            skipWhitespace();
+            if (accept("'")) {
+                return readQuoted('\'');
+            }
+            if (accept("\"")) {
+                return readQuoted('"');
+            }
+            if (acceptKeyword("true")) {
+                return Boolean.TRUE;
+            }
+            if (acceptKeyword("false")) {
+                return Boolean.FALSE;
+            }
+            int start = position;
+            while (position < text.length() && "+-.0123456789eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            try {
+                return Double.valueOf(text.substring(start, position));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("Se esperaba un número, un texto entre comillas, true o false");
+            }
+        }
+
+        private String readQuoted(char quote) {
+            StringBuilder sb = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == quote) {
+                    if (position < text.length() && text.charAt(position) == quote) {
+                        sb.append(quote); // Comilla duplicada = comilla literal
+                        position++;
+                        continue;
+                    }
+                    return sb.toString();
+                }
+                sb.append(c);
+            }
+            throw error("Falta cerrar el texto con " + quote);
+        }
+
+        private String readUntil(char end) {
+            int close = text.indexOf(end, position);
+            if (close < 0) {
+                throw error("Falta cerrar el nombre de variable con " + end);
+            }
+            String name = text.substring(position, close);
+            position = close + 1;
+            return name;
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (position < text.length()) {
+                throw error("Texto inesperado");
+            }
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error("Se esperaba '" + token + "'");
+            }
+        }
+
+        private boolean lookingAt(String token) {
+            skipWhitespace();
+            return text.startsWith(token, position);
+        }
+
+        private boolean accept(String token) {
+            if (lookingAt(token)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            skipWhitespace();
+            int end = position + keyword.length();
+            if (end > text.length() || !text.substring(position, end).toLowerCase(Locale.ROOT).equals(keyword)) {
+                return false;
+            }
+            if (end < text.length() && (Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '_')) {
+                return false; // Es el principio de un nombre de variable, p. ej. "order"
+            }
+            position = end;
+            return true;
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Error en el filtro (posición " + (position + 1) + "): " + message + ".");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.service;
+
+/**
+ * Criterio con que se comparan los modelos candidatos en la selección de variables. Todos se
+ * calculan sólo a partir de la suma de cuadrados residual (SSE), de la total (SST), del
+ * número de observaciones n y del número de parámetros p (intercepto incluido).
+ */
+public enum SelectionCriterion {
+
+    /** Akaike: n ln(SSE / n) + 2p. Menor es mejor. */
+    AIC("AIC"),
+
+    /** Schwarz: n ln(SSE / n) + p ln(n). Menor es mejor; penaliza más los modelos grandes. */
+    BIC("BIC"),
+
+    /** 1 - (SSE / (n - p)) / (SST / (n - 1)). Mayor es mejor. */
+    ADJUSTED_R_SQUARED("R² ajustado");
+
+    private final String displayName;
+
+    SelectionCriterion(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Puntuación a minimizar. Crece con el SSE y con p, lo que permite acotar ramas en la
+     * búsqueda del mejor subconjunto.
+     */
+    double score(double residualSumOfSquares, double totalSumOfSquares, long numObservations, int parameters) {
+        if (numObservations - parameters <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double logLikelihoodTerm = numObservations * Math.log(Math.max(residualSumOfSquares, Double.MIN_NORMAL) / numObservations);
+        switch (this) {
+            case AIC:
+                return logLikelihoodTerm + 2.0 * parameters;
+            case BIC:
+                return logLikelihoodTerm + parameters * Math.log(numObservations);
+            default:
+                return -adjustedRSquared(residualSumOfSquares, totalSumOfSquares, numObservations, parameters);
+        }
+    }
+
+    /**
+     * Valor del criterio tal como se muestra (el R² ajustado con su signo habitual).
+     */
+    double reportedValue(double score) {
+        return this == ADJUSTED_R_SQUARED ? -score : score;
+    }
+
+    private static double adjustedRSquared(double residualSumOfSquares, double totalSumOfSquares, long numObservations, int parameters) {
+        return 1.0 - (residualSumOfSquares / (numObservations - parameters)) / (totalSumOfSquares / (numObservations - 1));
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
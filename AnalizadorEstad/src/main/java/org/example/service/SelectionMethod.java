@@ -0,0 +1,30 @@
+package org.example.service;
+
+/**
+ * Estrategia de búsqueda de la selección de variables ({@link ModelSelector}).
+ */
+public enum SelectionMethod {
+
+    /** Parte del modelo sin predictores y añade en cada paso el que más mejora el criterio. */
+    FORWARD("Hacia adelante"),
+
+    /** Parte del modelo con todos los candidatos y quita en cada paso el que más lo mejora. */
+    BACKWARD("Hacia atrás"),
+
+    /** Como hacia adelante, pero en cada paso también puede quitar un predictor ya incluido. */
+    STEPWISE("Paso a paso"),
+
+    /** El mejor subconjunto de todos, por ramificación y acotación. */
+    BEST_SUBSET("Mejor subconjunto");
+
+    private final String displayName;
+
+    SelectionMethod(String displayName) {
+        this.displayName = displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
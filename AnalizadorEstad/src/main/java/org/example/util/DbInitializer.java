@@ -42,12 +42,22 @@ public class DbInitializer {
                 "FOREIGN KEY (variable_id) REFERENCES variables(id) ON DELETE CASCADE" +
                 ");";
 
+        // Caché persistente de resultados de análisis, indexada por la huella de su contenido
+        String createAnalysisCacheTableSQL = "CREATE TABLE IF NOT EXISTS analysis_cache (" +
+                "cache_key TEXT PRIMARY KEY," +
+                "kind TEXT NOT NULL," +
+                "value TEXT NOT NULL," +
+                "last_used INTEGER NOT NULL" +
+                ");";
+
         try (Connection conn = SQLiteConnection.connect();
              Statement stmt = conn.createStatement()) {
             stmt.execute(createDatasetsTableSQL);
             stmt.execute(createVariablesTableSQL);
             stmt.execute(createObservationsTableSQL);
             stmt.execute(createObservationValuesTableSQL);
+            stmt.execute(createAnalysisCacheTableSQL);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_analysis_cache_last_used ON analysis_cache(last_used)");
             System.out.println("Tablas de base de datos inicializadas o ya existentes.");
         } catch (SQLException e) {
             System.err.println("Error al inicializar la base de datos: " + e.getMessage());
@@ -0,0 +1,234 @@
+package org.example.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Eventos de JDK Flight Recorder de la aplicación, para ver en una grabación las cargas,
+ * guardados, lotes de SQL, importaciones y fases de los análisis junto a la actividad del GC
+ * y las muestras de CPU.
+ *
+ * Los eventos están desactivados por defecto y no cuestan nada sin una grabación que los
+ * active. Los activa el perfil analizador.jfc, que acompaña a esta clase como recurso y está
+ * en src/main/resources/org/example/util/. Dos formas de grabar:
+ * <ul>
+ *   <li>{@code -Danalizador.jfr=grabacion.jfr}: {@link #install()} inicia una grabación con
+ *       el perfil "profile" del JDK más el de la aplicación y la escribe al terminar;</li>
+ *   <li>con la opción de la JVM (JDK 17 o posterior):
+ *       {@code -XX:StartFlightRecording:settings=profile,settings=ruta/analizador.jfc,filename=grabacion.jfr}.</li>
+ * </ul>
+ */
+public final class JfrEvents {
+
+    private static final String PROFILE_RESOURCE = "analizador.jfc";
+    private static Recording recording;
+
+    private JfrEvents() {
+    }
+
+    /**
+     * Inicia la grabación si se indicó {@code -Danalizador.jfr=fichero}. Las llamadas
+     * repetidas no hacen nada.
+     */
+    public static synchronized void install() {
+        String file = System.getProperty("analizador.jfr");
+        if (recording != null || file == null || file.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("profile").getSettings());
+            settings.putAll(applicationProfile().getSettings());
+            Recording started = new Recording(settings);
+            started.setName("analizador");
+            started.setToDisk(true);
+            started.setDumpOnExit(true);
+            started.setDestination(Paths.get(file));
+            started.start();
+            recording = started;
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            System.err.println("No se pudo iniciar la grabación JFR en " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * El perfil de la aplicación (sólo sus eventos), para combinarlo con otro.
+     */
+    public static Configuration applicationProfile() throws IOException, ParseException {
+        try (InputStream in = JfrEvents.class.getResourceAsStream(PROFILE_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Falta el recurso " + PROFILE_RESOURCE);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return Configuration.create(reader);
+            }
+        }
+    }
+
+    /**
+     * Tamaño aproximado de un valor para los campos de bytes: 8 por número, la longitud de un
+     * texto.
+     */
+    public static long sizeOf(Object value) {
+        if (value instanceof Number) {
+            return Double.BYTES;
+        }
+        return value != null ? value.toString().length() : 0;
+    }
+
+    /**
+     * Carga de un dataset guardado, con sus variables y observaciones.
+     */
+    @Name("org.example.analizador.DatasetLoad")
+    @Label("Carga de dataset")
+    @Category({"Analizador Estadístico", "Datos"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class DatasetLoad extends Event {
+        @Label("ID de dataset")
+        public int datasetId;
+        @Label("Filas")
+        public long rows;
+        @Label("Columnas")
+        public int columns;
+        @Label("Valores")
+        public long values;
+        @Label("Bytes de datos")
+        @Description("Tamaño aproximado de los valores: 8 por número y la longitud de cada texto")
+        @DataAmount
+        public long bytes;
+    }
+
+    /**
+     * Escritura de filas de un dataset: guardado completo, filas añadidas o ediciones.
+     */
+    @Name("org.example.analizador.DatasetSave")
+    @Label("Guardado de dataset")
+    @Category({"Analizador Estadístico", "Datos"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class DatasetSave extends Event {
+        @Label("Operación")
+        public String operation;
+        @Label("ID de dataset")
+        public int datasetId;
+        @Label("Filas")
+        public long rows;
+        @Label("Columnas")
+        public int columns;
+        @Label("Valores")
+        public long values;
+        @Label("Bytes de datos")
+        @Description("Tamaño aproximado de los valores: 8 por número y la longitud de cada texto")
+        @DataAmount
+        public long bytes;
+    }
+
+    /**
+     * Un grupo de sentencias SQL del mismo tipo ejecutadas seguidas sobre una conexión.
+     */
+    @Name("org.example.analizador.SqlBatch")
+    @Label("Lote SQL")
+    @Category({"Analizador Estadístico", "Datos"})
+    @Enabled(false)
+    public static final class SqlBatch extends Event {
+        @Label("Operación")
+        public String operation;
+        @Label("ID de dataset")
+        public int datasetId;
+        @Label("Sentencias")
+        public long statements;
+        @Label("Filas")
+        public long rows;
+    }
+
+    /**
+     * Un bloque de registros leídos de un fichero CSV.
+     */
+    @Name("org.example.analizador.ImportChunk")
+    @Label("Bloque de importación")
+    @Category({"Analizador Estadístico", "Datos"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class ImportChunk extends Event {
+        @Label("Dataset")
+        public String dataset;
+        @Label("Primera fila")
+        public long firstRow;
+        @Label("Filas")
+        public long rows;
+        @Label("Columnas")
+        public int columns;
+        @Label("Bytes leídos")
+        @Description("Caracteres de los registros del bloque, incluidos los saltos de línea")
+        @DataAmount
+        public long bytes;
+    }
+
+    /**
+     * Una fase de un análisis: validación, acumulación, resolución o formato del resultado.
+     */
+    @Name("org.example.analizador.AnalysisPhase")
+    @Label("Fase de análisis")
+    @Category({"Analizador Estadístico", "Análisis"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class AnalysisPhase extends Event {
+        public static final String VALIDATION = "validación";
+        public static final String ACCUMULATION = "acumulación";
+        public static final String SOLVE = "resolución";
+        public static final String FORMATTING = "formato";
+
+        @Label("Análisis")
+        public String analysis;
+        @Label("Fase")
+        public String phase;
+        @Label("Dataset")
+        public String dataset;
+        @Label("Filas")
+        public long rows;
+        @Label("Columnas")
+        public int columns;
+
+        /**
+         * Crea el evento y empieza a medir.
+         */
+        public static AnalysisPhase start(String analysis, String phase) {
+            AnalysisPhase event = new AnalysisPhase();
+            event.begin();
+            event.analysis = analysis;
+            event.phase = phase;
+            return event;
+        }
+
+        /**
+         * Termina de medir y registra el evento si la grabación lo pide.
+         */
+        public void finish(String dataset, long rows, int columns) {
+            end();
+            if (shouldCommit()) {
+                this.dataset = dataset;
+                this.rows = rows;
+                this.columns = columns;
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package org.example.util;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de métricas de la aplicación: contadores y temporizadores con histograma de
+ * latencias, sin cerrojos (LongAdder), que se pueden consultar por JMX (dominio
+ * "org.example.analizador") y volcar periódicamente a un fichero CSV.
+ *
+ * Las clases instrumentadas guardan sus métricas en constantes y las usan así:
+ * <pre>
+ * long start = SAVE_TIMER.start();
+ * try { ... } finally { SAVE_TIMER.stop(start); }
+ * </pre>
+ * Con las métricas desactivadas ({@code -Danalizador.metrics=false}, o en caliente con
+ * {@link #setEnabled} o el MBean de control) cada medida cuesta una lectura volátil: ni se
+ * lee el reloj ni se escribe en los contadores.
+ *
+ * {@link #install()} publica el registro por JMX y, si se indica
+ * {@code -Danalizador.metrics.file=ruta}, añade al fichero una instantánea cada
+ * {@code analizador.metrics.period} segundos (60 por defecto) y otra al terminar.
+ */
+public final class Metrics {
+
+    public static final String JMX_DOMAIN = "org.example.analizador";
+
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("analizador.metrics"));
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static volatile boolean installed;
+    private static ScheduledExecutorService dumpExecutor;
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * El contador con ese nombre, creado la primera vez. Los nombres son jerárquicos con
+     * puntos, p. ej. "dao.rows.read".
+     */
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> register(new Counter(key), "Counter", key));
+    }
+
+    /**
+     * El temporizador con ese nombre, creado la primera vez.
+     */
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, key -> register(new Timer(key), "Timer", key));
+    }
+
+    public static List<Counter> getCounters() {
+        return new ArrayList<>(new TreeMap<>(COUNTERS).values());
+    }
+
+    public static List<Timer> getTimers() {
+        return new ArrayList<>(new TreeMap<>(TIMERS).values());
+    }
+
+    /**
+     * Pone a cero todas las métricas. Las medidas concurrentes pueden quedar a medias.
+     */
+    public static void reset() {
+        for (Counter counter : COUNTERS.values()) {
+            counter.reset();
+        }
+        for (Timer timer : TIMERS.values()) {
+            timer.reset();
+        }
+    }
+
+    /**
+     * Publica las métricas existentes y las que se creen después como MBeans, junto con el de
+     * control, y arranca el volcado periódico si está configurado. Las llamadas repetidas no
+     * hacen nada.
+     */
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        installed = true;
+        registerMBean(new Control(), objectName("Control", "metrics"));
+        for (Counter counter : COUNTERS.values()) {
+            registerMBean(counter, objectName("Counter", counter.getName()));
+        }
+        for (Timer timer : TIMERS.values()) {
+            registerMBean(timer, objectName("Timer", timer.getName()));
+        }
+
+        String file = System.getProperty("analizador.metrics.file");
+        if (file != null && !file.isEmpty()) {
+            long period = Long.getLong("analizador.metrics.period", 60L);
+            startFileDump(Paths.get(file), period);
+        }
+    }
+
+    /**
+     * Añade una instantánea al fichero cada {@code periodSeconds} segundos y otra al terminar
+     * la JVM.
+     */
+    public static synchronized void startFileDump(Path file, long periodSeconds) {
+        if (dumpExecutor != null) {
+            dumpExecutor.shutdownNow();
+        }
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runnable dump = () -> {
+            try {
+                appendTo(file);
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("No se pudieron volcar las métricas en " + file + ": " + e.getMessage());
+            }
+        };
+        dumpExecutor.scheduleAtFixedRate(dump, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(dump, "metrics-dump-final"));
+    }
+
+    /**
+     * Añade al fichero una fila por métrica con la marca de tiempo actual; escribe la cabecera
+     * si el fichero es nuevo. Los tiempos van en milisegundos.
+     */
+    public static synchronized void appendTo(Path file) throws IOException {
+        boolean header = !Files.exists(file) || Files.size(file) == 0;
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (header) {
+                writer.write("timestamp,kind,name,count,total_ms,mean_ms,p50_ms,p95_ms,p99_ms,max_ms\n");
+            }
+            String timestamp = Instant.now().toString();
+            for (Counter counter : getCounters()) {
+                writer.write(timestamp + ",counter," + counter.getName() + "," + counter.getCount() + ",,,,,,\n");
+            }
+            for (Timer timer : getTimers()) {
+                writer.write(String.format(Locale.ROOT, "%s,timer,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f\n",
+                        timestamp, timer.getName(), timer.getCount(), timer.getTotalMillis(), timer.getMeanMillis(),
+                        timer.getP50Millis(), timer.getP95Millis(), timer.getP99Millis(), timer.getMaxMillis()));
+            }
+        }
+    }
+
+    private static <T> T register(T metric, String type, String name) {
+        if (installed) {
+            registerMBean(metric, objectName(type, name));
+        }
+        return metric;
+    }
+
+    private static void registerMBean(Object bean, ObjectName name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(bean, name);
+        } catch (InstanceAlreadyExistsException e) {
+            // Otra copia de la clase (p. ej. otro cargador) ya publicó la métrica
+        } catch (JMException e) {
+            System.err.println("No se pudo publicar el MBean " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static ObjectName objectName(String type, String name) {
+        try {
+            return new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + name);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Nombre de métrica no válido: " + name, e);
+        }
+    }
+
+    public interface CounterMXBean {
+        long getCount();
+
+        void reset();
+    }
+
+    public interface TimerMXBean {
+        long getCount();
+
+        double getTotalMillis();
+
+        double getMeanMillis();
+
+        double getMaxMillis();
+
+        double getP50Millis();
+
+        double getP95Millis();
+
+        double getP99Millis();
+
+        void reset();
+    }
+
+    public interface ControlMXBean {
+        boolean isEnabled();
+
+        void setEnabled(boolean enabled);
+
+        void reset();
+
+        /**
+         * Añade una instantánea al fichero indicado.
+         */
+        void dump(String file) throws IOException;
+    }
+
+    private static final class Control implements ControlMXBean {
+        @Override
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean value) {
+            Metrics.setEnabled(value);
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+
+        @Override
+        public void dump(String file) throws IOException {
+            appendTo(Paths.get(file));
+        }
+    }
+
+    /**
+     * Contador monotónico (filas, sentencias, conexiones...).
+     */
+    public static final class Counter implements CounterMXBean {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void increment() {
+            if (enabled) {
+                count.increment();
+            }
+        }
+
+        public void add(long amount) {
+            if (enabled) {
+                count.add(amount);
+            }
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+        }
+    }
+
+    /**
+     * Temporizador con histograma logarítmico: cuatro cubetas por potencia de dos de
+     * nanosegundos, así que los percentiles tienen un error relativo de como mucho un 25 %.
+     */
+    public static final class Timer implements TimerMXBean {
+        private static final int SUB_BUCKETS = 4;
+        private static final int BUCKETS = SUB_BUCKETS * 62;
+
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        private Timer(String name) {
+            this.name = name;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Marca de inicio para {@link #stop}; 0 si las métricas están desactivadas.
+         */
+        public long start() {
+            return enabled ? System.nanoTime() : 0L;
+        }
+
+        public void stop(long start) {
+            if (start != 0L) {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        public void record(long nanos) {
+            if (!enabled) {
+                return;
+            }
+            long value = Math.max(nanos, 0L);
+            count.increment();
+            totalNanos.add(value);
+            maxNanos.accumulate(value);
+            buckets[bucketOf(value)].increment();
+        }
+
+        // Cubetas 0..3: 0..3 ns exactos; después, 4 por cada potencia de dos
+        private static int bucketOf(long nanos) {
+            if (nanos < SUB_BUCKETS) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int sub = (int) (nanos >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+            return Math.min(BUCKETS - 1, SUB_BUCKETS * (exponent - 1) + sub);
+        }
+
+        private static long upperBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + 1;
+            int sub = bucket % SUB_BUCKETS;
+            return (1L << exponent) + ((sub + 1L) << (exponent - 2)) - 1;
+        }
+
+        /**
+         * Percentil aproximado (límite superior de su cubeta, sin pasar del máximo).
+         * @param quantile Entre 0 y 1.
+         */
+        public double getPercentileMillis(double quantile) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0.0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return Math.min(upperBoundOf(i), maxNanos.get()) / 1e6;
+                }
+            }
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public double getTotalMillis() {
+            return totalNanos.sum() / 1e6;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0.0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return getPercentileMillis(0.50);
+        }
+
+        @Override
+        public double getP95Millis() {
+            return getPercentileMillis(0.95);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return getPercentileMillis(0.99);
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+        }
+    }
+}
@@ -1,15 +1,27 @@
 package org.example.util;
 
+import org.sqlite.SQLiteConfig;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
 
 public class SQLiteConnection {
     // URL de conexión a la base de datos SQLite. Se creará si no existe.
     // Usamos `System.getProperty("user.home")` para que la base de datos se guarde
     // en la carpeta del usuario (home directory) y sea accesible en cualquier SO.
-    // Esto es más robusto que una ruta fija.
-    private static final String URL = "jdbc:sqlite:" + System.getProperty("user.home") + "/analizador_estadistico.db";
+    // Esto es más robusto que una ruta fija. La propiedad del sistema "analizador.db" permite
+    // usar otro fichero (p. ej. uno temporal en los benchmarks); se lee al cargar la clase.
+    private static final String URL = "jdbc:sqlite:" + System.getProperty("analizador.db",
+            System.getProperty("user.home") + "/analizador_estadistico.db");
+
+    // Modo WAL: los lectores no bloquean al escritor ni viceversa, de modo que las consultas
+    // en segundo plano pueden convivir con los guardados. El busy timeout espera al cerrojo
+    // de escritura en lugar de fallar con SQLITE_BUSY.
+    private static final Properties CONNECTION_PROPERTIES = createProperties();
+
+    private static final Metrics.Timer CONNECT_TIMER = Metrics.timer("db.connect");
 
     /**
      * Establece una conexión con la base de datos SQLite.
@@ -17,6 +29,19 @@ public class SQLiteConnection {
      * @throws SQLException Si ocurre un error de conexión a la base de datos.
      */
     public static Connection connect() throws SQLException {
-        return DriverManager.getConnection(URL);
+        long start = CONNECT_TIMER.start();
+        try {
+            return DriverManager.getConnection(URL, CONNECTION_PROPERTIES);
+        } finally {
+            CONNECT_TIMER.stop(start);
+        }
+    }
+
+    private static Properties createProperties() {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setBusyTimeout(5000);
+        return config.toProperties();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,518 @@
+package org.example.util;
+
+import org.apache.commons.math3.linear.CholeskyDecomposition;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.NonPositiveDefiniteMatrixException;
+import org.apache.commons.math3.special.Erf;
+import org.example.dao.DatasetDAO;
+import org.example.model.Dataset;
+import org.example.model.DatasetSnapshot;
+import org.example.model.Observation;
+import org.example.model.Variable;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/**
+ * Genera datasets sintéticos con una estructura conocida, para pruebas de carga y para
+ * comprobar que los análisis recuperan los valores verdaderos.
+ *
+ * Variables, en este orden:
+ * <ul>
+ *   <li>"y": y = intercepto + sum(b_j * x_j) [+ b * m] + ruido normal;</li>
+ *   <li>"m" (sólo con {@link #mediation}): m = a * x1 + ruido normal, de modo que el efecto
+ *       indirecto de x1 es a*b, el directo b_1 y el total b_1 + a*b;</li>
+ *   <li>"x1".."xk": normales estándar, independientes o con la correlación indicada;</li>
+ *   <li>"g1".."gq": cualitativas uniformes con niveles "A", "B", ...</li>
+ * </ul>
+ * Los valores faltantes y los atípicos en y se añaden después, según su configuración.
+ *
+ * Las filas se generan en paralelo por bloques de {@link DatasetSnapshot#CHUNK_SIZE}, cada
+ * uno con su propio generador aleatorio derivado de la semilla, así que el resultado es el
+ * mismo con cualquier número de núcleos. La configuración se puede leer de JSON con Gson (p.
+ * ej. en un trabajo de {@code BatchRunner}): los campos omitidos conservan su valor por
+ * defecto.
+ */
+public class SyntheticDatasetGenerator {
+
+    public enum MissingPattern {
+        /** Sin valores faltantes. */
+        NONE,
+        /** Cada celda falta con la misma probabilidad (missing completely at random). */
+        MCAR,
+        /**
+         * La probabilidad de que falte una celda crece con x1, que nunca falta (missing at
+         * random): 2 * tasa * Phi(x1), con la tasa como media.
+         */
+        MAR,
+        /**
+         * A una fracción de filas igual a la tasa le falta un valor, en una variable al azar:
+         * la eliminación por lista conserva entonces la misma fracción de filas con cualquier
+         * número de columnas.
+         */
+        ROW
+    }
+
+    public static final String OUTCOME = "y";
+    public static final String MEDIATOR = "m";
+
+    // Filas que se generan en paralelo antes de escribirlas en la base de datos
+    private static final int ROWS_PER_WRITE = 16 * DatasetSnapshot.CHUNK_SIZE;
+    // Margen para la simetría, la diagonal y los pivotes de Cholesky de la matriz de correlación
+    private static final double CORRELATION_TOLERANCE = 1e-10;
+
+    private int rows = 1000;
+    private int numericColumns = 2;
+    private int qualitativeColumns;
+    private int levels = 3;
+    private double equicorrelation;
+    private double[][] correlation;
+    private double intercept = 1.0;
+    private double[] coefficients;
+    private double noiseStdDev = 1.0;
+    private boolean mediation;
+    private double mediatorCoefficient;
+    private double mediatorEffect;
+    private MissingPattern missingPattern = MissingPattern.NONE;
+    private double missingRate;
+    private double outlierRate;
+    private double outlierMagnitude = 10.0;
+    private long seed = 1L;
+
+    private SyntheticDatasetGenerator() {
+    }
+
+    public SyntheticDatasetGenerator(int rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Número de predictores numéricos x1..xk (por defecto 2).
+     */
+    public SyntheticDatasetGenerator numericColumns(int count) {
+        this.numericColumns = count;
+        return this;
+    }
+
+    /**
+     * Variables cualitativas g1..gq, cada una con el número de niveles indicado.
+     */
+    public SyntheticDatasetGenerator qualitativeColumns(int count, int levels) {
+        this.qualitativeColumns = count;
+        this.levels = levels;
+        return this;
+    }
+
+    /**
+     * Misma correlación rho (0 &lt;= rho &lt; 1) entre cada par de predictores. Coste O(k) por fila.
+     */
+    public SyntheticDatasetGenerator equicorrelation(double rho) {
+        this.equicorrelation = rho;
+        this.correlation = null;
+        return this;
+    }
+
+    /**
+     * Matriz de correlación k x k de los predictores: simétrica, con unos en la diagonal y
+     * definida positiva. Coste O(k²) por fila.
+     */
+    public SyntheticDatasetGenerator correlation(double[][] matrix) {
+        this.correlation = matrix;
+        this.equicorrelation = 0.0;
+        return this;
+    }
+
+    /**
+     * Coeficientes verdaderos de y. Por defecto, intercepto 1, b_j = 1/j y ruido de
+     * desviación 1.
+     */
+    public SyntheticDatasetGenerator regression(double intercept, double[] coefficients, double noiseStdDev) {
+        this.intercept = intercept;
+        this.coefficients = coefficients.clone();
+        this.noiseStdDev = noiseStdDev;
+        return this;
+    }
+
+    /**
+     * Añade el mediador m entre x1 e y: camino a (x1 -> m) y camino b (m -> y).
+     */
+    public SyntheticDatasetGenerator mediation(double aPath, double bPath) {
+        this.mediation = true;
+        this.mediatorCoefficient = aPath;
+        this.mediatorEffect = bPath;
+        return this;
+    }
+
+    public SyntheticDatasetGenerator missing(MissingPattern pattern, double rate) {
+        this.missingPattern = pattern;
+        this.missingRate = rate;
+        return this;
+    }
+
+    /**
+     * Con probabilidad rate, suma a y +-magnitude desviaciones del ruido.
+     */
+    public SyntheticDatasetGenerator outliers(double rate, double magnitude) {
+        this.outlierRate = rate;
+        this.outlierMagnitude = magnitude;
+        return this;
+    }
+
+    public SyntheticDatasetGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Coeficiente verdadero del predictor x_j (1..k) en la ecuación de y.
+     */
+    public double getCoefficient(int j) {
+        return coefficients != null ? coefficients[j - 1] : 1.0 / j;
+    }
+
+    public double getIntercept() {
+        return intercept;
+    }
+
+    public static String predictor(int j) {
+        return "x" + j;
+    }
+
+    public static List<String> predictors(int count) {
+        List<String> names = new ArrayList<>();
+        for (int j = 1; j <= count; j++) {
+            names.add(predictor(j));
+        }
+        return names;
+    }
+
+    /**
+     * Las variables del dataset, en el orden de la descripción de la clase.
+     */
+    public List<Variable> variables() {
+        List<Variable> variables = new ArrayList<>();
+        variables.add(new Variable(OUTCOME, "NUMERIC"));
+        if (mediation) {
+            variables.add(new Variable(MEDIATOR, "NUMERIC"));
+        }
+        for (int j = 1; j <= numericColumns; j++) {
+            variables.add(new Variable(predictor(j), "NUMERIC"));
+        }
+        for (int q = 1; q <= qualitativeColumns; q++) {
+            variables.add(new Variable("g" + q, "QUALITATIVE"));
+        }
+        return variables;
+    }
+
+    /**
+     * @throws IllegalArgumentException si la configuración no es válida.
+     */
+    public void validate() {
+        new Plan();
+    }
+
+    /**
+     * Genera el dataset completo en memoria.
+     * @throws IllegalArgumentException si la configuración no es válida.
+     */
+    public Dataset generate(String name) {
+        Plan plan = new Plan();
+        Dataset dataset = new Dataset(name);
+        dataset.setVariables(variables());
+        dataset.setObservations(generateRows(plan, 0, rows));
+        return dataset;
+    }
+
+    /**
+     * Añade las filas generadas al final de un dataset existente, como un solo lote de
+     * cambios. El dataset debe tener ya las variables de {@link #variables()}.
+     */
+    public void appendTo(Dataset dataset) {
+        Plan plan = new Plan();
+        Map<Integer, Observation> generated = generateRows(plan, 0, rows);
+        dataset.beginBatch();
+        try {
+            for (int i = 0; i < rows; i++) {
+                dataset.addObservation(generated.get(i));
+            }
+        } finally {
+            dataset.endBatch();
+        }
+    }
+
+    /**
+     * Genera el dataset y lo guarda por partes, sin tenerlo entero en memoria: primero el
+     * dataset con sus variables y después las filas en transacciones de
+     * {@link #ROWS_PER_WRITE}. Mientras se escribe una parte se genera la siguiente, así que
+     * como mucho hay dos en memoria.
+     * @return El ID del dataset guardado.
+     */
+    public int writeTo(DatasetDAO datasetDAO, String name) throws SQLException {
+        Plan plan = new Plan();
+        Dataset dataset = new Dataset(name);
+        dataset.setVariables(variables());
+        datasetDAO.saveDataset(dataset);
+        CompletableFuture<Map<Integer, Observation>> next = rows > 0 ? generateRowsAsync(plan, 0) : null;
+        for (int start = 0; start < rows; start += ROWS_PER_WRITE) {
+            Map<Integer, Observation> part = next.join();
+            next = start + ROWS_PER_WRITE < rows ? generateRowsAsync(plan, start + ROWS_PER_WRITE) : null;
+            datasetDAO.appendObservations(dataset.getId(), dataset.getVariables(), part);
+        }
+        return dataset.getId();
+    }
+
+    private CompletableFuture<Map<Integer, Observation>> generateRowsAsync(Plan plan, int start) {
+        return CompletableFuture.supplyAsync(() -> generateRows(plan, start, Math.min(rows, start + ROWS_PER_WRITE)));
+    }
+
+    /**
+     * Filas [start, end), con start múltiplo del tamaño de bloque.
+     */
+    private Map<Integer, Observation> generateRows(Plan plan, int start, int end) {
+        int blockSize = DatasetSnapshot.CHUNK_SIZE;
+        int firstBlock = start / blockSize;
+        int blockCount = (end - start + blockSize - 1) / blockSize;
+        Observation[][] blocks = new Observation[blockCount][];
+        IntStream.range(0, blockCount).parallel().forEach(b -> {
+            int blockStart = (firstBlock + b) * blockSize;
+            blocks[b] = plan.generateBlock(firstBlock + b, blockStart, Math.min(end, blockStart + blockSize));
+        });
+        Map<Integer, Observation> observations = new HashMap<>((end - start) * 4 / 3 + 1);
+        int index = start;
+        for (Observation[] block : blocks) {
+            for (Observation observation : block) {
+                observations.put(index++, observation);
+            }
+        }
+        return observations;
+    }
+
+    /**
+     * Configuración validada y precalculada (nombres, factor de Cholesky) que comparten los
+     * hilos que generan los bloques.
+     */
+    private final class Plan {
+        final String[] predictorNames = new String[numericColumns];
+        final String[] qualitativeNames = new String[qualitativeColumns];
+        final String[] levelNames = new String[levels];
+        final String[] allNames;
+        final double[] beta = new double[numericColumns];
+        final double[][] cholesky;
+        final double sharedLoading;
+        final double ownLoading;
+
+        Plan() {
+            if (rows < 0 || numericColumns < 1 || qualitativeColumns < 0 || levels < 1) {
+                throw new IllegalArgumentException("Se necesitan filas >= 0, al menos un predictor numérico y al menos un nivel.");
+            }
+            if (coefficients != null && coefficients.length != numericColumns) {
+                throw new IllegalArgumentException("Hay " + coefficients.length + " coeficientes para " + numericColumns + " predictores.");
+            }
+            if (missingRate < 0 || missingRate > 1 || outlierRate < 0 || outlierRate > 1) {
+                throw new IllegalArgumentException("Las tasas de faltantes y atípicos deben estar entre 0 y 1.");
+            }
+            if (equicorrelation < 0 || equicorrelation >= 1) {
+                throw new IllegalArgumentException("La correlación común debe estar en [0, 1): " + equicorrelation);
+            }
+            for (int j = 0; j < numericColumns; j++) {
+                predictorNames[j] = predictor(j + 1);
+                beta[j] = getCoefficient(j + 1);
+            }
+            for (int q = 0; q < qualitativeColumns; q++) {
+                qualitativeNames[q] = "g" + (q + 1);
+            }
+            for (int l = 0; l < levels; l++) {
+                levelNames[l] = levelName(l);
+            }
+            allNames = variables().stream().map(Variable::getName).toArray(String[]::new);
+            if (correlation != null) {
+                validateCorrelation();
+                try {
+                    cholesky = new CholeskyDecomposition(MatrixUtils.createRealMatrix(correlation),
+                            CORRELATION_TOLERANCE, CORRELATION_TOLERANCE).getL().getData();
+                } catch (NonPositiveDefiniteMatrixException e) {
+                    throw new IllegalArgumentException("La matriz de correlación no es definida positiva.", e);
+                }
+            } else {
+                cholesky = null;
+            }
+            sharedLoading = Math.sqrt(equicorrelation);
+            ownLoading = Math.sqrt(1.0 - equicorrelation);
+        }
+
+        /**
+         * Cholesky sólo comprueba que la matriz sea simétrica y definida positiva; una matriz
+         * de covarianzas o con valores fuera de [-1, 1] también lo es y daría predictores con
+         * otra escala o correlaciones distintas de las pedidas.
+         */
+        private void validateCorrelation() {
+            if (correlation.length != numericColumns) {
+                throw new IllegalArgumentException("La matriz de correlación debe ser " + numericColumns + " x " + numericColumns + ".");
+            }
+            for (int i = 0; i < numericColumns; i++) {
+                if (correlation[i] == null || correlation[i].length != numericColumns) {
+                    throw new IllegalArgumentException("La matriz de correlación debe ser " + numericColumns + " x " + numericColumns + ".");
+                }
+            }
+            for (int i = 0; i < numericColumns; i++) {
+                if (Math.abs(correlation[i][i] - 1.0) > CORRELATION_TOLERANCE) {
+                    throw new IllegalArgumentException("La diagonal de la matriz de correlación debe valer 1 (fila " + (i + 1) + ": " + correlation[i][i] + ").");
+                }
+                for (int j = 0; j < i; j++) {
+                    double value = correlation[i][j];
+                    if (Double.isNaN(value) || Math.abs(value - correlation[j][i]) > CORRELATION_TOLERANCE) {
+                        throw new IllegalArgumentException("La matriz de correlación no es simétrica en (" + (i + 1) + ", " + (j + 1) + ").");
+                    }
+                    if (Math.abs(value) > 1.0) {
+                        throw new IllegalArgumentException("Las correlaciones deben estar en [-1, 1]: " + value);
+                    }
+                }
+            }
+        }
+
+        Observation[] generateBlock(int block, int blockStart, int blockEnd) {
+            Gaussian random = new Gaussian(new SplittableRandom(mix(seed, block)));
+            Observation[] observations = new Observation[blockEnd - blockStart];
+            double[] z = new double[numericColumns];
+            double[] x = new double[numericColumns];
+            int capacity = (numericColumns + qualitativeColumns + 2) * 4 / 3 + 1;
+            for (int i = 0; i < observations.length; i++) {
+                if (cholesky != null) {
+                    for (int j = 0; j < numericColumns; j++) {
+                        z[j] = random.nextGaussian();
+                    }
+                    for (int j = 0; j < numericColumns; j++) {
+                        double sum = 0.0;
+                        for (int l = 0; l <= j; l++) {
+                            sum += cholesky[j][l] * z[l];
+                        }
+                        x[j] = sum;
+                    }
+                } else {
+                    double shared = sharedLoading == 0.0 ? 0.0 : sharedLoading * random.nextGaussian();
+                    for (int j = 0; j < numericColumns; j++) {
+                        x[j] = shared + ownLoading * random.nextGaussian();
+                    }
+                }
+                double y = intercept + noiseStdDev * random.nextGaussian();
+                for (int j = 0; j < numericColumns; j++) {
+                    y += beta[j] * x[j];
+                }
+                double m = 0.0;
+                if (mediation) {
+                    m = mediatorCoefficient * x[0] + random.nextGaussian();
+                    y += mediatorEffect * m;
+                }
+                if (outlierRate > 0 && random.nextDouble() < outlierRate) {
+                    y += (random.nextDouble() < 0.5 ? -1 : 1) * outlierMagnitude * noiseStdDev;
+                }
+
+                // Probabilidad de faltar de cada celda de la fila
+                double missingProbability;
+                switch (missingPattern) {
+                    case MCAR:
+                        missingProbability = missingRate;
+                        break;
+                    case MAR:
+                        double phi = 0.5 * (1.0 + Erf.erf(x[0] / Math.sqrt(2.0)));
+                        missingProbability = Math.min(1.0, 2.0 * missingRate * phi);
+                        break;
+                    default:
+                        missingProbability = 0.0;
+                        break;
+                }
+
+                Map<String, Object> values = new HashMap<>(capacity);
+                putUnlessMissing(values, OUTCOME, y, missingProbability, random);
+                if (mediation) {
+                    putUnlessMissing(values, MEDIATOR, m, missingProbability, random);
+                }
+                for (int j = 0; j < numericColumns; j++) {
+                    // Con MAR, x1 determina la falta de las demás y nunca falta
+                    double probability = j == 0 && missingPattern == MissingPattern.MAR ? 0.0 : missingProbability;
+                    putUnlessMissing(values, predictorNames[j], x[j], probability, random);
+                }
+                for (int q = 0; q < qualitativeColumns; q++) {
+                    putUnlessMissing(values, qualitativeNames[q], levelNames[random.nextInt(levels)], missingProbability, random);
+                }
+                if (missingPattern == MissingPattern.ROW && random.nextDouble() < missingRate) {
+                    values.remove(allNames[random.nextInt(allNames.length)]);
+                }
+                Observation observation = new Observation();
+                observation.setValues(values);
+                observations[i] = observation;
+            }
+            return observations;
+        }
+
+        private void putUnlessMissing(Map<String, Object> values, String name, Object value, double missingProbability,
+                                      Gaussian random) {
+            if (missingProbability == 0.0 || random.nextDouble() >= missingProbability) {
+                values.put(name, value);
+            }
+        }
+    }
+
+    private static String levelName(int level) {
+        StringBuilder name = new StringBuilder();
+        for (int l = level; l >= 0; l = l / 26 - 1) {
+            name.insert(0, (char) ('A' + l % 26));
+        }
+        return name.toString();
+    }
+
+    // Semilla independiente por bloque (finalizador de SplitMix64)
+    private static long mix(long seed, int block) {
+        long z = seed + (block + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Normales por el método polar de Marsaglia sobre un SplittableRandom, que en Java 11 no
+     * tiene nextGaussian. No es seguro entre hilos: cada bloque usa el suyo.
+     */
+    private static final class Gaussian {
+        private final SplittableRandom random;
+        private double spare;
+        private boolean hasSpare;
+
+        Gaussian(SplittableRandom random) {
+            this.random = random;
+        }
+
+        double nextDouble() {
+            return random.nextDouble();
+        }
+
+        int nextInt(int bound) {
+            return random.nextInt(bound);
+        }
+
+        double nextGaussian() {
+            if (hasSpare) {
+                hasSpare = false;
+                return spare;
+            }
+            double u;
+            double v;
+            double s;
+            do {
+                u = 2.0 * random.nextDouble() - 1.0;
+                v = 2.0 * random.nextDouble() - 1.0;
+                s = u * u + v * v;
+            } while (s >= 1.0 || s == 0.0);
+            double factor = Math.sqrt(-2.0 * Math.log(s) / s);
+            spare = v * factor;
+            hasSpare = true;
+            return u * factor;
+        }
+    }
+}
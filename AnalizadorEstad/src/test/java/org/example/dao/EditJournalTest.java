@@ -0,0 +1,52 @@
+package org.example.dao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Every journaled edit must come back from a fold as it was appended, including cell values
+ * that plain JSON cannot represent (NaN and infinities) and text that looks like them.
+ */
+class EditJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void entriesRoundTripThroughAFold() throws IOException {
+        EditJournal journal = new EditJournal(7, directory);
+        Object[] values = {1.5, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, "NaN", "texto", true, null};
+        for (int i = 0; i < values.length; i++) {
+            journal.append(EditJournal.Entry.setValue(i, "x", values[i]));
+        }
+        journal.append(EditJournal.Entry.addVariable("z", "NUMERIC"));
+        journal.append(EditJournal.Entry.removeRow(3));
+
+        List<EditJournal.Entry> entries = journal.beginFold();
+        assertEquals(values.length + 2, entries.size());
+        for (int i = 0; i < values.length; i++) {
+            EditJournal.Entry entry = entries.get(i);
+            assertEquals(EditJournal.EntryType.SET_VALUE, entry.getType());
+            assertEquals(i, entry.getObservationIndex());
+            assertEquals("x", entry.getVariableName());
+            assertEquals(values[i], entry.getValue(), "Value " + values[i]);
+        }
+        EditJournal.Entry addVariable = entries.get(values.length);
+        assertEquals(EditJournal.EntryType.ADD_VARIABLE, addVariable.getType());
+        assertEquals("z", addVariable.getVariableName());
+        assertEquals("NUMERIC", addVariable.getVariableType());
+        assertNull(addVariable.getObservationIndex());
+        assertEquals(3, entries.get(values.length + 1).getObservationIndex());
+
+        journal.commitFold();
+        assertFalse(journal.hasPendingEntries());
+    }
+}
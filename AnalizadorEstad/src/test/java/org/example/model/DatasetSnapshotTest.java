@@ -0,0 +1,62 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Las versiones publicadas reutilizan los bloques de columna sin cambios, pero nunca los de
+ * una variable eliminada, aunque se vuelva a añadir con el mismo nombre antes de publicar.
+ */
+class DatasetSnapshotTest {
+
+    private static final int ROWS = DatasetSnapshot.CHUNK_SIZE + 500; // Dos bloques
+
+    @Test
+    void unchangedChunksAreShared() {
+        Dataset dataset = dataset();
+        DatasetSnapshot first = dataset.snapshot();
+        dataset.setValue(0, "x", -1.0);
+        DatasetSnapshot second = dataset.snapshot();
+
+        assertNotSame(first.getColumn("x")[0], second.getColumn("x")[0]);
+        assertSame(first.getColumn("x")[1], second.getColumn("x")[1]);
+        assertSame(first.getColumn("y")[0], second.getColumn("y")[0]);
+        assertEquals(-1.0, second.getValue(0, "x"));
+        assertEquals(0.0, first.getValue(0, "x"));
+    }
+
+    @Test
+    void removedVariableIsNotReusedWhenAddedAgain() {
+        Dataset dataset = dataset();
+        DatasetSnapshot first = dataset.snapshot();
+        dataset.removeVariable("x");
+        dataset.addVariable(new Variable("x", "NUMERIC"));
+        dataset.setValue(1, "x", 7.0);
+        DatasetSnapshot second = dataset.snapshot();
+
+        assertEquals(7.0, second.getValue(1, "x"));
+        for (int row : new int[]{0, 2, DatasetSnapshot.CHUNK_SIZE, ROWS - 1}) {
+            assertNull(second.getValue(row, "x"), "Fila " + row);
+            assertEquals((double) row, first.getValue(row, "x"), "Fila " + row);
+            assertEquals(2.0 * row, second.getValue(row, "y"), "Fila " + row);
+        }
+        assertSame(first.getColumn("y")[1], second.getColumn("y")[1]);
+    }
+
+    private static Dataset dataset() {
+        Dataset dataset = new Dataset("instantáneas");
+        dataset.addVariable(new Variable("x", "NUMERIC"));
+        dataset.addVariable(new Variable("y", "NUMERIC"));
+        for (int row = 0; row < ROWS; row++) {
+            Observation observation = new Observation();
+            observation.addValue("x", (double) row);
+            observation.addValue("y", 2.0 * row);
+            dataset.addObservation(observation);
+        }
+        return dataset;
+    }
+}
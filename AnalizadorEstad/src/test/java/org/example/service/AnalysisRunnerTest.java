@@ -0,0 +1,52 @@
+package org.example.service;
+
+import org.example.model.AnalysisOutcome;
+import org.example.model.DatasetSnapshot;
+import org.example.model.RegressionResult;
+import org.example.model.RowSelection;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnalysisRunnerTest {
+
+    private final EstadisticaService service = new EstadisticaService();
+    private final AnalysisRunner runner = new AnalysisRunner(service);
+
+    /**
+     * Cada modelo del cribado usa las filas completas de su propio predictor, aunque otros
+     * candidatos tengan más faltantes (o ninguna fila).
+     */
+    @Test
+    void screeningUsesEachCandidateOwnCompleteRows() {
+        DatasetSnapshot snapshot = RegressionBatchTest.dataset(11).snapshot();
+        AnalysisSpec spec = new AnalysisSpec(AnalysisSpec.Type.SCREENING);
+        spec.setDependent("y");
+        spec.setCandidates(Arrays.asList("x1", "x2", "x3", "x5", "vacia"));
+        spec.setFilter("x4 > -1");
+        AnalysisOutcome outcome = runner.run(snapshot, spec);
+        assertEquals(1, outcome.getWarnings().size()); // Sólo falla el candidato sin valores
+
+        RowSelection selection = RowFilter.compile("x4 > -1").evaluate(snapshot);
+        for (String candidate : Arrays.asList("x1", "x2", "x3", "x5")) {
+            RegressionResult single = service.performMultipleLinearRegression(snapshot, selection,
+                    MissingDataPolicy.LISTWISE, "y", Collections.singletonList(candidate));
+            String model = "y ~ " + candidate;
+            assertEquals(single.getNumObservations(), value(outcome, model, "", "n"), 0.0);
+            assertEquals(single.getCoefficient(candidate), value(outcome, model, candidate, "coefficient"), 1e-10);
+            assertEquals(single.getStandardError(1), value(outcome, model, candidate, "std_error"), 1e-10);
+        }
+    }
+
+    private static double value(AnalysisOutcome outcome, String model, String term, String statistic) {
+        for (AnalysisOutcome.Row row : outcome.getRows()) {
+            if (row.getModel().equals(model) && row.getTerm().equals(term) && row.getStatistic().equals(statistic)) {
+                return row.getValue();
+            }
+        }
+        throw new AssertionError("Falta " + model + " / " + term + " / " + statistic);
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.service;
+
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.stat.correlation.Covariance;
+import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
+import org.example.model.DatasetSnapshot;
+import org.example.model.RowSelection;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Las medias, covarianzas y correlaciones acumuladas deben coincidir con las de
+ * {@link Covariance} y {@link PearsonsCorrelation} sobre las mismas filas completas, tanto
+ * fila a fila como al combinar o restar bloques.
+ */
+class CoMomentMatrixTest {
+
+    private static final List<String> VARIABLES = Arrays.asList("y", "x1", "x2", "x3", "x5");
+    private static final double TOLERANCE = 1e-10;
+
+    @Test
+    void rowUpdatesMergeAndSubtractMatchCovariance() {
+        double[][] rows = ReferenceData.completeRows(RegressionBatchTest.dataset(31).snapshot(), null, VARIABLES);
+        int half = rows.length / 2;
+
+        CoMomentMatrix first = new CoMomentMatrix(VARIABLES.size());
+        CoMomentMatrix second = new CoMomentMatrix(VARIABLES.size());
+        for (int i = 0; i < rows.length; i++) {
+            (i < half ? first : second).add(rows[i]);
+        }
+        CoMomentMatrix total = first.copy();
+        total.merge(second);
+        assertMatchesReference(rows, total);
+
+        CoMomentMatrix remaining = total.copy();
+        remaining.subtract(second);
+        assertMatchesReference(Arrays.copyOfRange(rows, 0, half), remaining);
+
+        for (int i = half - 100; i < half; i++) {
+            first.remove(rows[i]);
+        }
+        assertMatchesReference(Arrays.copyOfRange(rows, 0, half - 100), first);
+    }
+
+    @Test
+    void snapshotCoMomentsMatchCovarianceOnCompleteRows() {
+        DatasetSnapshot snapshot = RegressionBatchTest.dataset(32).snapshot();
+        EstadisticaService service = new EstadisticaService();
+        for (String filter : new String[]{null, "x2 > 0 or x3 is null"}) {
+            RowSelection selection = filter != null ? RowFilter.compile(filter).evaluate(snapshot) : null;
+            CoMomentMatrix moments = service.computeCoMoments(snapshot, selection, MissingDataPolicy.LISTWISE, VARIABLES);
+            assertMatchesReference(ReferenceData.completeRows(snapshot, selection, VARIABLES), moments);
+        }
+    }
+
+    private static void assertMatchesReference(double[][] rows, CoMomentMatrix moments) {
+        RealMatrix covariance = new Covariance(rows).getCovarianceMatrix();
+        RealMatrix correlation = new PearsonsCorrelation(rows).getCorrelationMatrix();
+        assertEquals(rows.length, moments.getCount());
+        for (int i = 0; i < VARIABLES.size(); i++) {
+            double sum = 0.0;
+            for (double[] row : rows) {
+                sum += row[i];
+            }
+            assertEquals(sum / rows.length, moments.getMean(i), TOLERANCE);
+            for (int j = 0; j < VARIABLES.size(); j++) {
+                assertEquals(covariance.getEntry(i, j), moments.getCovariance(i, j), TOLERANCE);
+                assertEquals(correlation.getEntry(i, j), moments.getCorrelation(i, j), TOLERANCE);
+            }
+        }
+    }
+}
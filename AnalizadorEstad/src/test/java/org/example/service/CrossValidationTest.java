@@ -0,0 +1,84 @@
+package org.example.service;
+
+import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
+import org.example.model.CrossValidationResult;
+import org.example.model.DatasetSnapshot;
+import org.example.model.RowSelection;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * La validación cruzada por co-momentos debe dar el mismo error de predicción que reajustar
+ * el modelo con {@link OLSMultipleLinearRegression} sin cada fold. Con tantos folds como filas
+ * (dejar uno fuera) el reparto no depende de la semilla, así que la referencia es exacta.
+ */
+class CrossValidationTest {
+
+    private static final List<String> VARIABLES = Arrays.asList("y", "x1", "x2", "x4");
+    private static final String FILTER = "x1 > 1.8";
+    private static final double TOLERANCE = 1e-8;
+
+    private final EstadisticaService service = new EstadisticaService();
+
+    @Test
+    void leaveOneOutMatchesManualRefits() {
+        DatasetSnapshot snapshot = RegressionBatchTest.dataset(51).snapshot();
+        RowSelection selection = RowFilter.compile(FILTER).evaluate(snapshot);
+        for (MissingDataPolicy policy : new MissingDataPolicy[]{MissingDataPolicy.LISTWISE, MissingDataPolicy.MEAN_IMPUTATION}) {
+            double[][] rows = policy == MissingDataPolicy.LISTWISE
+                    ? ReferenceData.completeRows(snapshot, selection, VARIABLES)
+                    : ReferenceData.meanImputedRows(snapshot, selection, VARIABLES);
+            CrossValidationResult result = service.performCrossValidation(snapshot, selection, policy, "y",
+                    VARIABLES.subList(1, VARIABLES.size()), rows.length, 7L);
+
+            double press = 0.0;
+            double sum = 0.0;
+            for (int held = 0; held < rows.length; held++) {
+                double[][] training = new double[rows.length - 1][];
+                for (int i = 0, t = 0; i < rows.length; i++) {
+                    if (i != held) {
+                        training[t++] = rows[i];
+                    }
+                }
+                double[] beta = ReferenceData.ols(training).estimateRegressionParameters();
+                double prediction = beta[0];
+                for (int j = 1; j < beta.length; j++) {
+                    prediction += beta[j] * rows[held][j];
+                }
+                double error = rows[held][0] - prediction;
+                press += error * error;
+                sum += rows[held][0];
+            }
+            double mean = sum / rows.length;
+            double totalSumOfSquares = 0.0;
+            for (double[] row : rows) {
+                totalSumOfSquares += (row[0] - mean) * (row[0] - mean);
+            }
+
+            assertEquals(rows.length, result.getNumObservations(), policy.toString());
+            assertEquals(press, result.getPredictionSumOfSquares(), TOLERANCE * press, policy.toString());
+            assertEquals(1.0 - press / totalSumOfSquares, result.getPredictedRSquared(), TOLERANCE);
+            assertEquals(Math.sqrt(press / rows.length), result.getRootMeanSquaredError(), TOLERANCE);
+        }
+    }
+
+    @Test
+    void foldsSplitTheRowsEvenly() {
+        DatasetSnapshot snapshot = RegressionBatchTest.dataset(52).snapshot();
+        int rows = ReferenceData.completeRows(snapshot, null, VARIABLES).length;
+        CrossValidationResult result = service.performCrossValidation(snapshot, null, MissingDataPolicy.LISTWISE, "y",
+                VARIABLES.subList(1, VARIABLES.size()), 7, 3L);
+        long total = 0;
+        for (int f = 0; f < result.getFolds(); f++) {
+            long size = result.getFoldObservations(f);
+            assertTrue(size == rows / 7 || size == rows / 7 + 1, "Fold " + f + ": " + size);
+            total += size;
+        }
+        assertEquals(rows, total);
+    }
+}
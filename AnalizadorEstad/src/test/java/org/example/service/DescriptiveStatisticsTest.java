@@ -0,0 +1,106 @@
+package org.example.service;
+
+import org.apache.commons.math3.stat.correlation.Covariance;
+import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.example.model.Dataset;
+import org.example.model.DatasetSnapshot;
+import org.example.model.DescriptiveStatisticsResult;
+import org.example.model.Observation;
+import org.example.model.RowSelection;
+import org.example.model.Variable;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Los descriptivos por bloques de variables deben coincidir, variable a variable y par a par,
+ * con {@link DescriptiveStatistics}, {@link Covariance} y {@link PearsonsCorrelation} sobre
+ * las celdas con valor de cada variable o par, también a través de varios bloques de la
+ * matriz y de filas.
+ */
+class DescriptiveStatisticsTest {
+
+    private static final int VARIABLES = EstadisticaService.CORRELATION_TILE_SIZE + 8;
+    private static final int ROWS = 5000; // Dos bloques de la instantánea
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void tiledDescriptivesMatchCommonsMath() {
+        DatasetSnapshot snapshot = dataset(61).snapshot();
+        EstadisticaService service = new EstadisticaService();
+        for (String filter : new String[]{null, "v0 > 0 or v1 is null"}) {
+            RowSelection selection = filter != null ? RowFilter.compile(filter).evaluate(snapshot) : null;
+            DescriptiveStatisticsResult result = service.computeDescriptiveStatistics(snapshot, selection);
+            assertEquals(ReferenceData.selectedRows(snapshot, selection).size(), result.getSelectedRows());
+
+            for (int i = 0; i < VARIABLES; i++) {
+                String name = name(i);
+                int index = result.indexOf(name);
+                double[][] own = ReferenceData.completeRows(snapshot, selection, Collections.singletonList(name));
+                DescriptiveStatistics expected = new DescriptiveStatistics();
+                for (double[] row : own) {
+                    expected.addValue(row[0]);
+                }
+                String context = name + ", filtro " + filter;
+                assertEquals(own.length, result.getCount(index), context);
+                assertEquals(result.getSelectedRows() - own.length, result.getMissing(index), context);
+                assertEquals(expected.getMean(), result.getMean(index), TOLERANCE, context);
+                assertEquals(expected.getVariance(), result.getVariance(index), TOLERANCE, context);
+                assertEquals(expected.getSkewness(), result.getSkewness(index), TOLERANCE, context);
+                assertEquals(expected.getKurtosis(), result.getKurtosis(index), TOLERANCE, context);
+                assertEquals(expected.getMin(), result.getMin(index), 0.0, context);
+                assertEquals(expected.getMax(), result.getMax(index), 0.0, context);
+
+                for (int j = 0; j < i; j++) {
+                    int other = result.indexOf(name(j));
+                    double[][] pair = ReferenceData.completeRows(snapshot, selection, Arrays.asList(name, name(j)));
+                    String pairContext = name + " ~ " + name(j) + ", filtro " + filter;
+                    assertEquals(pair.length, result.getPairCount(index, other), pairContext);
+                    assertEquals(new Covariance(pair).getCovarianceMatrix().getEntry(0, 1),
+                            result.getCovariance(index, other), TOLERANCE, pairContext);
+                    assertEquals(new PearsonsCorrelation(pair).getCorrelationMatrix().getEntry(0, 1),
+                            result.getCorrelation(index, other), TOLERANCE, pairContext);
+                    assertEquals(result.getCorrelation(index, other), result.getCorrelation(other, index), 0.0, pairContext);
+                }
+            }
+            assertTrue(result.indexOf("texto") < 0, "Las variables no numéricas no se describen");
+        }
+    }
+
+    private static String name(int i) {
+        return "v" + i;
+    }
+
+    /**
+     * Variables correlacionadas en cadena (v_i = 0.5 v_(i-1) + ruido), cada una con su tasa de
+     * faltantes y algunas con escala y desplazamiento grandes, más una variable de texto.
+     */
+    private static Dataset dataset(long seed) {
+        Random random = new Random(seed);
+        Dataset dataset = new Dataset("descriptivos");
+        for (int i = 0; i < VARIABLES; i++) {
+            dataset.addVariable(new Variable(name(i), "NUMERIC"));
+        }
+        dataset.addVariable(new Variable("texto", "TEXT"));
+        for (int row = 0; row < ROWS; row++) {
+            Observation observation = new Observation();
+            double previous = 0.0;
+            for (int i = 0; i < VARIABLES; i++) {
+                double value = 0.5 * previous + random.nextGaussian();
+                previous = value;
+                if (random.nextDouble() >= (i % 5) * 0.05) {
+                    observation.addValue(name(i), i % 7 == 3 ? 1e4 + 100 * value : Math.exp(value / 2));
+                }
+            }
+            observation.addValue("texto", "t" + (row % 3));
+            dataset.addObservation(observation);
+        }
+        return dataset;
+    }
+}
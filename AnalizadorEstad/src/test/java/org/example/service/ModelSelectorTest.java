@@ -0,0 +1,142 @@
+package org.example.service;
+
+import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
+import org.example.model.DatasetSnapshot;
+import org.example.model.ModelSelectionResult;
+import org.example.model.RegressionResult;
+import org.example.model.RowSelection;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * La selección por barrido debe elegir el mismo modelo que una búsqueda que ajusta cada
+ * subconjunto con {@link OLSMultipleLinearRegression} sobre la muestra de la selección.
+ */
+class ModelSelectorTest {
+
+    private static final List<String> CANDIDATES = Arrays.asList("x1", "x2", "x3", "x4", "x5");
+    private static final double TOLERANCE = 1e-8;
+
+    private final EstadisticaService service = new EstadisticaService();
+
+    @Test
+    void bestSubsetMatchesExhaustiveSearch() {
+        DatasetSnapshot snapshot = RegressionBatchTest.dataset(21).snapshot();
+        for (String filter : new String[]{null, "x1 > -1"}) {
+            RowSelection selection = filter != null ? RowFilter.compile(filter).evaluate(snapshot) : null;
+            double[][] rows = ReferenceData.completeRows(snapshot, selection, variables());
+            for (SelectionCriterion criterion : SelectionCriterion.values()) {
+                ModelSelectionResult result = service.performModelSelection(snapshot, selection, MissingDataPolicy.LISTWISE,
+                        "y", CANDIDATES, SelectionMethod.BEST_SUBSET, criterion);
+
+                List<Integer> best = null;
+                double bestScore = Double.POSITIVE_INFINITY;
+                for (int mask = 0; mask < 1 << CANDIDATES.size(); mask++) {
+                    List<Integer> subset = new ArrayList<>();
+                    for (int j = 0; j < CANDIDATES.size(); j++) {
+                        if ((mask & (1 << j)) != 0) {
+                            subset.add(j + 1);
+                        }
+                    }
+                    double score = score(criterion, rows, subset);
+                    if (score < bestScore) {
+                        bestScore = score;
+                        best = subset;
+                    }
+                }
+                assertEquals(names(best), result.getSelectedVariables(), criterion + ", filtro " + filter);
+                assertEquals(criterion.reportedValue(bestScore), result.getCriterionValue(), TOLERANCE * Math.abs(bestScore));
+                assertSameAsReference(result.getRegression(), rows, best);
+                assertEquals(ReferenceData.selectedRows(snapshot, selection).size() - rows.length, result.getRegression().getRowsDropped());
+            }
+        }
+    }
+
+    @Test
+    void forwardSelectionMatchesGreedyReference() {
+        DatasetSnapshot snapshot = RegressionBatchTest.dataset(22).snapshot();
+        double[][] rows = ReferenceData.completeRows(snapshot, null, variables());
+        for (SelectionCriterion criterion : SelectionCriterion.values()) {
+            ModelSelectionResult result = service.performModelSelection(snapshot, null, MissingDataPolicy.LISTWISE,
+                    "y", CANDIDATES, SelectionMethod.FORWARD, criterion);
+
+            List<Integer> model = new ArrayList<>();
+            double current = score(criterion, rows, model);
+            while (true) {
+                int bestCandidate = -1;
+                double bestScore = current;
+                for (int j = 1; j <= CANDIDATES.size(); j++) {
+                    if (model.contains(j)) {
+                        continue;
+                    }
+                    List<Integer> extended = new ArrayList<>(model);
+                    extended.add(j);
+                    extended.sort(null);
+                    double score = score(criterion, rows, extended);
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestCandidate = j;
+                    }
+                }
+                if (bestCandidate < 0) {
+                    break;
+                }
+                model.add(bestCandidate);
+                model.sort(null);
+                current = bestScore;
+            }
+            assertEquals(names(model), result.getSelectedVariables(), criterion.toString());
+            assertSameAsReference(result.getRegression(), rows, model);
+        }
+    }
+
+    private static List<String> variables() {
+        List<String> variables = new ArrayList<>();
+        variables.add("y");
+        variables.addAll(CANDIDATES);
+        return variables;
+    }
+
+    private static List<String> names(List<Integer> columns) {
+        List<String> names = new ArrayList<>();
+        for (int column : columns) {
+            names.add(CANDIDATES.get(column - 1));
+        }
+        return names;
+    }
+
+    /**
+     * Criterio del subconjunto (columnas de {@code rows}) ajustado con commons-math.
+     */
+    private static double score(SelectionCriterion criterion, double[][] rows, List<Integer> subset) {
+        double totalSumOfSquares = ReferenceData.ols(ReferenceData.columns(rows, 0, 1)).calculateTotalSumOfSquares();
+        double residualSumOfSquares = subset.isEmpty() ? totalSumOfSquares
+                : ReferenceData.ols(ReferenceData.columns(rows, columnsOf(subset))).calculateResidualSumOfSquares();
+        return criterion.score(residualSumOfSquares, totalSumOfSquares, rows.length, subset.size() + 1);
+    }
+
+    private static void assertSameAsReference(RegressionResult regression, double[][] rows, List<Integer> subset) {
+        OLSMultipleLinearRegression reference = ReferenceData.ols(ReferenceData.columns(rows, columnsOf(subset)));
+        double[] coefficients = reference.estimateRegressionParameters();
+        double[] standardErrors = reference.estimateRegressionParametersStandardErrors();
+        assertEquals(rows.length, regression.getNumObservations());
+        for (int i = 0; i < coefficients.length; i++) {
+            assertEquals(coefficients[i], regression.getCoefficient(i), TOLERANCE * (1 + Math.abs(coefficients[i])));
+            assertEquals(standardErrors[i], regression.getStandardError(i), TOLERANCE);
+        }
+        assertEquals(reference.calculateRSquared(), regression.getRSquared(), TOLERANCE);
+    }
+
+    private static int[] columnsOf(List<Integer> subset) {
+        int[] columns = new int[subset.size() + 1];
+        for (int j = 0; j < subset.size(); j++) {
+            columns[j + 1] = subset.get(j);
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.service;
+
+import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
+import org.example.model.DatasetSnapshot;
+import org.example.model.RowSelection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extrae las filas de una instantánea celda a celda, sin pasar por los bloques de columnas,
+ * para comparar los cálculos del servicio con las implementaciones de commons-math.
+ */
+final class ReferenceData {
+
+    private ReferenceData() {
+    }
+
+    /**
+     * Filas de la selección (o todas si es null) con valor numérico en todas las variables,
+     * con las columnas en el orden indicado.
+     */
+    static double[][] completeRows(DatasetSnapshot snapshot, RowSelection selection, List<String> variableNames) {
+        List<double[]> rows = new ArrayList<>();
+        for (int obsIndex : selectedRows(snapshot, selection)) {
+            double[] row = new double[variableNames.size()];
+            boolean complete = true;
+            for (int j = 0; j < row.length && complete; j++) {
+                Object value = snapshot.getValue(obsIndex, variableNames.get(j));
+                complete = value instanceof Number;
+                row[j] = complete ? ((Number) value).doubleValue() : Double.NaN;
+            }
+            if (complete) {
+                rows.add(row);
+            }
+        }
+        return rows.toArray(new double[0][]);
+    }
+
+    /**
+     * Filas con la variable dependiente (columna 0) presente y cada X faltante sustituida por
+     * la media de sus valores en la selección, como en la imputación por la media.
+     */
+    static double[][] meanImputedRows(DatasetSnapshot snapshot, RowSelection selection, List<String> variableNames) {
+        List<Integer> rowsInSelection = selectedRows(snapshot, selection);
+        double[] means = new double[variableNames.size()];
+        for (int j = 0; j < means.length; j++) {
+            double sum = 0.0;
+            int count = 0;
+            for (int obsIndex : rowsInSelection) {
+                Object value = snapshot.getValue(obsIndex, variableNames.get(j));
+                if (value instanceof Number) {
+                    sum += ((Number) value).doubleValue();
+                    count++;
+                }
+            }
+            means[j] = sum / count;
+        }
+        List<double[]> rows = new ArrayList<>();
+        for (int obsIndex : rowsInSelection) {
+            if (!(snapshot.getValue(obsIndex, variableNames.get(0)) instanceof Number)) {
+                continue;
+            }
+            double[] row = new double[variableNames.size()];
+            for (int j = 0; j < row.length; j++) {
+                Object value = snapshot.getValue(obsIndex, variableNames.get(j));
+                row[j] = value instanceof Number ? ((Number) value).doubleValue() : means[j];
+            }
+            rows.add(row);
+        }
+        return rows.toArray(new double[0][]);
+    }
+
+    /**
+     * Índices de las observaciones seleccionadas, en orden.
+     */
+    static List<Integer> selectedRows(DatasetSnapshot snapshot, RowSelection selection) {
+        List<Integer> indexes = new ArrayList<>();
+        int limit = snapshot.getChunkCount() * DatasetSnapshot.CHUNK_SIZE;
+        for (int obsIndex = 0; obsIndex < limit; obsIndex++) {
+            if (snapshot.isPresent(obsIndex) && (selection == null || selection.isSelected(obsIndex))) {
+                indexes.add(obsIndex);
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Regresión de referencia: la columna 0 es la Y y las demás las X, con intercepto.
+     */
+    static OLSMultipleLinearRegression ols(double[][] rows) {
+        double[] y = new double[rows.length];
+        double[][] x = new double[rows.length][];
+        for (int i = 0; i < rows.length; i++) {
+            y[i] = rows[i][0];
+            x[i] = Arrays.copyOfRange(rows[i], 1, rows[i].length);
+        }
+        OLSMultipleLinearRegression regression = new OLSMultipleLinearRegression();
+        regression.newSampleData(y, x);
+        return regression;
+    }
+
+    /**
+     * Columnas indicadas de las filas, en ese orden.
+     */
+    static double[][] columns(double[][] rows, int... columns) {
+        double[][] result = new double[rows.length][columns.length];
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < columns.length; j++) {
+                result[i][j] = rows[i][columns[j]];
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.service;
+
+import org.example.model.Dataset;
+import org.example.model.DatasetSnapshot;
+import org.example.model.ModelSpec;
+import org.example.model.Observation;
+import org.example.model.RegressionResult;
+import org.example.model.RowSelection;
+import org.example.model.Variable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * El lote de regresiones debe dar, modelo a modelo, lo mismo que estimar cada modelo solo,
+ * también cuando cada variable tiene sus propios valores faltantes, y lo mismo que
+ * commons-math sobre las filas de cada modelo.
+ */
+class RegressionBatchTest {
+
+    private static final int ROWS = 9000; // Más de dos bloques de la instantánea
+    private static final double TOLERANCE = 1e-9;
+
+    private final EstadisticaService service = new EstadisticaService();
+
+    @Test
+    void listwiseBatchMatchesSingleModels() {
+        assertBatchMatchesSingleModels(MissingDataPolicy.LISTWISE, null);
+    }
+
+    @Test
+    void meanImputationBatchMatchesSingleModels() {
+        assertBatchMatchesSingleModels(MissingDataPolicy.MEAN_IMPUTATION, null);
+    }
+
+    @Test
+    void pairwiseBatchMatchesSingleModels() {
+        assertBatchMatchesSingleModels(MissingDataPolicy.PAIRWISE, null);
+    }
+
+    @Test
+    void filteredBatchMatchesSingleModels() {
+        for (MissingDataPolicy policy : MissingDataPolicy.values()) {
+            assertBatchMatchesSingleModels(policy, "x1 > 0");
+        }
+    }
+
+    @Test
+    void batchMatchesOlsOnEachModelRows() {
+        DatasetSnapshot snapshot = dataset(6).snapshot();
+        List<ModelSpec> models = Arrays.asList(
+                new ModelSpec("y", Collections.singletonList("x5")),
+                new ModelSpec("y", Arrays.asList("x1", "x2", "x3")),
+                new ModelSpec("x4", Arrays.asList("x1", "x5")));
+        for (MissingDataPolicy policy : new MissingDataPolicy[]{MissingDataPolicy.LISTWISE, MissingDataPolicy.MEAN_IMPUTATION}) {
+            for (String filter : new String[]{null, "x2 < 1 or x3 is null"}) {
+                RowSelection selection = filter != null ? RowFilter.compile(filter).evaluate(snapshot) : null;
+                List<RegressionResult> batch = service.performRegressionBatch(snapshot, selection, policy, models, null);
+                for (int m = 0; m < models.size(); m++) {
+                    List<String> variables = new ArrayList<>();
+                    variables.add(models.get(m).getDependentVariableName());
+                    variables.addAll(models.get(m).getIndependentVariableNames());
+                    double[][] rows = policy == MissingDataPolicy.LISTWISE
+                            ? ReferenceData.completeRows(snapshot, selection, variables)
+                            : ReferenceData.meanImputedRows(snapshot, selection, variables);
+                    RegressionReferenceTest.assertSameAsOls(ReferenceData.ols(rows), rows.length, batch.get(m));
+                }
+            }
+        }
+    }
+
+    @Test
+    void emptyCandidateDoesNotShrinkOtherModels() {
+        DatasetSnapshot snapshot = dataset(3).snapshot();
+        List<ModelSpec> models = Arrays.asList(
+                new ModelSpec("y", Collections.singletonList("x1")),
+                new ModelSpec("y", Collections.singletonList("vacia")),
+                new ModelSpec("y", Collections.singletonList("x2")));
+        List<String> failures = new ArrayList<>();
+        List<RegressionResult> results = service.performRegressionBatch(snapshot, null, MissingDataPolicy.LISTWISE, models,
+                new RegressionBatchListener() {
+                    @Override
+                    public void modelCompleted(int index, ModelSpec model, RegressionResult result) {
+                    }
+
+                    @Override
+                    public void modelFailed(int index, ModelSpec model, IllegalArgumentException error) {
+                        failures.add(model.toString());
+                    }
+                });
+        assertNull(results.get(1));
+        assertEquals(1, failures.size());
+        assertSameFit(service.performMultipleLinearRegression(snapshot, null, MissingDataPolicy.LISTWISE, "y",
+                Collections.singletonList("x1")), results.get(0));
+        assertSameFit(service.performMultipleLinearRegression(snapshot, null, MissingDataPolicy.LISTWISE, "y",
+                Collections.singletonList("x2")), results.get(2));
+    }
+
+    private void assertBatchMatchesSingleModels(MissingDataPolicy policy, String filter) {
+        DatasetSnapshot snapshot = dataset(5).snapshot();
+        RowSelection selection = filter != null ? RowFilter.compile(filter).evaluate(snapshot) : null;
+        List<ModelSpec> models = new ArrayList<>();
+        for (int j = 1; j <= 5; j++) {
+            models.add(new ModelSpec("y", Collections.singletonList("x" + j))); // Cribado
+        }
+        models.add(new ModelSpec("y", Arrays.asList("x1", "x2", "x3")));
+        models.add(new ModelSpec("x4", Arrays.asList("x1", "x5")));
+        models.add(new ModelSpec("y", Arrays.asList("x2", "x4", "x5")));
+
+        List<RegressionResult> batch = service.performRegressionBatch(snapshot, selection, policy, models, null);
+        for (int m = 0; m < models.size(); m++) {
+            ModelSpec model = models.get(m);
+            RegressionResult single = service.performMultipleLinearRegression(snapshot, selection, policy,
+                    model.getDependentVariableName(), model.getIndependentVariableNames());
+            assertNotNull(batch.get(m), model.toString());
+            assertSameFit(single, batch.get(m));
+        }
+    }
+
+    private static void assertSameFit(RegressionResult expected, RegressionResult actual) {
+        assertEquals(expected.getNumObservations(), actual.getNumObservations());
+        assertEquals(expected.getRowsDropped(), actual.getRowsDropped());
+        assertEquals(expected.getValuesImputed(), actual.getValuesImputed());
+        for (int i = 0; i < expected.getCoefficientCount(); i++) {
+            assertEquals(expected.getCoefficient(i), actual.getCoefficient(i), TOLERANCE * (1 + Math.abs(expected.getCoefficient(i))));
+            assertEquals(expected.getStandardError(i), actual.getStandardError(i), TOLERANCE);
+        }
+        assertEquals(expected.getRSquared(), actual.getRSquared(), TOLERANCE);
+    }
+
+    /**
+     * y = 1 + x1 - 0.5 x2 + ruido, con una tasa de faltantes distinta en cada variable y una
+     * variable sin ningún valor.
+     */
+    static Dataset dataset(long seed) {
+        Random random = new Random(seed);
+        Dataset dataset = new Dataset("lote");
+        String[] names = {"y", "x1", "x2", "x3", "x4", "x5", "vacia"};
+        double[] missingRates = {0.05, 0.0, 0.1, 0.2, 0.03, 0.3, 1.0};
+        for (String name : names) {
+            dataset.addVariable(new Variable(name, "NUMERIC"));
+        }
+        for (int row = 0; row < ROWS; row++) {
+            double[] x = new double[6];
+            for (int j = 1; j <= 5; j++) {
+                x[j] = random.nextGaussian() + 0.3 * x[j - 1];
+            }
+            x[0] = 1 + x[1] - 0.5 * x[2] + random.nextGaussian();
+            Observation observation = new Observation();
+            for (int j = 0; j < names.length; j++) {
+                if (random.nextDouble() >= missingRates[j]) {
+                    observation.addValue(names[j], j < 6 ? x[j] : 0.0);
+                }
+            }
+            dataset.addObservation(observation);
+        }
+        return dataset;
+    }
+}
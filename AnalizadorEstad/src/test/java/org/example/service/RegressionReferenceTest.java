@@ -0,0 +1,176 @@
+package org.example.service;
+
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.stat.correlation.Covariance;
+import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
+import org.example.model.DatasetSnapshot;
+import org.example.model.RegressionResult;
+import org.example.model.RobustCovarianceType;
+import org.example.model.RowSelection;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cada política de datos faltantes, con y sin filtro, debe dar la misma regresión que
+ * {@link OLSMultipleLinearRegression} sobre las filas que la política deja (o, por pares,
+ * que las covarianzas de {@link Covariance} calculadas par a par). Los errores robustos
+ * HC0–HC3 se comparan con el sándwich calculado fila a fila sobre esas mismas filas.
+ */
+class RegressionReferenceTest {
+
+    private static final List<String> PREDICTORS = Arrays.asList("x1", "x2", "x3");
+    private static final String[] FILTERS = {null, "x1 > -0.5 and x5 is not null"};
+    private static final double TOLERANCE = 1e-9;
+
+    private final EstadisticaService service = new EstadisticaService();
+    private final DatasetSnapshot snapshot = RegressionBatchTest.dataset(41).snapshot();
+
+    @Test
+    void listwiseMatchesOlsOnCompleteRows() {
+        for (String filter : FILTERS) {
+            RowSelection selection = selection(filter);
+            double[][] rows = ReferenceData.completeRows(snapshot, selection, variables());
+            RegressionResult result = service.performMultipleLinearRegression(snapshot, selection, MissingDataPolicy.LISTWISE, "y", PREDICTORS);
+            assertSameAsOls(ReferenceData.ols(rows), rows.length, result);
+            assertEquals(ReferenceData.selectedRows(snapshot, selection).size() - rows.length, result.getRowsDropped());
+        }
+    }
+
+    @Test
+    void meanImputationMatchesOlsOnImputedRows() {
+        for (String filter : FILTERS) {
+            RowSelection selection = selection(filter);
+            double[][] rows = ReferenceData.meanImputedRows(snapshot, selection, variables());
+            RegressionResult result = service.performMultipleLinearRegression(snapshot, selection, MissingDataPolicy.MEAN_IMPUTATION, "y", PREDICTORS);
+            assertSameAsOls(ReferenceData.ols(rows), rows.length, result);
+        }
+    }
+
+    @Test
+    void pairwiseMatchesPairwiseCovariances() {
+        for (String filter : FILTERS) {
+            RowSelection selection = selection(filter);
+            List<String> variables = variables();
+            int size = variables.size();
+            RealMatrix covariance = MatrixUtils.createRealMatrix(size, size);
+            double[] means = new double[size];
+            long effectiveCount = Long.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                double[][] own = ReferenceData.completeRows(snapshot, selection, variables.subList(i, i + 1));
+                means[i] = Arrays.stream(own).mapToDouble(row -> row[0]).average().orElse(Double.NaN);
+                for (int j = i; j < size; j++) {
+                    double[][] pair = ReferenceData.completeRows(snapshot, selection, Arrays.asList(variables.get(i), variables.get(j)));
+                    double value = new Covariance(pair).getCovarianceMatrix().getEntry(0, 1);
+                    covariance.setEntry(i, j, value);
+                    covariance.setEntry(j, i, value);
+                    effectiveCount = Math.min(effectiveCount, pair.length);
+                }
+            }
+            RealMatrix sxx = covariance.getSubMatrix(1, size - 1, 1, size - 1);
+            RealVector sxy = covariance.getColumnVector(0).getSubVector(1, size - 1);
+            RealVector slopes = new LUDecomposition(sxx).getSolver().solve(sxy);
+
+            RegressionResult result = service.performMultipleLinearRegression(snapshot, selection, MissingDataPolicy.PAIRWISE, "y", PREDICTORS);
+            assertEquals(effectiveCount, result.getNumObservations());
+            double intercept = means[0];
+            for (int i = 0; i < slopes.getDimension(); i++) {
+                assertEquals(slopes.getEntry(i), result.getCoefficient(i + 1), TOLERANCE);
+                intercept -= slopes.getEntry(i) * means[i + 1];
+            }
+            assertEquals(intercept, result.getCoefficient(0), TOLERANCE);
+        }
+    }
+
+    @Test
+    void robustCovariancesMatchSandwichEstimators() {
+        for (MissingDataPolicy policy : new MissingDataPolicy[]{MissingDataPolicy.LISTWISE, MissingDataPolicy.MEAN_IMPUTATION}) {
+            for (String filter : FILTERS) {
+                RowSelection selection = selection(filter);
+                double[][] rows = policy == MissingDataPolicy.LISTWISE
+                        ? ReferenceData.completeRows(snapshot, selection, variables())
+                        : ReferenceData.meanImputedRows(snapshot, selection, variables());
+                RegressionResult fitted = service.performMultipleLinearRegression(snapshot, selection, policy, "y", PREDICTORS);
+                RegressionResult robust = service.computeRobustCovariances(snapshot, selection, policy, fitted);
+                for (RobustCovarianceType type : RobustCovarianceType.values()) {
+                    RealMatrix expected = sandwich(rows, type);
+                    for (int i = 0; i < expected.getRowDimension(); i++) {
+                        for (int j = 0; j < expected.getColumnDimension(); j++) {
+                            assertEquals(expected.getEntry(i, j), robust.getRobustCovariance(type, i, j),
+                                    TOLERANCE * Math.abs(expected.getEntry(i, i)), type + ", " + policy + ", filtro " + filter);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * (X'X)^-1 (sum w_i e_i² x_i x_i') (X'X)^-1 con los residuos de commons-math; la columna
+     * 0 de las filas es la Y.
+     */
+    private static RealMatrix sandwich(double[][] rows, RobustCovarianceType type) {
+        int n = rows.length;
+        int p = rows[0].length;
+        RealMatrix x = MatrixUtils.createRealMatrix(n, p);
+        for (int r = 0; r < n; r++) {
+            x.setEntry(r, 0, 1.0);
+            for (int j = 1; j < p; j++) {
+                x.setEntry(r, j, rows[r][j]);
+            }
+        }
+        double[] residuals = ReferenceData.ols(rows).estimateResiduals();
+        RealMatrix inverse = new LUDecomposition(x.transpose().multiply(x)).getSolver().getInverse();
+        RealMatrix meat = MatrixUtils.createRealMatrix(p, p);
+        for (int r = 0; r < n; r++) {
+            RealVector xr = x.getRowVector(r);
+            double leverage = xr.dotProduct(inverse.operate(xr));
+            double weight;
+            switch (type) {
+                case HC2:
+                    weight = 1.0 / (1.0 - leverage);
+                    break;
+                case HC3:
+                    weight = 1.0 / ((1.0 - leverage) * (1.0 - leverage));
+                    break;
+                default:
+                    weight = 1.0;
+                    break;
+            }
+            meat = meat.add(xr.outerProduct(xr).scalarMultiply(weight * residuals[r] * residuals[r]));
+        }
+        RealMatrix covariance = inverse.multiply(meat).multiply(inverse);
+        return type == RobustCovarianceType.HC1 ? covariance.scalarMultiply((double) n / (n - p)) : covariance;
+    }
+
+    private RowSelection selection(String filter) {
+        return filter != null ? RowFilter.compile(filter).evaluate(snapshot) : null;
+    }
+
+    private static List<String> variables() {
+        List<String> variables = new ArrayList<>();
+        variables.add("y");
+        variables.addAll(PREDICTORS);
+        return variables;
+    }
+
+    static void assertSameAsOls(OLSMultipleLinearRegression reference, int rows, RegressionResult result) {
+        double[] coefficients = reference.estimateRegressionParameters();
+        double[] standardErrors = reference.estimateRegressionParametersStandardErrors();
+        assertEquals(rows, result.getNumObservations());
+        for (int i = 0; i < coefficients.length; i++) {
+            assertEquals(coefficients[i], result.getCoefficient(i), TOLERANCE * (1 + Math.abs(coefficients[i])));
+            assertEquals(standardErrors[i], result.getStandardError(i), TOLERANCE);
+        }
+        assertEquals(reference.calculateRSquared(), result.getRSquared(), TOLERANCE);
+        assertEquals(reference.calculateAdjustedRSquared(), result.getAdjustedRSquared(), TOLERANCE);
+        assertEquals(reference.estimateRegressionStandardError(), result.getRegressionStandardError(), TOLERANCE);
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.service;
+
+import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.example.dao.DatasetDAO;
+import org.example.model.AnalysisOutcome;
+import org.example.model.Dataset;
+import org.example.model.DatasetSnapshot;
+import org.example.util.DbInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Una regresión sobre un conjunto guardado y no cargado, resuelta con los agregados de SQLite
+ * (una sola fila de co-momentos), debe dar lo mismo que la misma regresión sobre la
+ * instantánea en memoria. Los momentos y la correlación calculados en la base de datos deben
+ * coincidir con Commons Math sobre las celdas con valor.
+ */
+class StoredCoMomentsTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    private final DatasetDAO dao = new DatasetDAO();
+    private final AnalysisRunner runner = new AnalysisRunner(new EstadisticaService());
+    private Dataset dataset;
+
+    @BeforeAll
+    static void initializeDatabase() {
+        DbInitializer.initializeDatabase();
+    }
+
+    @AfterEach
+    void deleteDataset() throws SQLException {
+        if (dataset != null && dataset.getId() > 0) {
+            dao.deleteDataset(dataset.getId());
+        }
+    }
+
+    @Test
+    void storedRegressionMatchesInMemoryRegression() throws SQLException {
+        dataset = save(RegressionBatchTest.dataset(23));
+        AnalysisSpec spec = new AnalysisSpec(AnalysisSpec.Type.REGRESSION);
+        spec.setDependent("y");
+        spec.setIndependents(Arrays.asList("x1", "x2", "x3"));
+        assertTrue(AnalysisRunner.runsOnCoMoments(spec));
+
+        AnalysisOutcome expected = runner.run(dataset.snapshot(), spec);
+        AnalysisOutcome actual = runner.run(dao.computeCoMoments(dataset.getId(), Arrays.asList("y", "x1", "x2", "x3")),
+                dao.countObservations(dataset.getId()), spec);
+
+        assertEquals(expected.getRows().size(), actual.getRows().size());
+        for (int i = 0; i < expected.getRows().size(); i++) {
+            AnalysisOutcome.Row want = expected.getRows().get(i);
+            AnalysisOutcome.Row got = actual.getRows().get(i);
+            String context = want.getModel() + " / " + want.getTerm() + " / " + want.getStatistic();
+            assertEquals(context, got.getModel() + " / " + got.getTerm() + " / " + got.getStatistic());
+            assertEquals(want.getValue(), got.getValue(), TOLERANCE * (1 + Math.abs(want.getValue())), context);
+        }
+    }
+
+    @Test
+    void storedMomentsAndCorrelationMatchCommonsMath() throws SQLException {
+        dataset = save(RegressionBatchTest.dataset(29));
+        DatasetSnapshot snapshot = dataset.snapshot();
+
+        double[][] own = ReferenceData.completeRows(snapshot, null, Collections.singletonList("x3"));
+        DescriptiveStatistics expected = new DescriptiveStatistics();
+        for (double[] row : own) {
+            expected.addValue(row[0]);
+        }
+        MomentAccumulator moments = dao.computeMoments(dataset.getId(), "x3");
+        assertEquals(own.length, moments.getCount());
+        assertEquals(expected.getMean(), moments.getMean(), TOLERANCE);
+        assertEquals(expected.getVariance(), moments.getVariance(), TOLERANCE);
+        assertEquals(expected.getSkewness(), moments.getSkewness(), TOLERANCE);
+        assertEquals(expected.getKurtosis(), moments.getKurtosis(), TOLERANCE);
+        assertEquals(expected.getMin(), moments.getMin(), 0.0);
+        assertEquals(expected.getMax(), moments.getMax(), 0.0);
+
+        double[][] pair = ReferenceData.completeRows(snapshot, null, Arrays.asList("y", "x5"));
+        assertEquals(new PearsonsCorrelation(pair).getCorrelationMatrix().getEntry(0, 1),
+                dao.computeCorrelation(dataset.getId(), "y", "x5"), TOLERANCE);
+        assertTrue(Double.isNaN(dao.computeCorrelation(dataset.getId(), "y", "vacia")));
+    }
+
+    private Dataset save(Dataset dataset) throws SQLException {
+        dataset.setName("agregados-" + System.nanoTime());
+        dao.saveDataset(dataset);
+        return dataset;
+    }
+}